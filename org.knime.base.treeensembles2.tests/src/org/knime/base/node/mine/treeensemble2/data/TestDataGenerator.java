@@ -185,6 +185,14 @@ public static TreeTargetNumericColumnData createNumericTargetColumn(final String
         return targetCreator.createColumnData();
     }
 
+    /**
+     * @param bitIndex the position of the bit in the bit vector
+     * @return the meta data of a bit attribute, its attribute index still needs to be set
+     */
+    public static TreeBitColumnMetaData createBitColumnMetaData(final int bitIndex) {
+        return new TreeBitColumnMetaData(TreeBitColumnMetaData.getAttributeName(bitIndex));
+    }
+
     public static RandomData createRandomData() {
         JDKRandomGenerator randomGenerator = new JDKRandomGenerator();
         randomGenerator.setSeed(System.currentTimeMillis());
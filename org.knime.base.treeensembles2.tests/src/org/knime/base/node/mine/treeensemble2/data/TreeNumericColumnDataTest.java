@@ -376,6 +376,93 @@ public void testCalcBestSplitRegression() throws InvalidSettingsException {
         }
     }
 
+    @Test
+    public void testBinningKeepsEqualValuesTogether() throws Exception {
+        final float[] sortedData = new float[]{1f, 1f, 1f, 2f, 3f, 3f, 3f, 3f, 4f, Float.NaN};
+        TreeNumericColumnBinning binning = TreeNumericColumnBinning.create(sortedData, 9, 3);
+        assertEquals(3, binning.getNrBins());
+        assertEquals(0, binning.getBin(2));
+        assertEquals(1, binning.getBin(3));
+        assertEquals(1, binning.getBin(7));
+        assertEquals(2, binning.getBin(8));
+        assertEquals(2.0, binning.getLowerBound(1), 0.0);
+        assertEquals(3.0, binning.getUpperBound(1), 0.0);
+        assertEquals(4.0, binning.getLowerBound(2), 0.0);
+    }
+
+    @Test
+    public void testCalcBestSplitClassificationHistogram() throws Exception {
+        TreeEnsembleLearnerConfiguration config = createConfig();
+        // 5 bins of size 2, the best exact split (between 95 and 100) is also a bin boundary
+        config.setNrHistogramBins(5);
+        final double[] data = asDataArray("60,70,75,85, 90, 95, 100,120,125,220");
+        final String[] target = asStringArray("No,No,No,Yes,Yes,Yes,No, No, No, No");
+        Pair<TreeOrdinaryNumericColumnData, TreeTargetNominalColumnData> exampleData =
+            exampleData(config, data, target);
+        RandomData rd = config.createRandomData();
+        TreeNumericColumnData columnData = exampleData.getFirst();
+        TreeTargetNominalColumnData targetData = exampleData.getSecond();
+        assertNotNull(columnData.getBinning());
+        assertEquals(5, columnData.getBinning().getNrBins());
+        double[] rowWeights = new double[data.length];
+        Arrays.fill(rowWeights, 1.0);
+        TreeData treeData = createTreeDataClassification(exampleData);
+        IDataIndexManager indexManager = new DefaultDataIndexManager(treeData);
+        DataMemberships dataMemberships = new RootDataMemberships(rowWeights, treeData, indexManager);
+        ClassificationPriors priors = targetData.getDistribution(rowWeights, config);
+        SplitCandidate splitCandidate = columnData.calcBestSplitClassification(dataMemberships, priors, targetData, rd);
+        assertNotNull(splitCandidate);
+        assertEquals(0.12, splitCandidate.getGainValue(), 0.00001);
+        TreeNodeNumericCondition[] childConditions = ((NumericSplitCandidate)splitCandidate).getChildConditions();
+        assertEquals((95.0 + 100.0) / 2.0, childConditions[0].getSplitValue(), 0.0);
+
+        // left child: bins {60,70}, {75,85}, {90,95} - the exact split (75|85) is not a bin boundary
+        BitSet inChild = columnData.updateChildMemberships(childConditions[0], dataMemberships);
+        DataMemberships childMemberships = dataMemberships.createChildMemberships(inChild);
+        ClassificationPriors childTargetPriors = targetData.getDistribution(childMemberships, config);
+        SplitCandidate splitCandidateChild =
+            columnData.calcBestSplitClassification(childMemberships, childTargetPriors, targetData, rd);
+        assertNotNull(splitCandidateChild);
+        // both remaining bin boundaries give the same gini gain of 0.5 - 0.25
+        assertEquals(0.25, splitCandidateChild.getGainValue(), 0.00001);
+        double childSplitValue =
+            ((NumericSplitCandidate)splitCandidateChild).getChildConditions()[0].getSplitValue();
+        assertTrue(childSplitValue == (70.0 + 75.0) / 2.0 || childSplitValue == (85.0 + 90.0) / 2.0);
+    }
+
+    @Test
+    public void testCalcBestSplitRegressionHistogram() throws InvalidSettingsException {
+        String dataCSV = "1,2,3,4,5,6,7,8,9,10";
+        String targetCSV = "1,5,4,4.3,6.5,6.5,4,3,3,4";
+        TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(true);
+        config.setNrModels(1);
+        config.setDataSelectionWithReplacement(false);
+        config.setUseDifferentAttributesAtEachNode(false);
+        config.setDataFractionPerTree(1.0);
+        config.setColumnSamplingMode(ColumnSamplingMode.None);
+        // one bin per distinct value, must be identical to the exact split search
+        config.setNrHistogramBins(10);
+        TestDataGenerator dataGen = new TestDataGenerator(config);
+        RandomData rd = config.createRandomData();
+        TreeTargetNumericColumnData target = TestDataGenerator.createNumericTargetColumn(targetCSV);
+        TreeNumericColumnData attribute = dataGen.createNumericAttributeColumn(dataCSV, "test-col", 0);
+        assertNotNull(attribute.getBinning());
+        TreeData data = new TreeData(new TreeAttributeColumnData[]{attribute}, target, TreeType.Ordinary);
+        double[] weights = new double[10];
+        Arrays.fill(weights, 1.0);
+        DataMemberships rootMem = new RootDataMemberships(weights, data, new DefaultDataIndexManager(data));
+        SplitCandidate firstSplit =
+            attribute.calcBestSplitRegression(rootMem, target.getPriors(rootMem, config), target, rd);
+        assertEquals(10.885444, firstSplit.getGainValue(), 1e-5);
+        TreeNodeNumericCondition numCond = (TreeNodeNumericCondition)firstSplit.getChildConditions()[0];
+        assertEquals(1.5, numCond.getSplitValue(), 0);
+    }
+
+    @Test(expected = InvalidSettingsException.class)
+    public void testInvalidNrHistogramBins() throws InvalidSettingsException {
+        createConfig().setNrHistogramBins(TreeNumericColumnBinning.MAX_NR_BINS + 1);
+    }
+
     /**
      * This method tests if the conditions for child nodes are correct in case of XGBoostMissingValueHandling
      *
@@ -0,0 +1,237 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.distance;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsembleTest;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeModelRegression;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeSignature;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Tests the distances of {@link RandomForestDistance} and the leafs its {@link RowLeafCache} returns.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class RandomForestDistanceTest {
+
+    private static final int NR_TREES = 20;
+
+    private static final TreeMetaData META_DATA = CompiledTreeEnsembleTest.createMetaData(3, true);
+
+    /** The spec of the learning columns of {@link #META_DATA}. */
+    private static final DataTableSpec LEARN_SPEC = new DataTableSpec(
+        new DataColumnSpecCreator("num0", DoubleCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("num1", DoubleCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("num2", DoubleCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("binary", StringCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("multiway", StringCell.TYPE).createSpec());
+
+    private static final int[] FILTER_INDICES = new int[]{0, 1, 2, 3, 4};
+
+    private static DataRow createRow(final RowKey key, final Random random) {
+        final DataCell[] cells = new DataCell[5];
+        for (int i = 0; i < 3; i++) {
+            cells[i] = random.nextInt(10) == 0 ? DataType.getMissingCell() : new DoubleCell(random.nextGaussian());
+        }
+        cells[3] = new StringCell("v" + random.nextInt(70));
+        cells[4] = new StringCell("v" + random.nextInt(4));
+        return new DefaultRow(key, cells);
+    }
+
+    private static DataRow[] createRows(final int nrRows, final Random random) {
+        final DataRow[] rows = new DataRow[nrRows];
+        for (int r = 0; r < nrRows; r++) {
+            rows[r] = createRow(RowKey.createRowKey(r), random);
+        }
+        return rows;
+    }
+
+    private static int[] calcLeafs(final TreeEnsembleModel model, final DataRow row) {
+        final CompiledTreeEnsemble compiledModel = model.getCompiledModel();
+        final int[] leafs = new int[compiledModel.getNrTrees()];
+        compiledModel.findMatchingNodeIndices(
+            compiledModel.createRow().load(model.createPredictorRecord(row, LEARN_SPEC)), leafs);
+        return leafs;
+    }
+
+    /** The former implementation, which compared the signatures of the matching nodes tree by tree. */
+    private static double calcOldDistance(final TreeEnsembleModel model, final DataRow row1, final DataRow row2) {
+        final PredictorRecord record1 = model.createPredictorRecord(row1, LEARN_SPEC);
+        final PredictorRecord record2 = model.createPredictorRecord(row2, LEARN_SPEC);
+        int nrSharedLeafs = 0;
+        for (int t = 0; t < model.getNrModels(); t++) {
+            final TreeModelRegression tree = model.getTreeModelRegression(t);
+            final TreeNodeSignature signature1 = tree.findMatchingNode(record1).getSignature();
+            final TreeNodeSignature signature2 = tree.findMatchingNode(record2).getSignature();
+            nrSharedLeafs += signature1.equals(signature2) ? 1 : 0;
+        }
+        return 1 - nrSharedLeafs / (double)model.getNrModels();
+    }
+
+    /**
+     * The distances of all pairs of rows must be those of the former implementation.
+     */
+    @Test
+    public void testDistanceMatchesOldImplementation() {
+        final Random random = new Random(51);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(META_DATA, NR_TREES, 5, random);
+        final DataRow[] rows = createRows(60, random);
+        final RowLeafCache cache = new RowLeafCache(model, LEARN_SPEC, FILTER_INDICES, 1000);
+        for (final DataRow row1 : rows) {
+            for (final DataRow row2 : rows) {
+                assertEquals(calcOldDistance(model, row1, row2),
+                    RandomForestDistance.computeDistance(cache.getLeafs(row1), cache.getLeafs(row2)), 0.0);
+            }
+        }
+        assertEquals(0.0, RandomForestDistance.computeDistance(cache.getLeafs(rows[3]), cache.getLeafs(rows[3])),
+            0.0);
+        assertEquals(1.0, RandomForestDistance.computeDistance(null, cache.getLeafs(rows[3])), 0.0);
+    }
+
+    /**
+     * A cache that is smaller than the table must still return the right leafs when all rows are compared with each
+     * other several times.
+     */
+    @Test
+    public void testFullCacheReturnsRightLeafs() {
+        final Random random = new Random(52);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(META_DATA, NR_TREES, 5, random);
+        final DataRow[] rows = createRows(20, random);
+        final RowLeafCache cache = new RowLeafCache(model, LEARN_SPEC, FILTER_INDICES, 5);
+        for (int pass = 0; pass < 3; pass++) {
+            for (final DataRow row1 : rows) {
+                for (final DataRow row2 : rows) {
+                    assertArrayEquals(calcLeafs(model, row1), cache.getLeafs(row1));
+                    assertArrayEquals(calcLeafs(model, row2), cache.getLeafs(row2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Rows of different tables may share their key, a cached row must not be returned for another row with the same
+     * key.
+     */
+    @Test
+    public void testRowsWithSameKey() {
+        final Random random = new Random(53);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(META_DATA, NR_TREES, 5, random);
+        final DataRow[] rows1 = createRows(30, random);
+        final DataRow[] rows2 = createRows(30, random);
+        final RowLeafCache cache = new RowLeafCache(model, LEARN_SPEC, FILTER_INDICES, 1000);
+        for (int r = 0; r < rows1.length; r++) {
+            assertArrayEquals(calcLeafs(model, rows1[r]), cache.getLeafs(rows1[r]));
+            assertArrayEquals(calcLeafs(model, rows2[r]), cache.getLeafs(rows2[r]));
+            // an equal row that is not the same object
+            final DataRow copy = new DefaultRow(rows1[r].getKey(), rows1[r].getCell(0), rows1[r].getCell(1),
+                rows1[r].getCell(2), rows1[r].getCell(3), rows1[r].getCell(4));
+            assertArrayEquals(calcLeafs(model, rows1[r]), cache.getLeafs(copy));
+        }
+    }
+
+    /**
+     * Threads that compute distances concurrently each use their own cache and must get the sequential distances.
+     *
+     * @throws Exception if a thread fails
+     */
+    @Test
+    public void testConcurrentDistances() throws Exception {
+        final Random random = new Random(54);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(META_DATA, NR_TREES, 5, random);
+        final DataRow[] rows = createRows(80, random);
+        final double[][] expected = new double[rows.length][rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < rows.length; j++) {
+                expected[i][j] = RandomForestDistance.computeDistance(calcLeafs(model, rows[i]),
+                    calcLeafs(model, rows[j]));
+            }
+        }
+        final RowLeafCache cache = new RowLeafCache(model, LEARN_SPEC, FILTER_INDICES, 30);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<double[]>> futures = new ArrayList<Future<double[]>>();
+            for (int i = 0; i < rows.length; i++) {
+                final DataRow row1 = rows[i];
+                futures.add(executor.submit(() -> {
+                    final double[] distances = new double[rows.length];
+                    for (int j = 0; j < rows.length; j++) {
+                        distances[j] =
+                            RandomForestDistance.computeDistance(cache.getLeafs(row1), cache.getLeafs(rows[j]));
+                    }
+                    return distances;
+                }));
+            }
+            for (int i = 0; i < rows.length; i++) {
+                assertArrayEquals(expected[i], futures.get(i).get(), 0.0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.AbstractTreeTargetNominalColumnData;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DefaultDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.model.AdaBoostModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeModelClassification;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.ColumnSamplingMode;
+import org.knime.base.node.mine.treeensemble2.sample.row.SubsetNoReplacementRowSample;
+import org.knime.base.node.mine.treeensemble2.sample.row.WeightedRowSample;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Tests the weighted learning of trees and the {@link AdaBoostLearner}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class AdaBoostLearnerTest {
+
+    private static final int NR_ROWS = 300;
+
+    private static TreeEnsembleLearnerConfiguration createConfig(final int maxLevels) throws Exception {
+        TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(false);
+        config.setColumnSamplingMode(ColumnSamplingMode.None);
+        config.setMaxLevels(maxLevels);
+        config.setSeed(7L);
+        return config;
+    }
+
+    /** Three classes by ranges of the first column with some label noise, the second column is noise. */
+    private static TreeData createData(final TreeEnsembleLearnerConfiguration config) {
+        final Random random = new Random(11);
+        TestDataGenerator dataGen = new TestDataGenerator(config);
+        final double[] x1 = new double[NR_ROWS];
+        final double[] x2 = new double[NR_ROWS];
+        final String[] target = new String[NR_ROWS];
+        for (int i = 0; i < NR_ROWS; i++) {
+            x1[i] = random.nextInt(21);
+            x2[i] = random.nextInt(21);
+            final int c = random.nextInt(10) == 0 ? random.nextInt(3) : (int)x1[i] / 7;
+            target[i] = "c" + c;
+        }
+        return dataGen.createTreeData(TestDataGenerator.createNominalTargetColumn(target),
+            dataGen.createNumericAttributeColumnData(x1, "x1", 0),
+            dataGen.createNumericAttributeColumnData(x2, "x2", 1));
+    }
+
+    private static int[] predict(final TreeModelClassification tree, final TreeData data,
+        final IDataIndexManager indexManager) {
+        final LearnRecordReader reader = new LearnRecordReader(data, indexManager);
+        final IndexedPredictorRecord record = new IndexedPredictorRecord(data.getMetaData());
+        final int[] predictions = new int[data.getNrRows()];
+        for (int i = 0; i < predictions.length; i++) {
+            reader.fillRecord(record, i);
+            predictions[i] = tree.findMatchingNode(record).getMajorityClassIndex();
+        }
+        return predictions;
+    }
+
+    /**
+     * A tree learned with a weight of 1 for each row must be the same as the one learned on all rows.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUnitWeightsMatchAllRows() throws Exception {
+        TreeEnsembleLearnerConfiguration config = createConfig(4);
+        TreeData data = createData(config);
+        IDataIndexManager indexManager = new DefaultDataIndexManager(data);
+        BitSet all = new BitSet(NR_ROWS);
+        all.set(0, NR_ROWS);
+        TreeModelClassification allRowsTree = new TreeLearnerClassification(config, data, indexManager,
+            new TreeNodeSignatureFactory(), TreeEnsembleLearnerConfiguration.createRandomData(1),
+            new SubsetNoReplacementRowSample(all, NR_ROWS, 1.0))
+                .learnSingleTree(new ExecutionMonitor(), TreeEnsembleLearnerConfiguration.createRandomData(1));
+        final double[] weights = new double[NR_ROWS];
+        Arrays.fill(weights, 1.0);
+        TreeModelClassification weightedTree = new TreeLearnerClassification(config, data, indexManager,
+            new TreeNodeSignatureFactory(), TreeEnsembleLearnerConfiguration.createRandomData(1),
+            new WeightedRowSample(weights))
+                .learnSingleTree(new ExecutionMonitor(), TreeEnsembleLearnerConfiguration.createRandomData(1));
+        assertTrue(Arrays.equals(predict(allRowsTree, data, indexManager), predict(weightedTree, data, indexManager)));
+    }
+
+    /**
+     * Boosted stumps must separate the three classes better than the first stump, which can only predict two
+     * classes.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBoostingImprovesOnFirstTree() throws Exception {
+        TreeEnsembleLearnerConfiguration config = createConfig(2);
+        config.setNrModels(20);
+        TreeData data = createData(config);
+        AdaBoostLearner learner = new AdaBoostLearner(config, data);
+        AdaBoostModel model = learner.learnEnsemble(new ExecutionMonitor());
+        assertEquals(model.getNrModels(), learner.getModelWeights().length);
+        assertTrue(model.getNrModels() > 1);
+        for (int i = 0; i < model.getNrModels(); i++) {
+            assertTrue(model.getModelWeight(i) > 0.0);
+        }
+
+        IDataIndexManager indexManager = new DefaultDataIndexManager(data);
+        final AbstractTreeTargetNominalColumnData target = (AbstractTreeTargetNominalColumnData)data.getTargetColumn();
+        final double[][] votes = new double[NR_ROWS][3];
+        for (int t = 0; t < model.getNrModels(); t++) {
+            final int[] predictions = predict(model.getTreeModelClassification(t), data, indexManager);
+            for (int i = 0; i < NR_ROWS; i++) {
+                votes[i][predictions[i]] += model.getModelWeight(t);
+            }
+        }
+        int ensembleErrors = 0;
+        for (int i = 0; i < NR_ROWS; i++) {
+            int best = 0;
+            for (int c = 1; c < 3; c++) {
+                if (votes[i][c] > votes[i][best]) {
+                    best = c;
+                }
+            }
+            if (best != target.getValueFor(i)) {
+                ensembleErrors++;
+            }
+        }
+        // the first tree has unit weights, hence its weighted error is its misclassification rate
+        assertTrue(ensembleErrors / (double)NR_ROWS < learner.getModelErrors()[0]);
+    }
+
+}
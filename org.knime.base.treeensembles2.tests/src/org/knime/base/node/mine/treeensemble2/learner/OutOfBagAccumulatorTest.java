@@ -0,0 +1,344 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.math.stat.descriptive.moment.Mean;
+import org.apache.commons.math.stat.descriptive.moment.Variance;
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNominalColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNominalColumnData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DefaultDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeModelClassification;
+import org.knime.base.node.mine.treeensemble2.model.TreeModelRegression;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeRegression;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.ColumnSamplingMode;
+import org.knime.base.node.mine.treeensemble2.node.predictor.RandomForestRegressionPrediction;
+import org.knime.base.node.mine.treeensemble2.node.predictor.regression.OutOfBagRegressionPredictor;
+import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
+import org.knime.base.node.mine.treeensemble2.sample.row.SubsetNoReplacementRowSample;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Tests that the out-of-bag predictions collected while learning match the ones of the trees evaluated on the rows.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class OutOfBagAccumulatorTest {
+
+    private static final int NR_ROWS = 200;
+
+    private static final int NR_TREES = 3;
+
+    private static TreeEnsembleLearnerConfiguration createConfig(final boolean isRegression) throws Exception {
+        TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(isRegression);
+        config.setColumnSamplingMode(ColumnSamplingMode.None);
+        config.setMaxLevels(5);
+        return config;
+    }
+
+    private static TreeData createData(final TreeEnsembleLearnerConfiguration config, final Random random,
+        final TreeTargetColumnData target) {
+        TestDataGenerator dataGen = new TestDataGenerator(config);
+        final String[] nominalValues = new String[NR_ROWS];
+        final double[] numericValues = new double[NR_ROWS];
+        for (int i = 0; i < NR_ROWS; i++) {
+            // include missing values in both columns
+            nominalValues[i] = random.nextInt(10) == 0 ? "?" : "v" + random.nextInt(4);
+            numericValues[i] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(20);
+        }
+        return dataGen.createTreeData(target, dataGen.createNominalAttributeColumn(nominalValues, "nom", 0),
+            dataGen.createNumericAttributeColumnData(numericValues, "num", 1));
+    }
+
+    private static RowSample createRowSample(final Random random) {
+        BitSet include = new BitSet(NR_ROWS);
+        for (int i = 0; i < NR_ROWS; i++) {
+            include.set(i, random.nextBoolean());
+        }
+        return new SubsetNoReplacementRowSample(include, NR_ROWS, 0.5);
+    }
+
+    /** Creates the record of a row the same way the gradient boosting learner does. */
+    private static PredictorRecord createRecord(final TreeData data, final IDataIndexManager indexManager,
+        final int row) {
+        Map<String, Object> values = new HashMap<>();
+        for (TreeAttributeColumnData column : data.getColumns()) {
+            final int attributeIndex = column.getMetaData().getAttributeIndex();
+            Object value = column.getValueAt(indexManager.getPositionsInColumn(attributeIndex)[row]);
+            if (column instanceof TreeNominalColumnData) {
+                final TreeNominalColumnData nominalColumn = (TreeNominalColumnData)column;
+                if (nominalColumn.containsMissingValues()
+                    && (Integer)value == nominalColumn.getMetaData().getValues().length - 1) {
+                    value = PredictorRecord.NULL;
+                }
+            } else if (((Double)value).isNaN()) {
+                value = PredictorRecord.NULL;
+            }
+            values.put(column.getMetaData().getAttributeName(), value);
+        }
+        return new PredictorRecord(values);
+    }
+
+    /**
+     * Each out-of-bag row must receive the vote of the leaf the tree assigns it to, in-bag rows must not receive any.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testClassificationVotes() throws Exception {
+        final Random random = new Random(3);
+        TreeEnsembleLearnerConfiguration config = createConfig(false);
+        final String[] targetValues = new String[NR_ROWS];
+        for (int i = 0; i < NR_ROWS; i++) {
+            targetValues[i] = "c" + random.nextInt(3);
+        }
+        TreeData data = createData(config, random, TestDataGenerator.createNominalTargetColumn(targetValues));
+        IDataIndexManager indexManager = new DefaultDataIndexManager(data);
+        OutOfBagAccumulatorClassification accumulator =
+            new OutOfBagAccumulatorClassification(data, indexManager, NR_TREES, 1, -1.0);
+        final int[][] expectedVotes = new int[NR_ROWS][accumulator.getNrClasses()];
+        for (int t = 0; t < NR_TREES; t++) {
+            final RowSample sample = createRowSample(random);
+            TreeModelClassification tree = new TreeLearnerClassification(config, data, indexManager,
+                new TreeNodeSignatureFactory(), TreeEnsembleLearnerConfiguration.createRandomData(t), sample)
+                    .learnSingleTree(new ExecutionMonitor(), TreeEnsembleLearnerConfiguration.createRandomData(t));
+            for (int i = 0; i < NR_ROWS; i++) {
+                if (sample.getCountFor(i) == 0) {
+                    expectedVotes[i][tree.findMatchingNode(createRecord(data, indexManager, i))
+                        .getMajorityClassIndex()]++;
+                }
+            }
+            accumulator.addTree(t, tree, sample);
+        }
+        for (int i = 0; i < NR_ROWS; i++) {
+            int nrVotes = 0;
+            for (int c = 0; c < accumulator.getNrClasses(); c++) {
+                assertEquals(expectedVotes[i][c], accumulator.getNrVotes(i, c));
+                nrVotes += expectedVotes[i][c];
+            }
+            assertEquals(nrVotes, accumulator.getNrVotes(i));
+        }
+    }
+
+    /**
+     * The accumulated moments must be identical to the ones of {@link Mean} and {@link Variance} over the trees in
+     * the order of their index, even if the trees are added in a different order.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRegressionIndependentOfOrder() throws Exception {
+        final Random random = new Random(5);
+        TreeEnsembleLearnerConfiguration config = createConfig(true);
+        final StringBuilder target = new StringBuilder();
+        for (int i = 0; i < NR_ROWS; i++) {
+            target.append(i == 0 ? "" : ",").append(random.nextGaussian());
+        }
+        TreeData data =
+            createData(config, random, TestDataGenerator.createNumericTargetColumn(target.toString()));
+        IDataIndexManager indexManager = new DefaultDataIndexManager(data);
+        final AbstractTreeModel<?>[] trees = new AbstractTreeModel[NR_TREES];
+        final RowSample[] samples = new RowSample[NR_TREES];
+        final Mean[] means = new Mean[NR_ROWS];
+        final Variance[] variances = new Variance[NR_ROWS];
+        for (int i = 0; i < NR_ROWS; i++) {
+            means[i] = new Mean();
+            variances[i] = new Variance();
+        }
+        for (int t = 0; t < NR_TREES; t++) {
+            samples[t] = createRowSample(random);
+            TreeModelRegression tree = new TreeLearnerRegression(config, data, indexManager,
+                new TreeNodeSignatureFactory(), TreeEnsembleLearnerConfiguration.createRandomData(t), samples[t])
+                    .learnSingleTree(new ExecutionMonitor(), TreeEnsembleLearnerConfiguration.createRandomData(t));
+            trees[t] = tree;
+            for (int i = 0; i < NR_ROWS; i++) {
+                if (samples[t].getCountFor(i) == 0) {
+                    TreeNodeRegression leaf = tree.findMatchingNode(createRecord(data, indexManager, i));
+                    means[i].increment(leaf.getMean());
+                    variances[i].increment(leaf.getMean());
+                }
+            }
+        }
+        OutOfBagAccumulatorRegression accumulator =
+            new OutOfBagAccumulatorRegression(data, indexManager, NR_TREES, 1, -1.0);
+        for (int t : new int[]{2, 0, 1}) {
+            accumulator.addTree(t, trees[t], samples[t]);
+        }
+        boolean hasVariance = false;
+        for (int i = 0; i < NR_ROWS; i++) {
+            assertEquals((int)means[i].getN(), accumulator.getModelCount(i));
+            assertEquals(means[i].getResult(), accumulator.getMean(i), 0.0);
+            assertEquals(variances[i].getResult(), accumulator.getVariance(i), 0.0);
+            hasVariance |= accumulator.getVariance(i) > 0.0;
+        }
+        assertTrue("Expected rows with differing out-of-bag predictions", hasVariance);
+    }
+
+    /**
+     * The error is computed after every interval and after the last tree. Adding the same tree repeatedly doesn't
+     * change the majority votes, hence the error converges after three intervals and later trees are ignored.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testErrorCurveAndConvergence() throws Exception {
+        final Random random = new Random(7);
+        TreeEnsembleLearnerConfiguration config = createConfig(false);
+        final String[] targetValues = new String[NR_ROWS];
+        for (int i = 0; i < NR_ROWS; i++) {
+            targetValues[i] = "c" + random.nextInt(3);
+        }
+        TreeData data = createData(config, random, TestDataGenerator.createNominalTargetColumn(targetValues));
+        IDataIndexManager indexManager = new DefaultDataIndexManager(data);
+        final RowSample sample = createRowSample(random);
+        TreeModelClassification tree = new TreeLearnerClassification(config, data, indexManager,
+            new TreeNodeSignatureFactory(), TreeEnsembleLearnerConfiguration.createRandomData(0), sample)
+                .learnSingleTree(new ExecutionMonitor(), TreeEnsembleLearnerConfiguration.createRandomData(0));
+        final TreeTargetNominalColumnData target = (TreeTargetNominalColumnData)data.getTargetColumn();
+        int nrOutOfBag = 0;
+        int nrMisclassified = 0;
+        for (int i = 0; i < NR_ROWS; i++) {
+            if (sample.getCountFor(i) == 0) {
+                nrOutOfBag++;
+                if (tree.findMatchingNode(createRecord(data, indexManager, i)).getMajorityClassIndex() != target
+                    .getValueFor(i)) {
+                    nrMisclassified++;
+                }
+            }
+        }
+        final double expectedError = nrMisclassified / (double)nrOutOfBag;
+
+        OutOfBagAccumulatorClassification fixed =
+            new OutOfBagAccumulatorClassification(data, indexManager, 10, 4, -1.0);
+        for (int t = 9; t >= 0; t--) {
+            fixed.addTree(t, tree, sample);
+        }
+        assertEquals(10, fixed.getNrTrees());
+        assertFalse(fixed.hasConverged());
+        assertArrayEquals(new int[]{4, 8, 10}, fixed.getErrorCurveNrTrees());
+        assertArrayEquals(new double[]{expectedError, expectedError, expectedError}, fixed.getErrorCurve(), 0.0);
+
+        OutOfBagAccumulatorClassification auto = new OutOfBagAccumulatorClassification(data, indexManager, 10, 2, 0.0);
+        for (int t = 0; t < 10; t++) {
+            auto.addTree(t, tree, sample);
+        }
+        assertTrue(auto.hasConverged());
+        assertEquals(6, auto.getNrTrees());
+        assertArrayEquals(new int[]{2, 4, 6}, auto.getErrorCurveNrTrees());
+        for (int i = 0; i < NR_ROWS; i++) {
+            assertEquals(sample.getCountFor(i) == 0 ? 6 : 0, auto.getNrVotes(i));
+        }
+    }
+
+    /**
+     * The predictor of the learner nodes looks up the accumulated predictions of the learned rows. Rows that are not
+     * part of the training data (e.g. rows with missing target) are out of bag for all trees, they are predicted by
+     * the whole ensemble.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRowsNotLearnedArePredictedByEnsemble() throws Exception {
+        final Random random = new Random(11);
+        TreeEnsembleLearnerConfiguration config = createConfig(true);
+        final StringBuilder target = new StringBuilder();
+        for (int i = 0; i < NR_ROWS; i++) {
+            target.append(i == 0 ? "" : ",").append(random.nextGaussian());
+        }
+        TreeData data =
+            createData(config, random, TestDataGenerator.createNumericTargetColumn(target.toString()));
+        IDataIndexManager indexManager = new DefaultDataIndexManager(data);
+        final RowSample sample = createRowSample(random);
+        TreeModelRegression tree = new TreeLearnerRegression(config, data, indexManager,
+            new TreeNodeSignatureFactory(), TreeEnsembleLearnerConfiguration.createRandomData(0), sample)
+                .learnSingleTree(new ExecutionMonitor(), TreeEnsembleLearnerConfiguration.createRandomData(0));
+        OutOfBagAccumulatorRegression accumulator = new OutOfBagAccumulatorRegression(data, indexManager, 1, 1, -1.0);
+        accumulator.addTree(0, tree, sample);
+
+        final List<RowKey> ensembleRows = new ArrayList<>();
+        OutOfBagRegressionPredictor predictor =
+            new OutOfBagRegressionPredictor(accumulator, data.getTargetColumn(), row -> {
+                ensembleRows.add(row.getKey());
+                return null;
+            });
+        for (int i = 0; i < NR_ROWS; i++) {
+            RandomForestRegressionPrediction prediction =
+                predictor.predict(new DefaultRow(data.getTargetColumn().getRowKeyFor(i), new DataCell[0]));
+            assertEquals(sample.getCountFor(i) == 0, prediction.hasPrediction());
+            assertEquals(accumulator.getModelCount(i), prediction.getModelCount());
+            assertEquals(accumulator.getMean(i), prediction.getPrediction(), 0.0);
+        }
+        assertTrue("Learned rows must not be predicted by the ensemble", ensembleRows.isEmpty());
+        final RowKey rejected = new RowKey("rejected");
+        assertNull(predictor.predict(new DefaultRow(rejected, new DataCell[0])));
+        assertEquals(Collections.singletonList(rejected), ensembleRows);
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DefaultDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.ColumnSamplingMode;
+import org.knime.base.node.mine.treeensemble2.sample.row.DefaultRowSample;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Tests the level-wise tree growth of {@link TreeLearnerClassification}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TreeLearnerClassificationTest {
+
+    private static final int NR_ROWS = 200;
+
+    /**
+     * Three classes that depend on the first column, the second column is a copy of the first one (hence each split
+     * on the first column ties with the same split on the second one) and the others are noise with few distinct
+     * values.
+     */
+    private static TreeData createData(final TreeEnsembleLearnerConfiguration config) {
+        final Random random = new Random(3);
+        TestDataGenerator dataGen = new TestDataGenerator(config);
+        final double[] x1 = new double[NR_ROWS];
+        final double[] x3 = new double[NR_ROWS];
+        final double[] x4 = new double[NR_ROWS];
+        final String[] target = new String[NR_ROWS];
+        for (int i = 0; i < NR_ROWS; i++) {
+            x1[i] = random.nextInt(12);
+            x3[i] = random.nextInt(4);
+            x4[i] = random.nextInt(4);
+            final int c = random.nextInt(8) == 0 ? random.nextInt(3) : (int)x1[i] / 4;
+            target[i] = "c" + c;
+        }
+        return dataGen.createTreeData(TestDataGenerator.createNominalTargetColumn(target),
+            dataGen.createNumericAttributeColumnData(x1, "x1", 0),
+            dataGen.createNumericAttributeColumnData(x1.clone(), "x2", 1),
+            dataGen.createNumericAttributeColumnData(x3, "x3", 2),
+            dataGen.createNumericAttributeColumnData(x4, "x4", 3));
+    }
+
+    private static String learnTree(final TreeEnsembleLearnerConfiguration config, final long seed) {
+        TreeData data = createData(config);
+        try {
+            return new TreeLearnerClassification(config, data, new DefaultDataIndexManager(data),
+                new TreeNodeSignatureFactory(), TreeEnsembleLearnerConfiguration.createRandomData(seed),
+                new DefaultRowSample(data.getNrRows()))
+                    .learnSingleTree(new ExecutionMonitor(), TreeEnsembleLearnerConfiguration.createRandomData(seed))
+                    .getRootNode().toString();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static TreeEnsembleLearnerConfiguration createConfig(final boolean useColumnSampling,
+        final boolean useHistograms) throws Exception {
+        TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(false);
+        config.setNrModels(1);
+        config.setDataSelectionWithReplacement(false);
+        config.setDataFractionPerTree(1.0);
+        config.setMaxLevels(5);
+        if (useColumnSampling) {
+            config.setColumnSamplingMode(ColumnSamplingMode.Absolute);
+            config.setColumnAbsoluteValue(3);
+            config.setUseDifferentAttributesAtEachNode(true);
+        } else {
+            config.setColumnSamplingMode(ColumnSamplingMode.None);
+        }
+        config.setNrHistogramBins(useHistograms ? 8 : TreeEnsembleLearnerConfiguration.NR_HISTOGRAM_BINS_UNDEFINED);
+        // depth-first growth must derive the random numbers from the nodes as level-wise growth does
+        config.setUseParallelSplitSearch(true);
+        return config;
+    }
+
+    /**
+     * Trees grown level-wise must be identical to the ones grown depth-first (with node derived random numbers), also
+     * with a different column sample at each node and with ties between columns that are broken randomly.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLevelWiseGrowthMatchesDepthFirst() throws Exception {
+        for (boolean useColumnSampling : new boolean[]{false, true}) {
+            for (boolean useHistograms : new boolean[]{false, true}) {
+                for (long seed = 0; seed < 5; seed++) {
+                    TreeEnsembleLearnerConfiguration config = createConfig(useColumnSampling, useHistograms);
+                    final String expected = learnTree(config, seed);
+                    assertTrue("Tree is expected to have more than one level", expected.contains("\n      "));
+                    config.setUseLevelWiseGrowth(true);
+                    assertEquals("column sampling: " + useColumnSampling + ", histograms: " + useHistograms
+                        + ", seed: " + seed, expected, learnTree(config, seed));
+                }
+            }
+        }
+    }
+
+    /**
+     * The ties between the copied columns must actually be broken randomly, otherwise the test above wouldn't cover
+     * them.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTiesAreBrokenRandomly() throws Exception {
+        boolean usesFirstCopy = false;
+        boolean usesSecondCopy = false;
+        for (long seed = 0; seed < 20; seed++) {
+            final String tree = learnTree(createConfig(false, false), seed);
+            usesFirstCopy |= tree.contains("x1");
+            usesSecondCopy |= tree.contains("x2");
+        }
+        assertTrue(usesFirstCopy && usesSecondCopy);
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DefaultDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.model.TreeModelRegression;
+import org.knime.base.node.mine.treeensemble2.node.gradientboosting.learner.GradientBoostingLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.ColumnSamplingMode;
+import org.knime.base.node.mine.treeensemble2.sample.row.DefaultRowSample;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Tests the histogram subtraction used by {@link TreeLearnerRegression} for binned gradient boosting, the level-wise
+ * tree growth and the parallel split search.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TreeLearnerRegressionTest {
+
+    private static final String COL1 = "1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20,21,22,23,24";
+
+    private static final String COL2 = "5,3,8,1,9,2,7,4,6,3,8,1,5,9,2,6,4,7,3,8,2,9,1,5";
+
+    // integer targets so that subtracted histograms are exact and ties are broken identically
+    private static final String TARGET = "1,1,2,1,3,2,4,5,4,6,7,6,8,8,9,10,9,12,11,13,12,14,15,15";
+
+    private static void configure(final TreeEnsembleLearnerConfiguration config) throws Exception {
+        config.setNrModels(1);
+        config.setDataSelectionWithReplacement(false);
+        config.setUseDifferentAttributesAtEachNode(false);
+        config.setDataFractionPerTree(1.0);
+        config.setColumnSamplingMode(ColumnSamplingMode.None);
+        config.setMaxLevels(4);
+        config.setNrHistogramBins(8);
+    }
+
+    private static TreeModelRegression learnTree(final TreeEnsembleLearnerConfiguration config) throws Exception {
+        TestDataGenerator dataGen = new TestDataGenerator(config);
+        TreeTargetNumericColumnData target = TestDataGenerator.createNumericTargetColumn(TARGET);
+        TreeData data = dataGen.createTreeData(target, dataGen.createNumericAttributeColumn(COL1, "col1", 0),
+            dataGen.createNumericAttributeColumn(COL2, "col2", 1));
+        return learnTree(config, data, null);
+    }
+
+    private static TreeModelRegression learnTree(final TreeEnsembleLearnerConfiguration config, final TreeData data,
+        final ParallelSplitSearch splitSearch) throws Exception {
+        return learnTree(config, data, splitSearch, 42);
+    }
+
+    private static TreeModelRegression learnTree(final TreeEnsembleLearnerConfiguration config, final TreeData data,
+        final ParallelSplitSearch splitSearch, final long seed) throws Exception {
+        TreeLearnerRegression learner = new TreeLearnerRegression(config, data, new DefaultDataIndexManager(data),
+            new TreeNodeSignatureFactory(), TreeEnsembleLearnerConfiguration.createRandomData(seed),
+            new DefaultRowSample(data.getNrRows()));
+        if (splitSearch != null) {
+            learner.setParallelSplitSearch(splitSearch);
+        }
+        return learner.learnSingleTree(new ExecutionMonitor(), TreeEnsembleLearnerConfiguration.createRandomData(seed));
+    }
+
+    private static String createColumn(final Random random, final int nrRows, final int nrValues) {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < nrRows; i++) {
+            b.append(i == 0 ? "" : ",").append(random.nextInt(nrValues));
+        }
+        return b.toString();
+    }
+
+    /**
+     * Trees learned with histogram subtraction must be identical to trees that compute the histograms of every node
+     * from its rows, regardless of whether the memory limit allows to keep histograms alive.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHistogramSubtractionMatchesRecomputation() throws Exception {
+        TreeEnsembleLearnerConfiguration plainConfig = new TreeEnsembleLearnerConfiguration(true);
+        configure(plainConfig);
+        final String expected = learnTree(plainConfig).getRootNode().toString();
+        assertTrue("Tree is expected to have more than one level", expected.contains("\n      "));
+
+        GradientBoostingLearnerConfiguration gbtConfig = new GradientBoostingLearnerConfiguration(true);
+        configure(gbtConfig);
+        assertEquals(expected, learnTree(gbtConfig).getRootNode().toString());
+
+        gbtConfig.setHistogramMemoryLimit(0);
+        assertEquals(expected, learnTree(gbtConfig).getRootNode().toString());
+    }
+
+    /**
+     * Trees grown level-wise must be identical to the ones grown depth-first, both with exact and histogram splits.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLevelWiseGrowthMatchesDepthFirst() throws Exception {
+        for (boolean useHistograms : new boolean[]{false, true}) {
+            TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(true);
+            configure(config);
+            if (!useHistograms) {
+                config.setNrHistogramBins(TreeEnsembleLearnerConfiguration.NR_HISTOGRAM_BINS_UNDEFINED);
+            }
+            final String expected = learnTree(config).getRootNode().toString();
+            config.setUseLevelWiseGrowth(true);
+            assertEquals(expected, learnTree(config).getRootNode().toString());
+        }
+
+        GradientBoostingLearnerConfiguration gbtConfig = new GradientBoostingLearnerConfiguration(true);
+        configure(gbtConfig);
+        final TreeModelRegression expected = learnTree(gbtConfig);
+        gbtConfig.setUseLevelWiseGrowth(true);
+        final TreeModelRegression levelWise = learnTree(gbtConfig);
+        assertEquals(expected.getRootNode().toString(), levelWise.getRootNode().toString());
+        // gradient boosting relies on the leafs being listed in the same (depth-first) order
+        assertEquals(expected.getLeafs().size(), levelWise.getLeafs().size());
+        for (int i = 0; i < expected.getLeafs().size(); i++) {
+            assertEquals(expected.getLeafs().get(i).getSignature(), levelWise.getLeafs().get(i).getSignature());
+        }
+    }
+
+    /**
+     * Trees grown level-wise must also be identical to the ones grown depth-first (with node derived random numbers)
+     * if each node gets a different column sample and if columns tie (the second column is a copy of the first one).
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLevelWiseGrowthMatchesDepthFirstWithColumnSamplingAndTies() throws Exception {
+        final int nrRows = 200;
+        final Random random = new Random(5);
+        final String col1 = createColumn(random, nrRows, 12);
+        final String col3 = createColumn(random, nrRows, 4);
+        final String col4 = createColumn(random, nrRows, 4);
+        final String target = createColumn(random, nrRows, 3);
+        for (boolean useHistograms : new boolean[]{false, true}) {
+            for (long seed = 0; seed < 5; seed++) {
+                TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(true);
+                configure(config);
+                config.setColumnSamplingMode(ColumnSamplingMode.Absolute);
+                config.setColumnAbsoluteValue(3);
+                config.setUseDifferentAttributesAtEachNode(true);
+                config.setUseParallelSplitSearch(true);
+                if (!useHistograms) {
+                    config.setNrHistogramBins(TreeEnsembleLearnerConfiguration.NR_HISTOGRAM_BINS_UNDEFINED);
+                }
+                TestDataGenerator dataGen = new TestDataGenerator(config);
+                TreeData data = dataGen.createTreeData(TestDataGenerator.createNumericTargetColumn(target),
+                    dataGen.createNumericAttributeColumn(col1, "col1", 0),
+                    dataGen.createNumericAttributeColumn(col1, "col2", 1),
+                    dataGen.createNumericAttributeColumn(col3, "col3", 2),
+                    dataGen.createNumericAttributeColumn(col4, "col4", 3));
+                final String expected = learnTree(config, data, null, seed).getRootNode().toString();
+                config.setUseLevelWiseGrowth(true);
+                assertEquals("histograms: " + useHistograms + ", seed: " + seed, expected,
+                    learnTree(config, data, null, seed).getRootNode().toString());
+            }
+        }
+    }
+
+    /**
+     * If the parallel split search is enabled, the learned tree must not depend on whether (and with how many threads)
+     * the columns are evaluated in parallel. The data has few distinct values to provoke ties that are broken randomly.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelSplitSearchMatchesSequential() throws Exception {
+        final int nrRows = 2 * ParallelSplitSearch.MIN_ROWS_FOR_PARALLEL_SEARCH;
+        final Random random = new Random(7);
+        TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(true);
+        configure(config);
+        config.setNrHistogramBins(TreeEnsembleLearnerConfiguration.NR_HISTOGRAM_BINS_UNDEFINED);
+        config.setMaxLevels(6);
+        config.setUseParallelSplitSearch(true);
+        TestDataGenerator dataGen = new TestDataGenerator(config);
+        TreeTargetNumericColumnData target =
+            TestDataGenerator.createNumericTargetColumn(createColumn(random, nrRows, 5));
+        TreeData data = dataGen.createTreeData(target,
+            dataGen.createNumericAttributeColumn(createColumn(random, nrRows, 4), "col1", 0),
+            dataGen.createNumericAttributeColumn(createColumn(random, nrRows, 4), "col2", 1),
+            dataGen.createNumericAttributeColumn(createColumn(random, nrRows, 4), "col3", 2),
+            dataGen.createNumericAttributeColumn(createColumn(random, nrRows, 4), "col4", 3));
+        final String expected = learnTree(config, data, null).getRootNode().toString();
+        for (int parallelism : new int[]{2, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                assertEquals(expected,
+                    learnTree(config, data, new ParallelSplitSearch(pool)).getRootNode().toString());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Unless the parallel split search is enabled in the configuration, the random numbers are drawn from the shared
+     * stream (as in earlier versions) and a split search set on the learner is ignored.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelSplitSearchIgnoredByDefault() throws Exception {
+        TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(true);
+        configure(config);
+        assertFalse(config.isUseParallelSplitSearch());
+        final String expected = learnTree(config).getRootNode().toString();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            TestDataGenerator dataGen = new TestDataGenerator(config);
+            TreeData data = dataGen.createTreeData(TestDataGenerator.createNumericTargetColumn(TARGET),
+                dataGen.createNumericAttributeColumn(COL1, "col1", 0),
+                dataGen.createNumericAttributeColumn(COL2, "col2", 1));
+            assertEquals(expected, learnTree(config, data, new ParallelSplitSearch(pool)).getRootNode().toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner.gradientboosting;
+
+import java.util.Random;
+
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.node.gradientboosting.learner.GradientBoostingLearnerConfiguration;
+import org.knime.core.data.RowKey;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Measures how {@link MGradientBoostedTreesLearner} scales with the number of threads on a large synthetic regression
+ * problem. Not a unit test, run it as a Java application (with enough heap, e.g. -Xmx8g):
+ *
+ * <pre>
+ * MGradientBoostedTreesLearnerBenchmark [nrRows (5000000)] [nrModels (20)] [maxThreads (#cores)]
+ * </pre>
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class MGradientBoostedTreesLearnerBenchmark {
+
+    private static final int NR_ATTRIBUTES = 8;
+
+    private MGradientBoostedTreesLearnerBenchmark() {
+    }
+
+    /**
+     * @param args optional number of rows, number of models and maximal number of threads
+     * @throws Exception if learning fails
+     */
+    public static void main(final String[] args) throws Exception {
+        final int nrRows = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        final int nrModels = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final int maxThreads =
+            args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        final GradientBoostingLearnerConfiguration config = new GradientBoostingLearnerConfiguration(true);
+        config.setNrModels(nrModels);
+        config.setMaxLevels(6);
+        final TreeData data = createData(config, nrRows);
+
+        long sequentialTime = -1;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            final MGradientBoostedTreesLearner learner = new MGradientBoostedTreesLearner(config, data, true);
+            learner.setParallelism(threads);
+            final long start = System.nanoTime();
+            learner.learn(new ExecutionMonitor());
+            final long time = System.nanoTime() - start;
+            if (sequentialTime < 0) {
+                sequentialTime = time;
+            }
+            System.out.println(String.format("%2d thread(s): %8.1f ms (speedup %.2f)", threads, time / 1e6,
+                sequentialTime / (double)time));
+        }
+    }
+
+    /**
+     * @param config the configuration
+     * @param nrRows the number of rows
+     * @return a regression problem with a non-linear target and gaussian noise
+     */
+    static TreeData createData(final GradientBoostingLearnerConfiguration config, final int nrRows) {
+        final Random random = new Random(42);
+        final TestDataGenerator dataGen = new TestDataGenerator(config);
+        final double[][] values = new double[NR_ATTRIBUTES][nrRows];
+        final double[] target = new double[nrRows];
+        final RowKey[] rowKeys = new RowKey[nrRows];
+        for (int r = 0; r < nrRows; r++) {
+            double y = 0;
+            for (int a = 0; a < NR_ATTRIBUTES; a++) {
+                values[a][r] = random.nextDouble();
+                y += (a + 1) * values[a][r] * values[a][r];
+            }
+            target[r] = y + random.nextGaussian();
+            rowKeys[r] = RowKey.createRowKey((long)r);
+        }
+        final TreeAttributeColumnData[] columns = new TreeAttributeColumnData[NR_ATTRIBUTES];
+        for (int a = 0; a < NR_ATTRIBUTES; a++) {
+            columns[a] = dataGen.createNumericAttributeColumnData(values[a], "col" + a, a);
+        }
+        final TreeTargetNumericColumnData targetColumn =
+            new TreeTargetNumericColumnData(new TreeTargetNumericColumnMetaData("target"), rowKeys, target);
+        return dataGen.createTreeData(targetColumn, columns);
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner.gradientboosting;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.model.GradientBoostedTreesModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeSignature;
+import org.knime.base.node.mine.treeensemble2.node.gradientboosting.learner.GradientBoostingLearnerConfiguration;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Tests {@link MGradientBoostedTreesLearner}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class MGradientBoostedTreesLearnerTest {
+
+    /**
+     * The learned model must not depend on the number of threads used in each iteration.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelLearningMatchesSequential() throws Exception {
+        final GradientBoostingLearnerConfiguration config = new GradientBoostingLearnerConfiguration(true);
+        config.setNrModels(5);
+        config.setMaxLevels(4);
+        config.setSeed(42L);
+        // more rows than fit into a single chunk
+        final TreeData data =
+            MGradientBoostedTreesLearnerBenchmark.createData(config, 3 * ParallelChunks.DEFAULT_CHUNK_SIZE);
+        final GradientBoostedTreesModel expected = learn(config, data, 1);
+        final GradientBoostedTreesModel actual = learn(config, data, 4);
+        assertEquals(expected.getNrModels(), actual.getNrModels());
+        for (int i = 0; i < expected.getNrModels(); i++) {
+            assertEquals(expected.getTreeModelRegression(i).getRootNode().toString(),
+                actual.getTreeModelRegression(i).getRootNode().toString());
+        }
+        assertEquals(new ArrayList<>(expected.getCoeffientMaps()), new ArrayList<>(actual.getCoeffientMaps()));
+    }
+
+    /**
+     * The leaf coefficients must survive saving and loading, and predictions via the leaf indices must match the
+     * lookup of the coefficients by leaf signature.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSaveLoadPreservesCoefficients() throws Exception {
+        final GradientBoostingLearnerConfiguration config = new GradientBoostingLearnerConfiguration(true);
+        config.setNrModels(5);
+        config.setMaxLevels(4);
+        config.setSeed(42L);
+        final TreeData data = MGradientBoostedTreesLearnerBenchmark.createData(config, 2000);
+        final MGradientBoostedTreesLearner learner = new MGradientBoostedTreesLearner(config, data, true);
+        final GradientBoostedTreesModel model = (GradientBoostedTreesModel)learner.learn(new ExecutionMonitor());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.save(out);
+        final GradientBoostedTreesModel loaded =
+            (GradientBoostedTreesModel)TreeEnsembleModel.load(new ByteArrayInputStream(out.toByteArray()));
+        final List<Map<TreeNodeSignature, Double>> coefficientMaps = new ArrayList<>(model.getCoeffientMaps());
+        assertEquals(coefficientMaps, new ArrayList<>(loaded.getCoeffientMaps()));
+
+        for (int r = 0; r < data.getNrRows(); r++) {
+            final PredictorRecord record = learner.createPredictorRecord(data, learner.getIndexManager(), r);
+            double expected = model.getInitialValue();
+            for (int i = 0; i < model.getNrModels(); i++) {
+                expected += coefficientMaps.get(i)
+                    .get(model.getTreeModelRegression(i).findMatchingNode(record).getSignature());
+            }
+            assertEquals(expected, model.predict(record), 0.0);
+            assertEquals(expected, loaded.predict(record), 0.0);
+        }
+    }
+
+    private static GradientBoostedTreesModel learn(final GradientBoostingLearnerConfiguration config,
+        final TreeData data, final int parallelism) throws Exception {
+        final MGradientBoostedTreesLearner learner = new MGradientBoostedTreesLearner(config, data, true);
+        learner.setParallelism(parallelism);
+        return (GradientBoostedTreesModel)learner.learn(new ExecutionMonitor());
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner.gradientboosting;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the selection based alpha quantile of {@link QuantileSelection} to the previously used boxed index sort.
+ * Not a unit test, run it as a Java application:
+ *
+ * <pre>
+ * QuantileSelectionBenchmark [nrRows (1000000)] [repetitions (10)]
+ * </pre>
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class QuantileSelectionBenchmark {
+
+    private QuantileSelectionBenchmark() {
+    }
+
+    /**
+     * @param args optional number of rows and number of repetitions
+     */
+    public static void main(final String[] args) {
+        final int nrRows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final Random random = new Random(42);
+        final double[] residuals = new double[nrRows];
+        for (int i = 0; i < nrRows; i++) {
+            residuals[i] = random.nextGaussian();
+        }
+        final double[] scratch = new double[nrRows];
+        final double alpha = 0.9;
+        for (int r = 0; r < repetitions; r++) {
+            long start = System.nanoTime();
+            final double boxed = boxedQuantile(residuals, alpha);
+            final long boxedTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            System.arraycopy(residuals, 0, scratch, 0, nrRows);
+            final double selected = QuantileSelection.quantile(scratch, 0, nrRows, alpha);
+            final long selectionTime = System.nanoTime() - start;
+            if (Double.compare(boxed, selected) != 0) {
+                throw new IllegalStateException("Quantiles differ: " + boxed + " vs. " + selected);
+            }
+            System.out.println(String.format("boxed sort: %8.1f ms, selection: %8.1f ms (speedup %.1f)",
+                boxedTime / 1e6, selectionTime / 1e6, (double)boxedTime / selectionTime));
+        }
+    }
+
+    /** The implementation used before the selection, kept for comparison. */
+    private static double boxedQuantile(final double[] array, final double alpha) {
+        final Integer[] idx = new Integer[array.length];
+        for (int i = 0; i < idx.length; i++) {
+            idx[i] = i;
+        }
+        Arrays.sort(idx, (a, b) -> Double.compare(array[a], array[b]));
+        return array[idx[(int)(alpha * array.length)]];
+    }
+
+}
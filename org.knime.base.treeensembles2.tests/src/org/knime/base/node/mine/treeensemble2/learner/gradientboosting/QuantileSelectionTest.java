@@ -0,0 +1,141 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner.gradientboosting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link QuantileSelection}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class QuantileSelectionTest {
+
+    /**
+     * Every position must yield the same value as sorting, also in the presence of duplicates, signed zeros and NaN.
+     */
+    @Test
+    public void testSelectMatchesSort() {
+        final Random random = new Random(42);
+        for (int n = 1; n <= 64; n++) {
+            final double[] values = createValues(random, n);
+            final double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            for (int k = 0; k < n; k++) {
+                final double[] copy = values.clone();
+                assertEquals(sorted[k], QuantileSelection.select(copy, 0, n, k), 0.0);
+                for (int i = 0; i < k; i++) {
+                    assertTrue(Double.compare(copy[i], copy[k]) <= 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests median and quantile against the sort based definitions, also on sub ranges.
+     */
+    @Test
+    public void testMedianAndQuantile() {
+        final Random random = new Random(7);
+        for (int n = 1; n <= 1000; n += 37) {
+            final double[] values = createValues(random, n + 10);
+            final double[] sorted = Arrays.copyOfRange(values, 5, 5 + n);
+            Arrays.sort(sorted);
+            final double expectedMedian =
+                n % 2 == 0 ? (sorted[n / 2 - 1] + sorted[n / 2]) / 2 : sorted[n / 2];
+            assertEquals(expectedMedian, QuantileSelection.median(values.clone(), 5, 5 + n), 0.0);
+            for (final double alpha : new double[]{0.0, 0.1, 0.5, 0.9, 0.95, 1.0}) {
+                final double expected = sorted[Math.min((int)(alpha * n), n - 1)];
+                assertEquals(expected, QuantileSelection.quantile(values.clone(), 5, 5 + n, alpha), 0.0);
+            }
+        }
+    }
+
+    /**
+     * Inputs that are adversarial for naive quickselect must still yield correct results.
+     */
+    @Test
+    public void testDegenerateInputs() {
+        final int n = 10000;
+        final double[] constant = new double[n];
+        Arrays.fill(constant, 3.0);
+        assertEquals(3.0, QuantileSelection.median(constant, 0, n), 0.0);
+        final double[] ascending = new double[n];
+        final double[] descending = new double[n];
+        for (int i = 0; i < n; i++) {
+            ascending[i] = i;
+            descending[i] = n - i;
+        }
+        assertEquals((n / 2 - 1 + n / 2) / 2.0, QuantileSelection.median(ascending, 0, n), 0.0);
+        assertEquals(n * 0.9 + 1, QuantileSelection.quantile(descending, 0, n, 0.9), 0.0);
+    }
+
+    private static double[] createValues(final Random random, final int n) {
+        final double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            switch (random.nextInt(8)) {
+                case 0:
+                    values[i] = random.nextInt(3);
+                    break;
+                case 1:
+                    values[i] = -0.0;
+                    break;
+                case 2:
+                    values[i] = Double.NaN;
+                    break;
+                default:
+                    values[i] = random.nextGaussian();
+            }
+        }
+        return values;
+    }
+
+}
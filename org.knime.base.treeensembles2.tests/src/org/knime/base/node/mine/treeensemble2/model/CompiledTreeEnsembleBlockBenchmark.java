@@ -0,0 +1,126 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+
+/**
+ * Compares the throughput of scoring records one by one with scoring blocks of records tree by tree (see
+ * {@link CompiledTreeEnsemble#findMatchingNodes(int, CompiledTreeEnsemble.Block, AbstractTreeNode[])}) on a random
+ * forest of numeric regression trees. Not a unit test, run it as a Java application:
+ *
+ * <pre>
+ * CompiledTreeEnsembleBlockBenchmark [nrRecords (20000)] [nrTrees (500)] [depth (10)] [nrAttributes (20)]
+ *     [blockSize (1024)]
+ * </pre>
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class CompiledTreeEnsembleBlockBenchmark {
+
+    private CompiledTreeEnsembleBlockBenchmark() {
+    }
+
+    /**
+     * @param args optional number of records, trees, tree depth, attributes and the block size
+     */
+    public static void main(final String[] args) {
+        final int nrRecords = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final int nrTrees = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        final int depth = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        final int nrAttributes = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        final int blockSize = args.length > 4 ? Integer.parseInt(args[4]) : 1024;
+
+        final Random random = new Random(42);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(nrAttributes, false);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, nrTrees, depth, random);
+        final PredictorRecord[] records = new PredictorRecord[nrRecords];
+        for (int i = 0; i < nrRecords; i++) {
+            records[i] = CompiledTreeEnsembleTest.createRecord(metaData, random);
+        }
+        final CompiledTreeEnsemble compiledModel = model.getCompiledModel();
+
+        for (int repetition = 0; repetition < 5; repetition++) {
+            long start = System.nanoTime();
+            final double[] rowPredictions = new double[nrRecords];
+            final CompiledTreeEnsemble.Row row = compiledModel.createRow();
+            for (int i = 0; i < nrRecords; i++) {
+                row.load(records[i]);
+                for (int t = 0; t < nrTrees; t++) {
+                    rowPredictions[i] += compiledModel.<TreeNodeRegression> findMatchingNode(t, row).getMean();
+                }
+            }
+            final long rowTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            final double[] blockPredictions = new double[nrRecords];
+            final CompiledTreeEnsemble.Block block = compiledModel.createBlock(blockSize);
+            final TreeNodeRegression[] matches = new TreeNodeRegression[blockSize];
+            for (int from = 0; from < nrRecords; from += blockSize) {
+                block.clear();
+                for (int i = from; i < Math.min(from + blockSize, nrRecords); i++) {
+                    block.add(records[i]);
+                }
+                for (int t = 0; t < nrTrees; t++) {
+                    compiledModel.findMatchingNodes(t, block, matches);
+                    for (int r = 0; r < block.getSize(); r++) {
+                        blockPredictions[from + r] += matches[r].getMean();
+                    }
+                }
+            }
+            final long blockTime = System.nanoTime() - start;
+            if (!Arrays.equals(rowPredictions, blockPredictions)) {
+                throw new IllegalStateException("Predictions differ");
+            }
+            System.out.println(String.format("per row: %8.1f records/s, per block: %8.1f records/s (speedup %.1f)",
+                nrRecords / (rowTime / 1e9), nrRecords / (blockTime / 1e9), (double)rowTime / blockTime));
+        }
+    }
+
+}
@@ -0,0 +1,434 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.NominalValueRepresentation;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeBitColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNominalColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeNumericCondition.NumericOperator;
+import org.knime.base.node.mine.treeensemble2.node.proximity.TreePath;
+
+/**
+ * Tests {@link CompiledTreeEnsemble}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class CompiledTreeEnsembleTest {
+
+    /** Number of values of the first nominal attribute, more than fit into a single mask word. */
+    private static final int NR_BINARY_NOMINAL_VALUES = 70;
+
+    private static final int NR_MULTIWAY_NOMINAL_VALUES = 4;
+
+    /**
+     * The compiled trees must find the same nodes as the trees for numeric and nominal conditions, including
+     * surrogates, missing values, NaN values, unknown nominal values and multiway splits without a matching child (see
+     * {@link #testMatchesTreeModelWithBits()} for bit conditions).
+     */
+    @Test
+    public void testMatchesTreeModel() {
+        final Random random = new Random(42);
+        final TreeMetaData metaData = createMetaData(3, true);
+        final TreeEnsembleModel model = createModel(metaData, 20, 6, random);
+        final CompiledTreeEnsemble compiledModel = model.getCompiledModel();
+        final CompiledTreeEnsemble.Row row = compiledModel.createRow();
+        for (int r = 0; r < 2000; r++) {
+            final PredictorRecord record = createRecord(metaData, random);
+            row.load(record);
+            for (int t = 0; t < model.getNrModels(); t++) {
+                assertSame(model.getTreeModel(t).findMatchingNode(record), compiledModel.findMatchingNode(t, row));
+            }
+        }
+    }
+
+    /**
+     * The compiled trees must find the same nodes as the trees for bit conditions, both for map based and indexed
+     * records.
+     */
+    @Test
+    public void testMatchesTreeModelWithBits() {
+        final Random random = new Random(45);
+        final TreeMetaData metaData = createBitMetaData(2, 4);
+        final TreeEnsembleModel model = createModel(metaData, 20, 6, random);
+        final CompiledTreeEnsemble compiledModel = model.getCompiledModel();
+        final CompiledTreeEnsemble.Row row = compiledModel.createRow();
+        final CompiledTreeEnsemble.Block block = compiledModel.createBlock(1);
+        final TreeNodeRegression[] matches = new TreeNodeRegression[1];
+        final IndexedPredictorRecord indexedRecord = new IndexedPredictorRecord(metaData);
+        for (int r = 0; r < 2000; r++) {
+            final PredictorRecord record = createRecord(metaData, random);
+            for (int i = 0; i < metaData.getNrAttributes(); i++) {
+                final Object value = record.getValue(metaData.getAttributeMetaData(i).getAttributeName());
+                if (value == null) {
+                    indexedRecord.setMissing(i);
+                } else if (value instanceof Boolean) {
+                    indexedRecord.setBitValue(i, (Boolean)value);
+                } else {
+                    indexedRecord.setNumericValue(i, (Double)value);
+                }
+            }
+            block.clear();
+            block.add(indexedRecord);
+            for (int t = 0; t < model.getNrModels(); t++) {
+                final TreeNodeRegression expected = model.getTreeModelRegression(t).findMatchingNode(record);
+                assertSame(expected, compiledModel.findMatchingNode(t, row.load(record)));
+                assertSame(expected, compiledModel.findMatchingNode(t, row.load(indexedRecord)));
+                compiledModel.findMatchingNodes(t, block, matches);
+                assertSame(expected, matches[0]);
+            }
+        }
+    }
+
+    /**
+     * Bit conditions don't support missing values, the compiled trees must fail like
+     * {@link TreeNodeBitCondition#testCondition(PredictorRecord)} instead of returning a default response.
+     */
+    @Test
+    public void testMissingBitFails() {
+        final TreeMetaData metaData = createBitMetaData(0, 1);
+        final TreeBitColumnMetaData bitMeta = (TreeBitColumnMetaData)metaData.getAttributeMetaData(0);
+        final TreeTargetNumericColumnMetaData target = (TreeTargetNumericColumnMetaData)metaData.getTargetMetaData();
+        final TreeNodeSignature rootSignature = TreeNodeSignature.ROOT_SIGNATURE;
+        final TreeNodeRegression[] children = new TreeNodeRegression[2];
+        for (int i = 0; i < 2; i++) {
+            children[i] = new TreeNodeRegression(target, rootSignature.createChildSignature((byte)i), i, 1, 0);
+            children[i].setTreeNodeCondition(new TreeNodeBitCondition(bitMeta, i == 1));
+        }
+        final TreeNodeRegression root = new TreeNodeRegression(target, rootSignature, 0.5, 2, 0, children);
+        root.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
+        final TreeEnsembleModel model = new TreeEnsembleModel(metaData,
+            new TreeModelRegression[]{new TreeModelRegression(root)}, TreeType.BitVector, false);
+        final CompiledTreeEnsemble compiledModel = model.getCompiledModel();
+        final Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put(bitMeta.getAttributeName(), Boolean.TRUE);
+        assertSame(children[1], compiledModel.findMatchingNode(0, compiledModel.createRow()
+            .load(new PredictorRecord(values))));
+        values.put(bitMeta.getAttributeName(), PredictorRecord.NULL);
+        final PredictorRecord record = new PredictorRecord(values);
+        try {
+            model.getTreeModel(0).findMatchingNode(record);
+            fail("Tree model accepted missing bit");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            compiledModel.findMatchingNode(0, compiledModel.createRow().load(record));
+            fail("Compiled model accepted missing bit");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        final CompiledTreeEnsemble.Block block = compiledModel.createBlock(1);
+        block.add(new IndexedPredictorRecord(metaData));
+        try {
+            compiledModel.findMatchingNodes(0, block, new TreeNodeRegression[1]);
+            fail("Compiled model accepted missing bit");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    /** Evaluating a tree over a block of rows must find the same nodes as evaluating the rows one by one. */
+    @Test
+    public void testBlockMatchesRow() {
+        final Random random = new Random(43);
+        final TreeMetaData metaData = createMetaData(3, true);
+        final TreeEnsembleModel model = createModel(metaData, 20, 6, random);
+        final CompiledTreeEnsemble compiledModel = model.getCompiledModel();
+        final CompiledTreeEnsemble.Row row = compiledModel.createRow();
+        final CompiledTreeEnsemble.Block block = compiledModel.createBlock(100);
+        final PredictorRecord[] records = new PredictorRecord[block.getCapacity()];
+        final TreeNodeRegression[] matches = new TreeNodeRegression[block.getCapacity()];
+        for (int b = 0; b < 20; b++) {
+            block.clear();
+            // the last block is only partially filled
+            final int size = b == 19 ? 37 : records.length;
+            for (int r = 0; r < size; r++) {
+                records[r] = createRecord(metaData, random);
+                assertEquals(r, block.add(records[r]));
+            }
+            assertEquals(size, block.getSize());
+            for (int t = 0; t < model.getNrModels(); t++) {
+                compiledModel.findMatchingNodes(t, block, matches);
+                for (int r = 0; r < size; r++) {
+                    assertSame(compiledModel.findMatchingNode(t, row.load(records[r])), matches[r]);
+                }
+            }
+        }
+    }
+
+    /**
+     * The node indices found over a block must identify the matching nodes, be the ones found for single rows and
+     * their paths must be the ones of the tree model.
+     */
+    @Test
+    public void testNodeIndicesMatchTreePaths() {
+        final Random random = new Random(44);
+        final TreeMetaData metaData = createMetaData(3, true);
+        final TreeEnsembleModel model = createModel(metaData, 20, 6, random);
+        final CompiledTreeEnsemble compiledModel = model.getCompiledModel();
+        final CompiledTreeEnsemble.Row row = compiledModel.createRow();
+        final CompiledTreeEnsemble.Block block = compiledModel.createBlock(500);
+        final PredictorRecord[] records = new PredictorRecord[block.getCapacity()];
+        for (int r = 0; r < records.length; r++) {
+            records[r] = createRecord(metaData, random);
+            block.add(records[r]);
+        }
+        final int[] matches = new int[records.length + 3];
+        final int[] rowMatches = new int[model.getNrModels()];
+        for (int t = 0; t < model.getNrModels(); t++) {
+            compiledModel.findMatchingNodeIndices(t, block, matches, 3);
+            for (int r = 0; r < records.length; r++) {
+                final int nodeIndex = matches[3 + r];
+                for (int other = 0; other < r; other++) {
+                    final boolean sameNode = compiledModel.findMatchingNode(t, row.load(records[r]))
+                        == compiledModel.findMatchingNode(t, row.load(records[other]));
+                    assertEquals(sameNode, nodeIndex == matches[3 + other]);
+                }
+                compiledModel.findMatchingNodeIndices(row.load(records[r]), rowMatches);
+                assertEquals(nodeIndex, rowMatches[t]);
+                final TreePath expected = model.getTreeModel(t).getTreePath(records[r]);
+                final int[] path = compiledModel.getPath(nodeIndex);
+                assertEquals(expected.size(), path.length);
+                for (int level = 0; level < path.length; level++) {
+                    assertEquals(expected.getChild(level), path[level]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param nrNumeric the number of numeric attributes
+     * @param withNominal whether to add two nominal attributes
+     * @return meta data for a regression problem
+     */
+    public static TreeMetaData createMetaData(final int nrNumeric, final boolean withNominal) {
+        final TreeAttributeColumnMetaData[] attributes =
+            new TreeAttributeColumnMetaData[nrNumeric + (withNominal ? 2 : 0)];
+        for (int i = 0; i < nrNumeric; i++) {
+            attributes[i] = new TreeNumericColumnMetaData("num" + i);
+        }
+        if (withNominal) {
+            attributes[nrNumeric] = new TreeNominalColumnMetaData("binary", createValues(NR_BINARY_NOMINAL_VALUES));
+            attributes[nrNumeric + 1] =
+                new TreeNominalColumnMetaData("multiway", createValues(NR_MULTIWAY_NOMINAL_VALUES));
+        }
+        for (int i = 0; i < attributes.length; i++) {
+            attributes[i].setAttributeIndex(i);
+        }
+        return TreeMetaData.createTreeMetaData(attributes, new TreeTargetNumericColumnMetaData("target"));
+    }
+
+    /**
+     * @param nrNumeric the number of numeric attributes
+     * @param nrBits the number of bit attributes
+     * @return meta data for a regression problem
+     */
+    static TreeMetaData createBitMetaData(final int nrNumeric, final int nrBits) {
+        final TreeAttributeColumnMetaData[] attributes = new TreeAttributeColumnMetaData[nrNumeric + nrBits];
+        for (int i = 0; i < nrNumeric; i++) {
+            attributes[i] = new TreeNumericColumnMetaData("num" + i);
+        }
+        for (int i = 0; i < nrBits; i++) {
+            attributes[nrNumeric + i] = TestDataGenerator.createBitColumnMetaData(i);
+        }
+        for (int i = 0; i < attributes.length; i++) {
+            attributes[i].setAttributeIndex(i);
+        }
+        return TreeMetaData.createTreeMetaData(attributes, new TreeTargetNumericColumnMetaData("target"));
+    }
+
+    private static NominalValueRepresentation[] createValues(final int nrValues) {
+        final NominalValueRepresentation[] values = new NominalValueRepresentation[nrValues];
+        for (int i = 0; i < nrValues; i++) {
+            values[i] = new NominalValueRepresentation("v" + i, i);
+        }
+        return values;
+    }
+
+    /**
+     * @param metaData the meta data of the attributes
+     * @param nrTrees the number of trees
+     * @param maxDepth the maximal depth of the trees
+     * @param random the random generator
+     * @return an ensemble of random regression trees
+     */
+    public static TreeEnsembleModel createModel(final TreeMetaData metaData, final int nrTrees, final int maxDepth,
+        final Random random) {
+        final TreeModelRegression[] trees = new TreeModelRegression[nrTrees];
+        for (int t = 0; t < nrTrees; t++) {
+            final TreeNodeRegression root = createNode(metaData, TreeNodeSignature.ROOT_SIGNATURE, maxDepth, random);
+            root.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
+            trees[t] = new TreeModelRegression(root);
+        }
+        return new TreeEnsembleModel(metaData, trees, TreeType.Ordinary, false);
+    }
+
+    private static TreeNodeRegression createNode(final TreeMetaData metaData, final TreeNodeSignature signature,
+        final int depth, final Random random) {
+        final TreeTargetNumericColumnMetaData target = (TreeTargetNumericColumnMetaData)metaData.getTargetMetaData();
+        if (depth == 0) {
+            return new TreeNodeRegression(target, signature, random.nextGaussian(), 1, 0);
+        }
+        final TreeNodeCondition[] conditions = createChildConditions(metaData, random);
+        final TreeNodeRegression[] children = new TreeNodeRegression[conditions.length];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = createNode(metaData, signature.createChildSignature((byte)i), depth - 1, random);
+            children[i].setTreeNodeCondition(conditions[i]);
+        }
+        return new TreeNodeRegression(target, signature, random.nextGaussian(), 1, 0, children);
+    }
+
+    private static TreeNodeCondition[] createChildConditions(final TreeMetaData metaData, final Random random) {
+        final int nrAttributes = metaData.getNrAttributes();
+        final int attribute = random.nextInt(nrAttributes);
+        final TreeAttributeColumnMetaData meta = metaData.getAttributeMetaData(attribute);
+        if (meta instanceof TreeNumericColumnMetaData) {
+            final TreeNumericColumnMetaData numMeta = (TreeNumericColumnMetaData)meta;
+            final double split = random.nextGaussian();
+            final boolean missingsLeft = random.nextBoolean();
+            final TreeNodeColumnCondition left = new TreeNodeNumericCondition(numMeta, split,
+                random.nextBoolean() ? NumericOperator.LessThanOrEqual : NumericOperator.LessThanOrEqualOrMissing,
+                missingsLeft);
+            final TreeNodeColumnCondition right = new TreeNodeNumericCondition(numMeta, split,
+                random.nextBoolean() ? NumericOperator.LargerThan : NumericOperator.LargerThanOrMissing,
+                !missingsLeft);
+            switch (random.nextInt(3)) {
+                case 0:
+                    return new TreeNodeCondition[]{left, right};
+                case 1:
+                    return new TreeNodeCondition[]{new TreeNodeSurrogateOnlyDefDirCondition(left, missingsLeft),
+                        new TreeNodeSurrogateOnlyDefDirCondition(right, !missingsLeft)};
+                default:
+                    // the numeric attributes come first
+                    int surrogate = (attribute + 1) % nrAttributes;
+                    while (!(metaData.getAttributeMetaData(surrogate) instanceof TreeNumericColumnMetaData)) {
+                        surrogate = (surrogate + 1) % nrAttributes;
+                    }
+                    final TreeNumericColumnMetaData surrogateMeta =
+                        (TreeNumericColumnMetaData)metaData.getAttributeMetaData(surrogate);
+                    final double surrogateSplit = random.nextGaussian();
+                    final TreeNodeColumnCondition surrogateLeft = new TreeNodeNumericCondition(surrogateMeta,
+                        surrogateSplit, NumericOperator.LessThanOrEqual, false);
+                    final TreeNodeColumnCondition surrogateRight =
+                        new TreeNodeNumericCondition(surrogateMeta, surrogateSplit, NumericOperator.LargerThan, false);
+                    return new TreeNodeCondition[]{
+                        new TreeNodeSurrogateCondition(new TreeNodeColumnCondition[]{left, surrogateLeft},
+                            missingsLeft),
+                        new TreeNodeSurrogateCondition(new TreeNodeColumnCondition[]{right, surrogateRight},
+                            !missingsLeft)};
+            }
+        }
+        if (meta instanceof TreeBitColumnMetaData) {
+            final TreeBitColumnMetaData bitMeta = (TreeBitColumnMetaData)meta;
+            return new TreeNodeCondition[]{new TreeNodeBitCondition(bitMeta, false),
+                new TreeNodeBitCondition(bitMeta, true)};
+        }
+        final TreeNominalColumnMetaData nomMeta = (TreeNominalColumnMetaData)meta;
+        final int nrValues = nomMeta.getValues().length;
+        if (nrValues == NR_BINARY_NOMINAL_VALUES) {
+            BigInteger mask = BigInteger.ZERO;
+            for (int i = 0; i < nrValues; i++) {
+                if (random.nextBoolean()) {
+                    mask = mask.setBit(i);
+                }
+            }
+            final boolean missingsLeft = random.nextBoolean();
+            return new TreeNodeCondition[]{new TreeNodeNominalBinaryCondition(nomMeta, mask, true, missingsLeft),
+                new TreeNodeNominalBinaryCondition(nomMeta, mask, false, !missingsLeft)};
+        }
+        // multiway split that misses the last value, records with that value stop at the parent
+        final TreeNodeCondition[] conditions = new TreeNodeCondition[nrValues - 1];
+        for (int i = 0; i < conditions.length; i++) {
+            conditions[i] = new TreeNodeNominalCondition(nomMeta, i, i == 0);
+        }
+        return conditions;
+    }
+
+    /**
+     * @param metaData the meta data of the attributes
+     * @param random the random generator
+     * @return a record with random values, some of them missing or NaN (except for bits, which can't be missing)
+     */
+    public static PredictorRecord createRecord(final TreeMetaData metaData, final Random random) {
+        final Map<String, Object> values = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < metaData.getNrAttributes(); i++) {
+            final TreeAttributeColumnMetaData meta = metaData.getAttributeMetaData(i);
+            final int choice = random.nextInt(10);
+            Object value;
+            if (meta instanceof TreeBitColumnMetaData) {
+                value = random.nextBoolean();
+            } else if (choice == 0) {
+                value = PredictorRecord.NULL;
+            } else if (meta instanceof TreeNumericColumnMetaData) {
+                value = choice == 1 ? Double.NaN : random.nextGaussian();
+            } else {
+                // -1 represents a value unknown to the model
+                final int nrValues = ((TreeNominalColumnMetaData)meta).getValues().length;
+                value = choice == 1 ? -1 : random.nextInt(nrValues);
+            }
+            values.put(meta.getAttributeName(), value);
+        }
+        return new PredictorRecord(values);
+    }
+
+}
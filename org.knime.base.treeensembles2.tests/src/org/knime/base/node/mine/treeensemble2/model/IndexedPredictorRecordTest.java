@@ -0,0 +1,147 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNominalColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnMetaData;
+
+/**
+ * Tests {@link IndexedPredictorRecord}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class IndexedPredictorRecordTest {
+
+    /**
+     * An indexed record must expose the same values and find the same nodes as the equivalent map based record, also
+     * if it is reused for many rows.
+     */
+    @Test
+    public void testMatchesMapRecord() {
+        final Random random = new Random(7);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, 20, 6, random);
+        final CompiledTreeEnsemble compiledModel = model.getCompiledModel();
+        final CompiledTreeEnsemble.Row row = compiledModel.createRow();
+        final IndexedPredictorRecord indexedRecord = new IndexedPredictorRecord(metaData);
+        for (int r = 0; r < 2000; r++) {
+            final PredictorRecord record = CompiledTreeEnsembleTest.createRecord(metaData, random);
+            fill(indexedRecord, record);
+            for (int i = 0; i < metaData.getNrAttributes(); i++) {
+                final String name = metaData.getAttributeMetaData(i).getAttributeName();
+                assertEquals(name, record.getValue(name), indexedRecord.getValue(name));
+            }
+            row.load(indexedRecord);
+            for (int t = 0; t < model.getNrModels(); t++) {
+                final TreeModelRegression tree = model.getTreeModelRegression(t);
+                final TreeNodeRegression expected = tree.findMatchingNode(record);
+                assertSame(expected, tree.findMatchingNode(indexedRecord));
+                assertSame(expected, compiledModel.findMatchingNode(t, row));
+            }
+        }
+    }
+
+    /** Tests the missing value mask and the lookup of attributes and nominal values. */
+    @Test
+    public void testMissingAndLookup() {
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(70, true);
+        final IndexedPredictorRecord record = new IndexedPredictorRecord(metaData);
+        for (int i = 0; i < metaData.getNrAttributes(); i++) {
+            assertTrue(record.isMissing(i));
+        }
+        record.setNumericValue(65, 1.5);
+        record.setNominalValue(70, 3);
+        assertFalse(record.isMissing(65));
+        assertTrue(record.isMissing(1));
+        assertEquals(Double.valueOf(1.5), record.getValue("num65"));
+        assertEquals(Integer.valueOf(3), record.getValue("binary"));
+        assertNull(record.getValue("multiway"));
+        record.setMissing(65);
+        assertNull(record.getValue("num65"));
+        record.clear();
+        assertTrue(record.isMissing(70));
+
+        assertEquals(70, metaData.getAttributeIndex("binary"));
+        assertEquals(-1, metaData.getAttributeIndex("unknown"));
+        final TreeNominalColumnMetaData nomMeta = (TreeNominalColumnMetaData)metaData.getAttributeMetaData(71);
+        assertEquals(2, nomMeta.getAssignedInteger("v2"));
+        assertEquals(-1, nomMeta.getAssignedInteger("v4"));
+    }
+
+    /** Unknown attribute names are rejected like in the map based record. */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAttribute() {
+        new IndexedPredictorRecord(CompiledTreeEnsembleTest.createMetaData(1, false)).getValue("unknown");
+    }
+
+    private static void fill(final IndexedPredictorRecord indexedRecord, final PredictorRecord record) {
+        final TreeMetaData metaData = indexedRecord.getMetaData();
+        for (int i = 0; i < metaData.getNrAttributes(); i++) {
+            final TreeAttributeColumnMetaData meta = metaData.getAttributeMetaData(i);
+            final Object value = record.getValue(meta.getAttributeName());
+            if (value == null) {
+                indexedRecord.setMissing(i);
+            } else if (meta instanceof TreeNumericColumnMetaData) {
+                indexedRecord.setNumericValue(i, (Double)value);
+            } else {
+                indexedRecord.setNominalValue(i, (Integer)value);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.gradientboosting.predictor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.learner.gradientboosting.MGradientBoostedTreesLearner;
+import org.knime.base.node.mine.treeensemble2.model.GradientBoostedTreesModel;
+import org.knime.base.node.mine.treeensemble2.node.gradientboosting.learner.GradientBoostingLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.predictor.RegressionPrediction;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Tests {@link GBTRegressionPredictor}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class GBTRegressionPredictorTest {
+
+    private static final int NR_ROWS = 1500;
+
+    /** Two numeric attributes with some missing values and a target that depends on both. */
+    private static TreeData createData(final GradientBoostingLearnerConfiguration config) {
+        final Random random = new Random(17);
+        final double[] x1 = new double[NR_ROWS];
+        final double[] x2 = new double[NR_ROWS];
+        final StringBuilder target = new StringBuilder();
+        for (int i = 0; i < NR_ROWS; i++) {
+            x1[i] = random.nextInt(20) == 0 ? Double.NaN : random.nextGaussian();
+            x2[i] = random.nextInt(50);
+            final double y = (Double.isNaN(x1[i]) ? 0 : 3 * x1[i]) + x2[i] / 10 + random.nextGaussian() / 5;
+            target.append(i == 0 ? "" : ",").append(y);
+        }
+        final TestDataGenerator dataGen = new TestDataGenerator(config);
+        return dataGen.createTreeData(TestDataGenerator.createNumericTargetColumn(target.toString()),
+            dataGen.createNumericAttributeColumnData(x1, "x1", 0),
+            dataGen.createNumericAttributeColumnData(x2, "x2", 1));
+    }
+
+    /**
+     * Predicting blocks of rows must give exactly the same predictions as predicting the rows one by one (and as the
+     * model itself), also for blocks that are not completely filled.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBlockPredictionMatchesRowPrediction() throws Exception {
+        final GradientBoostingLearnerConfiguration config = new GradientBoostingLearnerConfiguration(true);
+        config.setNrModels(10);
+        config.setMaxLevels(4);
+        config.setSeed(42L);
+        final TreeData data = createData(config);
+        final MGradientBoostedTreesLearner learner = new MGradientBoostedTreesLearner(config, data, true);
+        final GradientBoostedTreesModel model = (GradientBoostedTreesModel)learner.learn(new ExecutionMonitor());
+
+        // the rows carry no cells, their key identifies the record to predict
+        final List<PredictorRecord> records = new ArrayList<>(NR_ROWS);
+        final List<DataRow> rows = new ArrayList<>(NR_ROWS);
+        for (int r = 0; r < NR_ROWS; r++) {
+            records.add(learner.createPredictorRecord(data, learner.getIndexManager(), r));
+            rows.add(new DefaultRow(RowKey.createRowKey((long)r), new DataCell[0]));
+        }
+        final GBTRegressionPredictor predictor = new GBTRegressionPredictor(model,
+            row -> records.get(Integer.parseInt(row.getKey().getString().substring("Row".length()))));
+
+        for (int blockSize : new int[]{1, 7, 256, NR_ROWS}) {
+            for (int from = 0; from < NR_ROWS; from += blockSize) {
+                final List<DataRow> block = rows.subList(from, Math.min(NR_ROWS, from + blockSize));
+                final List<RegressionPrediction> predictions = predictor.predictBlock(block);
+                assertEquals(block.size(), predictions.size());
+                for (int r = 0; r < block.size(); r++) {
+                    final double expected = predictor.predict(block.get(r)).getPrediction();
+                    assertEquals(expected, predictions.get(r).getPrediction(), 0.0);
+                    assertEquals(model.predict(records.get(from + r)), expected, 0.0);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.predictor;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.commons.math.random.RandomData;
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
+import org.knime.base.node.mine.treeensemble2.sample.row.SubsetNoReplacementSelector;
+import org.knime.base.node.mine.treeensemble2.sample.row.SubsetWithReplacementSelector;
+
+/**
+ * Tests that the {@link InBagBitmap} agrees with the row samples it was created from, which is what the out of bag
+ * filter of the {@link AbstractRandomForestPredictor} looked up for each row and model before.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class InBagBitmapTest {
+
+    private static final int NR_ROWS = 257;
+
+    /**
+     * @param nrModels the number of samples to draw, alternating between drawing with and without replacement
+     */
+    private static RowSample[] createRowSamples(final int nrModels) {
+        final RandomData rd = TestDataGenerator.createRandomData();
+        final RowSample[] samples = new RowSample[nrModels];
+        for (int m = 0; m < nrModels; m++) {
+            samples[m] = m % 2 == 0 ? SubsetWithReplacementSelector.getInstance().select(rd, NR_ROWS, NR_ROWS)
+                : SubsetNoReplacementSelector.getInstance().select(rd, NR_ROWS, NR_ROWS / 3);
+        }
+        return samples;
+    }
+
+    private static void assertMatchesSamples(final RowSample[] samples) {
+        final InBagBitmap bitmap = new InBagBitmap(samples);
+        for (int r = 0; r < NR_ROWS; r++) {
+            int expectedNext = -1;
+            for (int m = samples.length - 1; m >= 0; m--) {
+                final boolean inBag = samples[m].getCountFor(r) > 0;
+                assertEquals("Unexpected bit for row " + r + " and model " + m, inBag, bitmap.isInBag(r, m));
+                if (!inBag) {
+                    expectedNext = m;
+                }
+                assertEquals("Unexpected next out of bag model for row " + r + " from model " + m, expectedNext,
+                    bitmap.nextOutOfBagModel(r, m));
+            }
+            assertEquals(-1, bitmap.nextOutOfBagModel(r, samples.length));
+        }
+    }
+
+    /**
+     * The bits and the enumeration of the out of bag models must match the counts of the samples, with the models
+     * spanning several words and a partially filled last word.
+     */
+    @Test
+    public void testMatchesRowSamples() {
+        for (final int nrModels : new int[]{1, 63, 64, 65, 130}) {
+            assertMatchesSamples(createRowSamples(nrModels));
+        }
+    }
+
+    /**
+     * A row that is not part of the training data is out of bag for all models.
+     */
+    @Test
+    public void testRowNotInTrainingData() {
+        final InBagBitmap bitmap = new InBagBitmap(createRowSamples(70));
+        for (int m = 0; m < 70; m++) {
+            assertEquals(m, bitmap.nextOutOfBagModel(-1, m));
+        }
+        assertEquals(-1, bitmap.nextOutOfBagModel(-1, 70));
+    }
+
+}
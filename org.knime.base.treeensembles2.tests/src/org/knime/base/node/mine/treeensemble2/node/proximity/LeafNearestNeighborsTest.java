@@ -0,0 +1,153 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsembleTest;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Compares the nearest neighbors {@link LeafNearestNeighbors} finds with those of
+ * {@link ProximityMatrix#getNearestNeighbors(org.knime.core.node.ExecutionContext, int)} on the full matrix.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class LeafNearestNeighborsTest {
+
+    private static final int NR_TREES = 25;
+
+    private static void assertSameNeighbors(final ProximityMatrix matrix, final LeafNearestNeighbors nearestNeighbors,
+        final int k) {
+        final int nrRows = matrix.getNumRows();
+        final LeafNearestNeighbors.Chunk chunk = nearestNeighbors.findNeighbors(0, nrRows);
+        for (int r = 0; r < nrRows; r++) {
+            final int[] expected = matrix.getNearestNeighbors(r, k);
+            final int[] neighbors = chunk.getNeighbors(r);
+            final int[] counts = chunk.getCounts(r);
+            assertArrayEquals("Unexpected neighbors of row " + r, expected, neighbors);
+            for (int j = 0; j < k; j++) {
+                assertEquals("Unexpected proximity of neighbor " + j + " of row " + r,
+                    matrix.getEntryAt(r, expected[j]), counts[j] * (1.0 / NR_TREES), 0.0);
+            }
+        }
+    }
+
+    /**
+     * A single table must give the neighbors of the packed half matrix, including the order of neighbors with the
+     * same proximity.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testSingleTableMatchesMatrix() throws Exception {
+        final Random random = new Random(21);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 5, random);
+        final PredictorRecord[] records = ProximityTest.createRecords(metaData, 300, 0, random);
+        final LeafIndexMatrix leaves = LeafIndexMatrix.create(model.getCompiledModel(), records);
+        final PackedHalfProximityMatrix matrix =
+            new PackedHalfProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(records.length));
+        Proximity.calcProximities(matrix, leaves, new ExecutionMonitor());
+        for (final int k : new int[]{1, 7, 60}) {
+            assertSameNeighbors(matrix, new LeafNearestNeighbors(leaves, leaves, k), k);
+        }
+    }
+
+    /**
+     * Two tables must give the neighbors of the two tables matrix. Rows that can't be evaluated share no leaf, their
+     * neighbors are the first rows of the neighbor table.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testTwoTablesMatchMatrix() throws Exception {
+        final Random random = new Random(22);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 5, random);
+        final PredictorRecord[] records1 = ProximityTest.createRecords(metaData, 200, 9, random);
+        final PredictorRecord[] records2 = ProximityTest.createRecords(metaData, 150, 11, random);
+        final LeafIndexMatrix leaves1 = LeafIndexMatrix.create(model.getCompiledModel(), records1);
+        final LeafIndexMatrix leaves2 = LeafIndexMatrix.create(model.getCompiledModel(), records2);
+        final TwoTablesProximityMatrix matrix =
+            new TwoTablesProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(records1.length),
+                PackedHalfProximityMatrixTest.createRowKeys(records2.length));
+        Proximity.calcProximities(matrix, leaves1, leaves2, new ExecutionMonitor());
+        for (final int k : new int[]{1, 10, records2.length - 1}) {
+            assertSameNeighbors(matrix, new LeafNearestNeighbors(leaves1, leaves2, k), k);
+        }
+        final int[] expected = new int[]{0, 1, 2, 3, 4};
+        assertArrayEquals(expected, new LeafNearestNeighbors(leaves1, leaves2, 5).findNeighbors(0, 1).getNeighbors(0));
+    }
+
+    /**
+     * The query rows are processed in chunks, a chunk must give the neighbors of its rows in the whole table.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testChunkMatchesWholeTable() throws Exception {
+        final Random random = new Random(23);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 5, random);
+        final PredictorRecord[] records = ProximityTest.createRecords(metaData, 120, 13, random);
+        final LeafIndexMatrix leaves = LeafIndexMatrix.create(model.getCompiledModel(), records);
+        final LeafNearestNeighbors nearestNeighbors = new LeafNearestNeighbors(leaves, leaves, 8);
+        final LeafNearestNeighbors.Chunk all = nearestNeighbors.findNeighbors(0, records.length);
+        final LeafNearestNeighbors.Chunk chunk = nearestNeighbors.findNeighbors(40, 30);
+        for (int r = 0; r < 30; r++) {
+            assertArrayEquals(all.getNeighbors(40 + r), chunk.getNeighbors(r));
+            assertArrayEquals(all.getCounts(40 + r), chunk.getCounts(r));
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
+
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Compares the lock-free accumulation of {@link PackedHalfProximityMatrix#addSharedLeafs(int[][], ExecutionMonitor)}
+ * with the previous approach of building boxed leaf lists and an int[2] per pair of rows for each tree, which are
+ * then added to the matrix under its lock. Not a unit test, run it as a Java application, the default of 50000 rows
+ * needs about 5GB for a matrix (-Xmx6g):
+ *
+ * <pre>
+ * PackedHalfProximityMatrixBenchmark [nrRows (50000)] [nrTrees (500)] [nrRowsPerLeaf (5)] [withPairs (true)]
+ * </pre>
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class PackedHalfProximityMatrixBenchmark {
+
+    private PackedHalfProximityMatrixBenchmark() {
+    }
+
+    /**
+     * @param args optional number of rows, trees, rows per leaf and whether to run the pair based accumulation
+     * @throws Exception if the accumulation fails
+     */
+    public static void main(final String[] args) throws Exception {
+        final int nrRows = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        final int nrTrees = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        final int nrRowsPerLeaf = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        final boolean withPairs = args.length > 3 ? Boolean.parseBoolean(args[3]) : true;
+        final int[][] leafs = PackedHalfProximityMatrixTest.createLeafs(nrRows, nrTrees,
+            Math.max(1, nrRows / nrRowsPerLeaf), new Random(42));
+
+        long start = System.nanoTime();
+        PackedHalfProximityMatrix matrix =
+            new PackedHalfProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(nrRows));
+        matrix.addSharedLeafs(leafs, new ExecutionMonitor());
+        final long stripedTime = System.nanoTime() - start;
+        final double stripedSum = sum(matrix);
+        System.out.println(String.format("striped: %8.1f s (sum %.0f)", stripedTime / 1e9, stripedSum));
+        if (!withPairs) {
+            return;
+        }
+        matrix = null;
+
+        start = System.nanoTime();
+        matrix = new PackedHalfProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(nrRows));
+        addPairs(matrix, leafs);
+        final long pairTime = System.nanoTime() - start;
+        final double pairSum = sum(matrix);
+        if (pairSum != stripedSum) {
+            throw new IllegalStateException("Proximities differ");
+        }
+        System.out.println(String.format("pairs:   %8.1f s (speedup %.1f)", pairTime / 1e9,
+            (double)pairTime / stripedTime));
+    }
+
+    private static void addPairs(final PackedHalfProximityMatrix matrix, final int[][] leafs) throws Exception {
+        final ThreadPool tp = KNIMEConstants.GLOBAL_THREAD_POOL;
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final int[] treeLeafs : leafs) {
+            futures.add(tp.enqueue(() -> {
+                final Map<Integer, List<Integer>> leafMap = new TreeMap<Integer, List<Integer>>();
+                for (int r = 0; r < treeLeafs.length; r++) {
+                    if (treeLeafs[r] != LeafIndexMatrix.NO_LEAF) {
+                        leafMap.computeIfAbsent(treeLeafs[r], l -> new ArrayList<Integer>()).add(r);
+                    }
+                }
+                final List<int[]> indexPairs = new ArrayList<int[]>();
+                for (List<Integer> leaf : leafMap.values()) {
+                    Integer[] leafArray = leaf.toArray(new Integer[leaf.size()]);
+                    for (int i = 0; i < leafArray.length; i++) {
+                        for (int j = i; j < leafArray.length; j++) {
+                            indexPairs.add(new int[]{leafArray[i], leafArray[j]});
+                        }
+                    }
+                }
+                matrix.incrementSync(indexPairs.toArray(new int[indexPairs.size()][]));
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private static double sum(final PackedHalfProximityMatrix matrix) {
+        double sum = 0;
+        for (int r = 0; r < matrix.getNumRows(); r++) {
+            for (int c = r; c < matrix.getNumCols(); c++) {
+                sum += matrix.getEntryAt(r, c);
+            }
+        }
+        return sum;
+    }
+
+}
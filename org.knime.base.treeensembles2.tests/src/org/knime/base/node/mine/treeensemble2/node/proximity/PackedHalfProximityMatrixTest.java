@@ -0,0 +1,160 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.core.data.RowKey;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Tests the lock-free accumulation of {@link PackedHalfProximityMatrix}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class PackedHalfProximityMatrixTest {
+
+    /**
+     * @param nrRows the number of rows
+     * @return keys for <b>nrRows</b> rows
+     */
+    static RowKey[] createRowKeys(final int nrRows) {
+        final RowKey[] rowKeys = new RowKey[nrRows];
+        for (int r = 0; r < nrRows; r++) {
+            rowKeys[r] = RowKey.createRowKey(r);
+        }
+        return rowKeys;
+    }
+
+    /**
+     * @param nrRows the number of rows
+     * @param nrTrees the number of trees
+     * @param nrLeafsPerTree the number of leafs of each tree
+     * @param random the source of randomness
+     * @return random leafs with disjoint ranges per tree, some rows have no leaf
+     */
+    static int[][] createLeafs(final int nrRows, final int nrTrees, final int nrLeafsPerTree, final Random random) {
+        final int[][] leafs = new int[nrTrees][nrRows];
+        for (int t = 0; t < nrTrees; t++) {
+            for (int r = 0; r < nrRows; r++) {
+                leafs[t][r] = random.nextInt(50) == 0 ? LeafIndexMatrix.NO_LEAF
+                    : t * nrLeafsPerTree + random.nextInt(nrLeafsPerTree);
+            }
+        }
+        return leafs;
+    }
+
+    /**
+     * The matrix must count for each pair of rows the trees in which they share a leaf, also across several batches
+     * of trees and stripes of rows.
+     *
+     * @throws Exception if the accumulation fails
+     */
+    @Test
+    public void testAddSharedLeafs() throws Exception {
+        final int nrRows = 301;
+        final int nrTrees = 70;
+        final int[][] leafs = createLeafs(nrRows, nrTrees, 20, new Random(42));
+        final PackedHalfProximityMatrix matrix = new PackedHalfProximityMatrix(createRowKeys(nrRows));
+        matrix.addSharedLeafs(leafs, new ExecutionMonitor());
+        for (int i = 0; i < nrRows; i++) {
+            for (int j = 0; j < nrRows; j++) {
+                int expected = 0;
+                for (int t = 0; t < nrTrees; t++) {
+                    if (leafs[t][i] != LeafIndexMatrix.NO_LEAF && leafs[t][i] == leafs[t][j]) {
+                        expected++;
+                    }
+                }
+                assertEquals("Unexpected proximity of rows " + i + " and " + j, expected, matrix.getEntryAt(i, j),
+                    0.0);
+            }
+        }
+
+        matrix.normalize(1.0 / nrTrees);
+        assertEquals(matrix.getEntryAt(3, 7), matrix.getRowAt(7)[3], 0.0);
+    }
+
+    /**
+     * Increments by pairs must be visible from both sides of the diagonal.
+     */
+    @Test
+    public void testIncrementSync() {
+        final PackedHalfProximityMatrix matrix = new PackedHalfProximityMatrix(createRowKeys(5));
+        matrix.incrementSync(new int[][]{{1, 3}, {4, 4}, {1, 3}, {4, 0}});
+        assertEquals(2.0, matrix.getEntryAt(3, 1), 0.0);
+        assertEquals(1.0, matrix.getEntryAt(4, 4), 0.0);
+        assertEquals(1.0, matrix.getEntryAt(0, 4), 0.0);
+        assertEquals(0.0, matrix.getEntryAt(0, 1), 0.0);
+    }
+
+    /**
+     * The entries must be the counts normalized in double precision, as in the other proximity matrices, e.g. one of
+     * ten trees is exactly 0.1 and not the float closest to it.
+     *
+     * @throws Exception if the accumulation fails
+     */
+    @Test
+    public void testNormalizeInDoublePrecision() throws Exception {
+        final int nrTrees = 10;
+        final int[][] leafs = new int[nrTrees][];
+        for (int t = 0; t < nrTrees; t++) {
+            // rows 0 and 1 share the leaf of the first tree only, row 2 has no leaf in the last tree
+            leafs[t] = new int[]{2 * t, t == 0 ? 0 : 2 * t + 1, t == nrTrees - 1 ? LeafIndexMatrix.NO_LEAF : 2 * t};
+        }
+        final PackedHalfProximityMatrix matrix = new PackedHalfProximityMatrix(createRowKeys(3));
+        matrix.addSharedLeafs(leafs, new ExecutionMonitor());
+        matrix.normalize(1.0 / nrTrees);
+        assertEquals(1 * (1.0 / nrTrees), matrix.getEntryAt(0, 1), 0.0);
+        assertEquals(0.1, matrix.getEntryAt(1, 0), 0.0);
+        assertEquals(9 * (1.0 / nrTrees), matrix.getEntryAt(2, 0), 0.0);
+        assertEquals(9 * (1.0 / nrTrees), matrix.getRowAt(2)[2], 0.0);
+        assertEquals(1.0, matrix.getRowAt(1)[1], 0.0);
+        assertEquals(1 * (1.0 / nrTrees), matrix.getEntryAt(1, 2), 0.0);
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNominalColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsembleTest;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeModelRegression;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeNominalCondition;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeNumericCondition;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeNumericCondition.NumericOperator;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeRegression;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeSignature;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeTrueCondition;
+
+/**
+ * Tests the packing of the paths in {@link PathPrefixCodes} with paths that span several words and compares the path
+ * proximities with {@link IndexTree#getAllPathProximities(TreePath)}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class PathPrefixCodesTest {
+
+    /** The number of levels of a chain, more than fit into one word with one bit per level. */
+    private static final int CHAIN_LENGTH = 100;
+
+    private static final TreeMetaData META_DATA = CompiledTreeEnsembleTest.createMetaData(3, true);
+
+    /**
+     * Creates a chain of numeric splits on num0 with two children each: a row with value v goes to the second child
+     * on the levels below v and stops in the leaf of the first child on level v, i.e. its path is v times 1 and a 0.
+     */
+    private static TreeNodeRegression createChain(final TreeNodeSignature signature, final int level) {
+        final TreeTargetNumericColumnMetaData target = (TreeTargetNumericColumnMetaData)META_DATA.getTargetMetaData();
+        if (level == CHAIN_LENGTH) {
+            return new TreeNodeRegression(target, signature, level, 1, 0);
+        }
+        final TreeNumericColumnMetaData num0 = (TreeNumericColumnMetaData)META_DATA.getAttributeMetaData(0);
+        final TreeNodeRegression leaf =
+            new TreeNodeRegression(target, signature.createChildSignature((byte)0), level, 1, 0);
+        leaf.setTreeNodeCondition(
+            new TreeNodeNumericCondition(num0, level + 0.5, NumericOperator.LessThanOrEqual, false));
+        final TreeNodeRegression next = createChain(signature.createChildSignature((byte)1), level + 1);
+        next.setTreeNodeCondition(new TreeNodeNumericCondition(num0, level + 0.5, NumericOperator.LargerThan, false));
+        return new TreeNodeRegression(target, signature, level, 1, 0, new TreeNodeRegression[]{leaf, next});
+    }
+
+    /**
+     * @return a tree whose root has a chain for each of the first three values of the multiway attribute, rows with
+     *         the last value stop at the root
+     */
+    private static TreeModelRegression createMultiwayTree() {
+        final TreeTargetNumericColumnMetaData target = (TreeTargetNumericColumnMetaData)META_DATA.getTargetMetaData();
+        final TreeNominalColumnMetaData multiway = (TreeNominalColumnMetaData)META_DATA.getAttributeMetaData(4);
+        final TreeNodeRegression[] children = new TreeNodeRegression[3];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = createChain(TreeNodeSignature.ROOT_SIGNATURE.createChildSignature((byte)i), 0);
+            children[i].setTreeNodeCondition(new TreeNodeNominalCondition(multiway, i, false));
+        }
+        final TreeNodeRegression root =
+            new TreeNodeRegression(target, TreeNodeSignature.ROOT_SIGNATURE, 0, 1, 0, children);
+        root.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
+        return new TreeModelRegression(root);
+    }
+
+    private static TreeModelRegression createChainTree() {
+        final TreeNodeRegression root = createChain(TreeNodeSignature.ROOT_SIGNATURE, 0);
+        root.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
+        return new TreeModelRegression(root);
+    }
+
+    private static PredictorRecord createRecord(final int num0, final int multiway) {
+        final Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("num0", (double)num0);
+        values.put("num1", 0.0);
+        values.put("num2", 0.0);
+        values.put("binary", 0);
+        values.put("multiway", multiway);
+        return new PredictorRecord(values);
+    }
+
+    /**
+     * @param nrMultiwayValues the number of values of the multiway attribute the records use
+     */
+    private static PredictorRecord[] createRecords(final int nrRows, final int nrMultiwayValues,
+        final Random random) {
+        final PredictorRecord[] records = new PredictorRecord[nrRows];
+        for (int r = 0; r < nrRows; r++) {
+            records[r] = createRecord(random.nextInt(CHAIN_LENGTH + 3), random.nextInt(nrMultiwayValues));
+        }
+        return records;
+    }
+
+    private static int calcCommonPrefixLength(final int[] path1, final int[] path2) {
+        int prefix = 0;
+        while (prefix < path1.length && prefix < path2.length && path1[prefix] == path2[prefix]) {
+            prefix++;
+        }
+        return prefix;
+    }
+
+    private static void assertCodesMatchPaths(final LeafIndexMatrix leaves, final int treeIndex) {
+        final PathPrefixCodes codes = new PathPrefixCodes(leaves, leaves, treeIndex);
+        final TreeSet<Integer> leafs = new TreeSet<Integer>();
+        for (final int leaf : leaves.getLeaves(treeIndex)) {
+            leafs.add(leaf);
+        }
+        for (final int leaf1 : leafs) {
+            final int[] path1 = leaves.getPath(leaf1);
+            assertEquals(path1.length, codes.getDepth(leaf1));
+            for (final int leaf2 : leafs) {
+                assertEquals("Unexpected common prefix of leafs " + leaf1 + " and " + leaf2,
+                    calcCommonPrefixLength(path1, leaves.getPath(leaf2)), codes.getCommonPrefixLength(leaf1, leaf2));
+            }
+        }
+    }
+
+    /**
+     * The common prefix lengths must be those of the paths, for one bit (64 levels) and two bits (32 levels) per
+     * level, with paths that span several words and paths that are prefixes of each other.
+     */
+    @Test
+    public void testCommonPrefixLengthMatchesPaths() {
+        final TreeEnsembleModel model = new TreeEnsembleModel(META_DATA,
+            new TreeModelRegression[]{createChainTree(), createMultiwayTree()}, TreeType.Ordinary, false);
+        final PredictorRecord[] records = new PredictorRecord[4 * (CHAIN_LENGTH + 1)];
+        for (int v = 0; v <= CHAIN_LENGTH; v++) {
+            for (int m = 0; m < 4; m++) {
+                records[4 * v + m] = createRecord(v, m);
+            }
+        }
+        final LeafIndexMatrix leaves = LeafIndexMatrix.create(model.getCompiledModel(), records);
+        // 101 leafs of the chain, 3 * 101 of the multiway tree and its root
+        for (int t = 0; t < 2; t++) {
+            assertCodesMatchPaths(leaves, t);
+        }
+        assertArrayEquals(new int[0], leaves.getPath(leaves.getLeaves(1)[3]));
+        assertEquals(CHAIN_LENGTH + 1, leaves.getPath(leaves.getLeaves(1)[4 * CHAIN_LENGTH + 2]).length);
+    }
+
+    /**
+     * The path proximities must be those of the index trees of the former implementation.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testMatchesIndexTree() throws Exception {
+        final Random random = new Random(61);
+        final TreeEnsembleModel model = new TreeEnsembleModel(META_DATA,
+            new TreeModelRegression[]{createChainTree(), createMultiwayTree(), createChainTree()}, TreeType.Ordinary,
+            false);
+        final PredictorRecord[] records1 = createRecords(150, 3, random);
+        final PredictorRecord[] records2 = createRecords(120, 3, random);
+        final LeafIndexMatrix leaves1 = LeafIndexMatrix.create(model.getCompiledModel(), records1);
+        final LeafIndexMatrix leaves2 = LeafIndexMatrix.create(model.getCompiledModel(), records2);
+        final double[][] expected = PathProximityTest.calcOldPathProximities(model, records1, records2);
+        final double[][] proximities = PathProximityTest.calcPathProximities(leaves1, leaves2);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals("Unexpected path proximities of row " + i, expected[i], proximities[i], 1e-12);
+        }
+    }
+
+    /**
+     * A row that stops at the root shares its whole (empty) path with every row, its proximity is 1 instead of the
+     * NaN of the former implementation. Other rows share nothing with it.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testRootOnlyPathHasProximityOne() throws Exception {
+        final Random random = new Random(62);
+        final TreeEnsembleModel model = new TreeEnsembleModel(META_DATA,
+            new TreeModelRegression[]{createMultiwayTree()}, TreeType.Ordinary, false);
+        final PredictorRecord[] records = createRecords(80, 4, random);
+        final LeafIndexMatrix leaves = LeafIndexMatrix.create(model.getCompiledModel(), records);
+        final double[][] proximities = PathProximityTest.calcPathProximities(leaves, leaves);
+        int nrRootOnly = 0;
+        for (int i = 0; i < records.length; i++) {
+            if (leaves.getPath(leaves.getLeaves(0)[i]).length > 0) {
+                continue;
+            }
+            nrRootOnly++;
+            for (int j = 0; j < records.length; j++) {
+                assertEquals(1.0, proximities[i][j], 0.0);
+                if (leaves.getPath(leaves.getLeaves(0)[j]).length > 0) {
+                    assertEquals(0.0, proximities[j][i], 0.0);
+                }
+            }
+        }
+        assertEquals(true, nrRootOnly > 0);
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsembleTest;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeModelRegression;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Compares the path proximities calculated from a {@link LeafIndexMatrix} with the former implementation, which built
+ * an {@link IndexTree} of the paths of the second table for every tree.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class PathProximityTest {
+
+    private static final int NR_TREES = 20;
+
+    /**
+     * Creates records that don't stop at the root of any tree, for them the former implementation divided by zero.
+     *
+     * @param nullEvery every that many rows can't be evaluated (null), 0 if all rows can be evaluated
+     */
+    private static PredictorRecord[] createRecords(final TreeEnsembleModel model, final TreeMetaData metaData,
+        final int nrRows, final int nullEvery, final Random random) {
+        final PredictorRecord[] records = new PredictorRecord[nrRows];
+        for (int r = 0; r < nrRows; r++) {
+            if (nullEvery > 0 && r % nullEvery == 0) {
+                continue;
+            }
+            do {
+                records[r] = CompiledTreeEnsembleTest.createRecord(metaData, random);
+            } while (stopsAtRoot(model, records[r]));
+        }
+        return records;
+    }
+
+    private static boolean stopsAtRoot(final TreeEnsembleModel model, final PredictorRecord record) {
+        for (int t = 0; t < model.getNrModels(); t++) {
+            if (model.getTreeModelRegression(t).getTreePath(record).size() == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The former implementation. It failed for rows that can't be evaluated, here they have proximity zero to all
+     * rows.
+     */
+    static double[][] calcOldPathProximities(final TreeEnsembleModel model, final PredictorRecord[] records1,
+        final PredictorRecord[] records2) {
+        final double[][] proximities = new double[records1.length][records2.length];
+        final int nrTrees = model.getNrModels();
+        for (int t = 0; t < nrTrees; t++) {
+            final TreeModelRegression tree = model.getTreeModelRegression(t);
+            // the index tree only knows the rows that can be evaluated
+            final int[] rows2 = new int[records2.length];
+            int nrRows2 = 0;
+            for (int j = 0; j < records2.length; j++) {
+                if (records2[j] != null) {
+                    rows2[nrRows2++] = j;
+                }
+            }
+            final IndexTree dataTree = new IndexTree(nrRows2);
+            for (int p = 0; p < nrRows2; p++) {
+                dataTree.addIndex(p, tree.getTreePath(records2[rows2[p]]));
+            }
+            for (int i = 0; i < records1.length; i++) {
+                if (records1[i] == null) {
+                    continue;
+                }
+                final double[] treeProximities = dataTree.getAllPathProximities(tree.getTreePath(records1[i]));
+                for (int p = 0; p < nrRows2; p++) {
+                    proximities[i][rows2[p]] += treeProximities[p];
+                }
+            }
+        }
+        for (final double[] row : proximities) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] *= 1.0 / nrTrees;
+            }
+        }
+        return proximities;
+    }
+
+    /**
+     * @param leaves1 the leafs of the first table
+     * @param leaves2 the leafs of the second table
+     * @return the path proximities
+     * @throws Exception if the calculation fails
+     */
+    static double[][] calcPathProximities(final LeafIndexMatrix leaves1, final LeafIndexMatrix leaves2)
+        throws Exception {
+        final double[][] proximities = new double[leaves1.getNrRows()][];
+        PathProximity.calculatePathProximities(leaves1, leaves2, new ExecutionMonitor(),
+            (row, values) -> proximities[row] = values.clone());
+        return proximities;
+    }
+
+    private static void assertMatrixEquals(final double[][] expected, final double[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].length, actual[i].length);
+            for (int j = 0; j < expected[i].length; j++) {
+                assertEquals("Unexpected path proximity of rows " + i + " and " + j, expected[i][j], actual[i][j],
+                    0.0);
+            }
+        }
+    }
+
+    /**
+     * A single table and two tables must give the output of the former implementation.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testMatchesOldImplementation() throws Exception {
+        final Random random = new Random(21);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 6, random);
+        final PredictorRecord[] records1 = createRecords(model, metaData, 230, 0, random);
+        final PredictorRecord[] records2 = createRecords(model, metaData, 150, 0, random);
+        final LeafIndexMatrix leaves1 = LeafIndexMatrix.create(model.getCompiledModel(), records1);
+        final LeafIndexMatrix leaves2 = LeafIndexMatrix.create(model.getCompiledModel(), records2);
+
+        assertMatrixEquals(calcOldPathProximities(model, records1, records1), calcPathProximities(leaves1, leaves1));
+        assertMatrixEquals(calcOldPathProximities(model, records1, records2), calcPathProximities(leaves1, leaves2));
+        assertMatrixEquals(calcOldPathProximities(model, records2, records1), calcPathProximities(leaves2, leaves1));
+    }
+
+    /**
+     * Rows that can't be evaluated made the former implementation fail, now they have proximity zero to all rows.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testRowsWithoutLeafAreDropped() throws Exception {
+        final Random random = new Random(22);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 6, random);
+        final PredictorRecord[] records1 = createRecords(model, metaData, 180, 6, random);
+        final PredictorRecord[] records2 = createRecords(model, metaData, 120, 4, random);
+        final LeafIndexMatrix leaves1 = LeafIndexMatrix.create(model.getCompiledModel(), records1);
+        final LeafIndexMatrix leaves2 = LeafIndexMatrix.create(model.getCompiledModel(), records2);
+
+        final double[][] single = calcPathProximities(leaves1, leaves1);
+        assertMatrixEquals(calcOldPathProximities(model, records1, records1), single);
+        final double[][] two = calcPathProximities(leaves1, leaves2);
+        assertMatrixEquals(calcOldPathProximities(model, records1, records2), two);
+        for (int j = 0; j < records2.length; j++) {
+            assertEquals(0.0, two[6][j], 0.0);
+        }
+        for (int i = 0; i < records1.length; i++) {
+            assertEquals(0.0, single[i][12], 0.0);
+            assertEquals(0.0, two[i][8], 0.0);
+        }
+    }
+
+}
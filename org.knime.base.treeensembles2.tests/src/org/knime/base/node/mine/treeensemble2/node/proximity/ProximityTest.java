@@ -0,0 +1,240 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsembleTest;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeModelRegression;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeSignature;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Compares the proximities calculated from a {@link LeafIndexMatrix} with the former implementation, which matched the
+ * node signatures of the rows tree by tree.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ProximityTest {
+
+    private static final int NR_TREES = 25;
+
+    /**
+     * @param metaData the meta data of the attributes
+     * @param nrRows the number of rows
+     * @param nullEvery every that many rows can't be evaluated (null), 0 if all rows can be evaluated
+     * @param random the source of randomness
+     * @return random records
+     */
+    static PredictorRecord[] createRecords(final TreeMetaData metaData, final int nrRows, final int nullEvery,
+        final Random random) {
+        final PredictorRecord[] records = new PredictorRecord[nrRows];
+        for (int r = 0; r < nrRows; r++) {
+            records[r] = nullEvery > 0 && r % nullEvery == 0 ? null : CompiledTreeEnsembleTest.createRecord(metaData,
+                random);
+        }
+        return records;
+    }
+
+    /**
+     * The former implementation: two rows are close in a tree if the tree model finds the same node for them. It
+     * failed for rows that can't be evaluated, here they share no leaf with any row.
+     */
+    private static double[][] calcOldProximities(final TreeEnsembleModel model, final PredictorRecord[] records1,
+        final PredictorRecord[] records2) {
+        final double[][] proximities = new double[records1.length][records2.length];
+        final int nrTrees = model.getNrModels();
+        for (int t = 0; t < nrTrees; t++) {
+            final TreeModelRegression tree = model.getTreeModelRegression(t);
+            final TreeNodeSignature[] signatures2 = new TreeNodeSignature[records2.length];
+            for (int j = 0; j < records2.length; j++) {
+                if (records2[j] != null) {
+                    signatures2[j] = tree.findMatchingNode(records2[j]).getSignature();
+                }
+            }
+            for (int i = 0; i < records1.length; i++) {
+                if (records1[i] == null) {
+                    continue;
+                }
+                final TreeNodeSignature signature1 = tree.findMatchingNode(records1[i]).getSignature();
+                for (int j = 0; j < records2.length; j++) {
+                    if (signature1.equals(signatures2[j])) {
+                        proximities[i][j]++;
+                    }
+                }
+            }
+        }
+        for (final double[] row : proximities) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] *= 1.0 / nrTrees;
+            }
+        }
+        return proximities;
+    }
+
+    private static void assertMatrixEquals(final double[][] expected, final ProximityMatrix matrix,
+        final double delta) {
+        assertEquals(expected.length, matrix.getNumRows());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].length, matrix.getNumCols());
+            final double[] row = matrix.getRowAt(i);
+            for (int j = 0; j < expected[i].length; j++) {
+                assertEquals("Unexpected proximity of rows " + i + " and " + j, expected[i][j],
+                    matrix.getEntryAt(i, j), delta);
+                assertEquals("Unexpected proximity of rows " + i + " and " + j, expected[i][j], row[j], delta);
+            }
+        }
+    }
+
+    /**
+     * A single table uses the packed half matrix and must give the output of the former implementation.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testSingleTableMatchesOldImplementation() throws Exception {
+        final Random random = new Random(11);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 5, random);
+        final PredictorRecord[] records = createRecords(metaData, 400, 0, random);
+        final LeafIndexMatrix leaves = LeafIndexMatrix.create(model.getCompiledModel(), records);
+        final PackedHalfProximityMatrix matrix =
+            new PackedHalfProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(records.length));
+        Proximity.calcProximities(matrix, leaves, new ExecutionMonitor());
+        assertMatrixEquals(calcOldProximities(model, records, records), matrix, 0.0);
+    }
+
+    /**
+     * Two tables must give the output of the former implementation.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testTwoTablesMatchOldImplementation() throws Exception {
+        final Random random = new Random(12);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 5, random);
+        final PredictorRecord[] records1 = createRecords(metaData, 300, 0, random);
+        final PredictorRecord[] records2 = createRecords(metaData, 170, 0, random);
+        final TwoTablesProximityMatrix matrix =
+            new TwoTablesProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(records1.length),
+                PackedHalfProximityMatrixTest.createRowKeys(records2.length));
+        Proximity.calcProximities(matrix, LeafIndexMatrix.create(model.getCompiledModel(), records1),
+            LeafIndexMatrix.create(model.getCompiledModel(), records2), new ExecutionMonitor());
+        assertMatrixEquals(calcOldProximities(model, records1, records2), matrix, 0.0);
+    }
+
+    /**
+     * A single table with more than {@link PackedHalfProximityMatrix#MAX_ROWS} rows is compared with itself in a
+     * matrix of two tables. Formerly only one half of that matrix was filled, now it gets all pairs. A table of that
+     * size doesn't fit into the memory of a test, hence the fallback runs with a small table.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testLargeSingleTableGetsAllPairs() throws Exception {
+        final Random random = new Random(13);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 5, random);
+        final PredictorRecord[] records = createRecords(metaData, 250, 0, random);
+        final LeafIndexMatrix leaves = LeafIndexMatrix.create(model.getCompiledModel(), records);
+        final TwoTablesProximityMatrix matrix = new TwoTablesProximityMatrix(
+            PackedHalfProximityMatrixTest.createRowKeys(records.length),
+            PackedHalfProximityMatrixTest.createRowKeys(records.length));
+        Proximity.calcProximities(matrix, leaves, leaves, new ExecutionMonitor());
+        assertMatrixEquals(calcOldProximities(model, records, records), matrix, 0.0);
+        for (int i = 0; i < records.length; i++) {
+            assertEquals(1.0, matrix.getEntryAt(i, i), 0.0);
+            for (int j = 0; j < i; j++) {
+                assertEquals(matrix.getEntryAt(j, i), matrix.getEntryAt(i, j), 0.0);
+            }
+        }
+    }
+
+    /**
+     * Rows that can't be evaluated (e.g. a missing vector cell) made the former implementation fail, now they are
+     * close to no row, not even to themselves. The proximities of the other rows don't change.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testRowsWithoutLeafAreDropped() throws Exception {
+        final Random random = new Random(14);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 5, random);
+        final PredictorRecord[] records1 = createRecords(metaData, 200, 7, random);
+        final PredictorRecord[] records2 = createRecords(metaData, 150, 5, random);
+        final LeafIndexMatrix leaves1 = LeafIndexMatrix.create(model.getCompiledModel(), records1);
+        final LeafIndexMatrix leaves2 = LeafIndexMatrix.create(model.getCompiledModel(), records2);
+        for (int t = 0; t < NR_TREES; t++) {
+            assertEquals(LeafIndexMatrix.NO_LEAF, leaves1.getLeaves(t)[0]);
+            assertEquals(LeafIndexMatrix.NO_LEAF, leaves2.getLeaves(t)[145]);
+        }
+
+        final PackedHalfProximityMatrix singleMatrix =
+            new PackedHalfProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(records1.length));
+        Proximity.calcProximities(singleMatrix, leaves1, new ExecutionMonitor());
+        final double[][] expectedSingle = calcOldProximities(model, records1, records1);
+        assertMatrixEquals(expectedSingle, singleMatrix, 0.0);
+        assertEquals(0.0, singleMatrix.getEntryAt(7, 7), 0.0);
+        assertEquals(1.0, singleMatrix.getEntryAt(8, 8), 0.0);
+
+        final TwoTablesProximityMatrix twoMatrix =
+            new TwoTablesProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(records1.length),
+                PackedHalfProximityMatrixTest.createRowKeys(records2.length));
+        Proximity.calcProximities(twoMatrix, leaves1, leaves2, new ExecutionMonitor());
+        assertMatrixEquals(calcOldProximities(model, records1, records2), twoMatrix, 0.0);
+        for (int j = 0; j < records2.length; j++) {
+            assertEquals(0.0, twoMatrix.getEntryAt(14, j), 0.0);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsembleTest;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+
+/**
+ * Compares the counts of {@link SharedLeafCounter} with counting the shared leafs of each pair of rows.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class SharedLeafCounterTest {
+
+    private static int[] countSharedLeafs(final LeafIndexMatrix queryLeafs, final int queryRow,
+        final LeafIndexMatrix leafs) {
+        final int[] counts = new int[leafs.getNrRows()];
+        for (int t = 0; t < leafs.getNrTrees(); t++) {
+            final int leaf = queryLeafs.getLeaves(t)[queryRow];
+            for (int r = 0; r < counts.length; r++) {
+                if (leaf != LeafIndexMatrix.NO_LEAF && leafs.getLeaves(t)[r] == leaf) {
+                    counts[r]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * The counts of each query row must be those of the pairwise comparison, the counts of the previous query row must
+     * be reset and exactly the rows with a shared leaf must be touched.
+     */
+    @Test
+    public void testCountMatchesPairwiseComparison() {
+        final Random random = new Random(31);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, 20, 5, random);
+        final LeafIndexMatrix queryLeafs =
+            LeafIndexMatrix.create(model.getCompiledModel(), ProximityTest.createRecords(metaData, 90, 7, random));
+        final LeafIndexMatrix leafs =
+            LeafIndexMatrix.create(model.getCompiledModel(), ProximityTest.createRecords(metaData, 130, 11, random));
+        final SharedLeafCounter counter =
+            new SharedLeafCounter(queryLeafs, SharedLeafCounter.createLeafIndex(leafs), leafs.getNrRows());
+        assertEquals(20, counter.getNrTrees());
+        for (int q = 0; q < queryLeafs.getNrRows(); q++) {
+            final int[] expected = countSharedLeafs(queryLeafs, q, leafs);
+            final int nrTouched = counter.count(q);
+            assertArrayEquals("Unexpected counts of query row " + q, expected, counter.getCounts());
+            final int[] touched = Arrays.copyOf(counter.getTouched(), nrTouched);
+            Arrays.sort(touched);
+            int t = 0;
+            for (int r = 0; r < expected.length; r++) {
+                if (expected[r] > 0) {
+                    assertTrue("Row " + r + " is not touched by query row " + q, t < nrTouched);
+                    assertEquals(r, touched[t++]);
+                }
+            }
+            assertEquals("Unexpected number of touched rows of query row " + q, t, nrTouched);
+        }
+    }
+
+    /**
+     * A query row that can't be evaluated shares no leaf with any row.
+     */
+    @Test
+    public void testRowWithoutLeafTouchesNothing() {
+        final Random random = new Random(32);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, 10, 5, random);
+        final LeafIndexMatrix leafs =
+            LeafIndexMatrix.create(model.getCompiledModel(), ProximityTest.createRecords(metaData, 40, 5, random));
+        final SharedLeafCounter counter =
+            new SharedLeafCounter(leafs, SharedLeafCounter.createLeafIndex(leafs), leafs.getNrRows());
+        assertTrue(counter.count(1) > 0);
+        assertEquals(0, counter.count(0));
+        assertArrayEquals(new int[leafs.getNrRows()], counter.getCounts());
+    }
+
+}
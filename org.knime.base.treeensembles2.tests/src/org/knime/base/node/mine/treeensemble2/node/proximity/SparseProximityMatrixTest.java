@@ -0,0 +1,159 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsembleTest;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Compares the long format output of {@link SparseProximityMatrix} with that of the dense matrices.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class SparseProximityMatrixTest {
+
+    private static final int NR_TREES = 25;
+
+    private static final double[] MIN_PROXIMITIES = new double[]{0.0, 0.04, 0.2, 1.0 / 3, 0.6, 1.0};
+
+    /**
+     * Both matrices must write the same entries for <b>minProximity</b>.
+     */
+    private static void assertSameLongTable(final ProximityMatrix dense, final SparseProximityMatrix sparse,
+        final double minProximity) {
+        assertEquals(dense.getNumRows(), sparse.getNumRows());
+        assertEquals(dense.getNumCols(), sparse.getNumCols());
+        for (int r = 0; r < dense.getNumRows(); r++) {
+            final int[] columns = dense.getLongTableColumns(r, minProximity);
+            assertArrayEquals("Unexpected columns of row " + r + " for minimal proximity " + minProximity, columns,
+                sparse.getLongTableColumns(r, minProximity));
+            for (final int c : columns) {
+                assertEquals(dense.getEntryAt(r, c), sparse.getEntryAt(r, c), 0.0);
+            }
+        }
+    }
+
+    /**
+     * A single table must give the entries of the packed half matrix, whether the threshold is applied when the
+     * matrix is calculated or only when the table is written.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testSingleTableMatchesDenseMatrix() throws Exception {
+        final Random random = new Random(41);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 5, random);
+        final LeafIndexMatrix leaves =
+            LeafIndexMatrix.create(model.getCompiledModel(), ProximityTest.createRecords(metaData, 250, 17, random));
+        final PackedHalfProximityMatrix dense =
+            new PackedHalfProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(leaves.getNrRows()));
+        Proximity.calcProximities(dense, leaves, new ExecutionMonitor());
+        final SparseProximityMatrix all =
+            new SparseProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(leaves.getNrRows()), null);
+        SparseProximityMatrix.calcProximities(all, leaves, leaves, 0.0, new ExecutionMonitor());
+        for (final double minProximity : MIN_PROXIMITIES) {
+            assertSameLongTable(dense, all, minProximity);
+            final SparseProximityMatrix sparse =
+                new SparseProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(leaves.getNrRows()), null);
+            SparseProximityMatrix.calcProximities(sparse, leaves, leaves, minProximity, new ExecutionMonitor());
+            assertSameLongTable(dense, sparse, minProximity);
+        }
+    }
+
+    /**
+     * Two tables must give the entries of the two tables matrix.
+     *
+     * @throws Exception if the calculation fails
+     */
+    @Test
+    public void testTwoTablesMatchDenseMatrix() throws Exception {
+        final Random random = new Random(42);
+        final TreeMetaData metaData = CompiledTreeEnsembleTest.createMetaData(3, true);
+        final TreeEnsembleModel model = CompiledTreeEnsembleTest.createModel(metaData, NR_TREES, 5, random);
+        final LeafIndexMatrix leaves1 =
+            LeafIndexMatrix.create(model.getCompiledModel(), ProximityTest.createRecords(metaData, 180, 13, random));
+        final LeafIndexMatrix leaves2 =
+            LeafIndexMatrix.create(model.getCompiledModel(), ProximityTest.createRecords(metaData, 140, 0, random));
+        final TwoTablesProximityMatrix dense =
+            new TwoTablesProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(leaves1.getNrRows()),
+                PackedHalfProximityMatrixTest.createRowKeys(leaves2.getNrRows()));
+        Proximity.calcProximities(dense, leaves1, leaves2, new ExecutionMonitor());
+        for (final double minProximity : MIN_PROXIMITIES) {
+            final SparseProximityMatrix sparse =
+                new SparseProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(leaves1.getNrRows()),
+                    PackedHalfProximityMatrixTest.createRowKeys(leaves2.getNrRows()));
+            SparseProximityMatrix.calcProximities(sparse, leaves1, leaves2, minProximity, new ExecutionMonitor());
+            assertSameLongTable(dense, sparse, minProximity);
+        }
+    }
+
+    /**
+     * Rows set from dense values only keep the entries that are at least the minimal proximity and not zero, all
+     * other entries read as zero.
+     */
+    @Test
+    public void testSetRow() {
+        final SparseProximityMatrix matrix =
+            new SparseProximityMatrix(PackedHalfProximityMatrixTest.createRowKeys(2), null);
+        matrix.setRow(0, new double[]{0.0, 0.7}, 0.0);
+        matrix.setRow(1, new double[]{0.3, 0.7}, 0.5);
+        assertEquals(2, matrix.getNrEntries());
+        assertArrayEquals(new double[]{0.0, 0.7}, matrix.getRowAt(0), 0.0);
+        assertArrayEquals(new double[]{0.0, 0.7}, matrix.getRowAt(1), 0.0);
+        assertEquals(0.0, matrix.getEntryAt(1, 0), 0.0);
+        assertArrayEquals(new int[]{1}, matrix.getLongTableColumns(1, 0.7));
+        assertArrayEquals(new int[0], matrix.getLongTableColumns(1, 0.71));
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.sample.row;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+
+/**
+ * Tests that {@link CompactRowSample} and {@link SeededRowSample} keep the counts of the samples they replace.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class CompactRowSampleTest {
+
+    private static void assertSameCounts(final RowSample expected, final RowSample actual) {
+        assertEquals("Unexpected number of rows", expected.getNrRows(), actual.getNrRows());
+        for (int i = 0; i < expected.getNrRows(); i++) {
+            assertEquals("Unexpected count for row " + i, expected.getCountFor(i), actual.getCountFor(i));
+        }
+    }
+
+    /**
+     * A bootstrap sample needs at most 8 instead of 32 bits per row.
+     */
+    @Test
+    public void testBootstrapSample() {
+        final int nrRows = 10001;
+        RowSample sample =
+            SubsetWithReplacementSelector.getInstance().select(TestDataGenerator.createRandomData(), nrRows, nrRows);
+        RowSample compact = CompactRowSample.compact(sample);
+        assertTrue("Expected at most 8 bits per row", ((CompactRowSample)compact).getNrBitsPerRow() <= 8);
+        assertSameCounts(sample, compact);
+    }
+
+    /**
+     * Counts are packed with the next power of two bits, large counts are kept as they are.
+     */
+    @Test
+    public void testCountRanges() {
+        int[] counts = new int[]{0, 1, 2, 3, 0, 1, 5, 0, 0, 2, 1};
+        RowSample sample = new SubsetWithReplacementRowSample(counts);
+        assertEquals(4, ((CompactRowSample)CompactRowSample.compact(sample)).getNrBitsPerRow());
+        assertSameCounts(sample, CompactRowSample.compact(sample));
+
+        counts[4] = 0xFFFF;
+        assertEquals(16, ((CompactRowSample)CompactRowSample.compact(sample)).getNrBitsPerRow());
+        assertSameCounts(sample, CompactRowSample.compact(sample));
+
+        counts[4] = 0x10000;
+        assertSame(sample, CompactRowSample.compact(sample));
+
+        RowSample defaultSample = new DefaultRowSample(10);
+        assertSame(defaultSample, CompactRowSample.compact(defaultSample));
+    }
+
+    /**
+     * A seeded sample draws the same counts as the sampler did with a RandomData created from the seed.
+     */
+    @Test
+    public void testSeededSample() {
+        RowSampler sampler = new StratifiedRowSampler<>(0.7, SubsetWithReplacementSelector.getInstance(),
+            SamplerTestUtil.TARGET);
+        final long seed = 42;
+        RowSample expected = sampler.createRowSample(TreeEnsembleLearnerConfiguration.createRandomData(seed));
+        assertSameCounts(expected, new SeededRowSample(sampler, seed, SamplerTestUtil.TARGET.getNrRows()));
+        assertSameCounts(expected, new SeededRowSample(sampler, seed, expected));
+        // the materialized counts are strongly referenced, they are not drawn again while they are iterated
+        RowSample materialized = new SeededRowSample(sampler, seed, SamplerTestUtil.TARGET.getNrRows()).materialize();
+        assertTrue(materialized instanceof CompactRowSample);
+        assertSameCounts(expected, materialized);
+    }
+
+}
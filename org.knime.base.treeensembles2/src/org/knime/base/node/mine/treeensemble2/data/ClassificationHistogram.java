@@ -0,0 +1,140 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+/**
+ * Per bin class counts of the rows in a tree node for a single binned numeric column (see
+ * {@link TreeNumericColumnBinning}). Rows with a missing value in the column are counted separately.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class ClassificationHistogram {
+
+    private final int m_nrClasses;
+
+    private final double[] m_classCounts;
+
+    private final double[] m_binWeights;
+
+    private final double[] m_missingClassCounts;
+
+    private double m_missingWeight;
+
+    /**
+     * @param nrBins the number of bins
+     * @param nrClasses the number of target classes
+     */
+    public ClassificationHistogram(final int nrBins, final int nrClasses) {
+        m_nrClasses = nrClasses;
+        m_classCounts = new double[nrBins * nrClasses];
+        m_binWeights = new double[nrBins];
+        m_missingClassCounts = new double[nrClasses];
+    }
+
+    /**
+     * @param bin the bin of the row
+     * @param classIdx the class of the row
+     * @param weight the weight of the row
+     */
+    public void add(final int bin, final int classIdx, final double weight) {
+        m_classCounts[bin * m_nrClasses + classIdx] += weight;
+        m_binWeights[bin] += weight;
+    }
+
+    /**
+     * @param classIdx the class of a row with missing value
+     * @param weight the weight of the row
+     */
+    public void addMissing(final int classIdx, final double weight) {
+        m_missingClassCounts[classIdx] += weight;
+        m_missingWeight += weight;
+    }
+
+    /**
+     * @return the number of bins
+     */
+    public int getNrBins() {
+        return m_binWeights.length;
+    }
+
+    /**
+     * @return the number of classes
+     */
+    public int getNrClasses() {
+        return m_nrClasses;
+    }
+
+    /**
+     * @param bin index of the bin
+     * @param classIdx index of the class
+     * @return the summed weight of the rows of class <b>classIdx</b> in <b>bin</b>
+     */
+    public double getClassCount(final int bin, final int classIdx) {
+        return m_classCounts[bin * m_nrClasses + classIdx];
+    }
+
+    /**
+     * @param bin index of the bin
+     * @return the summed weight of all rows in <b>bin</b>
+     */
+    public double getWeight(final int bin) {
+        return m_binWeights[bin];
+    }
+
+    /**
+     * @return the class counts of the rows with missing values (not a copy)
+     */
+    public double[] getMissingClassCounts() {
+        return m_missingClassCounts;
+    }
+
+    /**
+     * @return the summed weight of the rows with missing values
+     */
+    public double getMissingWeight() {
+        return m_missingWeight;
+    }
+
+}
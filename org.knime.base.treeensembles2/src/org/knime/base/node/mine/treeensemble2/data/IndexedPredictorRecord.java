@@ -0,0 +1,200 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+import java.util.Arrays;
+
+/**
+ * A {@link PredictorRecord} that stores its values in primitive arrays indexed by the attribute index of the
+ * {@link TreeMetaData}. Numeric values are kept in a <code>double[]</code>, nominal values (the assigned integer) and
+ * bits (0 or 1) in an <code>int[]</code> and missing values in a bit mask. Conditions read the values by attribute
+ * index, {@link #getValue(String)} is only an adapter for code that addresses attributes by name.
+ *
+ * <p>
+ * A record can be {@link #clear() cleared} and refilled, which allows a prediction thread to reuse one instance for
+ * all the rows it processes. It is not thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class IndexedPredictorRecord extends PredictorRecord {
+
+    private static final byte NUMERIC = 0;
+
+    private static final byte NOMINAL = 1;
+
+    private static final byte BIT = 2;
+
+    private final TreeMetaData m_metaData;
+
+    private final byte[] m_kinds;
+
+    private final double[] m_numericValues;
+
+    private final int[] m_nominalValues;
+
+    private final long[] m_missing;
+
+    /**
+     * Creates a record in which all values are missing.
+     *
+     * @param metaData the meta data of the model the record is created for
+     */
+    public IndexedPredictorRecord(final TreeMetaData metaData) {
+        m_metaData = metaData;
+        final int nrAttributes = metaData.getNrAttributes();
+        m_kinds = new byte[nrAttributes];
+        for (int i = 0; i < nrAttributes; i++) {
+            final TreeAttributeColumnMetaData columnMetaData = metaData.getAttributeMetaData(i);
+            if (columnMetaData instanceof TreeNominalColumnMetaData) {
+                m_kinds[i] = NOMINAL;
+            } else if (columnMetaData instanceof TreeBitColumnMetaData) {
+                m_kinds[i] = BIT;
+            } else {
+                m_kinds[i] = NUMERIC;
+            }
+        }
+        m_numericValues = new double[nrAttributes];
+        m_nominalValues = new int[nrAttributes];
+        m_missing = new long[(nrAttributes + 63) >>> 6];
+        clear();
+    }
+
+    /** @return the meta data this record was created for */
+    public TreeMetaData getMetaData() {
+        return m_metaData;
+    }
+
+    /** Marks all values as missing. */
+    public void clear() {
+        Arrays.fill(m_missing, -1L);
+    }
+
+    /**
+     * @param attributeIndex the index of a numeric attribute
+     * @param value the (non-missing) value
+     */
+    public void setNumericValue(final int attributeIndex, final double value) {
+        m_numericValues[attributeIndex] = value;
+        m_missing[attributeIndex >>> 6] &= ~(1L << attributeIndex);
+    }
+
+    /**
+     * @param attributeIndex the index of a nominal attribute
+     * @param assignedInteger the assigned integer of the value, see {@link NominalValueRepresentation}
+     */
+    public void setNominalValue(final int attributeIndex, final int assignedInteger) {
+        m_nominalValues[attributeIndex] = assignedInteger;
+        m_missing[attributeIndex >>> 6] &= ~(1L << attributeIndex);
+    }
+
+    /**
+     * @param attributeIndex the index of a bit attribute
+     * @param value the value of the bit
+     */
+    public void setBitValue(final int attributeIndex, final boolean value) {
+        setNominalValue(attributeIndex, value ? 1 : 0);
+    }
+
+    /** @param attributeIndex the index of the attribute whose value is missing */
+    public void setMissing(final int attributeIndex) {
+        m_missing[attributeIndex >>> 6] |= 1L << attributeIndex;
+    }
+
+    /**
+     * @param attributeIndex the index of an attribute
+     * @return true if the value of the attribute is missing
+     */
+    public boolean isMissing(final int attributeIndex) {
+        return (m_missing[attributeIndex >>> 6] & (1L << attributeIndex)) != 0L;
+    }
+
+    /**
+     * @param attributeIndex the index of a numeric attribute
+     * @return the value, undefined if {@link #isMissing(int) missing}
+     */
+    public double getNumericValue(final int attributeIndex) {
+        return m_numericValues[attributeIndex];
+    }
+
+    /**
+     * @param attributeIndex the index of a nominal attribute
+     * @return the assigned integer of the value, undefined if {@link #isMissing(int) missing}
+     */
+    public int getNominalValue(final int attributeIndex) {
+        return m_nominalValues[attributeIndex];
+    }
+
+    /**
+     * @param attributeIndex the index of a bit attribute
+     * @return the value of the bit, undefined if {@link #isMissing(int) missing}
+     */
+    public boolean getBitValue(final int attributeIndex) {
+        return m_nominalValues[attributeIndex] != 0;
+    }
+
+    /**
+     * Returns the value boxed as {@link Double}, {@link Integer} (nominal) or {@link Boolean} (bit).
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getValue(final String attributeIdentifier) {
+        final int attributeIndex = m_metaData.getAttributeIndex(attributeIdentifier);
+        if (attributeIndex < 0) {
+            throw new IllegalArgumentException("Unknown attribute identifier \"" + attributeIdentifier + "\"");
+        }
+        if (isMissing(attributeIndex)) {
+            return null;
+        }
+        switch (m_kinds[attributeIndex]) {
+            case NOMINAL:
+                return Integer.valueOf(m_nominalValues[attributeIndex]);
+            case BIT:
+                return Boolean.valueOf(getBitValue(attributeIndex));
+            default:
+                return Double.valueOf(m_numericValues[attributeIndex]);
+        }
+    }
+
+}
@@ -69,6 +69,12 @@ public PredictorRecord(final Map<String, Object> map) {
         m_valueMap = map;
     }
 
+    /** Constructor for subclasses that do not store their values in a map, they must override
+     * {@link #getValue(String)}. */
+    protected PredictorRecord() {
+        m_valueMap = null;
+    }
+
     /**
      * @param attributeIdentifier
      * @return the object that attributeIdentifier represents
@@ -0,0 +1,155 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+/**
+ * Per bin target sums and weights of the rows in a tree node for a single binned numeric column (see
+ * {@link TreeNumericColumnBinning}). Rows with a missing value in the column are accumulated separately.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class RegressionHistogram {
+
+    private final double[] m_ySums;
+
+    private final double[] m_weights;
+
+    private double m_missingYSum;
+
+    private double m_missingWeight;
+
+    /**
+     * @param nrBins the number of bins
+     */
+    public RegressionHistogram(final int nrBins) {
+        m_ySums = new double[nrBins];
+        m_weights = new double[nrBins];
+    }
+
+    /**
+     * @param bin the bin of the row
+     * @param y the target value of the row
+     * @param weight the weight of the row
+     */
+    public void add(final int bin, final double y, final double weight) {
+        m_ySums[bin] += weight * y;
+        m_weights[bin] += weight;
+    }
+
+    /**
+     * @param y the target value of a row with missing value
+     * @param weight the weight of the row
+     */
+    public void addMissing(final double y, final double weight) {
+        m_missingYSum += weight * y;
+        m_missingWeight += weight;
+    }
+
+    /**
+     * Subtracts the statistics of <b>subset</b> from this histogram. If this histogram belongs to a parent node and
+     * <b>subset</b> to one of its (binary) children, this histogram afterwards contains the statistics of the other
+     * child, which is much cheaper than accumulating them from the rows.
+     *
+     * @param subset the histogram of a subset of the rows of this histogram (same column)
+     */
+    public void subtract(final RegressionHistogram subset) {
+        if (subset.getNrBins() != getNrBins()) {
+            throw new IllegalArgumentException(
+                "Histograms differ in number of bins: " + getNrBins() + " vs. " + subset.getNrBins());
+        }
+        for (int i = 0; i < m_weights.length; i++) {
+            m_ySums[i] -= subset.m_ySums[i];
+            m_weights[i] -= subset.m_weights[i];
+        }
+        m_missingYSum -= subset.m_missingYSum;
+        m_missingWeight -= subset.m_missingWeight;
+    }
+
+    /**
+     * @return the approximate number of bytes occupied by this histogram
+     */
+    public long getMemorySize() {
+        // two double arrays (with array headers) plus object header and fields
+        return 2L * (16 + 8L * m_weights.length) + 40;
+    }
+
+    /**
+     * @return the number of bins
+     */
+    public int getNrBins() {
+        return m_weights.length;
+    }
+
+    /**
+     * @param bin index of the bin
+     * @return the weighted sum of the target values in <b>bin</b>
+     */
+    public double getYSum(final int bin) {
+        return m_ySums[bin];
+    }
+
+    /**
+     * @param bin index of the bin
+     * @return the summed weight of the rows in <b>bin</b>
+     */
+    public double getWeight(final int bin) {
+        return m_weights[bin];
+    }
+
+    /**
+     * @return the weighted sum of the target values of rows with missing values
+     */
+    public double getMissingYSum() {
+        return m_missingYSum;
+    }
+
+    /**
+     * @return the summed weight of the rows with missing values
+     */
+    public double getMissingWeight() {
+        return m_missingWeight;
+    }
+
+}
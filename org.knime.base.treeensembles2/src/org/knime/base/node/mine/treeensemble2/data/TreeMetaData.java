@@ -50,6 +50,8 @@
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  *
@@ -61,6 +63,8 @@ public final class TreeMetaData {
 
     private final TreeTargetColumnMetaData m_targetMetaData;
 
+    private final Map<String, Integer> m_attributeIndexMap;
+
     /**
      * @param attributesMetaData
      * @param targetMetaData
@@ -68,6 +72,7 @@ public final class TreeMetaData {
     TreeMetaData(final TreeAttributeColumnMetaData[] attributesMetaData,
         final TreeTargetColumnMetaData targetMetaData) {
         m_attributesMetaData = attributesMetaData;
+        m_attributeIndexMap = new HashMap<String, Integer>((int)(attributesMetaData.length / 0.75 + 1.0));
         for (int i = 0; i < attributesMetaData.length; i++) {
             final TreeAttributeColumnMetaData t = attributesMetaData[i];
             final int tIndex = t.getAttributeIndex();
@@ -75,6 +80,7 @@ public final class TreeMetaData {
                 throw new IllegalArgumentException("Attribute \"" + t.getAttributeName()
                     + "\" does not have correct index " + i + " but " + tIndex);
             }
+            m_attributeIndexMap.putIfAbsent(t.getAttributeName(), Integer.valueOf(i));
         }
         m_targetMetaData = targetMetaData;
     }
@@ -97,6 +103,15 @@ public TreeAttributeColumnMetaData getAttributeMetaData(final int index) {
         return m_attributesMetaData[index];
     }
 
+    /**
+     * @param attributeName the name of an attribute
+     * @return the index of the attribute with that name or -1 if there is no such attribute
+     */
+    public int getAttributeIndex(final String attributeName) {
+        final Integer index = m_attributeIndexMap.get(attributeName);
+        return index == null ? -1 : index.intValue();
+    }
+
     /**
      * @return number of attributes
      */
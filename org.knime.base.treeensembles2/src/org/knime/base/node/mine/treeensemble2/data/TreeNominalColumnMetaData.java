@@ -50,6 +50,8 @@
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  *
@@ -59,12 +61,15 @@ public final class TreeNominalColumnMetaData extends TreeAttributeColumnMetaData
 
     private final NominalValueRepresentation[] m_values;
 
+    private final Map<String, Integer> m_assignedIntegerMap;
+
     /**
      * @param attributeName
      */
     public TreeNominalColumnMetaData(final String attributeName, final NominalValueRepresentation[] values) {
         super(attributeName);
         m_values = values;
+        m_assignedIntegerMap = createAssignedIntegerMap(values);
     }
 
     /**
@@ -78,6 +83,15 @@ public TreeNominalColumnMetaData(final String attributeName, final NominalValueR
         for (int i = 0; i < length; i++) {
             m_values[i] = NominalValueRepresentation.load(input);
         }
+        m_assignedIntegerMap = createAssignedIntegerMap(m_values);
+    }
+
+    private static Map<String, Integer> createAssignedIntegerMap(final NominalValueRepresentation[] values) {
+        final Map<String, Integer> map = new HashMap<String, Integer>((int)(values.length / 0.75 + 1.0));
+        for (NominalValueRepresentation v : values) {
+            map.putIfAbsent(v.getNominalValue(), Integer.valueOf(v.getAssignedInteger()));
+        }
+        return map;
     }
 
     /**
@@ -97,6 +111,15 @@ public NominalValueRepresentation[] getValues() {
         return m_values;
     }
 
+    /**
+     * @param nominalValue a nominal value (as string)
+     * @return the integer assigned to that value or -1 if the value is not known
+     */
+    public int getAssignedInteger(final String nominalValue) {
+        final Integer assignedInteger = m_assignedIntegerMap.get(nominalValue);
+        return assignedInteger == null ? -1 : assignedInteger.intValue();
+    }
+
     /** {@inheritDoc} */
     @Override
     void saveContent(final DataOutputStream output) throws IOException {
@@ -0,0 +1,149 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+/**
+ * Quantile binning of a numeric attribute column that is used for histogram based split search. Each bin covers a
+ * contiguous range of the sorted (non-missing) column values and equal values never end up in different bins. The
+ * binning is computed once when the column is created, so split search only needs to accumulate statistics per bin
+ * and can then scan the bins instead of the individual rows.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class TreeNumericColumnBinning {
+
+    /** The maximum number of bins supported (bin indices are stored as unsigned bytes). */
+    public static final int MAX_NR_BINS = 255;
+
+    /** The minimum number of bins that makes sense. */
+    public static final int MIN_NR_BINS = 2;
+
+    private final byte[] m_binIndices;
+
+    private final double[] m_lowerBounds;
+
+    private final double[] m_upperBounds;
+
+    private TreeNumericColumnBinning(final byte[] binIndices, final double[] lowerBounds,
+        final double[] upperBounds) {
+        m_binIndices = binIndices;
+        m_lowerBounds = lowerBounds;
+        m_upperBounds = upperBounds;
+    }
+
+    /**
+     * Creates the binning for a sorted column.
+     *
+     * @param sortedData the sorted column values, missing values (if any) are expected at the end
+     * @param lengthNonMissing the number of non-missing values in <b>sortedData</b>
+     * @param maxNrBins the maximal number of bins, must be in [{@link #MIN_NR_BINS}, {@link #MAX_NR_BINS}]
+     * @return the binning of the column
+     */
+    static TreeNumericColumnBinning create(final float[] sortedData, final int lengthNonMissing,
+        final int maxNrBins) {
+        if (maxNrBins < MIN_NR_BINS || maxNrBins > MAX_NR_BINS) {
+            throw new IllegalArgumentException("Invalid number of bins: " + maxNrBins);
+        }
+        final byte[] binIndices = new byte[lengthNonMissing];
+        final double[] lowerBounds = new double[maxNrBins];
+        final double[] upperBounds = new double[maxNrBins];
+        // bins are at least of size binSize (except the last one), hence there are at most maxNrBins bins
+        final int binSize = Math.max(1, (lengthNonMissing + maxNrBins - 1) / maxNrBins);
+        int nrBins = 0;
+        int binStart = 0;
+        while (binStart < lengthNonMissing) {
+            int binEnd = Math.min(binStart + binSize, lengthNonMissing);
+            // don't separate equal values
+            while (binEnd < lengthNonMissing
+                && sortedData[binEnd] - sortedData[binEnd - 1] < TreeColumnData.EPSILON) {
+                binEnd++;
+            }
+            for (int i = binStart; i < binEnd; i++) {
+                binIndices[i] = (byte)nrBins;
+            }
+            lowerBounds[nrBins] = sortedData[binStart];
+            upperBounds[nrBins] = sortedData[binEnd - 1];
+            nrBins++;
+            binStart = binEnd;
+        }
+        final double[] lower = new double[nrBins];
+        final double[] upper = new double[nrBins];
+        System.arraycopy(lowerBounds, 0, lower, 0, nrBins);
+        System.arraycopy(upperBounds, 0, upper, 0, nrBins);
+        return new TreeNumericColumnBinning(binIndices, lower, upper);
+    }
+
+    /**
+     * @return the number of bins
+     */
+    public int getNrBins() {
+        return m_lowerBounds.length;
+    }
+
+    /**
+     * @param indexInColumn the (non-missing) position in the sorted column
+     * @return the bin that contains the value at <b>indexInColumn</b>
+     */
+    public int getBin(final int indexInColumn) {
+        return m_binIndices[indexInColumn] & 0xFF;
+    }
+
+    /**
+     * @param bin index of the bin
+     * @return the smallest value contained in <b>bin</b>
+     */
+    public double getLowerBound(final int bin) {
+        return m_lowerBounds[bin];
+    }
+
+    /**
+     * @param bin index of the bin
+     * @return the largest value contained in <b>bin</b>
+     */
+    public double getUpperBound(final int bin) {
+        return m_upperBounds[bin];
+    }
+
+}
@@ -110,6 +110,10 @@ private BitSet getMissedRows(final ColumnMemberships columnMemberships) {
     @Override
     public NumericSplitCandidate calcBestSplitClassification(final DataMemberships dataMemberships,
         final ClassificationPriors targetPriors, final TreeTargetNominalColumnData targetColumn, final RandomData rd) {
+        if (getBinning() != null) {
+            return calcBestSplitClassification(createClassificationHistogram(dataMemberships, targetColumn),
+                dataMemberships, targetPriors, rd);
+        }
         final TreeEnsembleLearnerConfiguration config = getConfiguration();
         final NominalValueRepresentation[] targetVals = targetColumn.getMetaData().getValues();
         final boolean useAverageSplitPoints = config.isUseAverageSplitPoints();
@@ -322,6 +326,10 @@ public NumericSplitCandidate calcBestSplitClassification(final DataMemberships d
     @Override
     public SplitCandidate calcBestSplitRegression(final DataMemberships dataMemberships,
         final RegressionPriors targetPriors, final TreeTargetNumericColumnData targetColumn, final RandomData rd) {
+        if (getBinning() != null) {
+            return calcBestSplitRegression(createRegressionHistogram(dataMemberships, targetColumn), dataMemberships,
+                targetPriors, rd);
+        }
         final TreeEnsembleLearnerConfiguration config = getConfiguration();
         final boolean useAverageSplitPoints = config.isUseAverageSplitPoints();
         final int minChildNodeSize = config.getMinChildSize();
@@ -450,6 +458,296 @@ public SplitCandidate calcBestSplitRegression(final DataMemberships dataMembersh
         }
     }
 
+    /**
+     * The binning of this column or null if split search evaluates every distinct value of the column (default). If
+     * non-null, split search accumulates statistics per bin and only considers split points between bins.
+     *
+     * @return the binning used for histogram based split search or null
+     */
+    public TreeNumericColumnBinning getBinning() {
+        return null;
+    }
+
+    /**
+     * Accumulates the class counts of the rows in <b>dataMemberships</b> for each bin of {@link #getBinning()}.
+     *
+     * @param dataMemberships the rows of the current tree node
+     * @param targetColumn the target column
+     * @return the class histogram of the current tree node
+     */
+    public ClassificationHistogram createClassificationHistogram(final DataMemberships dataMemberships,
+        final TreeTargetNominalColumnData targetColumn) {
+        final TreeNumericColumnBinning binning = getBinning();
+        final ClassificationHistogram histogram =
+            new ClassificationHistogram(binning.getNrBins(), targetColumn.getMetaData().getValues().length);
+        final int lengthNonMissing = getLengthNonMissing();
+        final ColumnMemberships columnMemberships =
+            dataMemberships.getColumnMemberships(getMetaData().getAttributeIndex());
+        columnMemberships.reset();
+        while (columnMemberships.next()) {
+            final int indexInColumn = columnMemberships.getIndexInColumn();
+            final int target = targetColumn.getValueFor(columnMemberships.getOriginalIndex());
+            final double weight = columnMemberships.getRowWeight();
+            if (indexInColumn < lengthNonMissing) {
+                histogram.add(binning.getBin(indexInColumn), target, weight);
+            } else {
+                histogram.addMissing(target, weight);
+            }
+        }
+        columnMemberships.reset();
+        return histogram;
+    }
+
+    /**
+     * Accumulates the target sums and weights of the rows in <b>dataMemberships</b> for each bin of
+     * {@link #getBinning()}.
+     *
+     * @param dataMemberships the rows of the current tree node
+     * @param targetColumn the target column
+     * @return the target histogram of the current tree node
+     */
+    public RegressionHistogram createRegressionHistogram(final DataMemberships dataMemberships,
+        final TreeTargetNumericColumnData targetColumn) {
+        final TreeNumericColumnBinning binning = getBinning();
+        final RegressionHistogram histogram = new RegressionHistogram(binning.getNrBins());
+        final int lengthNonMissing = getLengthNonMissing();
+        final ColumnMemberships columnMemberships =
+            dataMemberships.getColumnMemberships(getMetaData().getAttributeIndex());
+        columnMemberships.reset();
+        while (columnMemberships.next()) {
+            final int indexInColumn = columnMemberships.getIndexInColumn();
+            final double y = targetColumn.getValueFor(columnMemberships.getOriginalIndex());
+            final double weight = columnMemberships.getRowWeight();
+            if (indexInColumn < lengthNonMissing) {
+                histogram.add(binning.getBin(indexInColumn), y, weight);
+            } else {
+                histogram.addMissing(y, weight);
+            }
+        }
+        columnMemberships.reset();
+        return histogram;
+    }
+
+    /**
+     * Histogram based counterpart of
+     * {@link #calcBestSplitClassification(DataMemberships, ClassificationPriors, TreeTargetNominalColumnData, RandomData)}
+     * that only considers split points between the bins of {@link #getBinning()}.
+     *
+     * @param histogram the class histogram of the current tree node
+     * @param dataMemberships the rows of the current tree node (only used to collect rows with missing values)
+     * @param targetPriors the target distribution in the current tree node
+     * @param rd used for random tie breaking
+     * @return the best split or null if there is no split that improves the impurity
+     */
+    public NumericSplitCandidate calcBestSplitClassification(final ClassificationHistogram histogram,
+        final DataMemberships dataMemberships, final ClassificationPriors targetPriors, final RandomData rd) {
+        final TreeEnsembleLearnerConfiguration config = getConfiguration();
+        final TreeNumericColumnBinning binning = getBinning();
+        final boolean useAverageSplitPoints = config.isUseAverageSplitPoints();
+        final int minChildNodeSize = config.getMinChildSize();
+        final boolean useXGBoostMissingValueHandling = config.getMissingValueHandling() == MissingValueHandling.XGBoost;
+        final IImpurity impurityCriterion = targetPriors.getImpurityCriterion();
+        final int nrBins = histogram.getNrBins();
+        final int nrClasses = histogram.getNrClasses();
+        final double totalSumWeight = targetPriors.getNrRecords();
+        final double[] missingTargetCounts = histogram.getMissingClassCounts();
+        final double missingWeight = histogram.getMissingWeight();
+        final boolean branchContainsMissingValues = missingWeight > 0.0;
+
+        final double[] targetCountsLeftOfSplit = new double[nrClasses];
+        final double[] targetCountsRightOfSplit =
+            TreeNominalColumnData.subtractMissingClassCounts(targetPriors.getDistribution(), missingTargetCounts);
+        double sumWeightsLeftOfSplit = 0.0;
+        double sumWeightsRightOfSplit = totalSumWeight - missingWeight;
+        if (sumWeightsRightOfSplit < EPSILON) {
+            // all values in branch are missing
+            return null;
+        }
+        final double priorImpurity = useXGBoostMissingValueHandling || !branchContainsMissingValues
+            ? targetPriors.getPriorImpurity()
+            : impurityCriterion.getPartitionImpurity(targetCountsRightOfSplit, sumWeightsRightOfSplit);
+
+        final double[] targetCountsLeftPlusMissing = new double[nrClasses];
+        final double[] targetCountsRightPlusMissing = new double[nrClasses];
+        final double[] partitionWeightsMissingsLeft = new double[2];
+        final double[] partitionWeightsMissingsRight = new double[2];
+        double bestSplit = Double.NEGATIVE_INFINITY;
+        double bestGain = Double.NEGATIVE_INFINITY;
+        double bestGainValueForSplit = Double.NEGATIVE_INFINITY;
+        boolean missingsGoLeft = true;
+        int lastNonEmptyBin = -1;
+        for (int bin = 0; bin < nrBins; bin++) {
+            final double binWeight = histogram.getWeight(bin);
+            if (binWeight < EPSILON) {
+                continue;
+            }
+            // candidate split between lastNonEmptyBin and bin
+            if (lastNonEmptyBin >= 0 && sumWeightsLeftOfSplit >= minChildNodeSize
+                && sumWeightsRightOfSplit >= minChildNodeSize) {
+                final double postSplitImpurity;
+                final double[] partitionWeights;
+                boolean tempMissingsGoLeft = false;
+                if (branchContainsMissingValues && useXGBoostMissingValueHandling) {
+                    for (int i = 0; i < nrClasses; i++) {
+                        targetCountsLeftPlusMissing[i] = targetCountsLeftOfSplit[i] + missingTargetCounts[i];
+                        targetCountsRightPlusMissing[i] = targetCountsRightOfSplit[i] + missingTargetCounts[i];
+                    }
+                    final double impurityMissingsLeft = getPostSplitImpurity(impurityCriterion,
+                        targetCountsLeftPlusMissing, sumWeightsLeftOfSplit + missingWeight, targetCountsRightOfSplit,
+                        sumWeightsRightOfSplit, totalSumWeight, partitionWeightsMissingsLeft);
+                    final double impurityMissingsRight = getPostSplitImpurity(impurityCriterion,
+                        targetCountsLeftOfSplit, sumWeightsLeftOfSplit, targetCountsRightPlusMissing,
+                        sumWeightsRightOfSplit + missingWeight, totalSumWeight, partitionWeightsMissingsRight);
+                    tempMissingsGoLeft = impurityMissingsLeft < impurityMissingsRight;
+                    postSplitImpurity = tempMissingsGoLeft ? impurityMissingsLeft : impurityMissingsRight;
+                    partitionWeights = tempMissingsGoLeft ? partitionWeightsMissingsLeft : partitionWeightsMissingsRight;
+                } else {
+                    postSplitImpurity = getPostSplitImpurity(impurityCriterion, targetCountsLeftOfSplit,
+                        sumWeightsLeftOfSplit, targetCountsRightOfSplit, sumWeightsRightOfSplit, totalSumWeight,
+                        partitionWeightsMissingsRight);
+                    partitionWeights = partitionWeightsMissingsRight;
+                }
+                if (postSplitImpurity < priorImpurity) {
+                    // absolute gain is used for split selection even for information gain ratio (see row based version)
+                    final double gain = priorImpurity - postSplitImpurity;
+                    boolean randomTieBreaker = gain == bestGain ? rd.nextInt(0, 1) == 1 : false;
+                    if (gain > bestGain || randomTieBreaker) {
+                        bestGainValueForSplit =
+                            impurityCriterion.getGain(priorImpurity, postSplitImpurity, partitionWeights, totalSumWeight);
+                        bestGain = gain;
+                        final double upperLeft = binning.getUpperBound(lastNonEmptyBin);
+                        bestSplit =
+                            useAverageSplitPoints ? getCenter(upperLeft, binning.getLowerBound(bin)) : upperLeft;
+                        missingsGoLeft = branchContainsMissingValues ? tempMissingsGoLeft
+                            : sumWeightsLeftOfSplit > sumWeightsRightOfSplit;
+                    }
+                }
+            }
+            for (int i = 0; i < nrClasses; i++) {
+                final double count = histogram.getClassCount(bin, i);
+                targetCountsLeftOfSplit[i] += count;
+                targetCountsRightOfSplit[i] -= count;
+            }
+            sumWeightsLeftOfSplit += binWeight;
+            sumWeightsRightOfSplit -= binWeight;
+            lastNonEmptyBin = bin;
+        }
+
+        if (bestGainValueForSplit < 0.0) {
+            return null;
+        }
+        if (useXGBoostMissingValueHandling) {
+            return new NumericSplitCandidate(this, bestSplit, bestGainValueForSplit, new BitSet(),
+                missingsGoLeft ? NumericSplitCandidate.MISSINGS_GO_LEFT : NumericSplitCandidate.MISSINGS_GO_RIGHT);
+        }
+        return new NumericSplitCandidate(this, bestSplit, bestGainValueForSplit,
+            getMissedRows(dataMemberships.getColumnMemberships(getMetaData().getAttributeIndex())),
+            NumericSplitCandidate.NO_MISSINGS);
+    }
+
+    private static double getPostSplitImpurity(final IImpurity impurityCriterion, final double[] targetCountsLeft,
+        final double weightLeft, final double[] targetCountsRight, final double weightRight, final double totalWeight,
+        final double[] partitionWeights) {
+        partitionWeights[0] = weightLeft;
+        partitionWeights[1] = weightRight;
+        final double[] partitionImpurities = new double[]{
+            impurityCriterion.getPartitionImpurity(targetCountsLeft, weightLeft),
+            impurityCriterion.getPartitionImpurity(targetCountsRight, weightRight)};
+        return impurityCriterion.getPostSplitImpurity(partitionImpurities, partitionWeights, totalWeight);
+    }
+
+    /**
+     * Histogram based counterpart of
+     * {@link #calcBestSplitRegression(DataMemberships, RegressionPriors, TreeTargetNumericColumnData, RandomData)}
+     * that only considers split points between the bins of {@link #getBinning()}.
+     *
+     * @param histogram the target histogram of the current tree node
+     * @param dataMemberships the rows of the current tree node (only used to collect rows with missing values)
+     * @param targetPriors the target priors of the current tree node
+     * @param rd used for random tie breaking
+     * @return the best split or null if there is no split that reduces the squared error
+     */
+    public NumericSplitCandidate calcBestSplitRegression(final RegressionHistogram histogram,
+        final DataMemberships dataMemberships, final RegressionPriors targetPriors, final RandomData rd) {
+        final TreeEnsembleLearnerConfiguration config = getConfiguration();
+        final TreeNumericColumnBinning binning = getBinning();
+        final boolean useAverageSplitPoints = config.isUseAverageSplitPoints();
+        final int minChildNodeSize = config.getMinChildSize();
+        final boolean useXGBoostMissingValueHandling = config.getMissingValueHandling() == MissingValueHandling.XGBoost;
+        final int nrBins = histogram.getNrBins();
+        final double missingWeight = histogram.getMissingWeight();
+        final double missingY = histogram.getMissingYSum();
+        final boolean branchContainsMissingValues = missingWeight > 0.0;
+
+        final double ySumTotal = targetPriors.getYSum() - missingY;
+        final double nrRecordsTotal = targetPriors.getNrRecords() - missingWeight;
+        if (nrRecordsTotal < EPSILON) {
+            // all values in the current branch are missing
+            return null;
+        }
+        final double criterionTotal = useXGBoostMissingValueHandling
+            ? (ySumTotal + missingY) * (ySumTotal + missingY) / (nrRecordsTotal + missingWeight)
+            : ySumTotal * ySumTotal / nrRecordsTotal;
+
+        double ySumLeft = 0.0;
+        double nrRecordsLeft = 0.0;
+        double ySumRight = ySumTotal;
+        double nrRecordsRight = nrRecordsTotal;
+
+        double bestSplit = Double.NEGATIVE_INFINITY;
+        double bestImprovement = 0.0;
+        boolean missingsGoLeft = true;
+        int lastNonEmptyBin = -1;
+        for (int bin = 0; bin < nrBins; bin++) {
+            final double binWeight = histogram.getWeight(bin);
+            if (binWeight < EPSILON) {
+                continue;
+            }
+            // candidate split between lastNonEmptyBin and bin
+            if (lastNonEmptyBin >= 0 && nrRecordsLeft >= minChildNodeSize && nrRecordsRight >= minChildNodeSize) {
+                boolean tempMissingsGoLeft = true;
+                double childrenSquaredSum;
+                if (branchContainsMissingValues && useXGBoostMissingValueHandling) {
+                    final double missingsLeft =
+                        ((ySumLeft + missingY) * (ySumLeft + missingY) / (nrRecordsLeft + missingWeight))
+                            + (ySumRight * ySumRight / nrRecordsRight);
+                    final double missingsRight = (ySumLeft * ySumLeft / nrRecordsLeft)
+                        + ((ySumRight + missingY) * (ySumRight + missingY) / (nrRecordsRight + missingWeight));
+                    tempMissingsGoLeft = missingsLeft >= missingsRight;
+                    childrenSquaredSum = tempMissingsGoLeft ? missingsLeft : missingsRight;
+                } else {
+                    childrenSquaredSum =
+                        (ySumLeft * ySumLeft / nrRecordsLeft) + (ySumRight * ySumRight / nrRecordsRight);
+                }
+                final double criterion = childrenSquaredSum - criterionTotal;
+                boolean randomTieBreaker = criterion == bestImprovement ? rd.nextInt(0, 1) == 1 : false;
+                if (criterion > bestImprovement || randomTieBreaker) {
+                    bestImprovement = criterion;
+                    final double upperLeft = binning.getUpperBound(lastNonEmptyBin);
+                    bestSplit = useAverageSplitPoints ? getCenter(upperLeft, binning.getLowerBound(bin)) : upperLeft;
+                    missingsGoLeft = branchContainsMissingValues ? tempMissingsGoLeft : nrRecordsLeft >= nrRecordsRight;
+                }
+            }
+            final double binYSum = histogram.getYSum(bin);
+            ySumLeft += binYSum;
+            ySumRight -= binYSum;
+            nrRecordsLeft += binWeight;
+            nrRecordsRight -= binWeight;
+            lastNonEmptyBin = bin;
+        }
+
+        if (bestImprovement > 0.0) {
+            if (useXGBoostMissingValueHandling) {
+                return new NumericSplitCandidate(this, bestSplit, bestImprovement, new BitSet(),
+                    missingsGoLeft ? NumericSplitCandidate.MISSINGS_GO_LEFT : NumericSplitCandidate.MISSINGS_GO_RIGHT);
+            }
+            return new NumericSplitCandidate(this, bestSplit, bestImprovement,
+                getMissedRows(dataMemberships.getColumnMemberships(getMetaData().getAttributeIndex())),
+                NumericSplitCandidate.NO_MISSINGS);
+        }
+        return null;
+    }
+
     /**
      * @param value
      * @return first index with value equal to <b>value</b> (or larger than <b>value</b> if there is no index with equal
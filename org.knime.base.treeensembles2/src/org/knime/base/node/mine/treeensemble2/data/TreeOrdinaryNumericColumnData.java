@@ -60,16 +60,19 @@ public class TreeOrdinaryNumericColumnData extends TreeNumericColumnData {
     private final float[] m_sortedData;
     private final int m_indexFirstMissing;
     private final boolean m_containsMissingValues;
+    private final TreeNumericColumnBinning m_binning;
 
 //    private final int[] m_originalIndexInColumnList;
 
     TreeOrdinaryNumericColumnData(final TreeNumericColumnMetaData metaData,
         final TreeEnsembleLearnerConfiguration configuration, final float[] sortedData,
-        final int[] orginalIndexInColumnList, final boolean containsMissingValues, final int indexFirstMissing) {
+        final int[] orginalIndexInColumnList, final boolean containsMissingValues, final int indexFirstMissing,
+        final TreeNumericColumnBinning binning) {
         super(metaData, configuration, orginalIndexInColumnList);
         m_sortedData = sortedData;
         m_indexFirstMissing = indexFirstMissing;
         m_containsMissingValues = containsMissingValues;
+        m_binning = binning;
 //        m_originalIndexInColumnList = orginalIndexInColumnList;
     }
 
@@ -117,4 +120,12 @@ public boolean containsMissingValues() {
         return m_containsMissingValues;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TreeNumericColumnBinning getBinning() {
+        return m_binning;
+    }
+
 }
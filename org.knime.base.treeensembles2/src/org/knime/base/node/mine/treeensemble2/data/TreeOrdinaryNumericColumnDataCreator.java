@@ -119,8 +119,10 @@ public TreeOrdinaryNumericColumnData createColumnData(final int attributeIndex,
         final TreeNumericColumnMetaData metaData = new TreeNumericColumnMetaData(n);
         final boolean containsMissingValues = m_numMissing > 0 ? true : false;
         final int numNonMissing = length - m_numMissing;
+        final TreeNumericColumnBinning binning = configuration.isUseHistogramSplits()
+            ? TreeNumericColumnBinning.create(sortedData, numNonMissing, configuration.getNrHistogramBins()) : null;
         return new TreeOrdinaryNumericColumnData(metaData, configuration, sortedData, sortIndex, containsMissingValues,
-            numNonMissing);
+            numNonMissing, binning);
     }
 
     private static class Tuple implements Comparable<Tuple> {
@@ -49,7 +49,8 @@
 package org.knime.base.node.mine.treeensemble2.data.memberships;
 
 import java.util.BitSet;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
@@ -59,12 +60,13 @@ public class BitSetDescendantDataMemberships implements DataMemberships {
 
     private final RootDataMemberships m_root;
     private final BitSet m_included;
-    private final HashMap<Integer, ColumnMemberships> m_cachedColumnMemberships;
+    // concurrent as the columns of a node may be evaluated in parallel
+    private final Map<Integer, ColumnMemberships> m_cachedColumnMemberships;
 
     public BitSetDescendantDataMemberships(final RootDataMemberships root, final BitSet included) {
         m_root = root;
         m_included = included;
-        m_cachedColumnMemberships = new HashMap<Integer, ColumnMemberships>();
+        m_cachedColumnMemberships = new ConcurrentHashMap<Integer, ColumnMemberships>();
     }
 
     /**
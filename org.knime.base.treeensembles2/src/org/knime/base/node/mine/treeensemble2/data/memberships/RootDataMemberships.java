@@ -49,6 +49,7 @@
 package org.knime.base.node.mine.treeensemble2.data.memberships;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 
 import org.knime.base.node.mine.treeensemble2.data.TreeColumnData;
@@ -58,7 +59,6 @@
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.collect.Lists;
 
 /**
  *
@@ -125,9 +125,10 @@ public RootDataMemberships(final RowSample rowSample, final TreeData data, final
     }
 
     /**
-     * only for testing purposes
+     * Creates the memberships of rows with arbitrary (non-integer) weights, e.g. the weights of a boosting iteration.
+     * Rows with a weight not above {@link TreeColumnData#EPSILON} are not part of the memberships.
      *
-     * @param rowWeights
+     * @param rowWeights the weight of each row in the data
      * @param data
      * @param indexManager
      */
@@ -138,25 +139,21 @@ public RootDataMemberships(final double[] rowWeights, final TreeData data, final
                 .maximumSize(CACHE_SIZE)
                 .build(new ColumnMembershipsEntryCacheLoader(this));
         m_indexManager = indexManager;
-        ArrayList<Integer> weights = Lists.newArrayList();
-        ArrayList<Integer> originalIndices = Lists.newArrayList();
-
-        for (int originalIndex = 0; originalIndex < data.getNrRows(); originalIndex++) {
+        final int nrRows = data.getNrRows();
+        final double[] weights = new double[nrRows];
+        final int[] originalIndices = new int[nrRows];
+        int rowCountInRoot = 0;
+        for (int originalIndex = 0; originalIndex < nrRows; originalIndex++) {
             final double weight = rowWeights[originalIndex];
             if (weight > TreeColumnData.EPSILON) {
-                weights.add((int)weight);
-                originalIndices.add(originalIndex);
+                weights[rowCountInRoot] = weight;
+                originalIndices[rowCountInRoot] = originalIndex;
+                rowCountInRoot++;
             }
         }
-        m_rowCountInRoot = weights.size();
-//        m_rowWeights = new double[m_rowCountInRoot];
-        m_weights = new ByteWeightContainer(weights);
-        m_originalIndices = new int[m_rowCountInRoot];
-        for (int i = 0; i < weights.size(); i++) {
-//            m_rowWeights[i] = weights.get(i);
-            m_originalIndices[i] = originalIndices.get(i);
-        }
-
+        m_rowCountInRoot = rowCountInRoot;
+        m_weights = new DoubleWeightContainer(Arrays.copyOf(weights, rowCountInRoot));
+        m_originalIndices = Arrays.copyOf(originalIndices, rowCountInRoot);
     }
 
     private RootDataMemberships(final int numCols, final IDataIndexManager indexManager, final int[] originalIndices,
@@ -50,10 +50,6 @@
 
 import java.util.List;
 
-import org.knime.base.data.filter.column.FilterColumnRow;
-import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
-import org.knime.base.node.mine.treeensemble2.model.AbstractTreeModel;
-import org.knime.base.node.mine.treeensemble2.model.AbstractTreeNode;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
@@ -67,8 +63,10 @@
  */
 public class RandomForestDistance extends DistanceMeasure<RandomForestDistanceConfig> {
 
-    private final TreeEnsembleModel m_ensembleModel;
-    private final DataTableSpec m_learnTableSpec;
+    /** The maximal number of rows whose leafs are cached per thread. */
+    private static final int CACHE_SIZE = 10000;
+
+    private final RowLeafCache m_leafCache;
 
     /**
      * @param config
@@ -81,8 +79,13 @@ protected RandomForestDistance(final RandomForestDistanceConfig config, final Da
         final TreeEnsembleModel ensembleModel, final DataTableSpec learnTableSpec)
             throws InvalidSettingsException {
         super(config, spec);
-        m_ensembleModel = ensembleModel;
-        m_learnTableSpec = learnTableSpec;
+        List<Integer> filterIndicesList = getColumnIndices();
+        final int[] filterIndices = new int[filterIndicesList.size()];
+        int i = 0;
+        for (Integer index : filterIndicesList) {
+            filterIndices[i++] = index;
+        }
+        m_leafCache = new RowLeafCache(ensembleModel, learnTableSpec, filterIndices, CACHE_SIZE);
     }
 
     /**
@@ -90,29 +93,25 @@ protected RandomForestDistance(final RandomForestDistanceConfig config, final Da
      */
     @Override
     public double computeDistance(final DataRow row1, final DataRow row2) throws DistanceMeasurementException {
-        List<Integer> filterIndicesList = getColumnIndices();
-        int[] filterIndices = new int[filterIndicesList.size()];
-        int i = 0;
-        for (Integer index : filterIndicesList) {
-            filterIndices[i++] = index;
-        }
-        final DataRow filterRow1 = new FilterColumnRow(row1, filterIndices);
-        final DataRow filterRow2 = new FilterColumnRow(row2, filterIndices);
-        final PredictorRecord record1 = m_ensembleModel.createPredictorRecord(filterRow1, m_learnTableSpec);
-        final PredictorRecord record2 = m_ensembleModel.createPredictorRecord(filterRow2, m_learnTableSpec);
-        final int nrModels = m_ensembleModel.getNrModels();
-
-        double proximity = 0.0;
+        return computeDistance(m_leafCache.getLeafs(row1), m_leafCache.getLeafs(row2));
+    }
 
+    /**
+     * @param leafs1 the leafs of the first row, null if it contains a missing vector cell
+     * @param leafs2 the leafs of the second row, null if it contains a missing vector cell
+     * @return one minus the fraction of trees in which both rows end up in the same leaf
+     */
+    static double computeDistance(final int[] leafs1, final int[] leafs2) {
+        if (leafs1 == null || leafs2 == null) {
+            // a missing vector can't be compared
+            return 1.0;
+        }
+        final int nrModels = leafs1.length;
+        int nrSharedLeafs = 0;
         for (int t = 0; t < nrModels; t++) {
-            AbstractTreeModel<?> tree = m_ensembleModel.getTreeModel(t);
-            AbstractTreeNode leaf1 = tree.findMatchingNode(record1);
-            AbstractTreeNode leaf2 = tree.findMatchingNode(record2);
-            if (leaf1.getSignature().equals(leaf2.getSignature())) {
-                proximity += 1.0;
-            }
+            nrSharedLeafs += leafs1[t] == leafs2[t] ? 1 : 0;
         }
-        proximity /= nrModels;
+        double proximity = nrSharedLeafs / (double)nrModels;
         // completely similar records will have a proximity of 1 (maximum)
         // to get a distance measure, we have to subtract the proximity from 1
         return 1 - proximity;
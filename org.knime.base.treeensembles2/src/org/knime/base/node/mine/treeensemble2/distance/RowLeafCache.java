@@ -0,0 +1,193 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.distance;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.knime.base.data.filter.column.FilterColumnRow;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+
+/**
+ * The leafs of the rows seen by a {@link RandomForestDistance}. A distance matrix compares each row with all others
+ * and therefore would traverse the trees for the same row over and over again. Every thread has its own cache, the
+ * threads of a distance matrix don't contend for a lock.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RowLeafCache {
+
+    private final TreeEnsembleModel m_ensembleModel;
+
+    private final DataTableSpec m_learnTableSpec;
+
+    private final int[] m_filterIndices;
+
+    private final int m_capacity;
+
+    private final ThreadLocal<ThreadCache> m_threadCaches = ThreadLocal.withInitial(ThreadCache::new);
+
+    /**
+     * @param ensembleModel the tree ensemble
+     * @param learnTableSpec the spec of the learning columns
+     * @param filterIndices the indices of the learning columns in the rows
+     * @param capacity the maximal number of rows each thread caches
+     */
+    RowLeafCache(final TreeEnsembleModel ensembleModel, final DataTableSpec learnTableSpec, final int[] filterIndices,
+        final int capacity) {
+        m_ensembleModel = ensembleModel;
+        m_learnTableSpec = learnTableSpec;
+        m_filterIndices = filterIndices;
+        m_capacity = capacity;
+    }
+
+    /**
+     * @param row a row containing the learning columns
+     * @return the index of the leaf <b>row</b> ends up in for each tree (see
+     *         {@link CompiledTreeEnsemble#findMatchingNodeIndices(CompiledTreeEnsemble.Row, int[])}), null if the row
+     *         contains a missing vector cell, must not be modified
+     */
+    int[] getLeafs(final DataRow row) {
+        final ThreadCache cache = m_threadCaches.get();
+        // a distance matrix compares the same first row with many others in a row
+        if (row == cache.m_lastRow) {
+            return cache.m_lastLeafs;
+        }
+        if (row == cache.m_previousRow) {
+            return cache.remember(row, cache.m_previousLeafs);
+        }
+        // the key alone is not enough, rows of different tables may share it
+        final CachedLeafs cached = cache.m_leafs.get(row.getKey());
+        final int[] leafs;
+        if (cached != null && cached.matches(row, m_filterIndices)) {
+            leafs = cached.m_leafs;
+        } else {
+            leafs = computeLeafs(row, cache);
+            // a full cache keeps its rows, a least recently used policy would evict every row before it is met again
+            // if all rows are compared with each other
+            if (cached != null || cache.m_leafs.size() < m_capacity) {
+                cache.m_leafs.put(row.getKey(), new CachedLeafs(row, m_filterIndices, leafs));
+            }
+        }
+        return cache.remember(row, leafs);
+    }
+
+    private int[] computeLeafs(final DataRow row, final ThreadCache cache) {
+        if (cache.m_record == null) {
+            cache.m_record = new IndexedPredictorRecord(m_ensembleModel.getMetaData());
+            cache.m_row = m_ensembleModel.getCompiledModel().createRow();
+        }
+        final IndexedPredictorRecord record = m_ensembleModel
+            .createPredictorRecord(new FilterColumnRow(row, m_filterIndices), m_learnTableSpec, cache.m_record);
+        if (record == null) {
+            return null;
+        }
+        final CompiledTreeEnsemble compiledModel = m_ensembleModel.getCompiledModel();
+        final int[] leafs = new int[compiledModel.getNrTrees()];
+        compiledModel.findMatchingNodeIndices(cache.m_row.load(record), leafs);
+        return leafs;
+    }
+
+    /** The cache of one thread, the record and row are reused for all rows of the thread. */
+    private static final class ThreadCache {
+
+        private final Map<RowKey, CachedLeafs> m_leafs = new HashMap<RowKey, CachedLeafs>();
+
+        /** The two rows last asked for, the rows of a distance, which are compared without a lookup. */
+        private DataRow m_lastRow;
+
+        private int[] m_lastLeafs;
+
+        private DataRow m_previousRow;
+
+        private int[] m_previousLeafs;
+
+        private IndexedPredictorRecord m_record;
+
+        private CompiledTreeEnsemble.Row m_row;
+
+        /** @return <b>leafs</b> */
+        private int[] remember(final DataRow row, final int[] leafs) {
+            m_previousRow = m_lastRow;
+            m_previousLeafs = m_lastLeafs;
+            m_lastRow = row;
+            m_lastLeafs = leafs;
+            return leafs;
+        }
+    }
+
+    private static final class CachedLeafs {
+
+        private final DataCell[] m_cells;
+
+        private final int[] m_leafs;
+
+        CachedLeafs(final DataRow row, final int[] filterIndices, final int[] leafs) {
+            m_cells = new DataCell[filterIndices.length];
+            for (int i = 0; i < m_cells.length; i++) {
+                m_cells[i] = row.getCell(filterIndices[i]);
+            }
+            m_leafs = leafs;
+        }
+
+        /** @return true if <b>row</b> has the cached learning cells */
+        boolean matches(final DataRow row, final int[] filterIndices) {
+            for (int i = 0; i < m_cells.length; i++) {
+                final DataCell cell = row.getCell(filterIndices[i]);
+                if (cell != m_cells[i] && !cell.equals(m_cells[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import java.util.Arrays;
+
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeModel;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeNode;
+import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
+
+/**
+ * Collects the out-of-bag predictions of a tree ensemble while its trees are learned. Each tree is added as soon as
+ * it is finished and is evaluated on the rows that are not part of its {@link RowSample}. The rows are read from the
+ * in-memory {@link TreeData} columns, i.e. exactly as the learner saw them, and are addressed by their index in the
+ * training data (learn index). Subclasses keep the results in primitive per-row arrays.
+ *
+ * <p>
+ * Trees may be added concurrently. They are applied in the order of their index, trees that finish early are buffered
+ * until all trees with a smaller index were added. Hence the results (floating point sums in particular) don't depend
+ * on the thread scheduling. Every {@link #getErrorInterval() interval} trees the out-of-bag error is computed, which
+ * allows to stop learning once the error has {@link #hasConverged() converged}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public abstract class AbstractOutOfBagAccumulator {
+
+    private final TreeData m_data;
+
+    private final LearnRecordReader m_recordReader;
+
+    private final int m_errorInterval;
+
+    /** Negative if learning should not stop early. */
+    private final double m_convergenceTolerance;
+
+    private final int[][] m_pendingRows;
+
+    private final AbstractTreeNode[][] m_pendingLeaves;
+
+    private int m_nrTrees;
+
+    private final int[] m_errorCurveNrTrees;
+
+    private final double[] m_errorCurve;
+
+    private int m_errorCurveLength;
+
+    private boolean m_hasConverged;
+
+    /**
+     * @param data the training data
+     * @param indexManager the index manager of the learner
+     * @param nrModels the maximal number of trees that will be added
+     * @param errorInterval the number of trees after which the out-of-bag error is computed
+     * @param convergenceTolerance the maximal change of the out-of-bag error in two consecutive intervals that is
+     *            considered as converged, negative to never converge
+     */
+    AbstractOutOfBagAccumulator(final TreeData data, final IDataIndexManager indexManager, final int nrModels,
+        final int errorInterval, final double convergenceTolerance) {
+        m_data = data;
+        m_errorInterval = errorInterval;
+        m_convergenceTolerance = convergenceTolerance;
+        m_pendingRows = new int[nrModels][];
+        m_pendingLeaves = new AbstractTreeNode[nrModels][];
+        final int maxCurveLength = (nrModels + errorInterval - 1) / errorInterval;
+        m_errorCurveNrTrees = new int[maxCurveLength];
+        m_errorCurve = new double[maxCurveLength];
+        m_recordReader = new LearnRecordReader(data, indexManager);
+    }
+
+    /** @return the number of rows in the training data */
+    public final int getNrRows() {
+        return m_data.getNrRows();
+    }
+
+    /** @return the training data */
+    final TreeData getData() {
+        return m_data;
+    }
+
+    /** @return the number of trees after which the out-of-bag error is computed */
+    public final int getErrorInterval() {
+        return m_errorInterval;
+    }
+
+    /**
+     * @return the number of trees the results are based on, i.e. the trees with index smaller than this number. Once
+     *         the error {@link #hasConverged() converged} no further trees are added.
+     */
+    public final synchronized int getNrTrees() {
+        return m_nrTrees;
+    }
+
+    /**
+     * @return true if the out-of-bag error changed by at most the tolerance in the last two intervals, the trees
+     *         learned from now on are not needed
+     */
+    public final synchronized boolean hasConverged() {
+        return m_hasConverged;
+    }
+
+    /**
+     * @return the numbers of trees at which the out-of-bag error was computed, the same length as
+     *         {@link #getErrorCurve()}
+     */
+    public final synchronized int[] getErrorCurveNrTrees() {
+        return Arrays.copyOf(m_errorCurveNrTrees, m_errorCurveLength);
+    }
+
+    /**
+     * @return the out-of-bag error after each interval (and after the last tree), NaN if no row was out of bag yet
+     */
+    public final synchronized double[] getErrorCurve() {
+        return Arrays.copyOf(m_errorCurve, m_errorCurveLength);
+    }
+
+    /**
+     * Evaluates a finished tree on its out-of-bag rows and adds the matching leaves.
+     *
+     * @param treeIndex the index of the tree in the ensemble
+     * @param model the tree
+     * @param rowSample the rows the tree was learned on
+     */
+    final void addTree(final int treeIndex, final AbstractTreeModel<?> model, final RowSample rowSample) {
+        final int nrRows = getNrRows();
+        int[] rows = new int[nrRows];
+        int nrOutOfBagRows = 0;
+        for (int i = 0; i < nrRows; i++) {
+            if (rowSample.getCountFor(i) == 0) {
+                rows[nrOutOfBagRows++] = i;
+            }
+        }
+        rows = Arrays.copyOf(rows, nrOutOfBagRows);
+        final IndexedPredictorRecord record = new IndexedPredictorRecord(m_data.getMetaData());
+        final AbstractTreeNode[] leaves = new AbstractTreeNode[nrOutOfBagRows];
+        for (int k = 0; k < nrOutOfBagRows; k++) {
+            m_recordReader.fillRecord(record, rows[k]);
+            leaves[k] = model.findMatchingNode(record);
+        }
+        addInOrder(treeIndex, rows, leaves);
+    }
+
+    private synchronized void addInOrder(final int treeIndex, final int[] rows, final AbstractTreeNode[] leaves) {
+        m_pendingRows[treeIndex] = rows;
+        m_pendingLeaves[treeIndex] = leaves;
+        while (!m_hasConverged && m_nrTrees < m_pendingRows.length && m_pendingRows[m_nrTrees] != null) {
+            add(m_pendingRows[m_nrTrees], m_pendingLeaves[m_nrTrees]);
+            m_pendingRows[m_nrTrees] = null;
+            m_pendingLeaves[m_nrTrees] = null;
+            m_nrTrees++;
+            if (m_nrTrees % m_errorInterval == 0 || m_nrTrees == m_pendingRows.length) {
+                m_errorCurveNrTrees[m_errorCurveLength] = m_nrTrees;
+                m_errorCurve[m_errorCurveLength] = computeError();
+                m_errorCurveLength++;
+                m_hasConverged = m_nrTrees < m_pendingRows.length && isConverged();
+            }
+        }
+        if (m_hasConverged) {
+            // trees learned after convergence are discarded
+            m_pendingRows[treeIndex] = null;
+            m_pendingLeaves[treeIndex] = null;
+        }
+    }
+
+    private boolean isConverged() {
+        if (m_convergenceTolerance < 0.0 || m_errorCurveLength < 3) {
+            return false;
+        }
+        final double e0 = m_errorCurve[m_errorCurveLength - 3];
+        final double e1 = m_errorCurve[m_errorCurveLength - 2];
+        final double e2 = m_errorCurve[m_errorCurveLength - 1];
+        // comparisons with NaN (no out-of-bag rows yet) are false
+        return Math.abs(e1 - e0) <= m_convergenceTolerance && Math.abs(e2 - e1) <= m_convergenceTolerance;
+    }
+
+    /**
+     * Adds the leaves a tree assigned to its out-of-bag rows. Trees are added one at a time in the order of their
+     * index.
+     *
+     * @param rows the learn indices of the out-of-bag rows
+     * @param leaves the matching leaf for each of the <b>rows</b>
+     */
+    abstract void add(int[] rows, AbstractTreeNode[] leaves);
+
+    /**
+     * @return the out-of-bag error of the trees added so far over the rows that were out of bag at least once, NaN if
+     *         there are no such rows
+     */
+    abstract double computeError();
+
+}
@@ -47,13 +47,24 @@
  */
 package org.knime.base.node.mine.treeensemble2.learner;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.BiFunction;
+
 import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
 import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.data.memberships.RootDataMemberships;
 import org.knime.base.node.mine.treeensemble2.model.AbstractTreeModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeSignature;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.sample.column.ColumnSample;
 import org.knime.base.node.mine.treeensemble2.sample.column.ColumnSampleStrategy;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
+import org.knime.base.node.mine.treeensemble2.sample.row.WeightedRowSample;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionMonitor;
 
@@ -77,6 +88,28 @@ public abstract class AbstractTreeLearner {
 
     private final TreeNodeSignatureFactory m_signatureFactory;
 
+    /**
+     * true if the random numbers of the split search are derived from the node and the column (see
+     * {@link #createSplitRandomData}), false if all nodes and columns share {@link #getRandomData()}.
+     */
+    private final boolean m_useNodeRandomData;
+
+    /** seed from which the random numbers of the split search of each node and column are derived. */
+    private final long m_splitSeed;
+
+    private ParallelSplitSearch m_splitSearch = SEQUENTIAL_SPLIT_SEARCH;
+
+    private static final ParallelSplitSearch SEQUENTIAL_SPLIT_SEARCH = new ParallelSplitSearch(1);
+
+    /** large odd multiplier (golden ratio) so that different paths and attributes don't map to the same seed. */
+    private static final long SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** pseudo attribute index of the random numbers that break ties between the columns of a node. */
+    static final int TIE_BREAK_RANDOM_INDEX = -1;
+
+    /** pseudo attribute index of the random numbers used to learn the surrogate splits of a node. */
+    static final int SURROGATES_RANDOM_INDEX = -2;
+
     /**
      * @param config
      * @param data
@@ -92,6 +125,143 @@ public AbstractTreeLearner(final TreeEnsembleLearnerConfiguration config, final
         m_colSamplingStrategy = m_config.createColumnSampleStrategy(m_data, randomData);
         m_indexManager = indexManager;
         m_signatureFactory = signatureFactory;
+        // level-wise growth processes the nodes in a different order, only node derived random numbers make its
+        // trees independent of that order
+        m_useNodeRandomData = config.isUseParallelSplitSearch() || config.isUseLevelWiseGrowth();
+        // only drawn if needed so that the random numbers (and hence trees) of the sequential search don't change
+        m_splitSeed = m_useNodeRandomData ? randomData.nextLong(Long.MIN_VALUE, Long.MAX_VALUE) : 0L;
+    }
+
+    /**
+     * Sets the object used to evaluate the columns of a node, by default they are evaluated sequentially. The learned
+     * tree does not depend on it. It is ignored unless
+     * {@link TreeEnsembleLearnerConfiguration#isUseParallelSplitSearch()} is set.
+     *
+     * @param splitSearch the split search, not null
+     */
+    public final void setParallelSplitSearch(final ParallelSplitSearch splitSearch) {
+        m_splitSearch = splitSearch;
+    }
+
+    /**
+     * Calculates the best split of each column in <b>columnSample</b> that is not in <b>forbiddenColumnSet</b>,
+     * possibly concurrently. Each column gets its own random numbers (see {@link #createSplitRandomData}) so that the
+     * result does not depend on the order in which the columns are processed. Without node derived random numbers the
+     * columns are processed sequentially in the order of the column sample.
+     *
+     * @param columnSample the columns of the node
+     * @param forbiddenColumnSet the columns to skip
+     * @param dataMemberships the rows of the node
+     * @param treeNodeSignature the signature of the node
+     * @param splitFunction calculates the best split of a column with the given random numbers (may return null)
+     * @return the best split of each column (entries may be null) in the order of the column sample
+     */
+    final SplitCandidate[] calcBestSplits(final ColumnSample columnSample, final BitSet forbiddenColumnSet,
+        final DataMemberships dataMemberships, final TreeNodeSignature treeNodeSignature,
+        final BiFunction<TreeAttributeColumnData, RandomData, SplitCandidate> splitFunction) {
+        final List<TreeAttributeColumnData> columns = new ArrayList<TreeAttributeColumnData>(columnSample.getNumCols());
+        for (TreeAttributeColumnData col : columnSample) {
+            if (!forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
+                columns.add(col);
+            }
+        }
+        if (!m_useNodeRandomData) {
+            final SplitCandidate[] splits = new SplitCandidate[columns.size()];
+            for (int i = 0; i < splits.length; i++) {
+                splits[i] = splitFunction.apply(columns.get(i), m_randomData);
+            }
+            return splits;
+        }
+        final ParallelSplitSearch splitSearch =
+            m_config.isUseParallelSplitSearch() ? m_splitSearch : SEQUENTIAL_SPLIT_SEARCH;
+        return splitSearch.calcBestSplits(columns, dataMemberships.getRowCount(), col -> splitFunction.apply(col,
+            createSplitRandomData(treeNodeSignature, col.getMetaData().getAttributeIndex())));
+    }
+
+    /**
+     * Finds the best split among the columns of a node, see {@link #calcBestSplits}. A column only replaces the best
+     * split found so far if its gain is larger or, if <b>randomTieBreaking</b> is set, with probability 0.5 if the
+     * gains are equal. Ties are considered in the order of the column sample.
+     *
+     * @param columnSample the columns of the node
+     * @param forbiddenColumnSet the columns to skip
+     * @param dataMemberships the rows of the node
+     * @param treeNodeSignature the signature of the node
+     * @param randomTieBreaking whether ties between columns are broken randomly
+     * @param splitFunction calculates the best split of a column with the given random numbers (may return null)
+     * @return the best split or null if no column can be split
+     */
+    final SplitCandidate findBestSplit(final ColumnSample columnSample, final BitSet forbiddenColumnSet,
+        final DataMemberships dataMemberships, final TreeNodeSignature treeNodeSignature,
+        final boolean randomTieBreaking,
+        final BiFunction<TreeAttributeColumnData, RandomData, SplitCandidate> splitFunction) {
+        final RandomData rd = createSplitRandomData(treeNodeSignature, TIE_BREAK_RANDOM_INDEX);
+        final BestSplit best = new BestSplit(randomTieBreaking, rd);
+        if (!m_useNodeRandomData) {
+            // the tie breaking random numbers are interleaved with the ones of the columns as in earlier versions
+            for (TreeAttributeColumnData col : columnSample) {
+                if (!forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
+                    best.offer(splitFunction.apply(col, m_randomData));
+                }
+            }
+        } else {
+            for (SplitCandidate split : calcBestSplits(columnSample, forbiddenColumnSet, dataMemberships,
+                treeNodeSignature, splitFunction)) {
+                best.offer(split);
+            }
+        }
+        return best.m_split;
+    }
+
+    /** Keeps track of the best split offered so far. */
+    private static final class BestSplit {
+
+        private final boolean m_randomTieBreaking;
+
+        private final RandomData m_rd;
+
+        private SplitCandidate m_split;
+
+        private double m_gain = 0.0;
+
+        BestSplit(final boolean randomTieBreaking, final RandomData rd) {
+            m_randomTieBreaking = randomTieBreaking;
+            m_rd = rd;
+        }
+
+        void offer(final SplitCandidate split) {
+            if (split == null) {
+                return;
+            }
+            final double gain = split.getGainValue();
+            final boolean tiebreaker = m_randomTieBreaking && gain == m_gain ? (m_rd.nextInt(0, 1) == 0) : false;
+            if (gain > m_gain || tiebreaker) {
+                m_split = split;
+                m_gain = gain;
+            }
+        }
+    }
+
+    /**
+     * The random numbers used for breaking ties in the split search of a column in a node. If enabled, they are
+     * derived from the node's signature and the attribute index and hence don't depend on the order in which nodes or
+     * columns are processed. Otherwise this is the shared {@link #getRandomData()}.
+     *
+     * @param treeNodeSignature the signature of the node
+     * @param attributeIndex the index of the column, or one of the negative pseudo indices for random numbers of the
+     *            node itself ({@link #TIE_BREAK_RANDOM_INDEX}, {@link #SURROGATES_RANDOM_INDEX})
+     * @return the random data object
+     */
+    final RandomData createSplitRandomData(final TreeNodeSignature treeNodeSignature, final int attributeIndex) {
+        if (!m_useNodeRandomData) {
+            return m_randomData;
+        }
+        long seed = m_splitSeed;
+        for (byte b : treeNodeSignature.getSignaturePath()) {
+            seed = SEED_MULTIPLIER * seed + b + 1;
+        }
+        seed = SEED_MULTIPLIER * seed + attributeIndex;
+        return TreeEnsembleLearnerConfiguration.createRandomData(seed);
     }
 
     final IDataIndexManager getIndexManager() {
@@ -105,6 +275,19 @@ public final RowSample getRowSampling() {
         return m_rowSampling;
     }
 
+    /**
+     * Creates the memberships of the root node. The rows are weighted by their count in the row sample or, for a
+     * {@link WeightedRowSample}, by their weight.
+     *
+     * @return the memberships of all rows in the row sample
+     */
+    final DataMemberships createRootDataMemberships() {
+        if (m_rowSampling instanceof WeightedRowSample) {
+            return new RootDataMemberships(((WeightedRowSample)m_rowSampling).getWeights(), m_data, m_indexManager);
+        }
+        return new RootDataMemberships(m_rowSampling, m_data, m_indexManager);
+    }
+
     /**
      * @return the colSamplingStrategy
      */
@@ -0,0 +1,223 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.AbstractTreeTargetNominalColumnData;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNominalColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.BitVectorDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DefaultDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+import org.knime.base.node.mine.treeensemble2.model.AdaBoostModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeModelClassification;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.sample.row.WeightedRowSample;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+
+import com.google.common.math.IntMath;
+
+/**
+ * Learns a classification ensemble with AdaBoost.SAMME as described in "Multi-class AdaBoost" by Zhu et al. (2009).
+ * The trees are learned one after another on the in-memory (presorted) {@link TreeData}. Instead of re-sampling the
+ * rows, each tree is learned on all rows weighted by their current boosting weight. The row sampling settings of the
+ * configuration are hence ignored, the column sampling settings apply to each tree.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class AdaBoostLearner {
+
+    /** Lower bound for the weighted error, a tree without errors gets the weight of a tree with this error. */
+    private static final double MIN_ERROR = 1e-10;
+
+    private final TreeEnsembleLearnerConfiguration m_config;
+
+    private final TreeData m_data;
+
+    private final IDataIndexManager m_indexManager;
+
+    private final TreeNodeSignatureFactory m_signatureFactory;
+
+    private double[] m_modelErrors;
+
+    private double[] m_modelWeights;
+
+    /**
+     * @param config the configuration, {@link TreeEnsembleLearnerConfiguration#getNrModels()} is the maximal number
+     *            of boosting iterations
+     * @param data the training data with a nominal target
+     */
+    public AdaBoostLearner(final TreeEnsembleLearnerConfiguration config, final TreeData data) {
+        if (data.getMetaData().isRegression()) {
+            throw new IllegalArgumentException("AdaBoost requires a nominal target column");
+        }
+        m_config = config;
+        m_data = data;
+        if (data.getTreeType() == TreeType.BitVector) {
+            m_indexManager = new BitVectorDataIndexManager(m_data.getNrRows());
+        } else {
+            m_indexManager = new DefaultDataIndexManager(m_data);
+        }
+        int maxLevel = config.getMaxLevels();
+        if (maxLevel < TreeEnsembleLearnerConfiguration.MAX_LEVEL_INFINITE) {
+            // provided we have a binary tree (which is the default)
+            // a tree can't have more than capacity nodes
+            int capacity = IntMath.pow(2, maxLevel - 1);
+            m_signatureFactory = new TreeNodeSignatureFactory(capacity);
+        } else {
+            m_signatureFactory = new TreeNodeSignatureFactory();
+        }
+    }
+
+    /**
+     * Learns the ensemble. Boosting stops early if a tree is not better than random guessing (it is then discarded
+     * unless it is the first tree) or if a tree classifies all rows correctly.
+     *
+     * @param exec for progress and cancelation
+     * @return the ensemble with the weight of each tree
+     * @throws CanceledExecutionException if canceled
+     */
+    public AdaBoostModel learnEnsemble(final ExecutionMonitor exec) throws CanceledExecutionException {
+        final int nrModels = m_config.getNrModels();
+        final int nrRows = m_data.getNrRows();
+        final int nrClasses = ((TreeTargetNominalColumnMetaData)m_data.getMetaData().getTargetMetaData())
+            .getValues().length;
+        final double classCorrection = Math.log(Math.max(nrClasses - 1, 1));
+        final AbstractTreeTargetNominalColumnData target = (AbstractTreeTargetNominalColumnData)m_data
+            .getTargetColumn();
+        final LearnRecordReader recordReader = new LearnRecordReader(m_data, m_indexManager);
+        final IndexedPredictorRecord record = new IndexedPredictorRecord(m_data.getMetaData());
+        final RandomData rd = m_config.createRandomData();
+        // the weights are scaled to a mean of 1, so that the minimum node sizes keep their meaning
+        final double[] weights = new double[nrRows];
+        Arrays.fill(weights, 1.0);
+        final boolean[] correct = new boolean[nrRows];
+        final List<TreeModelClassification> models = new ArrayList<TreeModelClassification>(nrModels);
+        final double[] modelErrors = new double[nrModels];
+        final double[] modelWeights = new double[nrModels];
+        // one tree at a time, all cores search the splits of that tree
+        final ParallelSplitSearch splitSearch = new ParallelSplitSearch(ParallelSplitSearch.getIntraTreeParallelism(1));
+        for (int m = 0; m < nrModels; m++) {
+            exec.setProgress(m / (double)nrModels, "Tree " + m + "/" + nrModels);
+            final RandomData treeRd =
+                TreeEnsembleLearnerConfiguration.createRandomData(rd.nextLong(Long.MIN_VALUE, Long.MAX_VALUE));
+            final TreeLearnerClassification learner = new TreeLearnerClassification(m_config, m_data,
+                m_indexManager, m_signatureFactory, treeRd, new WeightedRowSample(weights));
+            learner.setParallelSplitSearch(splitSearch);
+            final TreeModelClassification tree = learner.learnSingleTree(exec.createSubProgress(0.0), treeRd);
+
+            double weightSum = 0.0;
+            double errorSum = 0.0;
+            for (int i = 0; i < nrRows; i++) {
+                recordReader.fillRecord(record, i);
+                correct[i] = tree.findMatchingNode(record).getMajorityClassIndex() == target.getValueFor(i);
+                weightSum += weights[i];
+                if (!correct[i]) {
+                    errorSum += weights[i];
+                }
+            }
+            exec.checkCanceled();
+            final double error = errorSum / weightSum;
+            final double modelWeight =
+                Math.log((1 - Math.max(error, MIN_ERROR)) / Math.max(error, MIN_ERROR)) + classCorrection;
+            if (modelWeight <= 0.0) {
+                // not better than random guessing
+                if (models.isEmpty()) {
+                    models.add(tree);
+                    modelErrors[0] = error;
+                    modelWeights[0] = 1.0;
+                }
+                break;
+            }
+            models.add(tree);
+            modelErrors[m] = error;
+            modelWeights[m] = modelWeight;
+            if (error <= 0.0) {
+                // the remaining trees would be learned on the same weights
+                break;
+            }
+            final double correctFactor = Math.exp(-modelWeight);
+            weightSum = 0.0;
+            for (int i = 0; i < nrRows; i++) {
+                if (correct[i]) {
+                    weights[i] *= correctFactor;
+                }
+                weightSum += weights[i];
+            }
+            final double scale = nrRows / weightSum;
+            for (int i = 0; i < nrRows; i++) {
+                weights[i] *= scale;
+            }
+        }
+        final int nrLearnedModels = models.size();
+        m_modelErrors = Arrays.copyOf(modelErrors, nrLearnedModels);
+        m_modelWeights = Arrays.copyOf(modelWeights, nrLearnedModels);
+        exec.setProgress(1.0);
+        return new AdaBoostModel(m_config, m_data.getMetaData(),
+            models.toArray(new TreeModelClassification[nrLearnedModels]), m_data.getTreeType(), m_modelWeights);
+    }
+
+    /**
+     * @return the weighted training error of each tree of the last learned ensemble
+     */
+    public double[] getModelErrors() {
+        return m_modelErrors;
+    }
+
+    /**
+     * @return the weight of each tree of the last learned ensemble
+     */
+    public double[] getModelWeights() {
+        return m_modelWeights;
+    }
+
+}
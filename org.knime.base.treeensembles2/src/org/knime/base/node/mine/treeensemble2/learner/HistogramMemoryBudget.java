@@ -0,0 +1,111 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import org.knime.base.node.mine.treeensemble2.data.RegressionHistogram;
+
+/**
+ * Bounds the memory that is occupied by histograms which are kept alive for later use during tree growth (the
+ * histograms of a sibling node that is built after the subtree of its (smaller) sibling). If the budget is exhausted,
+ * the histograms are dropped and recomputed from the rows once the node is built.
+ *
+ * <p>Instances are not thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HistogramMemoryBudget {
+
+    private final long m_limit;
+
+    private long m_used;
+
+    /**
+     * @param limit the maximal number of bytes that can be acquired at any time
+     */
+    HistogramMemoryBudget(final long limit) {
+        m_limit = limit;
+    }
+
+    /**
+     * @param bytes the number of bytes to acquire
+     * @return true if the bytes were acquired, false if that would exceed the limit (nothing is acquired then)
+     */
+    boolean tryAcquire(final long bytes) {
+        if (m_used + bytes > m_limit) {
+            return false;
+        }
+        m_used += bytes;
+        return true;
+    }
+
+    /**
+     * @param bytes the number of bytes to release, must have been acquired before
+     */
+    void release(final long bytes) {
+        assert bytes <= m_used : "Releasing more memory than acquired: " + bytes + " > " + m_used;
+        m_used -= bytes;
+    }
+
+    /**
+     * @return the number of bytes currently acquired
+     */
+    long getUsed() {
+        return m_used;
+    }
+
+    /**
+     * @param histograms histograms indexed by attribute, may contain null entries
+     * @return the summed memory size of the non-null histograms
+     */
+    static long getMemorySize(final RegressionHistogram[] histograms) {
+        long size = 0;
+        for (RegressionHistogram histogram : histograms) {
+            if (histogram != null) {
+                size += histogram.getMemorySize();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNominalColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
+
+/**
+ * Fills predictor records with the rows of the training data, read from the in-memory {@link TreeData} columns, i.e.
+ * exactly as the learner saw them. Rows are addressed by their index in the training data (learn index).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class LearnRecordReader {
+
+    private static final byte NUMERIC = 0;
+
+    private static final byte NOMINAL = 1;
+
+    private static final byte BIT = 2;
+
+    private final TreeAttributeColumnData[] m_columns;
+
+    private final byte[] m_kinds;
+
+    /** The position of each row (by learn index) in the sorted column data, per attribute. */
+    private final int[][] m_positionsInColumn;
+
+    /**
+     * @param data the training data
+     * @param indexManager the index manager of the learner
+     */
+    LearnRecordReader(final TreeData data, final IDataIndexManager indexManager) {
+        m_columns = data.getColumns();
+        m_kinds = new byte[m_columns.length];
+        m_positionsInColumn = new int[m_columns.length][];
+        for (int c = 0; c < m_columns.length; c++) {
+            final TreeAttributeColumnData column = m_columns[c];
+            if (column instanceof TreeNumericColumnData) {
+                m_kinds[c] = NUMERIC;
+            } else if (column instanceof TreeNominalColumnData) {
+                m_kinds[c] = NOMINAL;
+            } else {
+                m_kinds[c] = BIT;
+            }
+            m_positionsInColumn[c] = indexManager.getPositionsInColumn(column.getMetaData().getAttributeIndex());
+        }
+    }
+
+    /**
+     * @param record the record to fill, created for the meta data of the training data
+     * @param learnIndex the index of the row in the training data
+     */
+    void fillRecord(final IndexedPredictorRecord record, final int learnIndex) {
+        for (int c = 0; c < m_columns.length; c++) {
+            final TreeAttributeColumnData column = m_columns[c];
+            final int attributeIndex = column.getMetaData().getAttributeIndex();
+            final int indexInColumn = m_positionsInColumn[c][learnIndex];
+            if (m_kinds[c] == NUMERIC) {
+                final double value = ((TreeNumericColumnData)column).getSorted(indexInColumn);
+                if (Double.isNaN(value)) {
+                    record.setMissing(attributeIndex);
+                } else {
+                    record.setNumericValue(attributeIndex, value);
+                }
+            } else if (m_kinds[c] == NOMINAL) {
+                final TreeNominalColumnData nominalColumn = (TreeNominalColumnData)column;
+                final int assignedInteger = nominalColumn.getValueAt(indexInColumn);
+                // missing values are represented by an additional last value
+                if (nominalColumn.containsMissingValues()
+                    && assignedInteger == nominalColumn.getMetaData().getValues().length - 1) {
+                    record.setMissing(attributeIndex);
+                } else {
+                    record.setNominalValue(attributeIndex, assignedInteger);
+                }
+            } else {
+                record.setBitValue(attributeIndex, (Boolean)column.getValueAt(indexInColumn));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.knime.base.node.mine.treeensemble2.data.ClassificationHistogram;
+import org.knime.base.node.mine.treeensemble2.data.RegressionHistogram;
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnBinning;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNominalColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
+
+/**
+ * Computes the histograms of all binned columns for all nodes of a tree level with a single sweep over each column.
+ * The rows are assigned to the nodes of the level via an array holding the index of the node of each row, so the
+ * sweep accesses the presorted column sequentially instead of iterating the memberships of each node separately.
+ * The histograms are accumulated in the same (column) order as
+ * {@link TreeNumericColumnData#createRegressionHistogram} does, so they are identical.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class LevelWiseHistograms {
+
+    private final TreeData m_data;
+
+    /** index of the node (in the current level) of each row or -1 if the row is not in any node of the level. */
+    private final int[] m_nodeOfRow;
+
+    private final double[] m_weightOfRow;
+
+    /**
+     * @param data the data the tree is learned on
+     */
+    LevelWiseHistograms(final TreeData data) {
+        m_data = data;
+        m_nodeOfRow = new int[data.getNrRows()];
+        m_weightOfRow = new double[data.getNrRows()];
+        Arrays.fill(m_nodeOfRow, -1);
+    }
+
+    /**
+     * @param data the data the tree is learned on
+     * @return true if any of the columns is binned, i.e. if a sweep produces any histograms
+     */
+    static boolean hasBinnedColumns(final TreeData data) {
+        for (TreeAttributeColumnData col : data.getColumns()) {
+            if (getBinning(col) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static TreeNumericColumnBinning getBinning(final TreeAttributeColumnData col) {
+        return col instanceof TreeNumericColumnData ? ((TreeNumericColumnData)col).getBinning() : null;
+    }
+
+    /**
+     * @param level the nodes of the current level
+     * @param isActive which nodes of the level are split candidates (others don't get histograms)
+     * @param targetColumn the target column
+     * @return the histograms for each node of the level, indexed by attribute (null entries for columns that are not
+     *         binned or not used by the node)
+     */
+    RegressionHistogram[][] createRegressionHistograms(final List<? extends LevelWiseNode<?>> level,
+        final boolean[] isActive, final TreeTargetNumericColumnData targetColumn) {
+        final int nrAttributes = m_data.getNrAttributes();
+        final RegressionHistogram[][] histograms = new RegressionHistogram[level.size()][nrAttributes];
+        final boolean[] isColumnUsed = new boolean[nrAttributes];
+        for (int n = 0; n < level.size(); n++) {
+            if (!isActive[n]) {
+                continue;
+            }
+            final LevelWiseNode<?> node = level.get(n);
+            for (TreeAttributeColumnData col : node.getColumnSample()) {
+                final int attributeIndex = col.getMetaData().getAttributeIndex();
+                final TreeNumericColumnBinning binning = getBinning(col);
+                if (binning != null && !node.getForbiddenColumnSet().get(attributeIndex)) {
+                    histograms[n][attributeIndex] = new RegressionHistogram(binning.getNrBins());
+                    isColumnUsed[attributeIndex] = true;
+                }
+            }
+        }
+        assignRows(level, isActive);
+        try {
+            for (TreeAttributeColumnData col : m_data.getColumns()) {
+                final int attributeIndex = col.getMetaData().getAttributeIndex();
+                if (!isColumnUsed[attributeIndex]) {
+                    continue;
+                }
+                final TreeNumericColumnData numCol = (TreeNumericColumnData)col;
+                final TreeNumericColumnBinning binning = numCol.getBinning();
+                final int[] originalIndices = numCol.getOriginalIndicesInColumnList();
+                final int lengthNonMissing = numCol.getLengthNonMissing();
+                for (int i = 0; i < originalIndices.length; i++) {
+                    final int row = originalIndices[i];
+                    final int node = m_nodeOfRow[row];
+                    if (node < 0) {
+                        continue;
+                    }
+                    final RegressionHistogram histogram = histograms[node][attributeIndex];
+                    if (histogram == null) {
+                        continue;
+                    }
+                    if (i < lengthNonMissing) {
+                        histogram.add(binning.getBin(i), targetColumn.getValueFor(row), m_weightOfRow[row]);
+                    } else {
+                        histogram.addMissing(targetColumn.getValueFor(row), m_weightOfRow[row]);
+                    }
+                }
+            }
+        } finally {
+            unassignRows(level, isActive);
+        }
+        return histograms;
+    }
+
+    /**
+     * @param level the nodes of the current level
+     * @param isActive which nodes of the level are split candidates (others don't get histograms)
+     * @param targetColumn the target column
+     * @return the histograms for each node of the level, indexed by attribute (null entries for columns that are not
+     *         binned or not used by the node)
+     */
+    ClassificationHistogram[][] createClassificationHistograms(final List<? extends LevelWiseNode<?>> level,
+        final boolean[] isActive, final TreeTargetNominalColumnData targetColumn) {
+        final int nrAttributes = m_data.getNrAttributes();
+        final int nrClasses = targetColumn.getMetaData().getValues().length;
+        final ClassificationHistogram[][] histograms = new ClassificationHistogram[level.size()][nrAttributes];
+        final boolean[] isColumnUsed = new boolean[nrAttributes];
+        for (int n = 0; n < level.size(); n++) {
+            if (!isActive[n]) {
+                continue;
+            }
+            final LevelWiseNode<?> node = level.get(n);
+            for (TreeAttributeColumnData col : node.getColumnSample()) {
+                final int attributeIndex = col.getMetaData().getAttributeIndex();
+                final TreeNumericColumnBinning binning = getBinning(col);
+                if (binning != null && !node.getForbiddenColumnSet().get(attributeIndex)) {
+                    histograms[n][attributeIndex] = new ClassificationHistogram(binning.getNrBins(), nrClasses);
+                    isColumnUsed[attributeIndex] = true;
+                }
+            }
+        }
+        assignRows(level, isActive);
+        try {
+            for (TreeAttributeColumnData col : m_data.getColumns()) {
+                final int attributeIndex = col.getMetaData().getAttributeIndex();
+                if (!isColumnUsed[attributeIndex]) {
+                    continue;
+                }
+                final TreeNumericColumnData numCol = (TreeNumericColumnData)col;
+                final TreeNumericColumnBinning binning = numCol.getBinning();
+                final int[] originalIndices = numCol.getOriginalIndicesInColumnList();
+                final int lengthNonMissing = numCol.getLengthNonMissing();
+                for (int i = 0; i < originalIndices.length; i++) {
+                    final int row = originalIndices[i];
+                    final int node = m_nodeOfRow[row];
+                    if (node < 0) {
+                        continue;
+                    }
+                    final ClassificationHistogram histogram = histograms[node][attributeIndex];
+                    if (histogram == null) {
+                        continue;
+                    }
+                    if (i < lengthNonMissing) {
+                        histogram.add(binning.getBin(i), targetColumn.getValueFor(row), m_weightOfRow[row]);
+                    } else {
+                        histogram.addMissing(targetColumn.getValueFor(row), m_weightOfRow[row]);
+                    }
+                }
+            }
+        } finally {
+            unassignRows(level, isActive);
+        }
+        return histograms;
+    }
+
+    private void assignRows(final List<? extends LevelWiseNode<?>> level, final boolean[] isActive) {
+        for (int n = 0; n < level.size(); n++) {
+            if (!isActive[n]) {
+                continue;
+            }
+            final DataMemberships dataMemberships = level.get(n).getDataMemberships();
+            final int[] originalIndices = dataMemberships.getOriginalIndices();
+            final double[] weights = dataMemberships.getRowWeights();
+            for (int i = 0; i < originalIndices.length; i++) {
+                m_nodeOfRow[originalIndices[i]] = n;
+                m_weightOfRow[originalIndices[i]] = weights[i];
+            }
+        }
+    }
+
+    private void unassignRows(final List<? extends LevelWiseNode<?>> level, final boolean[] isActive) {
+        for (int n = 0; n < level.size(); n++) {
+            if (isActive[n]) {
+                for (int row : level.get(n).getDataMemberships().getOriginalIndices()) {
+                    m_nodeOfRow[row] = -1;
+                }
+            }
+        }
+    }
+}
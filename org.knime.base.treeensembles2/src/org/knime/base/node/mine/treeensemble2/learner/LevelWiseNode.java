@@ -0,0 +1,166 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.knime.base.node.mine.treeensemble2.data.AbstractPriors;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeCondition;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeSignature;
+import org.knime.base.node.mine.treeensemble2.sample.column.ColumnSample;
+
+/**
+ * A tree node that is grown by a level-wise (breadth-first) tree learner. The final model nodes can only be created
+ * once all descendants are known, hence the learners first build a tree of these nodes and convert it afterwards.
+ *
+ * @param <P> the type of priors (regression or classification)
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class LevelWiseNode<P extends AbstractPriors> {
+
+    private final TreeNodeSignature m_signature;
+
+    private final P m_targetPriors;
+
+    private final ColumnSample m_columnSample;
+
+    private final BitSet m_forbiddenColumnSet;
+
+    private DataMemberships m_dataMemberships;
+
+    private TreeNodeCondition m_condition;
+
+    private List<LevelWiseNode<P>> m_children;
+
+    private int[] m_leafRowIndices;
+
+    /**
+     * @param signature the signature of the node
+     * @param dataMemberships the rows in the node
+     * @param targetPriors the target priors of the node
+     * @param columnSample the columns that are considered for splitting the node
+     * @param forbiddenColumnSet the columns that must not be used for splitting the node (not modified)
+     */
+    LevelWiseNode(final TreeNodeSignature signature, final DataMemberships dataMemberships, final P targetPriors,
+        final ColumnSample columnSample, final BitSet forbiddenColumnSet) {
+        m_signature = signature;
+        m_dataMemberships = dataMemberships;
+        m_targetPriors = targetPriors;
+        m_columnSample = columnSample;
+        m_forbiddenColumnSet = forbiddenColumnSet;
+    }
+
+    TreeNodeSignature getSignature() {
+        return m_signature;
+    }
+
+    P getTargetPriors() {
+        return m_targetPriors;
+    }
+
+    ColumnSample getColumnSample() {
+        return m_columnSample;
+    }
+
+    BitSet getForbiddenColumnSet() {
+        return m_forbiddenColumnSet;
+    }
+
+    /**
+     * @return the rows in this node, null once the level of the node is processed
+     */
+    DataMemberships getDataMemberships() {
+        return m_dataMemberships;
+    }
+
+    /** Releases the rows of this node, called once its level is processed. */
+    void releaseDataMemberships() {
+        m_dataMemberships = null;
+    }
+
+    TreeNodeCondition getCondition() {
+        return m_condition;
+    }
+
+    /**
+     * @param child a child of this node
+     * @param condition the condition of the child
+     */
+    void addChild(final LevelWiseNode<P> child, final TreeNodeCondition condition) {
+        if (m_children == null) {
+            m_children = new ArrayList<LevelWiseNode<P>>(2);
+        }
+        child.m_condition = condition;
+        m_children.add(child);
+    }
+
+    /**
+     * @return true if the node has no children (after its level is processed)
+     */
+    boolean isLeaf() {
+        return m_children == null;
+    }
+
+    /**
+     * @return the children in the order of their conditions, null for leafs
+     */
+    List<LevelWiseNode<P>> getChildren() {
+        return m_children;
+    }
+
+    /**
+     * @param leafRowIndices the indices of the rows in this leaf (only kept for gradient boosting)
+     */
+    void setLeafRowIndices(final int[] leafRowIndices) {
+        m_leafRowIndices = leafRowIndices;
+    }
+
+    int[] getLeafRowIndices() {
+        return m_leafRowIndices;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import org.knime.base.node.mine.treeensemble2.data.AbstractTreeTargetNominalColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNominalColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeNode;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeClassification;
+
+/**
+ * Counts the out-of-bag votes of a classification forest: each tree votes for the majority class of the leaf a row
+ * ends up in (hard voting). Classes are indexed as in the {@link TreeTargetNominalColumnMetaData#getValues() target
+ * meta data}. The out-of-bag error is the misclassification rate of the majority vote (ties are resolved in favor of
+ * the first class).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class OutOfBagAccumulatorClassification extends AbstractOutOfBagAccumulator {
+
+    private final int m_nrClasses;
+
+    /** Votes of row i for class c at i * m_nrClasses + c. */
+    private final int[] m_classVotes;
+
+    private final int[] m_nrVotes;
+
+    /**
+     * @param data the training data
+     * @param indexManager the index manager of the learner
+     * @param nrModels the maximal number of trees that will be added
+     * @param errorInterval the number of trees after which the out-of-bag error is computed
+     * @param convergenceTolerance the maximal change of the out-of-bag error in two consecutive intervals that is
+     *            considered as converged, negative to never converge
+     */
+    OutOfBagAccumulatorClassification(final TreeData data, final IDataIndexManager indexManager, final int nrModels,
+        final int errorInterval, final double convergenceTolerance) {
+        super(data, indexManager, nrModels, errorInterval, convergenceTolerance);
+        m_nrClasses = ((TreeTargetNominalColumnMetaData)data.getMetaData().getTargetMetaData()).getValues().length;
+        m_classVotes = new int[data.getNrRows() * m_nrClasses];
+        m_nrVotes = new int[data.getNrRows()];
+    }
+
+    @Override
+    void add(final int[] rows, final AbstractTreeNode[] leaves) {
+        for (int k = 0; k < rows.length; k++) {
+            final int row = rows[k];
+            m_classVotes[row * m_nrClasses + ((TreeNodeClassification)leaves[k]).getMajorityClassIndex()]++;
+            m_nrVotes[row]++;
+        }
+    }
+
+    @Override
+    double computeError() {
+        final AbstractTreeTargetNominalColumnData target =
+            (AbstractTreeTargetNominalColumnData)getData().getTargetColumn();
+        int nrVotedRows = 0;
+        int nrMisclassified = 0;
+        for (int i = 0; i < m_nrVotes.length; i++) {
+            if (m_nrVotes[i] == 0) {
+                continue;
+            }
+            nrVotedRows++;
+            final int offset = i * m_nrClasses;
+            int bestClass = 0;
+            for (int c = 1; c < m_nrClasses; c++) {
+                if (m_classVotes[offset + c] > m_classVotes[offset + bestClass]) {
+                    bestClass = c;
+                }
+            }
+            if (bestClass != target.getValueFor(i)) {
+                nrMisclassified++;
+            }
+        }
+        return nrVotedRows == 0 ? Double.NaN : nrMisclassified / (double)nrVotedRows;
+    }
+
+    /** @return the number of classes */
+    public int getNrClasses() {
+        return m_nrClasses;
+    }
+
+    /**
+     * @param learnIndex the index of the row in the training data
+     * @return the number of trees for which the row is out of bag
+     */
+    public synchronized int getNrVotes(final int learnIndex) {
+        return m_nrVotes[learnIndex];
+    }
+
+    /**
+     * @param learnIndex the index of the row in the training data
+     * @param classIndex the index of the class in the target meta data
+     * @return the number of out-of-bag trees that voted for the class
+     */
+    public synchronized int getNrVotes(final int learnIndex, final int classIndex) {
+        return m_classVotes[learnIndex * m_nrClasses + classIndex];
+    }
+
+}
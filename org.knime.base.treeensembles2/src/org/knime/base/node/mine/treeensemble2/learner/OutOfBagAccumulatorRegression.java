@@ -0,0 +1,141 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeNode;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeRegression;
+
+/**
+ * Maintains the mean and variance of the out-of-bag leaf means of a regression forest per row. The moments are
+ * updated like {@link org.apache.commons.math.stat.descriptive.moment.Variance} does. The out-of-bag error is the
+ * mean squared error of the mean prediction.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class OutOfBagAccumulatorRegression extends AbstractOutOfBagAccumulator {
+
+    private final int[] m_counts;
+
+    private final double[] m_means;
+
+    /** Sum of squared deviations from the mean. */
+    private final double[] m_m2;
+
+    /**
+     * @param data the training data
+     * @param indexManager the index manager of the learner
+     * @param nrModels the maximal number of trees that will be added
+     * @param errorInterval the number of trees after which the out-of-bag error is computed
+     * @param convergenceTolerance the maximal change of the out-of-bag error in two consecutive intervals that is
+     *            considered as converged, negative to never converge
+     */
+    OutOfBagAccumulatorRegression(final TreeData data, final IDataIndexManager indexManager, final int nrModels,
+        final int errorInterval, final double convergenceTolerance) {
+        super(data, indexManager, nrModels, errorInterval, convergenceTolerance);
+        final int nrRows = data.getNrRows();
+        m_counts = new int[nrRows];
+        m_means = new double[nrRows];
+        m_m2 = new double[nrRows];
+    }
+
+    @Override
+    void add(final int[] rows, final AbstractTreeNode[] leaves) {
+        for (int k = 0; k < rows.length; k++) {
+            final int row = rows[k];
+            final int n = ++m_counts[row];
+            final double dev = ((TreeNodeRegression)leaves[k]).getMean() - m_means[row];
+            final double nDev = dev / n;
+            m_means[row] += nDev;
+            m_m2[row] += (n - 1.0) * dev * nDev;
+        }
+    }
+
+    @Override
+    double computeError() {
+        final TreeTargetNumericColumnData target = (TreeTargetNumericColumnData)getData().getTargetColumn();
+        int nrPredictedRows = 0;
+        double sumSquaredErrors = 0.0;
+        for (int i = 0; i < m_counts.length; i++) {
+            if (m_counts[i] != 0) {
+                final double error = m_means[i] - target.getValueFor(i);
+                sumSquaredErrors += error * error;
+                nrPredictedRows++;
+            }
+        }
+        return nrPredictedRows == 0 ? Double.NaN : sumSquaredErrors / nrPredictedRows;
+    }
+
+    /**
+     * @param learnIndex the index of the row in the training data
+     * @return the number of trees for which the row is out of bag
+     */
+    public synchronized int getModelCount(final int learnIndex) {
+        return m_counts[learnIndex];
+    }
+
+    /**
+     * @param learnIndex the index of the row in the training data
+     * @return the mean of the out-of-bag predictions, NaN if there are none
+     */
+    public synchronized double getMean(final int learnIndex) {
+        return m_counts[learnIndex] == 0 ? Double.NaN : m_means[learnIndex];
+    }
+
+    /**
+     * @param learnIndex the index of the row in the training data
+     * @return the (bias corrected) variance of the out-of-bag predictions, NaN if there are none
+     */
+    public synchronized double getVariance(final int learnIndex) {
+        final int n = m_counts[learnIndex];
+        if (n == 0) {
+            return Double.NaN;
+        }
+        return n == 1 ? 0.0 : m_m2[learnIndex] / (n - 1.0);
+    }
+
+}
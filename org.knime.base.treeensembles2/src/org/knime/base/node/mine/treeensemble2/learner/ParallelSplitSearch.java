@@ -0,0 +1,169 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
+
+/**
+ * Evaluates the split candidates of the columns of a tree node concurrently (intra-tree parallelism). The learners
+ * that process the trees of an ensemble one (or few) at a time, e.g. gradient boosting, use it to keep all cores busy.
+ * The split search itself must not depend on the order in which the columns are processed, see
+ * {@link AbstractTreeLearner#createSplitRandomData}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class ParallelSplitSearch {
+
+    /** Nodes with fewer rows are searched sequentially as forking doesn't pay off for them. */
+    static final int MIN_ROWS_FOR_PARALLEL_SEARCH = 1000;
+
+    private final ForkJoinPool m_pool;
+
+    /**
+     * @param parallelism 2 or more to evaluate the columns concurrently in the {@link #getSharedPool() shared pool}, 1
+     *            or less for a sequential search
+     */
+    public ParallelSplitSearch(final int parallelism) {
+        this(parallelism > 1 ? getSharedPool() : null);
+    }
+
+    /**
+     * Creates a split search that runs in <b>pool</b>, which may be shared with other work of the caller.
+     *
+     * @param pool the pool to run the split search in or null for a sequential search
+     */
+    public ParallelSplitSearch(final ForkJoinPool pool) {
+        m_pool = pool;
+    }
+
+    /**
+     * The pool shared by all learners (with one thread per core), hence concurrently running learners don't create
+     * threads of their own. Its threads are daemon threads and live as long as the application.
+     *
+     * @return the shared pool
+     */
+    public static ForkJoinPool getSharedPool() {
+        return SharedPoolHolder.POOL;
+    }
+
+    /** Creates the shared pool on first use. */
+    private static final class SharedPoolHolder {
+        private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Decides how many threads each tree gets for its split search if <b>nrConcurrentTrees</b> trees are learned at the
+     * same time: If there are at least as many trees as cores, the trees themselves are learned in parallel and the
+     * split search is sequential, otherwise the spare cores are distributed among the trees.
+     *
+     * @param nrConcurrentTrees the number of trees that are learned concurrently
+     * @return the parallelism for the split search of each tree
+     */
+    public static int getIntraTreeParallelism(final int nrConcurrentTrees) {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, nrConcurrentTrees));
+    }
+
+    /**
+     * @param columns the columns to evaluate
+     * @param nrRows the number of rows in the node
+     * @param splitFunction calculates the best split of a column (may return null)
+     * @return the best split of each column, in the order of <b>columns</b>
+     */
+    SplitCandidate[] calcBestSplits(final List<TreeAttributeColumnData> columns, final int nrRows,
+        final Function<TreeAttributeColumnData, SplitCandidate> splitFunction) {
+        final SplitCandidate[] splits = new SplitCandidate[columns.size()];
+        if (m_pool == null || splits.length < 2 || nrRows < MIN_ROWS_FOR_PARALLEL_SEARCH) {
+            for (int i = 0; i < splits.length; i++) {
+                splits[i] = splitFunction.apply(columns.get(i));
+            }
+        } else {
+            m_pool.invoke(new ColumnSplitTask(columns, splitFunction, splits, 0, splits.length));
+        }
+        return splits;
+    }
+
+    /** Recursively halves the range of columns until each task evaluates a single column. */
+    private static final class ColumnSplitTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<TreeAttributeColumnData> m_columns;
+
+        private final Function<TreeAttributeColumnData, SplitCandidate> m_splitFunction;
+
+        private final SplitCandidate[] m_splits;
+
+        private final int m_from;
+
+        private final int m_to;
+
+        ColumnSplitTask(final List<TreeAttributeColumnData> columns,
+            final Function<TreeAttributeColumnData, SplitCandidate> splitFunction, final SplitCandidate[] splits,
+            final int from, final int to) {
+            m_columns = columns;
+            m_splitFunction = splitFunction;
+            m_splits = splits;
+            m_from = from;
+            m_to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_to - m_from == 1) {
+                m_splits[m_from] = m_splitFunction.apply(m_columns.get(m_from));
+            } else {
+                final int mid = (m_from + m_to) >>> 1;
+                invokeAll(new ColumnSplitTask(m_columns, m_splitFunction, m_splits, m_from, mid),
+                    new ColumnSplitTask(m_columns, m_splitFunction, m_splits, mid, m_to));
+            }
+        }
+    }
+
+}
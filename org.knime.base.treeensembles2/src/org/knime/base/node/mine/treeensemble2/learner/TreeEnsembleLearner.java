@@ -69,11 +69,16 @@
 import org.knime.base.node.mine.treeensemble2.sample.column.ColumnSampleStrategy;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSampler;
+import org.knime.base.node.mine.treeensemble2.sample.row.SeededRowSample;
+import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
 import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.def.IntCell;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
@@ -103,6 +108,8 @@ public class TreeEnsembleLearner {
 
     private TreeEnsembleModel m_ensembleModel;
 
+    private AbstractOutOfBagAccumulator m_outOfBagAccumulator;
+
     private final IDataIndexManager m_indexManager;
 
     private final TreeNodeSignatureFactory m_signatureFactory;
@@ -141,27 +148,42 @@ public TreeEnsembleModel learnEnsemble(final ExecutionMonitor exec) throws Cance
         final AtomicReference<Throwable> learnThrowableRef = new AtomicReference<Throwable>();
         @SuppressWarnings("unchecked")
         final Future<TreeLearnerResult>[] modelFutures = new Future[nrModels];
+        // trees add their out of bag predictions as soon as they are learned
+        final int errorInterval = m_config.getOutOfBagErrorInterval();
+        final double tolerance = m_config.isAutoNrModels() ? m_config.getAutoNrModelsTolerance() : -1.0;
+        final AbstractOutOfBagAccumulator outOfBagAccumulator = m_data.getMetaData().isRegression()
+            ? new OutOfBagAccumulatorRegression(m_data, m_indexManager, nrModels, errorInterval, tolerance)
+            : new OutOfBagAccumulatorClassification(m_data, m_indexManager, nrModels, errorInterval, tolerance);
         final int procCount = 3 * Runtime.getRuntime().availableProcessors() / 2;
         final Semaphore semaphore = new Semaphore(procCount);
+        // few trees (fewer than cores) leave cores idle, those are used to search the splits of each tree in parallel
+        final ParallelSplitSearch splitSearch =
+            new ParallelSplitSearch(ParallelSplitSearch.getIntraTreeParallelism(nrModels));
         Callable<TreeLearnerResult[]> learnCallable = new Callable<TreeLearnerResult[]>() {
             @Override
             public TreeLearnerResult[] call() throws Exception {
                 final TreeLearnerResult[] results = new TreeLearnerResult[nrModels];
+                int nrStarted = nrModels;
                 for (int i = 0; i < nrModels; i++) {
                     semaphore.acquire();
                     finishedTree(i - procCount, exec);
                     checkThrowable(learnThrowableRef);
-                    RandomData rdSingle =
-                        TreeEnsembleLearnerConfiguration.createRandomData(rd.nextLong(Long.MIN_VALUE, Long.MAX_VALUE));
+                    if (outOfBagAccumulator.hasConverged()) {
+                        // the out of bag error doesn't change anymore, no need to learn more trees
+                        semaphore.release();
+                        nrStarted = i;
+                        break;
+                    }
+                    final long seed = rd.nextLong(Long.MIN_VALUE, Long.MAX_VALUE);
                     ExecutionMonitor subExec = exec.createSubProgress(0.0);
-                    modelFutures[i] =
-                        tp.enqueue(new TreeLearnerCallable(subExec, rdSingle, learnThrowableRef, semaphore));
+                    modelFutures[i] = tp.enqueue(new TreeLearnerCallable(i, subExec, seed, learnThrowableRef,
+                        semaphore, splitSearch, outOfBagAccumulator));
                 }
                 for (int i = 0; i < procCount; i++) {
                     semaphore.acquire();
-                    finishedTree(nrModels - 1 + i - procCount, exec);
+                    finishedTree(nrStarted - 1 + i - procCount, exec);
                 }
-                for (int i = 0; i < nrModels; i++) {
+                for (int i = 0; i < nrStarted; i++) {
                     try {
                         results[i] = modelFutures[i].get();
                     } catch (Exception e) {
@@ -179,23 +201,37 @@ private void finishedTree(final int treeIndex, final ExecutionMonitor progMon) {
         };
         TreeLearnerResult[] modelResults = tp.runInvisible(learnCallable);
         checkThrowable(learnThrowableRef);
-        AbstractTreeModel[] models = new AbstractTreeModel[nrModels];
-        m_rowSamples = new RowSample[nrModels];
-        m_columnSampleStrategies = new ColumnSampleStrategy[nrModels];
-        for (int i = 0; i < nrModels; i++) {
+        // only the trees up to convergence contribute to the out of bag error (all if there is no early stopping)
+        final int nrLearnedModels = outOfBagAccumulator.getNrTrees();
+        AbstractTreeModel[] models = new AbstractTreeModel[nrLearnedModels];
+        m_rowSamples = new RowSample[nrLearnedModels];
+        m_columnSampleStrategies = new ColumnSampleStrategy[nrLearnedModels];
+        for (int i = 0; i < nrLearnedModels; i++) {
             models[i] = modelResults[i].m_treeModel;
             m_rowSamples[i] = modelResults[i].m_rowSample;
             m_columnSampleStrategies[i] = modelResults[i].m_rootColumnSampleStrategy;
         }
         m_ensembleModel = new TreeEnsembleModel(m_config, m_data.getMetaData(), models, m_data.getTreeType());
+        m_outOfBagAccumulator = outOfBagAccumulator;
         return m_ensembleModel;
     }
 
-    /** @return the rowSamples */
+    /**
+     * @return the rowSamples, these only keep the seed they were drawn with and a compact copy of the counts that
+     *         is drawn again if it was reclaimed by the garbage collector
+     */
     public RowSample[] getRowSamples() {
         return m_rowSamples;
     }
 
+    /**
+     * @return the out of bag predictions collected while learning, an {@link OutOfBagAccumulatorClassification} or
+     *         {@link OutOfBagAccumulatorRegression} depending on the target (null if no ensemble was learned yet)
+     */
+    public AbstractOutOfBagAccumulator getOutOfBagAccumulator() {
+        return m_outOfBagAccumulator;
+    }
+
     public BufferedDataTable createColumnStatisticTable(final ExecutionContext exec) throws CanceledExecutionException {
         BufferedDataContainer c = exec.createDataContainer(getColumnStatisticTableSpec());
         final int nrModels = m_ensembleModel.getNrModels();
@@ -238,6 +274,40 @@ public BufferedDataTable createColumnStatisticTable(final ExecutionContext exec)
         return c.getTable();
     }
 
+    /**
+     * Creates a table with the out of bag error after every {@link AbstractOutOfBagAccumulator#getErrorInterval()
+     * interval} trees (and after the last tree). The error is the misclassification rate for classification and the
+     * mean squared error for regression.
+     *
+     * @param exec the execution context to create the table with
+     * @return the out of bag error table
+     * @throws CanceledExecutionException if canceled
+     */
+    public BufferedDataTable createOutOfBagErrorTable(final ExecutionContext exec) throws CanceledExecutionException {
+        BufferedDataContainer c = exec.createDataContainer(getOutOfBagErrorTableSpec());
+        final int[] nrTrees = m_outOfBagAccumulator.getErrorCurveNrTrees();
+        final double[] errors = m_outOfBagAccumulator.getErrorCurve();
+        for (int i = 0; i < nrTrees.length; i++) {
+            DataCell errorCell = Double.isNaN(errors[i]) ? DataType.getMissingCell() : new DoubleCell(errors[i]);
+            c.addRowToTable(new DefaultRow(RowKey.createRowKey((long)i), new IntCell(nrTrees[i]), errorCell));
+            exec.checkCanceled();
+        }
+        c.close();
+        return c.getTable();
+    }
+
+    private static DataTableSpec OUT_OF_BAG_ERROR_TABLE_SPEC;
+
+    /** @return the spec of the table created by {@link #createOutOfBagErrorTable(ExecutionContext)} */
+    public synchronized static DataTableSpec getOutOfBagErrorTableSpec() {
+        if (OUT_OF_BAG_ERROR_TABLE_SPEC == null) {
+            OUT_OF_BAG_ERROR_TABLE_SPEC = new DataTableSpec("Out-of-bag Error",
+                new DataColumnSpecCreator("#Models", IntCell.TYPE).createSpec(),
+                new DataColumnSpecCreator("Out-of-bag error", DoubleCell.TYPE).createSpec());
+        }
+        return OUT_OF_BAG_ERROR_TABLE_SPEC;
+    }
+
     private static DataTableSpec COLUMN_STAT_TABLE_SPEC;
 
     public synchronized static DataTableSpec getColumnStatisticTableSpec() {
@@ -269,22 +339,32 @@ private void checkThrowable(final AtomicReference<Throwable> learnThrowableRef)
 
     private final class TreeLearnerCallable implements Callable<TreeLearnerResult> {
 
+        private final int m_treeIndex;
+
         private final ExecutionMonitor m_exec;
 
-        private final RandomData m_rd;
+        private final long m_seed;
 
         private final Semaphore m_releaseSemaphore;
 
         private final AtomicReference<Throwable> m_throwableReference;
 
+        private final ParallelSplitSearch m_splitSearch;
+
+        private final AbstractOutOfBagAccumulator m_outOfBagAccumulator;
+
         /**
          *  */
-        public TreeLearnerCallable(final ExecutionMonitor exec, final RandomData rd,
-            final AtomicReference<Throwable> th, final Semaphore semaphore) {
+        public TreeLearnerCallable(final int treeIndex, final ExecutionMonitor exec, final long seed,
+            final AtomicReference<Throwable> th, final Semaphore semaphore, final ParallelSplitSearch splitSearch,
+            final AbstractOutOfBagAccumulator outOfBagAccumulator) {
+            m_treeIndex = treeIndex;
             m_exec = exec;
-            m_rd = rd;
+            m_seed = seed;
             m_throwableReference = th;
             m_releaseSemaphore = semaphore;
+            m_splitSearch = splitSearch;
+            m_outOfBagAccumulator = outOfBagAccumulator;
         }
 
         /** {@inheritDoc} */
@@ -292,15 +372,21 @@ public TreeLearnerCallable(final ExecutionMonitor exec, final RandomData rd,
         public TreeLearnerResult call() throws Exception {
             try {
                 AbstractTreeLearner learner;
-                final RowSample rowSample = m_rowSampler.createRowSample(m_rd);
+                final RandomData rd = TreeEnsembleLearnerConfiguration.createRandomData(m_seed);
+                // the sample must be the first draw from rd, otherwise the SeededRowSample below can't redraw it
+                final RowSample rowSample = m_rowSampler.createRowSample(rd);
                 if (m_data.getMetaData().isRegression()) {
-                    learner = new TreeLearnerRegression(m_config, m_data, m_indexManager, m_signatureFactory, m_rd, rowSample);
+                    learner = new TreeLearnerRegression(m_config, m_data, m_indexManager, m_signatureFactory, rd, rowSample);
                 } else {
-                    learner = new TreeLearnerClassification(m_config, m_data, m_indexManager, m_signatureFactory, m_rd, rowSample);
+                    learner = new TreeLearnerClassification(m_config, m_data, m_indexManager, m_signatureFactory, rd, rowSample);
                 }
-                AbstractTreeModel model = learner.learnSingleTree(m_exec, m_rd);
+                learner.setParallelSplitSearch(m_splitSearch);
+                AbstractTreeModel model = learner.learnSingleTree(m_exec, rd);
+                m_outOfBagAccumulator.addTree(m_treeIndex, model, rowSample);
                 final ColumnSampleStrategy colSamplingStrategy = learner.getColSamplingStrategy();
-                TreeLearnerResult result = new TreeLearnerResult(model, rowSample, colSamplingStrategy);
+                // don't keep the full per row counts of all trees in memory
+                TreeLearnerResult result = new TreeLearnerResult(model,
+                    new SeededRowSample(m_rowSampler, m_seed, rowSample), colSamplingStrategy);
                 m_exec.setProgress(1.0);
                 return result;
             } catch (Throwable t) {
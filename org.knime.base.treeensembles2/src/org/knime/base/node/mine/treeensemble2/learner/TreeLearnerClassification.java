@@ -49,17 +49,20 @@
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.ClassificationHistogram;
 import org.knime.base.node.mine.treeensemble2.data.ClassificationPriors;
 import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetNominalColumnData;
 import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
 import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
-import org.knime.base.node.mine.treeensemble2.data.memberships.RootDataMemberships;
 import org.knime.base.node.mine.treeensemble2.model.TreeModelClassification;
 import org.knime.base.node.mine.treeensemble2.model.TreeNodeClassification;
 import org.knime.base.node.mine.treeensemble2.model.TreeNodeCondition;
@@ -94,17 +97,18 @@ final class TreeLearnerClassification extends AbstractTreeLearner {
     @Override
     public TreeModelClassification learnSingleTree(final ExecutionMonitor exec, final RandomData rd)
         throws CanceledExecutionException {
+        if (getConfig().isUseLevelWiseGrowth()) {
+            return learnSingleTreeLevelWise(exec);
+        }
         return learnSingleTreeRecursive(exec, rd);
     }
 
     private TreeModelClassification learnSingleTreeRecursive(final ExecutionMonitor exec, final RandomData rd)
         throws CanceledExecutionException {
         final TreeData data = getData();
-        final RowSample rowSampling = getRowSampling();
         final TreeEnsembleLearnerConfiguration config = getConfig();
         final TreeTargetNominalColumnData targetColumn = (TreeTargetNominalColumnData)data.getTargetColumn();
-        final DataMemberships rootDataMemberships = //new RootDataMem(rowSampling, getIndexManager());
-                        new RootDataMemberships(rowSampling, data, getIndexManager());
+        final DataMemberships rootDataMemberships = createRootDataMemberships();
         ClassificationPriors targetPriors = targetColumn.getDistribution(rootDataMemberships, config);
         BitSet forbiddenColumnSet = new BitSet(data.getNrAttributes());
         //        final DataMemberships rootDataMemberships = new IntArrayDataMemberships(sampleWeights, data);
@@ -133,12 +137,12 @@ private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final
         int attributeIndex = -1;
         if (useSurrogates) {
             SplitCandidate[] candidates = findBestSplitsClassification(currentDepth, dataMemberships, columnSample,
-                treeNodeSignature, targetPriors, forbiddenColumnSet);
+                treeNodeSignature, targetPriors, forbiddenColumnSet, null);
             if (candidates == null) {
                 return new TreeNodeClassification(treeNodeSignature, targetPriors, config);
             }
-            SurrogateSplit surrogateSplit =
-                Surrogates.learnSurrogates(dataMemberships, candidates[0], data, columnSample, config, getRandomData());
+            SurrogateSplit surrogateSplit = Surrogates.learnSurrogates(dataMemberships, candidates[0], data,
+                columnSample, config, createSplitRandomData(treeNodeSignature, SURROGATES_RANDOM_INDEX));
             childConditions = surrogateSplit.getChildConditions();
             BitSet[] childMarkers = surrogateSplit.getChildMarkers();
             childNodes = new TreeNodeClassification[2];
@@ -155,7 +159,7 @@ private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final
         } else {
             // handle non surrogate case
             SplitCandidate bestSplit = findBestSplitClassification(currentDepth, dataMemberships, columnSample,
-                treeNodeSignature, targetPriors, forbiddenColumnSet);
+                treeNodeSignature, targetPriors, forbiddenColumnSet, null);
             if (bestSplit == null) {
                 return new TreeNodeClassification(treeNodeSignature, targetPriors, config);
             }
@@ -200,27 +204,17 @@ private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final
      * @param targetPriors
      * @param forbiddenColumnSet
      * @param membershipController
+     * @param histograms the histograms of the binned columns, indexed by attribute, or null to search exhaustively
      * @return
      */
     private SplitCandidate[] findBestSplitsClassification(final int currentDepth, final DataMemberships dataMemberships,
         final ColumnSample columnSample, final TreeNodeSignature treeNodeSignature,
-        final ClassificationPriors targetPriors, final BitSet forbiddenColumnSet) {
+        final ClassificationPriors targetPriors, final BitSet forbiddenColumnSet,
+        final ClassificationHistogram[] histograms) {
         final TreeData data = getData();
-        final RandomData rd = getRandomData();
         //        final ColumnSampleStrategy colSamplingStrategy = getColSamplingStrategy();
         final TreeEnsembleLearnerConfiguration config = getConfig();
-        final int maxLevels = config.getMaxLevels();
-        if (maxLevels != TreeEnsembleLearnerConfiguration.MAX_LEVEL_INFINITE && currentDepth >= maxLevels) {
-            return null;
-        }
-        final int minNodeSize = config.getMinNodeSize();
-        if (minNodeSize != TreeEnsembleLearnerConfiguration.MIN_NODE_SIZE_UNDEFINED) {
-            if (targetPriors.getNrRecords() < minNodeSize) {
-                return null;
-            }
-        }
-        final double priorImpurity = targetPriors.getPriorImpurity();
-        if (priorImpurity < TreeColumnData.EPSILON) {
+        if (!isSplitCandidate(currentDepth, targetPriors)) {
             return null;
         }
         final TreeTargetNominalColumnData targetColumn = (TreeTargetNominalColumnData)data.getTargetColumn();
@@ -228,8 +222,8 @@ private SplitCandidate[] findBestSplitsClassification(final int currentDepth, fi
         if (currentDepth == 0 && config.getHardCodedRootColumn() != null) {
             final TreeAttributeColumnData rootColumn = data.getColumn(config.getHardCodedRootColumn());
             // TODO discuss whether this option makes sense with surrogates
-            return new SplitCandidate[]{
-                rootColumn.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd)};
+            return new SplitCandidate[]{rootColumn.calcBestSplitClassification(dataMemberships, targetPriors,
+                targetColumn, createSplitRandomData(treeNodeSignature, rootColumn.getMetaData().getAttributeIndex()))};
         }
         double bestGainValue = 0.0;
         final Comparator<SplitCandidate> comp = new Comparator<SplitCandidate>() {
@@ -242,12 +236,11 @@ public int compare(final SplitCandidate o1, final SplitCandidate o2) {
 
         };
         ArrayList<SplitCandidate> candidates = new ArrayList<SplitCandidate>(columnSample.getNumCols());
-        for (TreeAttributeColumnData col : columnSample) {
-            if (forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
-                continue;
-            }
-            SplitCandidate currentColSplit =
-                col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
+        final SplitCandidate[] colSplits = calcBestSplits(columnSample, forbiddenColumnSet, dataMemberships,
+            treeNodeSignature, (col, colRd) -> histograms == null
+                ? col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, colRd)
+                : calcBestSplitClassification(col, dataMemberships, targetPriors, histograms, colRd));
+        for (SplitCandidate currentColSplit : colSplits) {
             if (currentColSplit != null) {
                 candidates.add(currentColSplit);
             }
@@ -261,49 +254,195 @@ public int compare(final SplitCandidate o1, final SplitCandidate o2) {
 
     private SplitCandidate findBestSplitClassification(final int currentDepth, final DataMemberships dataMemberships,
         final ColumnSample columnSample, final TreeNodeSignature treeNodeSignature,
-        final ClassificationPriors targetPriors, final BitSet forbiddenColumnSet) {
+        final ClassificationPriors targetPriors, final BitSet forbiddenColumnSet,
+        final ClassificationHistogram[] histograms) {
         final TreeData data = getData();
-        final RandomData rd = getRandomData();
         //        final ColumnSampleStrategy colSamplingStrategy = getColSamplingStrategy();
+        final TreeEnsembleLearnerConfiguration config = getConfig();
+        if (!isSplitCandidate(currentDepth, targetPriors)) {
+            return null;
+        }
+        final TreeTargetNominalColumnData targetColumn = (TreeTargetNominalColumnData)data.getTargetColumn();
+        if (currentDepth == 0 && config.getHardCodedRootColumn() != null) {
+            final TreeAttributeColumnData rootColumn = data.getColumn(config.getHardCodedRootColumn());
+            // TODO discuss whether this option makes sense with surrogates
+            return rootColumn.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn,
+                createSplitRandomData(treeNodeSignature, rootColumn.getMetaData().getAttributeIndex()));
+        }
+        // ties between columns are broken in column order, i.e. independent of the order the splits were calculated
+        return findBestSplit(columnSample, forbiddenColumnSet, dataMemberships, treeNodeSignature, true,
+            (col, colRd) -> histograms == null
+                ? col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, colRd)
+                : calcBestSplitClassification(col, dataMemberships, targetPriors, histograms, colRd));
+    }
+
+    /**
+     * @return false if a node at the given depth with the given priors must not be split (max depth, min node size or
+     *         pure node)
+     */
+    private boolean isSplitCandidate(final int currentDepth, final ClassificationPriors targetPriors) {
         final TreeEnsembleLearnerConfiguration config = getConfig();
         final int maxLevels = config.getMaxLevels();
         if (maxLevels != TreeEnsembleLearnerConfiguration.MAX_LEVEL_INFINITE && currentDepth >= maxLevels) {
-            return null;
+            return false;
         }
         final int minNodeSize = config.getMinNodeSize();
         if (minNodeSize != TreeEnsembleLearnerConfiguration.MIN_NODE_SIZE_UNDEFINED) {
             if (targetPriors.getNrRecords() < minNodeSize) {
-                return null;
+                return false;
             }
         }
         final double priorImpurity = targetPriors.getPriorImpurity();
-        if (priorImpurity < TreeColumnData.EPSILON) {
-            return null;
+        return priorImpurity >= TreeColumnData.EPSILON;
+    }
+
+    /**
+     * Split search for a single column that uses the histogram of the column in <b>histograms</b> if the column is
+     * binned. Columns without binning are searched exhaustively.
+     */
+    private SplitCandidate calcBestSplitClassification(final TreeAttributeColumnData col,
+        final DataMemberships dataMemberships, final ClassificationPriors targetPriors,
+        final ClassificationHistogram[] histograms, final RandomData rd) {
+        final TreeTargetNominalColumnData targetColumn = (TreeTargetNominalColumnData)getData().getTargetColumn();
+        if (!(col instanceof TreeNumericColumnData) || ((TreeNumericColumnData)col).getBinning() == null) {
+            return col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
         }
-        final TreeTargetNominalColumnData targetColumn = (TreeTargetNominalColumnData)data.getTargetColumn();
-        SplitCandidate splitCandidate = null;
-        if (currentDepth == 0 && config.getHardCodedRootColumn() != null) {
-            final TreeAttributeColumnData rootColumn = data.getColumn(config.getHardCodedRootColumn());
-            // TODO discuss whether this option makes sense with surrogates
-            return rootColumn.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
+        final TreeNumericColumnData numCol = (TreeNumericColumnData)col;
+        final int attributeIndex = col.getMetaData().getAttributeIndex();
+        ClassificationHistogram histogram = histograms[attributeIndex];
+        if (histogram == null) {
+            histogram = numCol.createClassificationHistogram(dataMemberships, targetColumn);
+            histograms[attributeIndex] = histogram;
         }
-        double bestGainValue = 0.0;
-        for (TreeAttributeColumnData col : columnSample) {
-            if (forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
-                continue;
+        return numCol.calcBestSplitClassification(histogram, dataMemberships, targetPriors, rd);
+    }
+
+    /**
+     * Grows the tree level by level: the split search for all nodes of a depth is done before any node of the next
+     * depth is touched, which allows to compute the histograms of binned columns for the entire level with a single
+     * sweep over each column (see {@link LevelWiseHistograms}). The resulting tree is the same as the one grown by
+     * {@link #buildTreeNode} if that one uses the random numbers derived from the node and attribute (see
+     * {@link TreeEnsembleLearnerConfiguration#isUseParallelSplitSearch()}), including random tie breaks. Level-wise
+     * growth always uses these derived random numbers as the nodes are visited in a different order than depth-first,
+     * so its trees differ from the depth-first ones that draw from the tree's random stream if ties are broken.
+     */
+    private TreeModelClassification learnSingleTreeLevelWise(final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        final TreeData data = getData();
+        final TreeEnsembleLearnerConfiguration config = getConfig();
+        final TreeTargetNominalColumnData targetColumn = (TreeTargetNominalColumnData)data.getTargetColumn();
+        final boolean useSurrogates = config.getMissingValueHandling() == MissingValueHandling.Surrogate;
+        final DataMemberships rootDataMemberships = createRootDataMemberships();
+        final LevelWiseHistograms levelHistograms =
+            LevelWiseHistograms.hasBinnedColumns(data) ? new LevelWiseHistograms(data) : null;
+        final LevelWiseNode<ClassificationPriors> root = new LevelWiseNode<ClassificationPriors>(
+            TreeNodeSignature.ROOT_SIGNATURE, rootDataMemberships,
+            targetColumn.getDistribution(rootDataMemberships, config),
+            getColSamplingStrategy().getColumnSampleForTreeNode(TreeNodeSignature.ROOT_SIGNATURE),
+            new BitSet(data.getNrAttributes()));
+        List<LevelWiseNode<ClassificationPriors>> level = Collections.singletonList(root);
+        for (int depth = 0; !level.isEmpty(); depth++) {
+            exec.checkCanceled();
+            final boolean[] isActive = new boolean[level.size()];
+            for (int n = 0; n < level.size(); n++) {
+                isActive[n] = isSplitCandidate(depth, level.get(n).getTargetPriors());
             }
-            final SplitCandidate currentColSplit =
-                col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
-            if (currentColSplit != null) {
-                final double currentGain = currentColSplit.getGainValue();
-                final boolean tiebreaker = currentGain == bestGainValue ? (rd.nextInt(0, 1) == 0) : false;
-                if (currentColSplit.getGainValue() > bestGainValue || tiebreaker) {
-                    splitCandidate = currentColSplit;
-                    bestGainValue = currentGain;
+            final ClassificationHistogram[][] histograms = levelHistograms == null ? null
+                : levelHistograms.createClassificationHistograms(level, isActive, targetColumn);
+            final List<LevelWiseNode<ClassificationPriors>> nextLevel =
+                new ArrayList<LevelWiseNode<ClassificationPriors>>();
+            for (int n = 0; n < level.size(); n++) {
+                final LevelWiseNode<ClassificationPriors> node = level.get(n);
+                if (isActive[n]) {
+                    splitLevelWiseNode(depth, node, histograms == null ? null : histograms[n], useSurrogates,
+                        nextLevel);
                 }
+                node.releaseDataMemberships();
+            }
+            level = nextLevel;
+        }
+        final TreeNodeClassification rootNode = toTreeNode(root);
+        rootNode.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
+        return new TreeModelClassification(rootNode);
+    }
+
+    /**
+     * Searches the best split of <b>node</b> and, if there is one, creates the children and adds them to
+     * <b>nextLevel</b>.
+     */
+    private void splitLevelWiseNode(final int depth, final LevelWiseNode<ClassificationPriors> node,
+        final ClassificationHistogram[] histograms, final boolean useSurrogates,
+        final List<LevelWiseNode<ClassificationPriors>> nextLevel) {
+        final TreeData data = getData();
+        final TreeEnsembleLearnerConfiguration config = getConfig();
+        final TreeTargetNominalColumnData targetColumn = (TreeTargetNominalColumnData)data.getTargetColumn();
+        final DataMemberships dataMemberships = node.getDataMemberships();
+        final TreeNodeSignature treeNodeSignature = node.getSignature();
+        final TreeNodeCondition[] childConditions;
+        final BitSet[] childMarkers;
+        final BitSet childForbiddenColumnSet;
+        if (useSurrogates) {
+            SplitCandidate[] candidates = findBestSplitsClassification(depth, dataMemberships, node.getColumnSample(),
+                treeNodeSignature, node.getTargetPriors(), node.getForbiddenColumnSet(), histograms);
+            if (candidates == null) {
+                return;
             }
+            SurrogateSplit surrogateSplit = Surrogates.learnSurrogates(dataMemberships, candidates[0], data,
+                node.getColumnSample(), config, createSplitRandomData(treeNodeSignature, SURROGATES_RANDOM_INDEX));
+            childConditions = surrogateSplit.getChildConditions();
+            childMarkers = surrogateSplit.getChildMarkers();
+            childForbiddenColumnSet = node.getForbiddenColumnSet();
+        } else {
+            SplitCandidate bestSplit = findBestSplitClassification(depth, dataMemberships, node.getColumnSample(),
+                treeNodeSignature, node.getTargetPriors(), node.getForbiddenColumnSet(), histograms);
+            if (bestSplit == null) {
+                return;
+            }
+            TreeAttributeColumnData splitColumn = bestSplit.getColumnData();
+            childConditions = bestSplit.getChildConditions();
+            if (childConditions.length > Short.MAX_VALUE) {
+                throw new RuntimeException(
+                    "Too many children when splitting " + "attribute " + bestSplit.getColumnData()
+                        + " (maximum supported: " + Short.MAX_VALUE + "): " + childConditions.length);
+            }
+            childMarkers = new BitSet[childConditions.length];
+            for (int i = 0; i < childConditions.length; i++) {
+                childMarkers[i] = splitColumn.updateChildMemberships(childConditions[i], dataMemberships);
+            }
+            if (bestSplit.canColumnBeSplitFurther()) {
+                childForbiddenColumnSet = node.getForbiddenColumnSet();
+            } else {
+                childForbiddenColumnSet = (BitSet)node.getForbiddenColumnSet().clone();
+                childForbiddenColumnSet.set(splitColumn.getMetaData().getAttributeIndex());
+            }
+        }
+        for (int i = 0; i < childConditions.length; i++) {
+            DataMemberships childMemberships = dataMemberships.createChildMemberships(childMarkers[i]);
+            ClassificationPriors childTargetPriors = targetColumn.getDistribution(childMemberships, config);
+            TreeNodeSignature childSignature = useSurrogates
+                ? getSignatureFactory().getChildSignatureFor(treeNodeSignature, (byte)i)
+                : treeNodeSignature.createChildSignature((byte)i);
+            ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
+            LevelWiseNode<ClassificationPriors> child = new LevelWiseNode<ClassificationPriors>(childSignature,
+                childMemberships, childTargetPriors, childColumnSample, childForbiddenColumnSet);
+            node.addChild(child, childConditions[i]);
+            nextLevel.add(child);
+        }
+    }
+
+    /** Converts the level-wise grown tree into model nodes. */
+    private TreeNodeClassification toTreeNode(final LevelWiseNode<ClassificationPriors> node) {
+        if (node.isLeaf()) {
+            return new TreeNodeClassification(node.getSignature(), node.getTargetPriors(), getConfig());
+        }
+        final List<LevelWiseNode<ClassificationPriors>> children = node.getChildren();
+        final TreeNodeClassification[] childNodes = new TreeNodeClassification[children.size()];
+        for (int i = 0; i < childNodes.length; i++) {
+            final LevelWiseNode<ClassificationPriors> child = children.get(i);
+            childNodes[i] = toTreeNode(child);
+            childNodes[i].setTreeNodeCondition(child.getCondition());
         }
-        return splitCandidate;
+        return new TreeNodeClassification(node.getSignature(), node.getTargetPriors(), childNodes, getConfig());
     }
 
 }
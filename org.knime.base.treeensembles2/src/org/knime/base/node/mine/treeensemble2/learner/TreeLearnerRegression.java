@@ -49,18 +49,20 @@
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
 import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.RegressionHistogram;
 import org.knime.base.node.mine.treeensemble2.data.RegressionPriors;
 import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
 import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
 import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
-import org.knime.base.node.mine.treeensemble2.data.memberships.RootDataMemberships;
 import org.knime.base.node.mine.treeensemble2.model.TreeModelRegression;
 import org.knime.base.node.mine.treeensemble2.model.TreeNodeCondition;
 import org.knime.base.node.mine.treeensemble2.model.TreeNodeRegression;
@@ -82,6 +84,9 @@ public class TreeLearnerRegression extends AbstractTreeLearner {
 
     private List<TreeNodeRegression> m_leafs;
 
+    /** Only set for gradient boosting with histogram splits, see {@link #deriveChildHistograms}. */
+    private HistogramMemoryBudget m_histogramBudget;
+
     /**
      * Constructor for TreeLearnerRegression
      *
@@ -110,21 +115,32 @@ public TreeModelRegression learnSingleTree(final ExecutionMonitor exec, final Ra
         throws CanceledExecutionException {
         final TreeTargetNumericColumnData targetColumn = getTargetData();
         final TreeData data = getData();
-        final RowSample rowSampling = getRowSampling();
         final TreeEnsembleLearnerConfiguration config = getConfig();
-        final IDataIndexManager indexManager = getIndexManager();
-        DataMemberships rootDataMemberships = new RootDataMemberships(rowSampling, data, indexManager);
+        DataMemberships rootDataMemberships = createRootDataMemberships();
         RegressionPriors targetPriors = targetColumn.getPriors(rootDataMemberships, config);
         BitSet forbiddenColumnSet = new BitSet(data.getNrAttributes());
         boolean isGradientBoosting = config instanceof GradientBoostingLearnerConfiguration;
+        RegressionHistogram[] rootHistograms = null;
         if (isGradientBoosting) {
             m_leafs = new ArrayList<TreeNodeRegression>();
         }
+        if (config.isUseLevelWiseGrowth()) {
+            return learnSingleTreeLevelWise(exec, rootDataMemberships, targetPriors);
+        }
+        if (isGradientBoosting) {
+            if (config.isUseHistogramSplits()) {
+                final long limit =
+                    ((GradientBoostingLearnerConfiguration)config).getHistogramMemoryLimit() * 1024L * 1024L;
+                m_histogramBudget = new HistogramMemoryBudget(limit);
+                rootHistograms = new RegressionHistogram[data.getNrAttributes()];
+            }
+        }
         final TreeNodeSignature rootSignature = TreeNodeSignature.ROOT_SIGNATURE;
         final ColumnSample rootColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(rootSignature);
-        TreeNodeRegression rootNode = buildTreeNode(exec, 0, rootDataMemberships, rootColumnSample, getSignatureFactory().getRootSignature(),
-            targetPriors, forbiddenColumnSet);
+        TreeNodeRegression rootNode = buildTreeNode(exec, 0, rootDataMemberships, rootColumnSample, rootSignature,
+            targetPriors, forbiddenColumnSet, rootHistograms);
         assert forbiddenColumnSet.cardinality() == 0;
+        assert m_histogramBudget == null || m_histogramBudget.getUsed() == 0 : "Histogram memory not released";
         rootNode.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
         if (isGradientBoosting) {
             return new TreeModelRegression(rootNode, m_leafs);
@@ -133,48 +149,44 @@ public TreeModelRegression learnSingleTree(final ExecutionMonitor exec, final Ra
     }
 
     private SplitCandidate findBestSplitRegression(final int currentDepth, final DataMemberships dataMemberships, final ColumnSample columnSample,
-        final RegressionPriors targetPriors,
-        final BitSet forbiddenColumnSet) {
+        final TreeNodeSignature treeNodeSignature, final RegressionPriors targetPriors,
+        final BitSet forbiddenColumnSet, final RegressionHistogram[] histograms) {
         final TreeData data = getData();
-        final RandomData rd = getRandomData();
+        final TreeEnsembleLearnerConfiguration config = getConfig();
+        if (!isSplitCandidate(currentDepth, targetPriors)) {
+            return null;
+        }
+        final TreeTargetNumericColumnData targetColumn = getTargetData();
+        if (currentDepth == 0 && config.getHardCodedRootColumn() != null) {
+            final TreeAttributeColumnData rootColumn = data.getColumn(config.getHardCodedRootColumn());
+            return rootColumn.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn,
+                createSplitRandomData(treeNodeSignature, rootColumn.getMetaData().getAttributeIndex()));
+        } else {
+            return findBestSplit(columnSample, forbiddenColumnSet, dataMemberships, treeNodeSignature, false,
+                (col, rd) -> histograms == null
+                    ? col.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd)
+                    : calcBestSplitRegression(col, dataMemberships, targetPriors, histograms, rd));
+        }
+    }
+
+    /**
+     * @return false if a node at the given depth with the given priors must not be split (max depth, min node size or
+     *         no deviation left)
+     */
+    private boolean isSplitCandidate(final int currentDepth, final RegressionPriors targetPriors) {
         final TreeEnsembleLearnerConfiguration config = getConfig();
         final int maxLevels = config.getMaxLevels();
         if (maxLevels != TreeEnsembleLearnerConfiguration.MAX_LEVEL_INFINITE && currentDepth >= maxLevels) {
-            return null;
+            return false;
         }
         final int minNodeSize = config.getMinNodeSize();
         if (minNodeSize != TreeEnsembleLearnerConfiguration.MIN_NODE_SIZE_UNDEFINED) {
             if (targetPriors.getNrRecords() < minNodeSize) {
-                return null;
+                return false;
             }
         }
         final double priorSquaredDeviation = targetPriors.getSumSquaredDeviation();
-        if (priorSquaredDeviation < TreeColumnData.EPSILON) {
-            return null;
-        }
-        final TreeTargetNumericColumnData targetColumn = getTargetData();
-        SplitCandidate splitCandidate = null;
-        if (currentDepth == 0 && config.getHardCodedRootColumn() != null) {
-            final TreeAttributeColumnData rootColumn = data.getColumn(config.getHardCodedRootColumn());
-            return rootColumn.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
-        } else {
-            double bestGainValue = 0.0;
-            for (TreeAttributeColumnData col : columnSample) {
-                if (forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
-                    continue;
-                }
-                SplitCandidate currentColSplit =
-                    col.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
-                if (currentColSplit != null) {
-                    double gainValue = currentColSplit.getGainValue();
-                    if (gainValue > bestGainValue) {
-                        bestGainValue = gainValue;
-                        splitCandidate = currentColSplit;
-                    }
-                }
-            }
-            return splitCandidate;
-        }
+        return priorSquaredDeviation >= TreeColumnData.EPSILON;
     }
 
     private SplitCandidate[] findBestSplitsRegression(final int currentDepth, final DataMemberships dataMemberships, final ColumnSample columnSample,
@@ -230,15 +242,88 @@ public int compare(final SplitCandidate arg0, final SplitCandidate arg1) {
         return splitCandidates.toArray(new SplitCandidate[splitCandidates.size()]);
     }
 
+    /**
+     * Split search for a single column that reuses (or fills) the histogram of the column in <b>histograms</b>.
+     * Columns without binning are searched exhaustively.
+     */
+    private SplitCandidate calcBestSplitRegression(final TreeAttributeColumnData col,
+        final DataMemberships dataMemberships, final RegressionPriors targetPriors,
+        final RegressionHistogram[] histograms, final RandomData rd) {
+        final TreeTargetNumericColumnData targetColumn = getTargetData();
+        if (!isBinned(col)) {
+            return col.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
+        }
+        final TreeNumericColumnData numCol = (TreeNumericColumnData)col;
+        final int attributeIndex = col.getMetaData().getAttributeIndex();
+        RegressionHistogram histogram = histograms[attributeIndex];
+        if (histogram == null) {
+            histogram = numCol.createRegressionHistogram(dataMemberships, targetColumn);
+            histograms[attributeIndex] = histogram;
+        }
+        return numCol.calcBestSplitRegression(histogram, dataMemberships, targetPriors, rd);
+    }
+
+    private static boolean isBinned(final TreeAttributeColumnData col) {
+        return col instanceof TreeNumericColumnData && ((TreeNumericColumnData)col).getBinning() != null;
+    }
+
+    /**
+     * Derives the histograms of the children of a binary split from the histograms of the parent: only the
+     * histograms of the smaller child are computed from the rows, the ones of the larger child are obtained by
+     * subtracting them from the parent's histograms (which are reused for that purpose). The histograms of the second
+     * child are kept alive while the subtree of the first child is built, which is bounded by the
+     * {@link HistogramMemoryBudget}; if the budget is exhausted the second child recomputes its histograms.
+     *
+     * @return the histograms for each child (never null but possibly without any entries)
+     */
+    private RegressionHistogram[][] deriveChildHistograms(final int childDepth,
+        final RegressionHistogram[] parentHistograms, final DataMemberships[] childMemberships) {
+        final int nrAttributes = parentHistograms.length;
+        final RegressionHistogram[][] childHistograms = new RegressionHistogram[childMemberships.length][];
+        for (int i = 0; i < childHistograms.length; i++) {
+            childHistograms[i] = new RegressionHistogram[nrAttributes];
+        }
+        final int maxLevels = getConfig().getMaxLevels();
+        if (childMemberships.length != 2
+            || (maxLevels != TreeEnsembleLearnerConfiguration.MAX_LEVEL_INFINITE && childDepth >= maxLevels)) {
+            // no binary split or children are leafs anyway
+            return childHistograms;
+        }
+        final int smaller = childMemberships[0].getRowCount() <= childMemberships[1].getRowCount() ? 0 : 1;
+        final boolean retainSecond = m_histogramBudget.tryAcquire(HistogramMemoryBudget.getMemorySize(parentHistograms));
+        if (!retainSecond && smaller == 0) {
+            // the first child would compute the same histograms itself, and the larger one can't be kept
+            return childHistograms;
+        }
+        final TreeAttributeColumnData[] columns = getData().getColumns();
+        final TreeTargetNumericColumnData targetColumn = getTargetData();
+        for (int a = 0; a < nrAttributes; a++) {
+            final RegressionHistogram parentHistogram = parentHistograms[a];
+            if (parentHistogram != null) {
+                final RegressionHistogram smallerHistogram = ((TreeNumericColumnData)columns[a])
+                    .createRegressionHistogram(childMemberships[smaller], targetColumn);
+                // the parent histogram now describes the larger child
+                parentHistogram.subtract(smallerHistogram);
+                childHistograms[smaller][a] = smallerHistogram;
+            }
+        }
+        childHistograms[1 - smaller] = parentHistograms;
+        if (!retainSecond) {
+            childHistograms[1] = new RegressionHistogram[nrAttributes];
+        }
+        return childHistograms;
+    }
+
     private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int currentDepth,
         final DataMemberships dataMemberships, final ColumnSample columnSample, final TreeNodeSignature treeNodeSignature,
-        final RegressionPriors targetPriors, final BitSet forbiddenColumnSet) throws CanceledExecutionException {
+        final RegressionPriors targetPriors, final BitSet forbiddenColumnSet, final RegressionHistogram[] histograms)
+        throws CanceledExecutionException {
         final TreeData data = getData();
-        final RandomData rd = getRandomData();
         final TreeEnsembleLearnerConfiguration config = getConfig();
         exec.checkCanceled();
         final SplitCandidate candidate =
-            findBestSplitRegression(currentDepth, dataMemberships, columnSample, targetPriors, forbiddenColumnSet);
+            findBestSplitRegression(currentDepth, dataMemberships, columnSample, treeNodeSignature, targetPriors,
+                forbiddenColumnSet, histograms);
         if (candidate == null) {
             if (config instanceof GradientBoostingLearnerConfiguration) {
                 TreeNodeRegression leaf =
@@ -253,7 +338,8 @@ private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int
         TreeNodeCondition[] childConditions;
         TreeNodeRegression[] childNodes;
         if (useSurrogates) {
-            SurrogateSplit surrogateSplit = Surrogates.learnSurrogates(dataMemberships, candidate, data, columnSample, config, rd);
+            SurrogateSplit surrogateSplit = Surrogates.learnSurrogates(dataMemberships, candidate, data, columnSample,
+                config, createSplitRandomData(treeNodeSignature, SURROGATES_RANDOM_INDEX));
             childConditions = surrogateSplit.getChildConditions();
             BitSet[] childMarkers = surrogateSplit.getChildMarkers();
             assert childMarkers[0].cardinality() + childMarkers[1].cardinality() == dataMemberships.getRowCount(): "Sum of rows in children does not add up to number of rows in parent.";
@@ -264,7 +350,8 @@ private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int
                 ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
                 RegressionPriors childTargetPriors = targetColumn.getPriors(childMemberships, config);
                 childNodes[i] = buildTreeNode(exec, currentDepth + 1, childMemberships, childColumnSample, childSignature,
-                    childTargetPriors, forbiddenColumnSet);
+                    childTargetPriors, forbiddenColumnSet,
+                    histograms == null ? null : new RegressionHistogram[histograms.length]);
                 childNodes[i].setTreeNodeCondition(childConditions[i]);
             }
         } else {
@@ -280,15 +367,38 @@ private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int
                         + " (maximum supported: " + Short.MAX_VALUE + "): " + childConditions.length);
             }
             childNodes = new TreeNodeRegression[childConditions.length];
+            final DataMemberships[] childMembershipsArray = new DataMemberships[childConditions.length];
+            RegressionHistogram[][] childHistograms = null;
+            if (histograms != null) {
+                // all children are needed upfront to derive their histograms
+                for (int i = 0; i < childConditions.length; i++) {
+                    childMembershipsArray[i] = dataMemberships
+                        .createChildMemberships(splitColumn.updateChildMemberships(childConditions[i], dataMemberships));
+                }
+                childHistograms = deriveChildHistograms(currentDepth + 1, histograms, childMembershipsArray);
+            }
             for (int i = 0; i < childConditions.length; i++) {
                 TreeNodeCondition cond = childConditions[i];
-                DataMemberships childMemberships =
-                    dataMemberships.createChildMemberships(splitColumn.updateChildMemberships(cond, dataMemberships));
+                DataMemberships childMemberships = childMembershipsArray[i];
+                if (childMemberships == null) {
+                    childMemberships =
+                        dataMemberships.createChildMemberships(splitColumn.updateChildMemberships(cond, dataMemberships));
+                }
+                childMembershipsArray[i] = null;
+                RegressionHistogram[] histogramsForChild = null;
+                if (childHistograms != null) {
+                    histogramsForChild = childHistograms[i];
+                    childHistograms[i] = null;
+                    if (i == 1) {
+                        // no longer kept alive on behalf of this child, it's now built
+                        m_histogramBudget.release(HistogramMemoryBudget.getMemorySize(histogramsForChild));
+                    }
+                }
                 RegressionPriors childTargetPriors = targetColumn.getPriors(childMemberships, config);
                 TreeNodeSignature childSignature = treeNodeSignature.createChildSignature((byte)i);
                 ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
                 childNodes[i] = buildTreeNode(exec, currentDepth + 1, childMemberships, childColumnSample, childSignature,
-                    childTargetPriors, forbiddenColumnSet);
+                    childTargetPriors, forbiddenColumnSet, histogramsForChild);
                 childNodes[i].setTreeNodeCondition(cond);
             }
             if (markAttributeAsForbidden) {
@@ -298,6 +408,137 @@ private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int
         return new TreeNodeRegression(treeNodeSignature, targetPriors, childNodes);
     }
 
+    /**
+     * Grows the tree level by level: the split search for all nodes of a depth is done before any node of the next
+     * depth is touched, which allows to compute the histograms of binned columns for the entire level with a single
+     * sweep over each column (see {@link LevelWiseHistograms}). The resulting tree is the same as the one grown by
+     * {@link #buildTreeNode} if that one uses the random numbers derived from the node and attribute (see
+     * {@link TreeEnsembleLearnerConfiguration#isUseParallelSplitSearch()}), including random tie breaks. Level-wise
+     * growth always uses these derived random numbers as the nodes are visited in a different order than depth-first,
+     * so its trees differ from the depth-first ones that draw from the tree's random stream if ties are broken.
+     */
+    private TreeModelRegression learnSingleTreeLevelWise(final ExecutionMonitor exec,
+        final DataMemberships rootDataMemberships, final RegressionPriors rootTargetPriors)
+        throws CanceledExecutionException {
+        final TreeData data = getData();
+        final TreeEnsembleLearnerConfiguration config = getConfig();
+        final TreeTargetNumericColumnData targetColumn = getTargetData();
+        final boolean isGradientBoosting = config instanceof GradientBoostingLearnerConfiguration;
+        final boolean useSurrogates = config.getMissingValueHandling() == MissingValueHandling.Surrogate;
+        final LevelWiseHistograms levelHistograms =
+            LevelWiseHistograms.hasBinnedColumns(data) ? new LevelWiseHistograms(data) : null;
+        final TreeNodeSignature rootSignature = TreeNodeSignature.ROOT_SIGNATURE;
+        final LevelWiseNode<RegressionPriors> root = new LevelWiseNode<RegressionPriors>(rootSignature,
+            rootDataMemberships, rootTargetPriors, getColSamplingStrategy().getColumnSampleForTreeNode(rootSignature),
+            new BitSet(data.getNrAttributes()));
+        List<LevelWiseNode<RegressionPriors>> level = Collections.singletonList(root);
+        for (int depth = 0; !level.isEmpty(); depth++) {
+            exec.checkCanceled();
+            final boolean[] isActive = new boolean[level.size()];
+            for (int n = 0; n < level.size(); n++) {
+                isActive[n] = isSplitCandidate(depth, level.get(n).getTargetPriors());
+            }
+            final RegressionHistogram[][] histograms = levelHistograms == null ? null
+                : levelHistograms.createRegressionHistograms(level, isActive, targetColumn);
+            final List<LevelWiseNode<RegressionPriors>> nextLevel = new ArrayList<LevelWiseNode<RegressionPriors>>();
+            for (int n = 0; n < level.size(); n++) {
+                final LevelWiseNode<RegressionPriors> node = level.get(n);
+                final DataMemberships dataMemberships = node.getDataMemberships();
+                final SplitCandidate candidate = isActive[n]
+                    ? findBestSplitRegression(depth, dataMemberships, node.getColumnSample(), node.getSignature(),
+                        node.getTargetPriors(), node.getForbiddenColumnSet(), histograms == null ? null : histograms[n])
+                    : null;
+                if (candidate == null) {
+                    if (isGradientBoosting) {
+                        node.setLeafRowIndices(dataMemberships.getOriginalIndices());
+                    }
+                } else {
+                    splitLevelWiseNode(node, candidate, useSurrogates, nextLevel);
+                }
+                node.releaseDataMemberships();
+            }
+            level = nextLevel;
+        }
+        final TreeNodeRegression rootNode = toTreeNode(root, isGradientBoosting);
+        rootNode.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
+        if (isGradientBoosting) {
+            return new TreeModelRegression(rootNode, m_leafs);
+        }
+        return new TreeModelRegression(rootNode);
+    }
+
+    /** Creates the children of <b>node</b> according to <b>candidate</b> and adds them to <b>nextLevel</b>. */
+    private void splitLevelWiseNode(final LevelWiseNode<RegressionPriors> node, final SplitCandidate candidate,
+        final boolean useSurrogates, final List<LevelWiseNode<RegressionPriors>> nextLevel) {
+        final TreeData data = getData();
+        final TreeEnsembleLearnerConfiguration config = getConfig();
+        final TreeTargetNumericColumnData targetColumn = getTargetData();
+        final DataMemberships dataMemberships = node.getDataMemberships();
+        final TreeNodeSignature treeNodeSignature = node.getSignature();
+        final TreeNodeCondition[] childConditions;
+        final BitSet[] childMarkers;
+        final BitSet childForbiddenColumnSet;
+        if (useSurrogates) {
+            SurrogateSplit surrogateSplit = Surrogates.learnSurrogates(dataMemberships, candidate, data,
+                node.getColumnSample(), config, createSplitRandomData(treeNodeSignature, SURROGATES_RANDOM_INDEX));
+            childConditions = surrogateSplit.getChildConditions();
+            childMarkers = surrogateSplit.getChildMarkers();
+            childForbiddenColumnSet = node.getForbiddenColumnSet();
+        } else {
+            TreeAttributeColumnData splitColumn = candidate.getColumnData();
+            childConditions = candidate.getChildConditions();
+            if (childConditions.length > Short.MAX_VALUE) {
+                throw new RuntimeException(
+                    "Too many children when splitting " + "attribute " + candidate.getColumnData()
+                        + " (maximum supported: " + Short.MAX_VALUE + "): " + childConditions.length);
+            }
+            childMarkers = new BitSet[childConditions.length];
+            for (int i = 0; i < childConditions.length; i++) {
+                childMarkers[i] = splitColumn.updateChildMemberships(childConditions[i], dataMemberships);
+            }
+            if (candidate.canColumnBeSplitFurther()) {
+                childForbiddenColumnSet = node.getForbiddenColumnSet();
+            } else {
+                childForbiddenColumnSet = (BitSet)node.getForbiddenColumnSet().clone();
+                childForbiddenColumnSet.set(splitColumn.getMetaData().getAttributeIndex());
+            }
+        }
+        for (int i = 0; i < childConditions.length; i++) {
+            DataMemberships childMemberships = dataMemberships.createChildMemberships(childMarkers[i]);
+            RegressionPriors childTargetPriors = targetColumn.getPriors(childMemberships, config);
+            TreeNodeSignature childSignature = useSurrogates
+                ? getSignatureFactory().getChildSignatureFor(treeNodeSignature, (byte)i)
+                : treeNodeSignature.createChildSignature((byte)i);
+            ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
+            LevelWiseNode<RegressionPriors> child = new LevelWiseNode<RegressionPriors>(childSignature,
+                childMemberships, childTargetPriors, childColumnSample, childForbiddenColumnSet);
+            node.addChild(child, childConditions[i]);
+            nextLevel.add(child);
+        }
+    }
+
+    /** Converts the level-wise grown tree into model nodes, collecting the leafs in depth-first order. */
+    private TreeNodeRegression toTreeNode(final LevelWiseNode<RegressionPriors> node,
+        final boolean isGradientBoosting) {
+        if (node.isLeaf()) {
+            if (isGradientBoosting) {
+                TreeNodeRegression leaf =
+                    new TreeNodeRegression(node.getSignature(), node.getTargetPriors(), node.getLeafRowIndices());
+                addToLeafList(leaf);
+                return leaf;
+            }
+            return new TreeNodeRegression(node.getSignature(), node.getTargetPriors());
+        }
+        final List<LevelWiseNode<RegressionPriors>> children = node.getChildren();
+        final TreeNodeRegression[] childNodes = new TreeNodeRegression[children.size()];
+        for (int i = 0; i < childNodes.length; i++) {
+            final LevelWiseNode<RegressionPriors> child = children.get(i);
+            childNodes[i] = toTreeNode(child, isGradientBoosting);
+            childNodes[i].setTreeNodeCondition(child.getCondition());
+        }
+        return new TreeNodeRegression(node.getSignature(), node.getTargetPriors(), childNodes);
+    }
+
     private synchronized void addToLeafList(final TreeNodeRegression leaf) {
         m_leafs.add(leaf);
     }
@@ -48,6 +48,7 @@
  */
 package org.knime.base.node.mine.treeensemble2.learner.gradientboosting;
 
+import java.util.List;
 import java.util.Map;
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
@@ -109,22 +110,38 @@ public AbstractGradientBoostedTreesLearner(final GradientBoostingLearnerConfigur
      */
     protected void adaptPreviousPrediction(final double[] previousPrediction, final TreeModelRegression tree,
         final Map<TreeNodeSignature, Double> coefficientMap) {
+        adaptPreviousPrediction(previousPrediction, tree, coefficientMap, new ParallelChunks(null));
+    }
+
+    /**
+     * Same as {@link #adaptPreviousPrediction(double[], TreeModelRegression, Map)} but processes the leafs (or rows)
+     * with <b>chunks</b>. The leafs of a tree contain disjoint sets of rows, so they can be processed concurrently.
+     */
+    final void adaptPreviousPrediction(final double[] previousPrediction, final TreeModelRegression tree,
+        final Map<TreeNodeSignature, Double> coefficientMap, final ParallelChunks chunks) {
+        final TreeData data = getData();
         if (m_useLeafReference) {
-            for (TreeNodeRegression leaf : tree.getLeafs()) {
-                final double coefficient = coefficientMap.get(leaf.getSignature());
-                final int[] indices = leaf.getRowIndicesInTreeData();
-                for (int rowIdx : indices) {
-                    previousPrediction[rowIdx] += coefficient;
+            final List<TreeNodeRegression> leafs = tree.getLeafs();
+            final int leafsPerTask = data.getNrRows() < ParallelChunks.DEFAULT_CHUNK_SIZE ? leafs.size() : 1;
+            chunks.forEach(leafs.size(), leafsPerTask, (from, to) -> {
+                for (int l = from; l < to; l++) {
+                    final TreeNodeRegression leaf = leafs.get(l);
+                    final double coefficient = coefficientMap.get(leaf.getSignature());
+                    final int[] indices = leaf.getRowIndicesInTreeData();
+                    for (int rowIdx : indices) {
+                        previousPrediction[rowIdx] += coefficient;
+                    }
                 }
-            }
+            });
         } else {
-            TreeData data = getData();
-            IDataIndexManager indexManager = getIndexManager();
-            for (int i = 0; i < data.getNrRows(); i++) {
-                // don't fix missing value mixup to ensure backwards compatibility of deprecated nodes
-                PredictorRecord record = createPredictorRecord(data, indexManager, i);
-                previousPrediction[i] += coefficientMap.get(tree.findMatchingNode(record).getSignature());
-            }
+            final IDataIndexManager indexManager = getIndexManager();
+            chunks.forEach(data.getNrRows(), ParallelChunks.DEFAULT_CHUNK_SIZE, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    // don't fix missing value mixup to ensure backwards compatibility of deprecated nodes
+                    PredictorRecord record = createPredictorRecord(data, indexManager, i);
+                    previousPrediction[i] += coefficientMap.get(tree.findMatchingNode(record).getSignature());
+                }
+            });
         }
     }
 
@@ -48,8 +48,6 @@
  */
 package org.knime.base.node.mine.treeensemble2.learner.gradientboosting;
 
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -74,8 +72,6 @@
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionMonitor;
 
-import com.google.common.primitives.Doubles;
-
 /**
  *
  * @author Adrian Nembach, KNIME GmbH, Konstanz, Germany
@@ -279,25 +275,7 @@ protected double[] predictTreeModel(final TreeModelRegression tree) {
      * @return the median of <b>values</b>
      */
     protected static double calcMedian(final double[] values) {
-        if (values.length == 1) {
-            return values[0];
-        }
-        Integer[] idx = new Integer[values.length];
-        for (int i = 0; i < idx.length; i++) {
-            idx[i] = i;
-        }
-        Comparator<Integer> idxComp = new Comparator<Integer>() {
-            @Override
-            public int compare(final Integer arg0, final Integer arg1) {
-                return Doubles.compare(values[arg0], values[arg1]);
-            }
-        };
-        Arrays.sort(idx, idxComp);
-        int medianIndex = values.length / 2;
-        if (values.length % 2 == 0) {
-            return (values[idx[medianIndex - 1]] + values[idx[medianIndex]]) / 2;
-        }
-        return values[idx[medianIndex]];
+        return QuantileSelection.median(values.clone(), 0, values.length);
     }
 
 }
@@ -66,6 +66,7 @@
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnMetaData;
 import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.learner.ParallelSplitSearch;
 import org.knime.base.node.mine.treeensemble2.learner.TreeLearnerRegression;
 import org.knime.base.node.mine.treeensemble2.learner.TreeNodeSignatureFactory;
 import org.knime.base.node.mine.treeensemble2.model.MultiClassGradientBoostedTreesModel;
@@ -172,6 +173,9 @@ public MultiClassGradientBoostedTreesModel learn(final ExecutionMonitor exec)
 
         exec.setMessage("Learn trees");
         final double[][] probs = new double[numClasses][nrRows];
+        // the trees of the classes are learned concurrently, the remaining cores are used for the split search
+        final ParallelSplitSearch splitSearch =
+            new ParallelSplitSearch(ParallelSplitSearch.getIntraTreeParallelism(numClasses));
         for (int i = 0; i < nrModels; i++) {
             final Semaphore semaphore = new Semaphore(procCount);
             final ArrayList<Map<TreeNodeSignature, Double>> classCoefficientMaps = new ArrayList<>(numClasses);
@@ -187,8 +191,9 @@ public MultiClassGradientBoostedTreesModel learn(final ExecutionMonitor exec)
                     TreeEnsembleLearnerConfiguration.createRandomData(rd.nextLong(Long.MIN_VALUE, Long.MAX_VALUE));
                 final ExecutionMonitor subExec = exec.createSubProgress(0.0);
                 semaphore.acquire();
-                treeCoefficientMapPairs[j] = tp.enqueue(new TreeLearnerCallable(rdSingle, probs[j], actual[j], subExec,
-                    numClasses, previousFunctions[j], semaphore, learnThrowableRef, signatureFactory));
+                treeCoefficientMapPairs[j] = tp.enqueue(new TreeLearnerCallable(rdSingle, probs[j], actual[j],
+                    subExec, numClasses, previousFunctions[j], semaphore, learnThrowableRef, signatureFactory,
+                    splitSearch));
             }
             for (int j = 0; j < numClasses; j++) {
                 checkThrowable(learnThrowableRef);
@@ -282,10 +287,12 @@ private class TreeLearnerCallable implements Callable<Pair<TreeModelRegression,
 
         private final TreeNodeSignatureFactory m_signatureFactory;
 
+        private final ParallelSplitSearch m_splitSearch;
+
         public TreeLearnerCallable(final RandomData rd, final double[] probs, final TreeData actual,
             final ExecutionMonitor subExec, final int numClasses, final double[] previousFunction,
             final Semaphore releaseSemaphore, final AtomicReference<Throwable> learnThrowableRef,
-            final TreeNodeSignatureFactory signatureFactory) {
+            final TreeNodeSignatureFactory signatureFactory, final ParallelSplitSearch splitSearch) {
             m_rd = rd;
             m_probs = probs;
             m_actual = actual;
@@ -295,6 +302,7 @@ public TreeLearnerCallable(final RandomData rd, final double[] probs, final Tree
             m_releaseSemaphore = releaseSemaphore;
             m_learnThrowableRef = learnThrowableRef;
             m_signatureFactory = signatureFactory;
+            m_splitSearch = splitSearch;
         }
 
         /**
@@ -316,6 +324,7 @@ public Pair<TreeModelRegression, Map<TreeNodeSignature, Double>> call() throws E
                 final RowSample rowSample = getRowSampler().createRowSample(m_rd);
                 final TreeLearnerRegression treeLearner = new TreeLearnerRegression(getConfig(), pseudoResiduals,
                     getIndexManager(), m_signatureFactory, m_rd, rowSample);
+                treeLearner.setParallelSplitSearch(m_splitSearch);
                 final TreeModelRegression tree = treeLearner.learnSingleTree(m_subExec, m_rd);
                 final Map<TreeNodeSignature, Double> coefficientMap =
                     calculateCoefficientMap(tree, pseudoResiduals, m_numClasses);
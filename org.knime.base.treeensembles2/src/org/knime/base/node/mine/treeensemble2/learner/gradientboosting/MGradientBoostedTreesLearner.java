@@ -50,14 +50,15 @@
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.math.random.RandomData;
 import org.knime.base.node.mine.treeensemble2.data.TreeData;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.learner.ParallelSplitSearch;
 import org.knime.base.node.mine.treeensemble2.learner.TreeLearnerRegression;
 import org.knime.base.node.mine.treeensemble2.learner.TreeNodeSignatureFactory;
 import org.knime.base.node.mine.treeensemble2.model.AbstractGradientBoostingModel;
@@ -72,7 +73,6 @@
 import org.knime.core.node.ExecutionMonitor;
 
 import com.google.common.math.IntMath;
-import com.google.common.primitives.Doubles;
 
 /**
  * This class learns a Gradient Boosted Trees model for regression using the Huber loss.
@@ -81,6 +81,8 @@
  */
 public final class MGradientBoostedTreesLearner extends AbstractGradientBoostedTreesLearner {
 
+    /** the trees are learned one after the other, hence all cores are used within each iteration. */
+    private int m_parallelism = ParallelSplitSearch.getIntraTreeParallelism(1);
 
     /**
      * @param config the configuration for the learner
@@ -104,6 +106,17 @@ public MGradientBoostedTreesLearner(final GradientBoostingLearnerConfiguration c
         this(config, data, false);
     }
 
+    /**
+     * Sets whether the split search and the per-row and per-leaf computations of each iteration run in the
+     * {@link ParallelSplitSearch#getSharedPool() shared pool}, by default they do. The learned model does not depend
+     * on it.
+     *
+     * @param parallelism 2 or more for a parallel computation, 1 for a sequential computation
+     */
+    void setParallelism(final int parallelism) {
+        m_parallelism = parallelism;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -132,25 +145,38 @@ public AbstractGradientBoostingModel learn(final ExecutionMonitor exec) throws C
         }
         exec.setMessage("Learning model");
         TreeData residualData;
+        final int nrRows = actualTarget.getNrRows();
+        final ForkJoinPool pool = m_parallelism > 1 ? ParallelSplitSearch.getSharedPool() : null;
+        final ParallelSplitSearch splitSearch = new ParallelSplitSearch(pool);
+        final ParallelChunks chunks = new ParallelChunks(pool);
+        // reused by the quantile and median selections which permute their input
+        final double[] scratch = new double[nrRows];
         for (int i = 0; i < nrModels; i++) {
-            final double[] residuals = new double[actualTarget.getNrRows()];
-            for (int j = 0; j < actualTarget.getNrRows(); j++) {
-                residuals[j] = actualTarget.getValueFor(j) - previousPrediction[j];
-            }
-            final double quantile = calculateAlphaQuantile(residuals, alpha);
+            final double[] residuals = new double[nrRows];
+            chunks.forEach(nrRows, ParallelChunks.DEFAULT_CHUNK_SIZE, (from, to) -> {
+                for (int j = from; j < to; j++) {
+                    residuals[j] = actualTarget.getValueFor(j) - previousPrediction[j];
+                }
+            });
+            final double quantile = calculateAlphaQuantile(residuals, alpha, scratch);
             final double[] gradients = new double[residuals.length];
-            for (int j = 0; j < gradients.length; j++) {
-                gradients[j] = Math.abs(residuals[j]) <= quantile ? residuals[j] : quantile * Math.signum(residuals[j]);
-            }
+            chunks.forEach(nrRows, ParallelChunks.DEFAULT_CHUNK_SIZE, (from, to) -> {
+                for (int j = from; j < to; j++) {
+                    gradients[j] =
+                        Math.abs(residuals[j]) <= quantile ? residuals[j] : quantile * Math.signum(residuals[j]);
+                }
+            });
             residualData = createResidualDataFromArray(gradients, actualData);
             final RandomData rdSingle =
                 TreeEnsembleLearnerConfiguration.createRandomData(rd.nextLong(Long.MIN_VALUE, Long.MAX_VALUE));
             final RowSample rowSample = getRowSampler().createRowSample(rdSingle);
-            final TreeLearnerRegression treeLearner =
-                new TreeLearnerRegression(getConfig(), residualData, getIndexManager(), signatureFactory, rdSingle, rowSample);
+            final TreeLearnerRegression treeLearner = new TreeLearnerRegression(getConfig(), residualData,
+                getIndexManager(), signatureFactory, rdSingle, rowSample);
+            treeLearner.setParallelSplitSearch(splitSearch);
             final TreeModelRegression tree = treeLearner.learnSingleTree(exec, rdSingle);
-            final Map<TreeNodeSignature, Double> coefficientMap = calcCoefficientMap(residuals, quantile, tree);
-            adaptPreviousPrediction(previousPrediction, tree, coefficientMap);
+            final Map<TreeNodeSignature, Double> coefficientMap =
+                calcCoefficientMap(residuals, quantile, tree, chunks, scratch);
+            adaptPreviousPrediction(previousPrediction, tree, coefficientMap, chunks);
             models.add(tree);
             coefficientMaps.add(coefficientMap);
             exec.setProgress(((double)i) / nrModels, "Finished level " + i +"/" + nrModels);
@@ -162,44 +188,46 @@ public AbstractGradientBoostingModel learn(final ExecutionMonitor exec) throws C
     }
 
     private Map<TreeNodeSignature, Double> calcCoefficientMap(final double[] residuals, final double quantile,
-        final TreeModelRegression tree) {
+        final TreeModelRegression tree, final ParallelChunks chunks, final double[] scratch) {
         final List<TreeNodeRegression> leafs = tree.getLeafs();
-        final Map<TreeNodeSignature, Double> coefficientMap =
-            new HashMap<TreeNodeSignature, Double>((int)(leafs.size() / 0.75 + 1));
         final double learningRate = getConfig().getLearningRate();
-        for (TreeNodeRegression leaf : leafs) {
-            final int[] indices = leaf.getRowIndicesInTreeData();
-            final double[] values = new double[indices.length];
-            for (int i = 0; i < indices.length; i++) {
-                values[i] = residuals[indices[i]];
-            }
-            final double median = calcMedian(values);
-            double sum = 0;
-            for (int i = 0; i < values.length; i++) {
-                sum += Math.signum(values[i] - median) * Math.min(quantile, Math.abs(values[i] - median));
+        // each leaf gets its own region of the scratch buffer for the median selection
+        final int[] offsets = new int[leafs.size() + 1];
+        for (int l = 0; l < leafs.size(); l++) {
+            offsets[l + 1] = offsets[l] + leafs.get(l).getRowIndicesInTreeData().length;
+        }
+        final double[] buffer = offsets[leafs.size()] <= scratch.length ? scratch : new double[offsets[leafs.size()]];
+        // the leafs are independent of each other, so their coefficients are calculated concurrently
+        final double[] coefficients = new double[leafs.size()];
+        final int leafsPerTask = residuals.length < ParallelChunks.DEFAULT_CHUNK_SIZE ? leafs.size() : 1;
+        chunks.forEach(leafs.size(), leafsPerTask, (from, to) -> {
+            for (int l = from; l < to; l++) {
+                final int[] indices = leafs.get(l).getRowIndicesInTreeData();
+                final int offset = offsets[l];
+                for (int i = 0; i < indices.length; i++) {
+                    buffer[offset + i] = residuals[indices[i]];
+                }
+                final double median = QuantileSelection.median(buffer, offset, offset + indices.length);
+                double sum = 0;
+                for (int i = 0; i < indices.length; i++) {
+                    final double value = residuals[indices[i]];
+                    sum += Math.signum(value - median) * Math.min(quantile, Math.abs(value - median));
+                }
+                final double coefficient = median + (1.0 / indices.length) * sum;
+                coefficients[l] = coefficient * learningRate;
             }
-            final double coefficient = median + (1.0 / values.length) * sum;
-            coefficientMap.put(leaf.getSignature(), coefficient * learningRate);
+        });
+        final Map<TreeNodeSignature, Double> coefficientMap =
+            new HashMap<TreeNodeSignature, Double>((int)(leafs.size() / 0.75 + 1));
+        for (int l = 0; l < coefficients.length; l++) {
+            coefficientMap.put(leafs.get(l).getSignature(), coefficients[l]);
         }
         return coefficientMap;
     }
 
-    private static double calculateAlphaQuantile(final double[] array, final double alpha) {
-        final Integer[] idx = new Integer[array.length];
-        for (int i = 0; i < idx.length; i++) {
-            idx[i] = i;
-        }
-        Comparator<Integer> idxComp = new Comparator<Integer>() {
-
-            @Override
-            public int compare(final Integer arg0, final Integer arg1) {
-                return Doubles.compare(array[arg0], array[arg1]);
-            }
-
-        };
-        Arrays.sort(idx, idxComp);
-        final int quantileIndex = (int)(alpha * array.length);
-        return array[idx[quantileIndex]];
+    private static double calculateAlphaQuantile(final double[] array, final double alpha, final double[] scratch) {
+        System.arraycopy(array, 0, scratch, 0, array.length);
+        return QuantileSelection.quantile(scratch, 0, array.length, alpha);
     }
 
 
@@ -0,0 +1,120 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner.gradientboosting;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the per-row (or per-leaf) loops of a boosting iteration in chunks, concurrently if a pool is available. The
+ * chunks must be independent of each other, i.e. each chunk only writes to its own range of indices.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ParallelChunks {
+
+    /** Number of rows processed by a single task, smaller loops are run sequentially. */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+    /** Loop body processing the indices in [from, to). */
+    @FunctionalInterface
+    interface ChunkBody {
+        void process(int from, int to);
+    }
+
+    private final ForkJoinPool m_pool;
+
+    /**
+     * @param pool the pool to run the chunks in or null to run them sequentially
+     */
+    ParallelChunks(final ForkJoinPool pool) {
+        m_pool = pool;
+    }
+
+    /**
+     * @param length the number of indices to process
+     * @param chunkSize the maximal number of indices processed by a single task
+     * @param body the loop body
+     */
+    void forEach(final int length, final int chunkSize, final ChunkBody body) {
+        if (m_pool == null || length <= chunkSize) {
+            body.process(0, length);
+        } else {
+            m_pool.invoke(new ChunkTask(body, chunkSize, 0, length));
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ChunkBody m_body;
+
+        private final int m_chunkSize;
+
+        private final int m_from;
+
+        private final int m_to;
+
+        ChunkTask(final ChunkBody body, final int chunkSize, final int from, final int to) {
+            m_body = body;
+            m_chunkSize = chunkSize;
+            m_from = from;
+            m_to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_to - m_from <= m_chunkSize) {
+                m_body.process(m_from, m_to);
+            } else {
+                final int mid = (m_from + m_to) >>> 1;
+                invokeAll(new ChunkTask(m_body, m_chunkSize, m_from, mid),
+                    new ChunkTask(m_body, m_chunkSize, mid, m_to));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner.gradientboosting;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free computation of quantiles and medians of primitive double arrays via introselect: a quickselect with
+ * median-of-three pivots that falls back to sorting the remaining range if the partitioning degenerates, hence it
+ * runs in expected linear and worst case O(n log n) time. Values are ordered as by {@link Double#compare}, i.e. the
+ * results are the same as when sorting the array. The selection permutes the examined range of the array.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class QuantileSelection {
+
+    private QuantileSelection() {
+    }
+
+    /**
+     * @param values the array, the range [from, to) is permuted
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (exclusive)
+     * @param alpha the quantile in [0, 1]
+     * @return the value at position <code>(int)(alpha * n)</code> (n being the length of the range) of the sorted range
+     */
+    static double quantile(final double[] values, final int from, final int to, final double alpha) {
+        final int n = to - from;
+        return select(values, from, to, from + Math.min((int)(alpha * n), n - 1));
+    }
+
+    /**
+     * @param values the array, the range [from, to) is permuted
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (exclusive)
+     * @return the median of the range (the mean of the two middle values if the range has even length)
+     */
+    static double median(final double[] values, final int from, final int to) {
+        final int n = to - from;
+        final int k = from + n / 2;
+        final double upper = select(values, from, to, k);
+        if (n % 2 == 1) {
+            return upper;
+        }
+        // after the selection all values in [from, k) are smaller or equal, the lower middle value is their maximum
+        double lower = values[from];
+        for (int i = from + 1; i < k; i++) {
+            if (less(lower, values[i])) {
+                lower = values[i];
+            }
+        }
+        return (lower + upper) / 2;
+    }
+
+    /**
+     * Rearranges the range [from, to) such that position <b>k</b> holds the value it would hold if the range was sorted,
+     * all values before it are smaller or equal and all values after it are greater or equal.
+     *
+     * @param values the array
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (exclusive)
+     * @param k the position to select, from &lt;= k &lt; to
+     * @return the value at position <b>k</b>
+     */
+    static double select(final double[] values, final int from, final int to, final int k) {
+        if (k < from || k >= to) {
+            throw new IllegalArgumentException("Position " + k + " not in range [" + from + ", " + to + ")");
+        }
+        int lo = from;
+        int hi = to - 1;
+        int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+        while (lo < hi) {
+            if (depthLimit-- == 0) {
+                Arrays.sort(values, lo, hi + 1);
+                return values[k];
+            }
+            final int mid = (lo + hi) >>> 1;
+            // median of three, also serves as sentinels for the partitioning
+            if (less(values[mid], values[lo])) {
+                swap(values, lo, mid);
+            }
+            if (less(values[hi], values[lo])) {
+                swap(values, lo, hi);
+            }
+            if (less(values[hi], values[mid])) {
+                swap(values, mid, hi);
+            }
+            final double pivot = values[mid];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (less(values[i], pivot)) {
+                    i++;
+                }
+                while (less(pivot, values[j])) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(values, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // [lo, j] <= pivot, (j, i) == pivot, [i, hi] >= pivot
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return values[k];
+            }
+        }
+        return values[k];
+    }
+
+    private static boolean less(final double a, final double b) {
+        return Double.compare(a, b) < 0;
+    }
+
+    private static void swap(final double[] values, final int i, final int j) {
+        final double tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+
+}
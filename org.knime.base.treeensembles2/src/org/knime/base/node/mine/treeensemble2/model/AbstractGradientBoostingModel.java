@@ -50,6 +50,9 @@
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
@@ -108,6 +111,93 @@ public double getInitialValue() {
         return m_initialValue;
     }
 
+    /**
+     * Indexes the leafs of <b>tree</b> and arranges their coefficients in an array indexed by the leaf index, so that
+     * predictions don't need to look up the signatures of the matching leafs. Leafs without coefficient get NaN.
+     *
+     * @param tree the tree the coefficients belong to
+     * @param coefficientMap the coefficients of the leafs of <b>tree</b> keyed by their signatures
+     * @return the coefficients indexed by {@link TreeNodeRegression#getLeafIndex()}
+     */
+    static double[] toCoefficientArray(final TreeModelRegression tree,
+        final Map<TreeNodeSignature, Double> coefficientMap) {
+        final List<TreeNodeRegression> leafs = tree.indexLeafs();
+        final double[] coefficients = new double[leafs.size()];
+        for (int i = 0; i < coefficients.length; i++) {
+            final Double coefficient = coefficientMap.get(leafs.get(i).getSignature());
+            coefficients[i] = coefficient == null ? Double.NaN : coefficient;
+        }
+        return coefficients;
+    }
+
+    /**
+     * Inverse of {@link #toCoefficientArray(TreeModelRegression, Map)}.
+     *
+     * @param tree a tree whose leafs are indexed
+     * @param coefficients the coefficients indexed by leaf index
+     * @return the coefficients keyed by the signatures of the leafs
+     */
+    static Map<TreeNodeSignature, Double> toCoefficientMap(final TreeModelRegression tree,
+        final double[] coefficients) {
+        final Map<TreeNodeSignature, Double> coefficientMap =
+            new HashMap<TreeNodeSignature, Double>((int)(coefficients.length / 0.75 + 1));
+        collectCoefficients(tree.getRootNode(), coefficients, coefficientMap);
+        return coefficientMap;
+    }
+
+    private static void collectCoefficients(final TreeNodeRegression node, final double[] coefficients,
+        final Map<TreeNodeSignature, Double> coefficientMap) {
+        final int nrChildren = node.getNrChildren();
+        if (nrChildren == 0) {
+            final double coefficient = coefficients[node.getLeafIndex()];
+            if (!Double.isNaN(coefficient)) {
+                coefficientMap.put(node.getSignature(), coefficient);
+            }
+        }
+        for (int i = 0; i < nrChildren; i++) {
+            collectCoefficients(node.getChild(i), coefficients, coefficientMap);
+        }
+    }
+
+    /**
+     * Writes the coefficients of a tree in the format of a signature to coefficient map.
+     *
+     * @param tree a tree whose leafs are indexed
+     * @param coefficients the coefficients indexed by leaf index
+     * @param dataOutput the output to write to
+     * @throws IOException if writing fails
+     */
+    static void saveCoefficients(final TreeModelRegression tree, final double[] coefficients,
+        final DataOutputStream dataOutput) throws IOException {
+        final Map<TreeNodeSignature, Double> coefficientMap = toCoefficientMap(tree, coefficients);
+        dataOutput.writeInt(coefficientMap.size());
+        for (Map.Entry<TreeNodeSignature, Double> entry : coefficientMap.entrySet()) {
+            entry.getKey().save(dataOutput);
+            dataOutput.writeDouble(entry.getValue());
+        }
+    }
+
+    /**
+     * Reads the coefficients written by {@link #saveCoefficients(TreeModelRegression, double[], DataOutputStream)}
+     * (or older versions that stored the signature to coefficient maps directly).
+     *
+     * @param tree the tree the coefficients belong to, its leafs are indexed
+     * @param input the input to read from
+     * @return the coefficients indexed by leaf index
+     * @throws IOException if reading fails
+     */
+    static double[] loadCoefficients(final TreeModelRegression tree, final TreeModelDataInputStream input)
+        throws IOException {
+        final int mapSize = input.readInt();
+        final Map<TreeNodeSignature, Double> coefficientMap =
+            new HashMap<TreeNodeSignature, Double>((int)(mapSize / 0.75 + 1));
+        for (int j = 0; j < mapSize; j++) {
+            final TreeNodeSignature key = TreeNodeSignature.load(input);
+            coefficientMap.put(key, input.readDouble());
+        }
+        return toCoefficientArray(tree, coefficientMap);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -50,10 +50,8 @@
 
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
-import org.knime.base.node.mine.treeensemble2.data.NominalValueRepresentation;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeBitColumnMetaData;
 import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
@@ -147,22 +145,44 @@ public TreeType getType() {
         return m_type;
     }
 
+    /**
+     * Converts a row of the (filtered) input table into a record that can be passed to the trees of this model.
+     *
+     * @param filterRow the row containing only the learning columns
+     * @param learnSpec the spec of the learning columns
+     * @return a new record or <code>null</code> if the row contains a missing vector cell
+     */
     public PredictorRecord createPredictorRecord(final DataRow filterRow, final DataTableSpec learnSpec) {
+        return createPredictorRecord(filterRow, learnSpec, new IndexedPredictorRecord(m_metaData));
+    }
+
+    /**
+     * Same as {@link #createPredictorRecord(DataRow, DataTableSpec)} but refills the given record instead of
+     * creating a new one. Values of a previous row are overwritten.
+     *
+     * @param filterRow the row containing only the learning columns
+     * @param learnSpec the spec of the learning columns
+     * @param record the record to fill, created for the meta data of this model
+     * @return <b>record</b> or <code>null</code> if the row contains a missing vector cell
+     */
+    public IndexedPredictorRecord createPredictorRecord(final DataRow filterRow, final DataTableSpec learnSpec,
+        final IndexedPredictorRecord record) {
         switch (m_type) {
             case Ordinary:
-                return createNominalNumericPredictorRecord(filterRow, learnSpec);
+                return fillNominalNumericPredictorRecord(filterRow, learnSpec, record);
             case BitVector:
-                return createBitVectorPredictorRecord(filterRow);
+                return fillBitVectorPredictorRecord(filterRow, record);
             case ByteVector:
-                return createByteVectorPredictorRecord(filterRow);
+                return fillByteVectorPredictorRecord(filterRow, record);
             case DoubleVector:
-                return createDoubleVectorPredictorRecord(filterRow);
+                return fillDoubleVectorPredictorRecord(filterRow, record);
             default:
                 throw new IllegalStateException("Unknown tree type " + "(not implemented): " + m_type);
         }
     }
 
-    private PredictorRecord createDoubleVectorPredictorRecord(final DataRow filterRow) {
+    private IndexedPredictorRecord fillDoubleVectorPredictorRecord(final DataRow filterRow,
+        final IndexedPredictorRecord record) {
         assert filterRow.getNumCells() == 1 : "Expected one cell as double vector data";
         final DataCell c = filterRow.getCell(0);
         if (c.isMissing()) {
@@ -174,21 +194,20 @@ private PredictorRecord createDoubleVectorPredictorRecord(final DataRow filterRo
             throw new IllegalArgumentException("The double-vector in " + filterRow.getKey().getString()
                 + " has the wrong length. (" + length + " instead of " + getMetaData().getNrAttributes() + ")");
         }
-        final Map<String, Object> valueMap = new LinkedHashMap<String, Object>((int)(length / 0.75 + 1.0));
         for (int i = 0; i < length; i++) {
             double val = dv.getValue(i);
-            String attributeName = TreeNumericColumnMetaData.getAttributeNameDouble(i);
             if (Double.isNaN(val)) {
                 // treat NaNs as missing values
-                valueMap.put(attributeName, PredictorRecord.NULL);
+                record.setMissing(i);
             } else {
-                valueMap.put(attributeName, Double.valueOf(val));
+                record.setNumericValue(i, val);
             }
         }
-        return new PredictorRecord(valueMap);
+        return record;
     }
 
-    private PredictorRecord createByteVectorPredictorRecord(final DataRow filterRow) {
+    private IndexedPredictorRecord fillByteVectorPredictorRecord(final DataRow filterRow,
+        final IndexedPredictorRecord record) {
         assert filterRow.getNumCells() == 1 : "Expected one cell as byte vector data";
         DataCell c = filterRow.getCell(0);
         if (c.isMissing()) {
@@ -200,14 +219,14 @@ private PredictorRecord createByteVectorPredictorRecord(final DataRow filterRow)
             throw new IllegalArgumentException("The byte-vector in " + filterRow.getKey().getString()
                 + " has the wrong length. (" + length + " instead of " + getMetaData().getNrAttributes() + ")");
         }
-        Map<String, Object> valueMap = new LinkedHashMap<String, Object>((int)(length / 0.75 + 1.0));
         for (int i = 0; i < length; i++) {
-            valueMap.put(TreeNumericColumnMetaData.getAttributeNameByte(i), Integer.valueOf(bv.get(i)));
+            record.setNumericValue(i, bv.get(i));
         }
-        return new PredictorRecord(valueMap);
+        return record;
     }
 
-    private PredictorRecord createBitVectorPredictorRecord(final DataRow filterRow) {
+    private IndexedPredictorRecord fillBitVectorPredictorRecord(final DataRow filterRow,
+        final IndexedPredictorRecord record) {
         assert filterRow.getNumCells() == 1 : "Expected one cell as bit vector data";
         DataCell c = filterRow.getCell(0);
         if (c.isMissing()) {
@@ -219,58 +238,46 @@ private PredictorRecord createBitVectorPredictorRecord(final DataRow filterRow)
             throw new IllegalArgumentException("The bit-vector in " + filterRow.getKey().getString()
                 + " has the wrong length. (" + length + " instead of " + getMetaData().getNrAttributes() + ")");
         }
-        Map<String, Object> valueMap = new LinkedHashMap<String, Object>((int)(length / 0.75 + 1.0));
         for (int i = 0; i < length; i++) {
-            valueMap.put(TreeBitColumnMetaData.getAttributeName(i), Boolean.valueOf(bv.get(i)));
+            record.setBitValue(i, bv.get(i));
         }
-        return new PredictorRecord(valueMap);
+        return record;
     }
 
-    private PredictorRecord createNominalNumericPredictorRecord(final DataRow filterRow,
-        final DataTableSpec trainSpec) {
+    private IndexedPredictorRecord fillNominalNumericPredictorRecord(final DataRow filterRow,
+        final DataTableSpec trainSpec, final IndexedPredictorRecord record) {
         final int nrCols = trainSpec.getNumColumns();
-        Map<String, Object> valueMap = new LinkedHashMap<String, Object>((int)(nrCols / 0.75 + 1.0));
         for (int i = 0; i < nrCols; i++) {
             DataColumnSpec col = trainSpec.getColumnSpec(i);
-            String colName = col.getName();
             DataType colType = col.getType();
             DataCell cell = filterRow.getCell(i);
             if (cell.isMissing()) {
-                valueMap.put(colName, PredictorRecord.NULL);
+                record.setMissing(i);
             } else if (colType.isCompatible(NominalValue.class)) {
                 TreeNominalColumnMetaData nomColMeta = (TreeNominalColumnMetaData)m_metaData.getAttributeMetaData(i);
-                NominalValueRepresentation[] nomVals = nomColMeta.getValues();
-                int assignedInteger = -1;
-                String val = cell.toString();
-                // find assignedInteger of value
-                for (NominalValueRepresentation nomVal : nomVals) {
-                    if (nomVal.getNominalValue().equals(val)) {
-                        assignedInteger = nomVal.getAssignedInteger();
-                        break;
-                    }
-                }
+                int assignedInteger = nomColMeta.getAssignedInteger(cell.toString());
                 // the value is not known to the model
                 if (assignedInteger == -1) {
                     // treat as missing value
-                    valueMap.put(colName, PredictorRecord.NULL);
+                    record.setMissing(i);
                 } else {
-                    valueMap.put(colName, Integer.valueOf(assignedInteger));
+                    record.setNominalValue(i, assignedInteger);
                 }
             } else if (colType.isCompatible(DoubleValue.class)) {
                 double val = ((DoubleValue)cell).getDoubleValue();
                 if (Double.isNaN(val)) {
                     // make sure that NaNs are treated as missing values
                     // bug AP-7169
-                    valueMap.put(colName, PredictorRecord.NULL);
+                    record.setMissing(i);
                 } else {
-                    valueMap.put(colName, val);
+                    record.setNumericValue(i, val);
                 }
             } else {
-                throw new IllegalStateException("Expected nominal or numeric column type for column \"" + colName
-                    + "\" but got \"" + colType + "\"");
+                throw new IllegalStateException("Expected nominal or numeric column type for column \""
+                    + col.getName() + "\" but got \"" + colType + "\"");
             }
         }
-        return new PredictorRecord(valueMap);
+        return record;
     }
 
     /**
@@ -54,6 +54,7 @@
 import org.knime.base.node.mine.decisiontree2.PMMLCompoundPredicate;
 import org.knime.base.node.mine.decisiontree2.PMMLFalsePredicate;
 import org.knime.base.node.mine.decisiontree2.PMMLTruePredicate;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
 
@@ -87,6 +88,16 @@ public AbstractTreeNodeSurrogateCondition(final TreeModelDataInputStream input,
     @Override
     public boolean testCondition(final PredictorRecord record) {
         final int numSurrogates = getNumSurrogates();
+        if (record instanceof IndexedPredictorRecord) {
+            final IndexedPredictorRecord indexedRecord = (IndexedPredictorRecord)record;
+            for (int i = 0; i < numSurrogates + 1; i++) {
+                TreeNodeColumnCondition columnCondition = getColumnCondition(i);
+                if (!indexedRecord.isMissing(columnCondition.getColumnMetaData().getAttributeIndex())) {
+                    return columnCondition.testCondition(record);
+                }
+            }
+            return m_defaultResponse;
+        }
         for (int i = 0; i < numSurrogates + 1; i++) {
             // evaluate column condition
             TreeNodeColumnCondition columnCondition = getColumnCondition(i);
@@ -99,6 +110,13 @@ public boolean testCondition(final PredictorRecord record) {
         return m_defaultResponse;
     }
 
+    /**
+     * @return the response if the values of all column conditions are missing
+     */
+    boolean getDefaultResponse() {
+        return m_defaultResponse;
+    }
+
     /**
      * @return the first condition (corresponding to the best split determined during training)
      */
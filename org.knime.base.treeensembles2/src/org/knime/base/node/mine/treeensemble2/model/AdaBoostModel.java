@@ -0,0 +1,124 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+
+/**
+ * A classification ensemble learned with AdaBoost (SAMME). Each tree votes for the majority class of the leaf a row
+ * falls into, the votes are weighted by the {@link #getModelWeight(int) weight} of the tree.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class AdaBoostModel extends TreeEnsembleModel {
+
+    private double[] m_modelWeights;
+
+    /**
+     * @param config the configuration the trees were learned with
+     * @param metaData the meta data of the training data
+     * @param models the classification trees
+     * @param treeType the type of the trees
+     * @param modelWeights the weight of each tree
+     */
+    public AdaBoostModel(final TreeEnsembleLearnerConfiguration config, final TreeMetaData metaData,
+        final TreeModelClassification[] models, final TreeType treeType, final double[] modelWeights) {
+        super(config, metaData, models, treeType);
+        if (modelWeights.length != models.length) {
+            throw new IllegalArgumentException(
+                "Number of model weights (" + modelWeights.length + ") differs from number of trees ("
+                    + models.length + ")");
+        }
+        m_modelWeights = modelWeights;
+    }
+
+    /**
+     * @param metaData
+     * @param models
+     * @param type
+     * @param containsClassDistribution
+     */
+    protected AdaBoostModel(final TreeMetaData metaData, final AbstractTreeModel[] models, final TreeType type,
+        final boolean containsClassDistribution) {
+        super(metaData, models, type, containsClassDistribution);
+    }
+
+    /**
+     * @param index the index of the tree
+     * @return the weight of the tree's vote
+     */
+    public double getModelWeight(final int index) {
+        return m_modelWeights[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void saveData(final DataOutputStream dataOutput) throws IOException {
+        super.saveData(dataOutput);
+        dataOutput.writeInt(m_modelWeights.length);
+        for (double weight : m_modelWeights) {
+            dataOutput.writeDouble(weight);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void loadData(final TreeModelDataInputStream input) throws IOException {
+        super.loadData(input);
+        m_modelWeights = new double[input.readInt()];
+        for (int i = 0; i < m_modelWeights.length; i++) {
+            m_modelWeights[i] = input.readDouble();
+        }
+    }
+
+}
@@ -0,0 +1,603 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeNominalBinaryCondition.SetLogic;
+
+/**
+ * Flat array representation of the trees of a {@link TreeEnsembleModel} used to speed up predictions. The nodes of all
+ * trees are stored in breadth-first order such that the children of a node are contiguous, and the conditions of the
+ * nodes are stored in primitive arrays. A record is converted once into a {@link Row} holding the values of all
+ * attributes used by the trees, which avoids the attribute name lookups and unboxing that {@link PredictorRecord}
+ * requires for every evaluated condition. The matching nodes are the same objects
+ * {@link AbstractTreeModel#findMatchingNode(PredictorRecord)} returns, hence predictions are identical.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class CompiledTreeEnsemble {
+
+    private static final byte LESS_THAN_OR_EQUAL = 0;
+
+    private static final byte LARGER_THAN = 1;
+
+    private static final byte LESS_THAN_OR_EQUAL_OR_NAN = 2;
+
+    private static final byte LARGER_THAN_OR_NAN = 3;
+
+    private static final byte EQUAL = 4;
+
+    private static final byte IS_IN = 5;
+
+    private static final byte IS_NOT_IN = 6;
+
+    /** Index of the root node of each tree. */
+    private final int[] m_treeRoots;
+
+    /** Children of node i are the nodes [m_childStart[i], m_childEnd[i]). */
+    private final int[] m_childStart;
+
+    private final int[] m_childEnd;
+
+    /** The parent of node i, -1 for the roots. */
+    private final int[] m_parent;
+
+    /**
+     * The condition of node i (tested when deciding whether to descend into it) consists of the column conditions
+     * [m_conditionStart[i], m_conditionStart[i + 1]), the first one whose attribute is not missing decides. If all of
+     * them are missing, m_defaultResponse[i] is the result.
+     */
+    private final int[] m_conditionStart;
+
+    private final boolean[] m_defaultResponse;
+
+    /**
+     * Whether the condition of node i is a bit condition (not a surrogate), which like
+     * {@link TreeNodeBitCondition#testCondition(PredictorRecord)} fails if the bit is missing.
+     */
+    private final boolean[] m_failsOnMissing;
+
+    private final byte[] m_conditionType;
+
+    private final int[] m_conditionAttribute;
+
+    /** Split value for numeric conditions, the value index (or 0/1 for bits) for equality conditions. */
+    private final double[] m_conditionValue;
+
+    /** The value mask of nominal binary condition c is stored in the words [m_maskStart[c], m_maskStart[c + 1]). */
+    private final int[] m_maskStart;
+
+    private final long[] m_masks;
+
+    private final AbstractTreeNode[] m_nodes;
+
+    private final int[] m_attributeIndices;
+
+    private final String[] m_attributeNames;
+
+    /** Whether the used attribute is numeric (otherwise it's nominal or a bit), parallel to m_attributeIndices. */
+    private final boolean[] m_attributeIsNumeric;
+
+    private final int m_nrAttributes;
+
+    private CompiledTreeEnsemble(final TreeEnsembleModel model) {
+        final int nrTrees = model.getNrModels();
+        m_treeRoots = new int[nrTrees];
+        final List<AbstractTreeNode> nodes = new ArrayList<AbstractTreeNode>();
+        for (int t = 0; t < nrTrees; t++) {
+            final int root = nodes.size();
+            m_treeRoots[t] = root;
+            nodes.add(model.getTreeModel(t).getRootNode());
+            for (int i = root; i < nodes.size(); i++) {
+                final AbstractTreeNode node = nodes.get(i);
+                for (int c = 0; c < node.getNrChildren(); c++) {
+                    nodes.add(node.getChild(c));
+                }
+            }
+        }
+        final int nrNodes = nodes.size();
+        m_nodes = nodes.toArray(new AbstractTreeNode[nrNodes]);
+        m_childStart = new int[nrNodes];
+        m_childEnd = new int[nrNodes];
+        m_parent = new int[nrNodes];
+        m_conditionStart = new int[nrNodes + 1];
+        m_defaultResponse = new boolean[nrNodes];
+        m_failsOnMissing = new boolean[nrNodes];
+        final List<TreeNodeColumnCondition> columnConditions = new ArrayList<TreeNodeColumnCondition>();
+        int nextChild = 0;
+        for (int i = 0; i < nrNodes; i++) {
+            final AbstractTreeNode node = m_nodes[i];
+            if (Arrays.binarySearch(m_treeRoots, i) >= 0) {
+                nextChild = i + 1;
+            }
+            m_childStart[i] = nextChild;
+            nextChild += node.getNrChildren();
+            m_childEnd[i] = nextChild;
+            if (Arrays.binarySearch(m_treeRoots, i) >= 0) {
+                m_parent[i] = -1;
+            }
+            for (int c = m_childStart[i]; c < m_childEnd[i]; c++) {
+                m_parent[c] = i;
+            }
+            m_defaultResponse[i] = addConditions(node.getCondition(), columnConditions);
+            m_failsOnMissing[i] = node.getCondition() instanceof TreeNodeBitCondition;
+            m_conditionStart[i + 1] = columnConditions.size();
+        }
+
+        final int nrConditions = columnConditions.size();
+        m_conditionType = new byte[nrConditions];
+        m_conditionAttribute = new int[nrConditions];
+        m_conditionValue = new double[nrConditions];
+        m_maskStart = new int[nrConditions + 1];
+        final List<long[]> masks = new ArrayList<long[]>();
+        final String[] names = new String[model.getMetaData().getNrAttributes()];
+        for (int c = 0; c < nrConditions; c++) {
+            final TreeNodeColumnCondition condition = columnConditions.get(c);
+            final int attribute = condition.getColumnMetaData().getAttributeIndex();
+            m_conditionAttribute[c] = attribute;
+            names[attribute] = condition.getAttributeName();
+            long[] mask = null;
+            if (condition instanceof TreeNodeNumericCondition) {
+                final TreeNodeNumericCondition numCondition = (TreeNodeNumericCondition)condition;
+                m_conditionType[c] = toConditionType(numCondition.getNumericOperator());
+                m_conditionValue[c] = numCondition.getSplitValue();
+            } else if (condition instanceof TreeNodeNominalCondition) {
+                m_conditionType[c] = EQUAL;
+                m_conditionValue[c] = ((TreeNodeNominalCondition)condition).getValueIndex();
+            } else if (condition instanceof TreeNodeBitCondition) {
+                m_conditionType[c] = EQUAL;
+                m_conditionValue[c] = ((TreeNodeBitCondition)condition).getValue() ? 1 : 0;
+            } else if (condition instanceof TreeNodeNominalBinaryCondition) {
+                final TreeNodeNominalBinaryCondition binCondition = (TreeNodeNominalBinaryCondition)condition;
+                m_conditionType[c] = binCondition.getSetLogic() == SetLogic.IS_IN ? IS_IN : IS_NOT_IN;
+                mask = toWords(binCondition.getValuesMask());
+            } else {
+                throw new IllegalArgumentException(
+                    "Unsupported condition type: " + condition.getClass().getSimpleName());
+            }
+            masks.add(mask);
+            m_maskStart[c + 1] = m_maskStart[c] + (mask == null ? 0 : mask.length);
+        }
+        m_masks = new long[m_maskStart[nrConditions]];
+        for (int c = 0; c < nrConditions; c++) {
+            final long[] mask = masks.get(c);
+            if (mask != null) {
+                System.arraycopy(mask, 0, m_masks, m_maskStart[c], mask.length);
+            }
+        }
+
+        int nrUsedAttributes = 0;
+        for (final String name : names) {
+            nrUsedAttributes += name == null ? 0 : 1;
+        }
+        m_attributeIndices = new int[nrUsedAttributes];
+        m_attributeNames = new String[nrUsedAttributes];
+        m_attributeIsNumeric = new boolean[nrUsedAttributes];
+        final TreeMetaData metaData = model.getMetaData();
+        for (int a = 0, u = 0; a < names.length; a++) {
+            if (names[a] != null) {
+                m_attributeIndices[u] = a;
+                m_attributeNames[u] = names[a];
+                m_attributeIsNumeric[u] = metaData.getAttributeMetaData(a) instanceof TreeNumericColumnMetaData;
+                u++;
+            }
+        }
+        m_nrAttributes = names.length;
+    }
+
+    /**
+     * Compiles the trees of <b>model</b>.
+     *
+     * @param model the ensemble to compile
+     * @return the compiled representation of <b>model</b>
+     * @throws IllegalArgumentException if a tree contains a condition that can't be compiled
+     */
+    public static CompiledTreeEnsemble compile(final TreeEnsembleModel model) {
+        return new CompiledTreeEnsemble(model);
+    }
+
+    /**
+     * Appends the column conditions of <b>condition</b> to <b>columnConditions</b>.
+     *
+     * @return the response if the values of all appended conditions are missing
+     */
+    private static boolean addConditions(final TreeNodeCondition condition,
+        final List<TreeNodeColumnCondition> columnConditions) {
+        if (condition == null || condition instanceof TreeNodeTrueCondition) {
+            // root nodes, never tested
+            return true;
+        } else if (condition instanceof TreeNodeColumnCondition) {
+            final TreeNodeColumnCondition columnCondition = (TreeNodeColumnCondition)condition;
+            columnConditions.add(columnCondition);
+            return columnCondition.acceptsMissings();
+        } else if (condition instanceof AbstractTreeNodeSurrogateCondition) {
+            final AbstractTreeNodeSurrogateCondition surrogateCondition =
+                (AbstractTreeNodeSurrogateCondition)condition;
+            for (int i = 0; i < surrogateCondition.getNumSurrogates() + 1; i++) {
+                columnConditions.add(surrogateCondition.getColumnCondition(i));
+            }
+            return surrogateCondition.getDefaultResponse();
+        }
+        throw new IllegalArgumentException("Unsupported condition type: " + condition.getClass().getSimpleName());
+    }
+
+    private static byte toConditionType(final TreeNodeNumericCondition.NumericOperator operator) {
+        switch (operator) {
+            case LessThanOrEqual:
+                return LESS_THAN_OR_EQUAL;
+            case LargerThan:
+                return LARGER_THAN;
+            case LessThanOrEqualOrMissing:
+                return LESS_THAN_OR_EQUAL_OR_NAN;
+            case LargerThanOrMissing:
+                return LARGER_THAN_OR_NAN;
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+    }
+
+    private static long[] toWords(final BigInteger mask) {
+        final long[] words = new long[(mask.bitLength() + 63) / 64];
+        for (int w = 0; w < words.length; w++) {
+            words[w] = mask.shiftRight(64 * w).longValue();
+        }
+        return words;
+    }
+
+    /**
+     * @return the number of compiled trees
+     */
+    public int getNrTrees() {
+        return m_treeRoots.length;
+    }
+
+    /**
+     * @return a new row that can be reused for all predictions done by one thread
+     */
+    public Row createRow() {
+        return new Row();
+    }
+
+    /**
+     * @param capacity the maximal number of rows in the block
+     * @return a new block that can be reused for all predictions done by one thread
+     */
+    public Block createBlock(final int capacity) {
+        return new Block(capacity);
+    }
+
+    /**
+     * Finds the node of tree <b>treeIndex</b> that matches <b>row</b>, which is the same node as
+     * {@link AbstractTreeModel#findMatchingNode(PredictorRecord)} returns for the record <b>row</b> was loaded from.
+     *
+     * @param treeIndex the index of the tree
+     * @param row the values of the record
+     * @return the matching node
+     */
+    @SuppressWarnings("unchecked")
+    public <N extends AbstractTreeNode> N findMatchingNode(final int treeIndex, final Row row) {
+        return (N)m_nodes[findMatchingNodeIndex(treeIndex, row)];
+    }
+
+    /**
+     * Finds the matching node of every tree for <b>row</b> and stores its index. Node indices are unique within the
+     * ensemble, two rows end up in the same node of tree t if and only if their indices at t are equal.
+     *
+     * @param row the values of the record
+     * @param matches array to store the index of the matching node of tree t at index t, length at least
+     *            {@link #getNrTrees()}
+     */
+    public void findMatchingNodeIndices(final Row row, final int[] matches) {
+        for (int t = 0; t < m_treeRoots.length; t++) {
+            matches[t] = findMatchingNodeIndex(t, row);
+        }
+    }
+
+    private int findMatchingNodeIndex(final int treeIndex, final Row row) {
+        int node = m_treeRoots[treeIndex];
+        int child = m_childStart[node];
+        while (child < m_childEnd[node]) {
+            if (testCondition(child, row)) {
+                node = child;
+                child = m_childStart[node];
+            } else {
+                child++;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Finds the matching node of tree <b>treeIndex</b> for each row of <b>block</b>. Evaluating one tree for all rows
+     * of a block before moving on to the next tree keeps the nodes of the tree in the cache.
+     *
+     * @param treeIndex the index of the tree
+     * @param block the values of the records
+     * @param matches array to store the matching node of row r at index r, length at least {@link Block#getSize()}
+     */
+    @SuppressWarnings("unchecked")
+    public <N extends AbstractTreeNode> void findMatchingNodes(final int treeIndex, final Block block,
+        final N[] matches) {
+        for (int r = 0; r < block.m_size; r++) {
+            matches[r] = (N)m_nodes[findMatchingNodeIndex(treeIndex, block, r)];
+        }
+    }
+
+    /**
+     * Same as {@link #findMatchingNodes(int, Block, AbstractTreeNode[])} but stores the index of the matching node
+     * instead of the node. Node indices are unique within the ensemble, hence two rows end up in the same node of a
+     * tree if and only if they have the same index.
+     *
+     * @param treeIndex the index of the tree
+     * @param block the values of the records
+     * @param matches array to store the index of the matching node of row r at index <b>offset</b> + r
+     * @param offset the position in <b>matches</b> of the first row of the block
+     */
+    public void findMatchingNodeIndices(final int treeIndex, final Block block, final int[] matches,
+        final int offset) {
+        for (int r = 0; r < block.m_size; r++) {
+            matches[offset + r] = findMatchingNodeIndex(treeIndex, block, r);
+        }
+    }
+
+    /**
+     * @param nodeIndex the index of a node as returned by {@link #findMatchingNodeIndices(int, Block, int[], int)}
+     * @return the position of each node on the path from the root to the node among the children of its parent, i.e.
+     *         the path {@link AbstractTreeModel#getTreePath(PredictorRecord)} returns for a record matching the node
+     */
+    public int[] getPath(final int nodeIndex) {
+        int depth = 0;
+        for (int node = nodeIndex; m_parent[node] >= 0; node = m_parent[node]) {
+            depth++;
+        }
+        final int[] path = new int[depth];
+        for (int node = nodeIndex; m_parent[node] >= 0; node = m_parent[node]) {
+            path[--depth] = node - m_childStart[m_parent[node]];
+        }
+        return path;
+    }
+
+    private int findMatchingNodeIndex(final int treeIndex, final Block block, final int r) {
+        int node = m_treeRoots[treeIndex];
+        int child = m_childStart[node];
+        while (child < m_childEnd[node]) {
+            if (testCondition(child, block, r)) {
+                node = child;
+                child = m_childStart[node];
+            } else {
+                child++;
+            }
+        }
+        return node;
+    }
+
+    private boolean testCondition(final int node, final Block block, final int r) {
+        final int end = m_conditionStart[node + 1];
+        for (int c = m_conditionStart[node]; c < end; c++) {
+            final int attribute = m_conditionAttribute[c];
+            if (!block.m_missing[attribute][r]) {
+                return testColumnCondition(c, block.m_values[attribute][r]);
+            }
+        }
+        return getDefaultResponse(node);
+    }
+
+    private boolean testCondition(final int node, final Row row) {
+        final int end = m_conditionStart[node + 1];
+        for (int c = m_conditionStart[node]; c < end; c++) {
+            final int attribute = m_conditionAttribute[c];
+            if (!row.m_missing[attribute]) {
+                return testColumnCondition(c, row.m_values[attribute]);
+            }
+        }
+        return getDefaultResponse(node);
+    }
+
+    private boolean getDefaultResponse(final int node) {
+        if (m_failsOnMissing[node]) {
+            throw new UnsupportedOperationException("Missing values currently not supported for bitvectors");
+        }
+        return m_defaultResponse[node];
+    }
+
+    private boolean testColumnCondition(final int c, final double value) {
+        switch (m_conditionType[c]) {
+            case LESS_THAN_OR_EQUAL:
+                return value <= m_conditionValue[c];
+            case LARGER_THAN:
+                return value > m_conditionValue[c];
+            case LESS_THAN_OR_EQUAL_OR_NAN:
+                return Double.isNaN(value) || value <= m_conditionValue[c];
+            case LARGER_THAN_OR_NAN:
+                return Double.isNaN(value) || value > m_conditionValue[c];
+            case EQUAL:
+                return value == m_conditionValue[c];
+            case IS_IN:
+                return isInMask(c, (int)value);
+            case IS_NOT_IN:
+                return !isInMask(c, (int)value);
+            default:
+                throw new IllegalStateException("Unknown condition type: " + m_conditionType[c]);
+        }
+    }
+
+    private boolean isInMask(final int c, final int valueIndex) {
+        if (valueIndex < 0) {
+            return false;
+        }
+        final int word = m_maskStart[c] + (valueIndex >>> 6);
+        return word < m_maskStart[c + 1] && (m_masks[word] & (1L << valueIndex)) != 0;
+    }
+
+    /**
+     * The values of the attributes of one record that are used by the compiled trees. Not thread-safe, each thread
+     * should use its own row.
+     */
+    public final class Row {
+
+        private final double[] m_values = new double[m_nrAttributes];
+
+        private final boolean[] m_missing = new boolean[m_nrAttributes];
+
+        private Row() {
+        }
+
+        /**
+         * Loads the values of <b>record</b>, numeric values are stored as is, nominal values by their index and bits
+         * as 0 or 1.
+         *
+         * @param record the record to load
+         * @return this row
+         */
+        public Row load(final PredictorRecord record) {
+            if (record instanceof IndexedPredictorRecord) {
+                return load((IndexedPredictorRecord)record);
+            }
+            for (int i = 0; i < m_attributeIndices.length; i++) {
+                final int attribute = m_attributeIndices[i];
+                final Object value = record.getValue(m_attributeNames[i]);
+                m_missing[attribute] = value == null;
+                if (value instanceof Number) {
+                    m_values[attribute] = ((Number)value).doubleValue();
+                } else if (value instanceof Boolean) {
+                    m_values[attribute] = ((Boolean)value).booleanValue() ? 1 : 0;
+                }
+            }
+            return this;
+        }
+
+        private Row load(final IndexedPredictorRecord record) {
+            for (int i = 0; i < m_attributeIndices.length; i++) {
+                final int attribute = m_attributeIndices[i];
+                m_missing[attribute] = record.isMissing(attribute);
+                m_values[attribute] = m_attributeIsNumeric[i] ? record.getNumericValue(attribute)
+                    : record.getNominalValue(attribute);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * The values of a block of records in columnar layout, i.e. one array per attribute used by the compiled trees.
+     * Not thread-safe, each thread should use its own block.
+     */
+    public final class Block {
+
+        private final double[][] m_values = new double[m_nrAttributes][];
+
+        private final boolean[][] m_missing = new boolean[m_nrAttributes][];
+
+        private final int m_capacity;
+
+        private int m_size;
+
+        private Block(final int capacity) {
+            for (final int attribute : m_attributeIndices) {
+                m_values[attribute] = new double[capacity];
+                m_missing[attribute] = new boolean[capacity];
+            }
+            m_capacity = capacity;
+        }
+
+        /** @return the maximal number of rows */
+        public int getCapacity() {
+            return m_capacity;
+        }
+
+        /** @return the number of rows currently stored */
+        public int getSize() {
+            return m_size;
+        }
+
+        /** Removes all rows. */
+        public void clear() {
+            m_size = 0;
+        }
+
+        /**
+         * Appends the values of <b>record</b> as new row, see {@link Row#load(PredictorRecord)}.
+         *
+         * @param record the record to append
+         * @return the index of the new row
+         * @throws IllegalStateException if the block is full
+         */
+        public int add(final PredictorRecord record) {
+            if (m_size == m_capacity) {
+                throw new IllegalStateException("Block is full (" + m_capacity + " rows)");
+            }
+            final int r = m_size++;
+            if (record instanceof IndexedPredictorRecord) {
+                final IndexedPredictorRecord indexedRecord = (IndexedPredictorRecord)record;
+                for (int i = 0; i < m_attributeIndices.length; i++) {
+                    final int attribute = m_attributeIndices[i];
+                    m_missing[attribute][r] = indexedRecord.isMissing(attribute);
+                    m_values[attribute][r] = m_attributeIsNumeric[i] ? indexedRecord.getNumericValue(attribute)
+                        : indexedRecord.getNominalValue(attribute);
+                }
+                return r;
+            }
+            for (int i = 0; i < m_attributeIndices.length; i++) {
+                final int attribute = m_attributeIndices[i];
+                final Object value = record.getValue(m_attributeNames[i]);
+                m_missing[attribute][r] = value == null;
+                if (value instanceof Number) {
+                    m_values[attribute][r] = ((Number)value).doubleValue();
+                } else if (value instanceof Boolean) {
+                    m_values[attribute][r] = ((Boolean)value).booleanValue() ? 1 : 0;
+                }
+            }
+            return r;
+        }
+    }
+
+}
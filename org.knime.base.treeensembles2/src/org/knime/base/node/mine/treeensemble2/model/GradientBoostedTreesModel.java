@@ -51,11 +51,10 @@
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
@@ -67,7 +66,8 @@
  */
 public class GradientBoostedTreesModel extends AbstractGradientBoostingModel {
 
-    private List<Map<TreeNodeSignature, Double>> m_coefficientMaps;
+    // the leaf coefficients per tree, indexed by TreeNodeRegression#getLeafIndex()
+    private double[][] m_coefficients;
 
     /**
      * @param configuration
@@ -81,7 +81,7 @@ public GradientBoostedTreesModel(final TreeEnsembleLearnerConfiguration configur
         final TreeModelRegression[] models, final TreeType treeType, final double initialValue,
         final List<Map<TreeNodeSignature, Double>> coefficientMaps) {
         super(configuration, metaData, models, treeType, initialValue);
-        m_coefficientMaps = coefficientMaps;
+        m_coefficients = toCoefficientArrays(coefficientMaps);
     }
 
     /**
@@ -108,7 +108,15 @@ public GradientBoostedTreesModel(final TreeMetaData metaData, final AbstractTree
     public GradientBoostedTreesModel(final TreeMetaData metaData, final TreeModelRegression[] trees, final TreeType type,
         final double initialValue, final List<Map<TreeNodeSignature, Double>> coefficientMaps) {
         super(metaData, trees, type, false, initialValue);
-        m_coefficientMaps = coefficientMaps;
+        m_coefficients = toCoefficientArrays(coefficientMaps);
+    }
+
+    private double[][] toCoefficientArrays(final List<Map<TreeNodeSignature, Double>> coefficientMaps) {
+        final double[][] coefficients = new double[coefficientMaps.size()][];
+        for (int i = 0; i < coefficients.length; i++) {
+            coefficients[i] = toCoefficientArray(getTreeModelRegression(i), coefficientMaps.get(i));
+        }
+        return coefficients;
     }
 
     @Override
@@ -116,25 +124,57 @@ public double predict(final PredictorRecord record) {
         double prediction = getInitialValue();
         for (int i = 0; i < getNrModels(); i++) {
             TreeNodeRegression leaf = getTreeModelRegression(i).findMatchingNode(record);
-            prediction += m_coefficientMaps.get(i).get(leaf.getSignature());
+            prediction += m_coefficients[i][leaf.getLeafIndex()];
+        }
+        return prediction;
+    }
+
+    /**
+     * Same as {@link #predict(PredictorRecord)} but uses the {@link #getCompiledModel() compiled trees}.
+     *
+     * @param row a row of the compiled trees holding the values of the record to predict
+     * @return the prediction
+     */
+    public double predict(final CompiledTreeEnsemble.Row row) {
+        final CompiledTreeEnsemble compiledModel = getCompiledModel();
+        double prediction = getInitialValue();
+        for (int i = 0; i < getNrModels(); i++) {
+            TreeNodeRegression leaf = compiledModel.findMatchingNode(i, row);
+            prediction += m_coefficients[i][leaf.getLeafIndex()];
         }
         return prediction;
     }
 
+    /**
+     * Predicts all rows of <b>block</b>, evaluating one tree after another for the whole block. The predictions are
+     * identical to {@link #predict(CompiledTreeEnsemble.Row)}.
+     *
+     * @param block the rows to predict
+     * @param predictions array to store the prediction of row r at index r, length at least the size of the block
+     */
+    public void predict(final CompiledTreeEnsemble.Block block, final double[] predictions) {
+        final CompiledTreeEnsemble compiledModel = getCompiledModel();
+        final int size = block.getSize();
+        Arrays.fill(predictions, 0, size, getInitialValue());
+        final TreeNodeRegression[] leafs = new TreeNodeRegression[size];
+        for (int i = 0; i < getNrModels(); i++) {
+            compiledModel.findMatchingNodes(i, block, leafs);
+            final double[] coefficients = m_coefficients[i];
+            for (int r = 0; r < size; r++) {
+                predictions[r] += coefficients[leafs[r].getLeafIndex()];
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected void saveData(final DataOutputStream dataOutput) throws IOException {
         super.saveData(dataOutput);
-        dataOutput.writeInt(m_coefficientMaps.size());
-        for (Map<TreeNodeSignature, Double> coefficientMap : m_coefficientMaps) {
-            Set<Map.Entry<TreeNodeSignature, Double>> entrySet = coefficientMap.entrySet();
-            dataOutput.writeInt(entrySet.size());
-            for (Map.Entry<TreeNodeSignature, Double> entry : entrySet) {
-                entry.getKey().save(dataOutput);
-                dataOutput.writeDouble(entry.getValue());
-            }
+        dataOutput.writeInt(m_coefficients.length);
+        for (int i = 0; i < m_coefficients.length; i++) {
+            saveCoefficients(getTreeModelRegression(i), m_coefficients[i], dataOutput);
         }
     }
 
@@ -145,16 +185,9 @@ protected void saveData(final DataOutputStream dataOutput) throws IOException {
     protected void loadData(final TreeModelDataInputStream input) throws IOException {
         super.loadData(input);
         int numMaps = input.readInt();
-        m_coefficientMaps = new ArrayList<Map<TreeNodeSignature, Double>>(numMaps);
+        m_coefficients = new double[numMaps][];
         for (int i = 0; i < numMaps; i++) {
-            int mapSize = input.readInt();
-            HashMap<TreeNodeSignature, Double> map = new HashMap<TreeNodeSignature, Double>((int)(mapSize / 0.75 + 1));
-            for (int j = 0; j < mapSize; j++) {
-                TreeNodeSignature key = TreeNodeSignature.load(input);
-                double value = input.readDouble();
-                map.put(key, value);
-            }
-            m_coefficientMaps.add(map);
+            m_coefficients[i] = loadCoefficients(getTreeModelRegression(i), input);
         }
     }
 
@@ -162,7 +195,12 @@ protected void loadData(final TreeModelDataInputStream input) throws IOException
      * @return the coefficient maps for all trees
      */
     public Collection<Map<TreeNodeSignature, Double>> getCoeffientMaps() {
-        return m_coefficientMaps;
+        final List<Map<TreeNodeSignature, Double>> coefficientMaps =
+            new ArrayList<Map<TreeNodeSignature, Double>>(m_coefficients.length);
+        for (int i = 0; i < m_coefficients.length; i++) {
+            coefficientMaps.add(toCoefficientMap(getTreeModelRegression(i), m_coefficients[i]));
+        }
+        return coefficientMaps;
     }
 
 }
@@ -51,10 +51,8 @@
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
@@ -69,7 +67,8 @@ public class MultiClassGradientBoostedTreesModel extends AbstractGradientBoostin
 
     private int m_numClasses;
 
-    private ArrayList<ArrayList<Map<TreeNodeSignature, Double>>> m_coefficientMaps;
+    // the leaf coefficients per tree (in level order), indexed by TreeNodeRegression#getLeafIndex()
+    private double[][] m_coefficients;
 
     private String[] m_classLabels;
 
@@ -86,7 +85,7 @@ private MultiClassGradientBoostedTreesModel(final TreeEnsembleLearnerConfigurati
         final ArrayList<ArrayList<Map<TreeNodeSignature, Double>>> coefficientMaps, final String[] classLabels) {
         super(config, metaData, models, treeType, initialValue);
         m_numClasses = numClasses;
-        m_coefficientMaps = coefficientMaps;
+        m_coefficients = toCoefficientArrays(coefficientMaps);
         m_classLabels = classLabels;
     }
 
@@ -114,9 +113,19 @@ public MultiClassGradientBoostedTreesModel(final TreeMetaData metaData, final Tr
         final TreeType type, final double initialValue,
         final ArrayList<ArrayList<Map<TreeNodeSignature, Double>>> coefficientMaps, final String[] classLabels) {
         super(metaData, trees, type, false, initialValue);
-        m_coefficientMaps = coefficientMaps;
         m_classLabels = classLabels;
         m_numClasses = classLabels.length;
+        m_coefficients = toCoefficientArrays(coefficientMaps);
+    }
+
+    private double[][] toCoefficientArrays(final List<? extends List<Map<TreeNodeSignature, Double>>> maps) {
+        final double[][] coefficients = new double[getNrModels()][];
+        for (int l = 0; l < maps.size(); l++) {
+            for (int c = 0; c < m_numClasses; c++) {
+                coefficients[l * m_numClasses + c] = toCoefficientArray(getModel(l, c), maps.get(l).get(c));
+            }
+        }
+        return coefficients;
     }
 
     public static MultiClassGradientBoostedTreesModel createMultiClassGradientBoostedTreesModel(
@@ -192,8 +201,40 @@ public TreeModelRegression getModel(final int levelIdx, final int classIdx) {
         return getTreeModelRegression(levelIdx * m_numClasses + classIdx);
     }
 
+    /**
+     * @param levelIdx the boosting level
+     * @param classIdx the class
+     * @param row a row of the {@link #getCompiledModel() compiled trees}
+     * @return the leaf of the model for <b>levelIdx</b> and <b>classIdx</b> that matches <b>row</b>
+     */
+    public TreeNodeRegression findMatchingNode(final int levelIdx, final int classIdx,
+        final CompiledTreeEnsemble.Row row) {
+        return getCompiledModel().findMatchingNode(levelIdx * m_numClasses + classIdx, row);
+    }
+
+    /**
+     * @param levelIdx the boosting level
+     * @param classIdx the class
+     * @param block rows of the {@link #getCompiledModel() compiled trees}
+     * @param matches array to store the leaf matching row r at index r, length at least the size of the block
+     */
+    public void findMatchingNodes(final int levelIdx, final int classIdx, final CompiledTreeEnsemble.Block block,
+        final TreeNodeRegression[] matches) {
+        getCompiledModel().findMatchingNodes(levelIdx * m_numClasses + classIdx, block, matches);
+    }
+
     public Map<TreeNodeSignature, Double> getCoefficientMap(final int levelIdx, final int classIdx) {
-        return m_coefficientMaps.get(levelIdx).get(classIdx);
+        return toCoefficientMap(getModel(levelIdx, classIdx), m_coefficients[levelIdx * m_numClasses + classIdx]);
+    }
+
+    /**
+     * @param levelIdx the boosting level
+     * @param classIdx the class
+     * @param leaf a leaf of the model for <b>levelIdx</b> and <b>classIdx</b>
+     * @return the coefficient of <b>leaf</b>
+     */
+    public double getCoefficient(final int levelIdx, final int classIdx, final TreeNodeRegression leaf) {
+        return m_coefficients[levelIdx * m_numClasses + classIdx][leaf.getLeafIndex()];
     }
 
     public int getNrClasses() {
@@ -215,16 +256,9 @@ public int getNrLevels() {
     protected void saveData(final DataOutputStream dataOutput) throws IOException {
         super.saveData(dataOutput);
         dataOutput.writeInt(m_numClasses);
-        dataOutput.writeInt(m_coefficientMaps.size());
-        for (List<Map<TreeNodeSignature, Double>> classCoefficientMaps : m_coefficientMaps) {
-            for (Map<TreeNodeSignature, Double> classCoefficentMap : classCoefficientMaps) {
-                Set<Map.Entry<TreeNodeSignature, Double>> entrySet = classCoefficentMap.entrySet();
-                dataOutput.writeInt(entrySet.size());
-                for (Map.Entry<TreeNodeSignature, Double> entry : entrySet) {
-                    entry.getKey().save(dataOutput);
-                    dataOutput.writeDouble(entry.getValue());
-                }
-            }
+        dataOutput.writeInt(getNrLevels());
+        for (int i = 0; i < m_coefficients.length; i++) {
+            saveCoefficients(getTreeModelRegression(i), m_coefficients[i], dataOutput);
         }
         for (String classLabel : m_classLabels) {
             dataOutput.writeUTF(classLabel);
@@ -238,22 +272,10 @@ protected void saveData(final DataOutputStream dataOutput) throws IOException {
     protected void loadData(final TreeModelDataInputStream input) throws IOException {
         super.loadData(input);
         m_numClasses = input.readInt();
-        int numModels = input.readInt();
-        m_coefficientMaps = new ArrayList<ArrayList<Map<TreeNodeSignature, Double>>>(numModels);
-        for (int i = 0; i < numModels; i++) {
-            ArrayList<Map<TreeNodeSignature, Double>> classCoefficientMaps =
-                new ArrayList<Map<TreeNodeSignature, Double>>(m_numClasses);
-            for (int j = 0; j < m_numClasses; j++) {
-                int entrySetSize = input.readInt();
-                Map<TreeNodeSignature, Double> classCoefficientMap =
-                    new HashMap<TreeNodeSignature, Double>((int)(entrySetSize / 0.75 + 1));
-                for (int k = 0; k < entrySetSize; k++) {
-                    TreeNodeSignature signature = TreeNodeSignature.load(input);
-                    classCoefficientMap.put(signature, input.readDouble());
-                }
-                classCoefficientMaps.add(classCoefficientMap);
-            }
-            m_coefficientMaps.add(classCoefficientMaps);
+        int numLevels = input.readInt();
+        m_coefficients = new double[numLevels * m_numClasses][];
+        for (int i = 0; i < m_coefficients.length; i++) {
+            m_coefficients[i] = loadCoefficients(getTreeModelRegression(i), input);
         }
         m_classLabels = new String[m_numClasses];
         for (int i = 0; i < m_numClasses; i++) {
@@ -142,6 +142,9 @@ public static Version getVersion(final int versionNumber) throws IOException {
      */
     private final boolean m_containsClassDistribution;
 
+    // created on first use, not serialized
+    private volatile CompiledTreeEnsemble m_compiledModel;
+
     /**
      * @param models
      */
@@ -202,6 +205,18 @@ public int getNrModels() {
         return m_models.length;
     }
 
+    /**
+     * @return the flat array representation of the trees, created on first access and shared by all callers
+     */
+    public CompiledTreeEnsemble getCompiledModel() {
+        CompiledTreeEnsemble compiledModel = m_compiledModel;
+        if (compiledModel == null) {
+            compiledModel = CompiledTreeEnsemble.compile(this);
+            m_compiledModel = compiledModel;
+        }
+        return compiledModel;
+    }
+
 
 
     public DecisionTree createDecisionTree(final int modelIndex, final DataTable sampleForHiliting) {
@@ -256,6 +271,8 @@ public void save(final OutputStream out) throws IOException {
             dataOutput.writeByte('m');
         } else if (this instanceof GradientBoostingModel) {
             dataOutput.writeByte('g');
+        } else if (this instanceof AdaBoostModel) {
+            dataOutput.writeByte('a');
         } else {
             dataOutput.writeByte('r');
         }
@@ -330,7 +347,7 @@ public static TreeEnsembleModel load(final InputStream in) throws IOException {
         input.setContainsClassDistribution(containsClassDistribution);
         AbstractTreeModel[] models = new AbstractTreeModel[nrModels];
         boolean isRegression = metaData.isRegression();
-        if (ensembleType != 'r') {
+        if (ensembleType != 'r' && ensembleType != 'a') {
             isRegression = true;
         }
         final TreeBuildingInterner treeBuildingInterner = new TreeBuildingInterner();
@@ -361,6 +378,9 @@ public static TreeEnsembleModel load(final InputStream in) throws IOException {
             case 'm':
                 result = new MultiClassGradientBoostedTreesModel(metaData, models, type, containsClassDistribution);
                 break;
+            case 'a':
+                result = new AdaBoostModel(metaData, models, type, containsClassDistribution);
+                break;
             default:
                 throw new IllegalStateException("Unknown ensemble type: '" + (char)ensembleType + "'");
         }
@@ -48,6 +48,7 @@
 package org.knime.base.node.mine.treeensemble2.model;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.knime.base.node.mine.decisiontree2.model.DecisionTree;
@@ -84,6 +85,18 @@ public DecisionTree createDecisionTree(final TreeMetaData metaData) {
         return new DecisionTree(decTreeRoot, metaData.getTargetMetaData().getAttributeName());
     }
 
+    /**
+     * Assigns each leaf its position in the depth-first order of the leafs of this tree, see
+     * {@link TreeNodeRegression#getLeafIndex()}.
+     *
+     * @return the leafs of this tree ordered by their index
+     */
+    public List<TreeNodeRegression> indexLeafs() {
+        final List<TreeNodeRegression> leafs = new ArrayList<TreeNodeRegression>();
+        getRootNode().indexLeafs(leafs);
+        return leafs;
+    }
+
     public List<TreeNodeRegression> getLeafs() {
         if (m_leafs == null) {
             throw new IllegalStateException("The leafs have not been initialized.");
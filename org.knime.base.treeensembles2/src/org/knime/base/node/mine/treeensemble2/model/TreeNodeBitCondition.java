@@ -53,6 +53,7 @@
 import org.knime.base.node.mine.decisiontree2.PMMLOperator;
 import org.knime.base.node.mine.decisiontree2.PMMLPredicate;
 import org.knime.base.node.mine.decisiontree2.PMMLSimplePredicate;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeBitColumnMetaData;
 import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
@@ -97,6 +98,14 @@ public boolean getValue() {
     /** {@inheritDoc} */
     @Override
     public boolean testCondition(final PredictorRecord record) {
+        if (record instanceof IndexedPredictorRecord) {
+            final IndexedPredictorRecord indexedRecord = (IndexedPredictorRecord)record;
+            final int attributeIndex = getColumnMetaData().getAttributeIndex();
+            if (indexedRecord.isMissing(attributeIndex)) {
+                throw new UnsupportedOperationException("Missing values currently not supported for bitvectors");
+            }
+            return indexedRecord.getBitValue(attributeIndex) == m_value;
+        }
         Object value = record.getValue(getColumnMetaData().getAttributeName());
         if (value == null) {
             throw new UnsupportedOperationException("Missing values currently not supported for bitvectors");
@@ -61,6 +61,7 @@
 import org.knime.base.node.mine.decisiontree2.PMMLSetOperator;
 import org.knime.base.node.mine.decisiontree2.PMMLSimplePredicate;
 import org.knime.base.node.mine.decisiontree2.PMMLSimpleSetPredicate;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.NominalValueRepresentation;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeColumnMetaData;
@@ -201,9 +202,24 @@ public SetLogic getSetLogic() {
         return m_setLogic;
     }
 
+    /**
+     * @return the mask of the value indices, bit i is set if the value with index i is part of the set
+     */
+    BigInteger getValuesMask() {
+        return m_valuesMask;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean testCondition(final PredictorRecord record) {
+        if (record instanceof IndexedPredictorRecord) {
+            final IndexedPredictorRecord indexedRecord = (IndexedPredictorRecord)record;
+            final int attributeIndex = getColumnMetaData().getAttributeIndex();
+            if (indexedRecord.isMissing(attributeIndex)) {
+                return acceptsMissings();
+            }
+            return testCondition(indexedRecord.getNominalValue(attributeIndex));
+        }
         Object value = record.getValue(getColumnMetaData().getAttributeName());
         Integer assignedInteger = null;
         if (value == null) {
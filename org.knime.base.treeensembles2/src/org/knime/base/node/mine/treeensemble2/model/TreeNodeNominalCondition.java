@@ -55,6 +55,7 @@
 import org.knime.base.node.mine.decisiontree2.PMMLOperator;
 import org.knime.base.node.mine.decisiontree2.PMMLPredicate;
 import org.knime.base.node.mine.decisiontree2.PMMLSimplePredicate;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.NominalValueRepresentation;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeColumnMetaData;
@@ -116,6 +117,14 @@ public int getValueIndex() {
     /** {@inheritDoc} */
     @Override
     public boolean testCondition(final PredictorRecord record) {
+        if (record instanceof IndexedPredictorRecord) {
+            final IndexedPredictorRecord indexedRecord = (IndexedPredictorRecord)record;
+            final int attributeIndex = getColumnMetaData().getAttributeIndex();
+            if (indexedRecord.isMissing(attributeIndex)) {
+                return acceptsMissings();
+            }
+            return m_valueIndex == indexedRecord.getNominalValue(attributeIndex);
+        }
         Object value = record.getValue(getColumnMetaData().getAttributeName());
         int valIdx = -1;
         if (value == null) {
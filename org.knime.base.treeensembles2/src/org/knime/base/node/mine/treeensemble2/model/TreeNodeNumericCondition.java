@@ -55,6 +55,7 @@
 import org.knime.base.node.mine.decisiontree2.PMMLOperator;
 import org.knime.base.node.mine.decisiontree2.PMMLPredicate;
 import org.knime.base.node.mine.decisiontree2.PMMLSimplePredicate;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeColumnMetaData;
 import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
@@ -160,6 +161,14 @@ public NumericOperator getNumericOperator() {
     /** {@inheritDoc} */
     @Override
     public boolean testCondition(final PredictorRecord record) {
+        if (record instanceof IndexedPredictorRecord) {
+            final IndexedPredictorRecord indexedRecord = (IndexedPredictorRecord)record;
+            final int attributeIndex = getColumnMetaData().getAttributeIndex();
+            if (indexedRecord.isMissing(attributeIndex)) {
+                return acceptsMissings();
+            }
+            return testCondition(indexedRecord.getNumericValue(attributeIndex));
+        }
         Object value = record.getValue(getColumnMetaData().getAttributeName());
         double v = 0;
         if (value == null) {
@@ -174,7 +183,10 @@ public boolean testCondition(final PredictorRecord record) {
         } else {
             v = (Double)value;
         }
+        return testCondition(v);
+    }
 
+    private boolean testCondition(final double v) {
         switch (m_numericOperator) {
             case LargerThan:
                 return v > m_splitValue;
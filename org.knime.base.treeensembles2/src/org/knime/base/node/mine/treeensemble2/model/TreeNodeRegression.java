@@ -50,6 +50,7 @@
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.LinkedHashMap;
+import java.util.List;
 
 import org.knime.base.node.mine.decisiontree2.PMMLPredicate;
 import org.knime.base.node.mine.decisiontree2.model.DecisionTreeNode;
@@ -82,6 +83,10 @@ public final class TreeNodeRegression extends AbstractTreeNode {
     // it is only set in leaf nodes and NOT to be serialized
     private int[] m_rowIndicesInTreeData;
 
+    // position of this leaf in the depth-first order of the leafs of its tree, used by gradient boosting models
+    // to look up leaf coefficients; assigned by TreeModelRegression#indexLeafs() and NOT to be serialized
+    private int m_leafIndex = -1;
+
     public TreeNodeRegression(final TreeNodeSignature signature, final RegressionPriors targetPriors) {
         this(signature, targetPriors, EMPTY_CHILD_ARRAY);
     }
@@ -151,6 +156,33 @@ public int[] getRowIndicesInTreeData() {
         return m_rowIndicesInTreeData;
     }
 
+    /**
+     * @return the index of this leaf within its tree
+     * @throws IllegalStateException if this node is no leaf or the leafs of its tree have not been indexed
+     */
+    public int getLeafIndex() {
+        if (m_leafIndex < 0) {
+            throw new IllegalStateException("The leaf index has not been initialized.");
+        }
+        return m_leafIndex;
+    }
+
+    /**
+     * Indexes the leafs of this subtree in depth-first order, continuing at the size of <b>leafs</b>.
+     *
+     * @param leafs the list the leafs are appended to
+     */
+    void indexLeafs(final List<TreeNodeRegression> leafs) {
+        final int nrChildren = getNrChildren();
+        if (nrChildren == 0) {
+            m_leafIndex = leafs.size();
+            leafs.add(this);
+        }
+        for (int i = 0; i < nrChildren; i++) {
+            getChild(i).indexLeafs(leafs);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public TreeNodeRegression getChild(final int index) {
@@ -66,6 +66,8 @@ public class GradientBoostingLearnerConfiguration extends TreeEnsembleLearnerCon
 
     private static final String KEY_ALPHA_FRACTION = "alphaFraction";
 
+    private static final String KEY_HISTOGRAM_MEMORY_LIMIT = "histogramMemoryLimit";
+
     /**
      * Default learning rate (0.1)
      */
@@ -76,10 +78,17 @@ public class GradientBoostingLearnerConfiguration extends TreeEnsembleLearnerCon
      */
     public static final double DEF_ALPHA_FRACTION = 0.95;
 
+    /**
+     * Default memory limit (in MB) for histograms kept alive during tree growth (256)
+     */
+    public static final int DEF_HISTOGRAM_MEMORY_LIMIT = 256;
+
     private double m_learningRate = DEF_LEARNINGRATE;
 
     private double m_alphaFraction = DEF_ALPHA_FRACTION;
 
+    private int m_histogramMemoryLimit = DEF_HISTOGRAM_MEMORY_LIMIT;
+
     /**
      * @param isRegression
      */
@@ -127,6 +136,29 @@ public void setAlpha(final double alphaFraction) {
         m_alphaFraction = alphaFraction;
     }
 
+    /**
+     * Only applies if {@link #isUseHistogramSplits() histogram splits} are used. In that case the histograms of the
+     * larger child of a split are derived from the parent's histograms, which requires to keep them alive while the
+     * sibling subtree is built.
+     *
+     * @return the maximal memory (in MB) per tree occupied by histograms kept alive for later use, 0 means that
+     *         histograms are always recomputed
+     */
+    public int getHistogramMemoryLimit() {
+        return m_histogramMemoryLimit;
+    }
+
+    /**
+     * @param histogramMemoryLimit the memory limit in MB, see {@link #getHistogramMemoryLimit()}
+     * @throws InvalidSettingsException if the limit is negative
+     */
+    public void setHistogramMemoryLimit(final int histogramMemoryLimit) throws InvalidSettingsException {
+        if (histogramMemoryLimit < 0) {
+            throw new InvalidSettingsException("Invalid histogram memory limit: " + histogramMemoryLimit);
+        }
+        m_histogramMemoryLimit = histogramMemoryLimit;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -135,6 +167,7 @@ public void save(final NodeSettingsWO settings) {
         super.save(settings);
         settings.addDouble(KEY_LEARNINGRATE, m_learningRate);
         settings.addDouble(KEY_ALPHA_FRACTION, m_alphaFraction);
+        settings.addInt(KEY_HISTOGRAM_MEMORY_LIMIT, m_histogramMemoryLimit);
     }
 
     /**
@@ -166,6 +199,8 @@ public void loadInDialog(final NodeSettingsRO settings, final DataTableSpec inSp
         m_learningRate = settings.getDouble(KEY_LEARNINGRATE, DEF_LEARNINGRATE);
 
         m_alphaFraction = settings.getDouble(KEY_ALPHA_FRACTION, DEF_ALPHA_FRACTION);
+
+        m_histogramMemoryLimit = Math.max(0, settings.getInt(KEY_HISTOGRAM_MEMORY_LIMIT, DEF_HISTOGRAM_MEMORY_LIMIT));
     }
 
     /**
@@ -176,6 +211,8 @@ public void loadInModel(final NodeSettingsRO settings) throws InvalidSettingsExc
         super.loadInModel(settings);
         m_learningRate = settings.getDouble(KEY_LEARNINGRATE);
         m_alphaFraction = settings.getDouble(KEY_ALPHA_FRACTION);
+        // added in 4.2
+        setHistogramMemoryLimit(settings.getInt(KEY_HISTOGRAM_MEMORY_LIMIT, DEF_HISTOGRAM_MEMORY_LIMIT));
     }
 
 }
@@ -70,6 +70,7 @@
 import javax.swing.JTextField;
 import javax.swing.SpinnerNumberModel;
 
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnBinning;
 import org.knime.base.node.mine.treeensemble2.node.gradientboosting.learner.GradientBoostingLearnerConfiguration;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.ColumnSamplingMode;
@@ -117,6 +118,16 @@ public class AdvancedOptionsPanel extends JPanel {
 
     private final JCheckBox m_useBinaryNominalSplitsChecker;
 
+    private final JCheckBox m_histogramBinsChecker;
+
+    private final JSpinner m_histogramBinsSpinner;
+
+    private final JCheckBox m_levelWiseGrowthChecker;
+
+    private final JCheckBox m_parallelSplitSearchChecker;
+
+    private final JSpinner m_histogramMemoryLimitSpinner;
+
     private final JSpinner m_alphaFractionSpinner;
 
     private final JComboBox<MissingValueHandling> m_missingValueHandlingComboBox;
@@ -220,6 +231,24 @@ public void actionPerformed(final ActionEvent e) {
         m_useAverageSplitPointsChecker = new JCheckBox("Use mid point splits (only for numeric attributes)");
         m_useBinaryNominalSplitsChecker = new JCheckBox("Use binary splits for nominal columns");
         m_missingValueHandlingComboBox = new JComboBox<MissingValueHandling>(MissingValueHandling.values());
+        m_histogramBinsSpinner = new JSpinner(new SpinnerNumberModel(
+            TreeEnsembleLearnerConfiguration.DEF_NR_HISTOGRAM_BINS, TreeNumericColumnBinning.MIN_NR_BINS,
+            TreeNumericColumnBinning.MAX_NR_BINS, 1));
+        m_histogramBinsChecker = new JCheckBox("Use histogram splits (number of bins per numeric attribute)");
+        m_histogramMemoryLimitSpinner = new JSpinner(new SpinnerNumberModel(
+            GradientBoostingLearnerConfiguration.DEF_HISTOGRAM_MEMORY_LIMIT, 0, Integer.MAX_VALUE, 16));
+        m_histogramBinsChecker.addItemListener(new ItemListener() {
+            @Override
+            public void itemStateChanged(final ItemEvent e) {
+                final boolean s = m_histogramBinsChecker.isSelected();
+                m_histogramBinsSpinner.setEnabled(s);
+                m_histogramMemoryLimitSpinner.setEnabled(s);
+            }
+        });
+        m_histogramBinsSpinner.setEnabled(false);
+        m_levelWiseGrowthChecker = new JCheckBox("Grow trees level-wise");
+        m_parallelSplitSearchChecker = new JCheckBox("Evaluate attributes in parallel");
+        m_histogramMemoryLimitSpinner.setEnabled(false);
 
         initPanel();
     }
@@ -260,6 +289,38 @@ private void initPanel() {
         gbc.gridwidth = 1;
 
         gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        add(m_histogramBinsChecker, gbc);
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        add(m_histogramBinsSpinner, gbc);
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 2;
+        add(m_levelWiseGrowthChecker, gbc);
+        gbc.gridwidth = 1;
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 2;
+        add(m_parallelSplitSearchChecker, gbc);
+        gbc.gridwidth = 1;
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        add(new JLabel("Histogram memory limit per tree (MB)"), gbc);
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        add(m_histogramMemoryLimitSpinner, gbc);
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
         gbc.gridwidth = 2;
         add(new JLabel("Missing value handling"), gbc);
         gbc.gridx = 1;
@@ -396,6 +457,14 @@ public void loadSettings(final GradientBoostingLearnerConfiguration cfg) {
         m_useAverageSplitPointsChecker.setSelected(cfg.isUseAverageSplitPoints());
         m_useBinaryNominalSplitsChecker.setSelected(cfg.isUseBinaryNominalSplits());
         m_missingValueHandlingComboBox.setSelectedItem(cfg.getMissingValueHandling());
+        if (cfg.isUseHistogramSplits() != m_histogramBinsChecker.isSelected()) {
+            m_histogramBinsChecker.doClick();
+        }
+        m_histogramBinsSpinner.setValue(cfg.isUseHistogramSplits() ? cfg.getNrHistogramBins()
+            : TreeEnsembleLearnerConfiguration.DEF_NR_HISTOGRAM_BINS);
+        m_levelWiseGrowthChecker.setSelected(cfg.isUseLevelWiseGrowth());
+        m_parallelSplitSearchChecker.setSelected(cfg.isUseParallelSplitSearch());
+        m_histogramMemoryLimitSpinner.setValue(cfg.getHistogramMemoryLimit());
 
         double dataFrac = cfg.getDataFractionPerTree();
         boolean isDataWithReplacement = cfg.isDataSelectionWithReplacement();
@@ -456,6 +525,11 @@ public void saveSettings(final GradientBoostingLearnerConfiguration cfg) throws
             throw new InvalidSettingsException("Surrogate missing value handling can only be used if binary nominal splits are enabled.");
         }
         cfg.setMissingValueHandling((MissingValueHandling)m_missingValueHandlingComboBox.getSelectedItem());
+        cfg.setNrHistogramBins(m_histogramBinsChecker.isSelected() ? (Integer)m_histogramBinsSpinner.getValue()
+            : TreeEnsembleLearnerConfiguration.NR_HISTOGRAM_BINS_UNDEFINED);
+        cfg.setUseLevelWiseGrowth(m_levelWiseGrowthChecker.isSelected());
+        cfg.setUseParallelSplitSearch(m_parallelSplitSearchChecker.isSelected());
+        cfg.setHistogramMemoryLimit((Integer)m_histogramMemoryLimitSpinner.getValue());
 
         double dataFrac;
         boolean isSamplingWithReplacement;
@@ -3,9 +3,12 @@
  */
 package org.knime.base.node.mine.treeensemble2.node.gradientboosting.predictor;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
 import org.knime.base.node.mine.treeensemble2.model.GradientBoostedTreesModel;
 import org.knime.base.node.mine.treeensemble2.node.predictor.AbstractPredictor;
 import org.knime.base.node.mine.treeensemble2.node.predictor.RegressionPrediction;
@@ -18,6 +21,9 @@ public class GBTRegressionPredictor extends AbstractPredictor<RegressionPredicti
 
     private final GradientBoostedTreesModel m_model;
 
+    /** The record is consumed immediately, hence each thread can reuse its row for all records. */
+    private final ThreadLocal<CompiledTreeEnsemble.Row> m_rows;
+
     /**
      * Constructor for a {@link GBTRegressionPredictor}.
      *
@@ -28,6 +34,7 @@ public GBTRegressionPredictor(final GradientBoostedTreesModel model,
         final Function<DataRow, PredictorRecord> rowConverter) {
         super(rowConverter);
         m_model = model;
+        m_rows = ThreadLocal.withInitial(() -> m_model.getCompiledModel().createRow());
     }
 
     /* (non-Javadoc)
@@ -35,8 +42,23 @@ public GBTRegressionPredictor(final GradientBoostedTreesModel model,
      */
     @Override
     public RegressionPrediction predictRecord(final PredictorRecord record) {
-        double prediction = m_model.predict(record);
+        double prediction = m_model.predict(m_rows.get().load(record));
         return () -> prediction;
     }
 
+    @Override
+    public List<RegressionPrediction> predictBlock(final List<? extends DataRow> rows) {
+        final CompiledTreeEnsemble.Block block = m_model.getCompiledModel().createBlock(rows.size());
+        for (final DataRow row : rows) {
+            block.add(convert(row));
+        }
+        final double[] predictions = new double[rows.size()];
+        m_model.predict(block, predictions);
+        final List<RegressionPrediction> result = new ArrayList<>(predictions.length);
+        for (final double prediction : predictions) {
+            result.add(() -> prediction);
+        }
+        return result;
+    }
+
 }
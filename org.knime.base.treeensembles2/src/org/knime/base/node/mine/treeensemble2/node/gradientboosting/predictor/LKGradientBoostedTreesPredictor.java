@@ -3,10 +3,13 @@
  */
 package org.knime.base.node.mine.treeensemble2.node.gradientboosting.predictor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.function.Function;
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
 import org.knime.base.node.mine.treeensemble2.model.MultiClassGradientBoostedTreesModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeNodeRegression;
 import org.knime.base.node.mine.treeensemble2.node.predictor.AbstractPredictor;
@@ -20,6 +23,9 @@ public class LKGradientBoostedTreesPredictor extends AbstractPredictor<Classific
 
     private final MultiClassGradientBoostedTreesModel m_model;
 
+    /** The record is consumed immediately, hence each thread can reuse its row for all records. */
+    private final ThreadLocal<CompiledTreeEnsemble.Row> m_rows;
+
     private final boolean m_calculateProbabilities;
 
     private final boolean m_useSafeSoftmax;
@@ -37,6 +43,7 @@ public LKGradientBoostedTreesPredictor(final MultiClassGradientBoostedTreesModel
         final boolean useSafeSoftmax) {
         super(rowConverter);
         m_model = model;
+        m_rows = ThreadLocal.withInitial(() -> m_model.getCompiledModel().createRow());
         m_calculateProbabilities = calculateProbabilities;
         m_useSafeSoftmax = useSafeSoftmax;
     }
@@ -69,15 +76,50 @@ public ClassificationPrediction predictRecord(final PredictorRecord record) {
         }
     }
 
+    @Override
+    public List<ClassificationPrediction> predictBlock(final List<? extends DataRow> rows) {
+        final CompiledTreeEnsemble.Block block = m_model.getCompiledModel().createBlock(rows.size());
+        for (final DataRow row : rows) {
+            block.add(convert(row));
+        }
+        final int size = block.getSize();
+        final int nrClasses = m_model.getNrClasses();
+        final int nrLevels = m_model.getNrLevels();
+        final double[][] logits = new double[size][nrClasses];
+        for (final double[] rowLogits : logits) {
+            Arrays.fill(rowLogits, m_model.getInitialValue());
+        }
+        final TreeNodeRegression[] matchingNodes = new TreeNodeRegression[size];
+        for (int i = 0; i < nrLevels; i++) {
+            for (int j = 0; j < nrClasses; j++) {
+                m_model.findMatchingNodes(i, j, block, matchingNodes);
+                for (int r = 0; r < size; r++) {
+                    logits[r][j] += m_model.getCoefficient(i, j, matchingNodes[r]);
+                }
+            }
+        }
+        final List<ClassificationPrediction> predictions = new ArrayList<>(size);
+        for (final double[] rowLogits : logits) {
+            if (m_calculateProbabilities) {
+                transformToProbabilities(rowLogits);
+                predictions.add(new LKGBTPrediction(argmax(rowLogits), rowLogits));
+            } else {
+                predictions.add(new LKGBTPrediction(argmax(rowLogits)));
+            }
+        }
+        return predictions;
+    }
+
     private double[] calculateLogits(final PredictorRecord record) {
         int nrClasses = m_model.getNrClasses();
         int nrLevels = m_model.getNrLevels();
         final double[] logits = new double[nrClasses];
         Arrays.fill(logits, m_model.getInitialValue());
+        final CompiledTreeEnsemble.Row row = m_rows.get().load(record);
         for (int i = 0; i < nrLevels; i++) {
             for (int j = 0; j < nrClasses; j++) {
-                final TreeNodeRegression matchingNode = m_model.getModel(i, j).findMatchingNode(record);
-                logits[j] += m_model.getCoefficientMap(i, j).get(matchingNode.getSignature());
+                final TreeNodeRegression matchingNode = m_model.findMatchingNode(i, j, row);
+                logits[j] += m_model.getCoefficient(i, j, matchingNode);
             }
         }
         return logits;
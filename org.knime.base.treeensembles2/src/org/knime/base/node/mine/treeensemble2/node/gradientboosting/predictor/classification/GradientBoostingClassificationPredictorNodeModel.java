@@ -181,9 +181,8 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
         TreeEnsembleModelPortObjectSpec modelSpec = model.getSpec();
         BufferedDataTable data = (BufferedDataTable)inObjects[1];
         DataTableSpec dataSpec = data.getDataTableSpec();
-        ColumnRearranger rearranger = createExecutionRearranger(dataSpec, modelSpec,
-            (MultiClassGradientBoostedTreesModel)model.getEnsembleModel());
-        BufferedDataTable outTable = exec.createColumnRearrangeTable(data, rearranger, exec);
+        BufferedDataTable outTable = createPredictionRearrangerCreator(dataSpec, modelSpec,
+            (MultiClassGradientBoostedTreesModel)model.getEnsembleModel()).createPredictionTable(data, exec);
         return new BufferedDataTable[]{outTable};
     }
 
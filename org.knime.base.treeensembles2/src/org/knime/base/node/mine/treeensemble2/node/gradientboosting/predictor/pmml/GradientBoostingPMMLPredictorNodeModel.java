@@ -230,8 +230,8 @@ public PortObject[] execute(final PortObject[] inObjects, final ExecutionContext
             m_configuration = TreeEnsemblePredictorConfiguration.createDefault(
                 m_isRegression, translateSpec(pmmlPO.getSpec()).getTargetColumn().getName());
         }
-        ColumnRearranger rearranger = createExecutionRearranger(dataSpec, model.getSpec(), (M)model.getEnsembleModel());
-        BufferedDataTable outTable = exec.createColumnRearrangeTable(data, rearranger, exec);
+        BufferedDataTable outTable = createRearrangerCreator(dataSpec, model.getSpec(), (M)model.getEnsembleModel())
+            .createPredictionTable(data, exec);
         return new BufferedDataTable[]{outTable};
     }
 
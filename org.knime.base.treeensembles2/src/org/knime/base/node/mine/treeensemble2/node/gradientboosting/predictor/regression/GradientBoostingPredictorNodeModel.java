@@ -141,8 +141,8 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
         TreeEnsembleModelPortObjectSpec modelSpec = model.getSpec();
         BufferedDataTable data = (BufferedDataTable)inObjects[1];
         DataTableSpec dataSpec = data.getDataTableSpec();
-        BufferedDataTable outTable = exec.createColumnRearrangeTable(data,
-            createExecutionRearranger(dataSpec, modelSpec, (GradientBoostedTreesModel)model.getEnsembleModel()), exec);
+        BufferedDataTable outTable = createRearrangerCreator(dataSpec, modelSpec,
+            (GradientBoostedTreesModel)model.getEnsembleModel()).createPredictionTable(data, exec);
         return new BufferedDataTable[]{outTable};
     }
 
@@ -59,6 +59,7 @@
 import org.apache.commons.math.random.RandomData;
 import org.apache.commons.math.random.RandomDataImpl;
 import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnBinning;
 import org.knime.base.node.mine.treeensemble2.learner.GainImpurity;
 import org.knime.base.node.mine.treeensemble2.learner.GainRatioImpurity;
 import org.knime.base.node.mine.treeensemble2.learner.GiniImpurity;
@@ -158,6 +159,18 @@ public class TreeEnsembleLearnerConfiguration {
 
     private static final String KEY_ROW_SAMPLING_MODE = "rowSamplingMode";
 
+    private static final String KEY_NR_HISTOGRAM_BINS = "nrHistogramBins";
+
+    private static final String KEY_USE_LEVEL_WISE_GROWTH = "useLevelWiseGrowth";
+
+    private static final String KEY_USE_PARALLEL_SPLIT_SEARCH = "useParallelSplitSearch";
+
+    private static final String KEY_AUTO_NR_MODELS = "autoNrModels";
+
+    private static final String KEY_OUT_OF_BAG_ERROR_INTERVAL = "outOfBagErrorInterval";
+
+    private static final String KEY_AUTO_NR_MODELS_TOLERANCE = "autoNrModelsTolerance";
+
     public enum MissingValueHandling {
             /**
              * Use surrogates to handle missing values
@@ -252,6 +265,12 @@ public enum ColumnSamplingMode {
     /** indicates minimum leaf size parameter is not defined. */
     public static final int MIN_CHILD_SIZE_UNDEFINED = -1;
 
+    /** indicates that numeric split search evaluates every distinct value (no histogram binning). */
+    public static final int NR_HISTOGRAM_BINS_UNDEFINED = -1;
+
+    /** Default number of bins if histogram based split search is enabled. */
+    public static final int DEF_NR_HISTOGRAM_BINS = TreeNumericColumnBinning.MAX_NR_BINS;
+
     static final int DEF_MAX_LEVEL = MAX_LEVEL_INFINITE;
 
     static final RowSamplingMode DEF_ROW_SAMPLING_MODE = RowSamplingMode.Random;
@@ -296,6 +315,32 @@ public enum ColumnSamplingMode {
      */
     public static final boolean DEF_SAVE_TARGET_DISTRIBUTION_IN_NODES = false;
 
+    /**
+     * Default for level-wise tree growth (false: trees are grown depth-first)
+     */
+    public static final boolean DEF_USE_LEVEL_WISE_GROWTH = false;
+
+    /**
+     * Default for the parallel split search (false: the attributes of a node are evaluated one after the other with
+     * the random numbers of the tree, as in earlier versions)
+     */
+    public static final boolean DEF_USE_PARALLEL_SPLIT_SEARCH = false;
+
+    /**
+     * Default for the automatic number of models (false: always learn {@link #getNrModels()} models)
+     */
+    public static final boolean DEF_AUTO_NR_MODELS = false;
+
+    /**
+     * Default number of models after which the out-of-bag error is computed
+     */
+    public static final int DEF_OUT_OF_BAG_ERROR_INTERVAL = 10;
+
+    /**
+     * Default tolerance on the change of the out-of-bag error for the automatic number of models
+     */
+    public static final double DEF_AUTO_NR_MODELS_TOLERANCE = 0.001;
+
     private static final MissingValueHandling DEF_MISSING_VALUE_HANDLING = MissingValueHandling.XGBoost;
 
     private String m_targetColumn;
@@ -347,6 +392,18 @@ public enum ColumnSamplingMode {
 
     private RowSamplingMode m_rowSamplingMode = DEF_ROW_SAMPLING_MODE;
 
+    private int m_nrHistogramBins = NR_HISTOGRAM_BINS_UNDEFINED;
+
+    private boolean m_useLevelWiseGrowth = DEF_USE_LEVEL_WISE_GROWTH;
+
+    private boolean m_useParallelSplitSearch = DEF_USE_PARALLEL_SPLIT_SEARCH;
+
+    private boolean m_autoNrModels = DEF_AUTO_NR_MODELS;
+
+    private int m_outOfBagErrorInterval = DEF_OUT_OF_BAG_ERROR_INTERVAL;
+
+    private double m_autoNrModelsTolerance = DEF_AUTO_NR_MODELS_TOLERANCE;
+
     /**
      * @param isRegression
      */
@@ -802,6 +859,122 @@ public void setRowSamplingMode(final RowSamplingMode mode) {
         m_rowSamplingMode = mode;
     }
 
+    /**
+     * @return the maximal number of bins per numeric attribute used for histogram based split search or
+     *         {@link #NR_HISTOGRAM_BINS_UNDEFINED} if every distinct value is a split candidate.
+     */
+    public int getNrHistogramBins() {
+        return m_nrHistogramBins;
+    }
+
+    /**
+     * @param value the nrHistogramBins to set, see {@link #getNrHistogramBins()}.
+     * @throws InvalidSettingsException If out of bounds.
+     */
+    public void setNrHistogramBins(final int value) throws InvalidSettingsException {
+        if (value != NR_HISTOGRAM_BINS_UNDEFINED
+            && (value < TreeNumericColumnBinning.MIN_NR_BINS || value > TreeNumericColumnBinning.MAX_NR_BINS)) {
+            throw new InvalidSettingsException("Invalid # histogram bins: " + value + " (must be in ["
+                + TreeNumericColumnBinning.MIN_NR_BINS + ", " + TreeNumericColumnBinning.MAX_NR_BINS + "])");
+        }
+        m_nrHistogramBins = value;
+    }
+
+    /**
+     * @return true if split search on numeric attributes only considers the boundaries of
+     *         {@link #getNrHistogramBins()} quantile bins.
+     */
+    public boolean isUseHistogramSplits() {
+        return m_nrHistogramBins != NR_HISTOGRAM_BINS_UNDEFINED;
+    }
+
+    /**
+     * @return true if trees are grown level by level (all nodes of a depth at once, which allows to compute the
+     *         histograms of all nodes with a single pass over the data), false if trees are grown depth-first. Both
+     *         produce the same trees if {@link #isUseParallelSplitSearch()} is set. Otherwise the trees may differ if
+     *         ties are broken randomly because level-wise growth always derives the random numbers from the node.
+     */
+    public boolean isUseLevelWiseGrowth() {
+        return m_useLevelWiseGrowth;
+    }
+
+    /**
+     * @param value the useLevelWiseGrowth to set, see {@link #isUseLevelWiseGrowth()}
+     */
+    public void setUseLevelWiseGrowth(final boolean value) {
+        m_useLevelWiseGrowth = value;
+    }
+
+    /**
+     * @return true if the attributes of a tree node may be evaluated concurrently. The random numbers used to break
+     *         ties are then derived from the node and the attribute, hence the trees differ from the ones learned
+     *         sequentially (false), which use the random numbers of the tree in the order the attributes are evaluated.
+     */
+    public boolean isUseParallelSplitSearch() {
+        return m_useParallelSplitSearch;
+    }
+
+    /**
+     * @param value the useParallelSplitSearch to set, see {@link #isUseParallelSplitSearch()}
+     */
+    public void setUseParallelSplitSearch(final boolean value) {
+        m_useParallelSplitSearch = value;
+    }
+
+    /**
+     * @return true if learning stops before {@link #getNrModels()} models are learned once the out-of-bag error,
+     *         computed every {@link #getOutOfBagErrorInterval()} models, changed by at most
+     *         {@link #getAutoNrModelsTolerance()} in two consecutive intervals. The number of models is then the
+     *         maximum.
+     */
+    public boolean isAutoNrModels() {
+        return m_autoNrModels;
+    }
+
+    /**
+     * @param value the autoNrModels to set, see {@link #isAutoNrModels()}
+     */
+    public void setAutoNrModels(final boolean value) {
+        m_autoNrModels = value;
+    }
+
+    /**
+     * @return the number of models after which the out-of-bag error is computed (> 0)
+     */
+    public int getOutOfBagErrorInterval() {
+        return m_outOfBagErrorInterval;
+    }
+
+    /**
+     * @param value the outOfBagErrorInterval to set, see {@link #getOutOfBagErrorInterval()}
+     * @throws InvalidSettingsException If out of bounds, see get method.
+     */
+    public void setOutOfBagErrorInterval(final int value) throws InvalidSettingsException {
+        if (value <= 0) {
+            throw new InvalidSettingsException("Invalid out-of-bag error interval: " + value);
+        }
+        m_outOfBagErrorInterval = value;
+    }
+
+    /**
+     * @return the maximal change of the out-of-bag error per interval that is considered as converged (>= 0), see
+     *         {@link #isAutoNrModels()}
+     */
+    public double getAutoNrModelsTolerance() {
+        return m_autoNrModelsTolerance;
+    }
+
+    /**
+     * @param value the autoNrModelsTolerance to set, see {@link #getAutoNrModelsTolerance()}
+     * @throws InvalidSettingsException If out of bounds, see get method.
+     */
+    public void setAutoNrModelsTolerance(final double value) throws InvalidSettingsException {
+        if (!(value >= 0.0)) {
+            throw new InvalidSettingsException("Invalid out-of-bag error tolerance: " + value);
+        }
+        m_autoNrModelsTolerance = value;
+    }
+
     /**
      * Saves the settings.
      *
@@ -834,6 +1007,12 @@ public void save(final NodeSettingsWO settings) {
         settings.addInt(KEY_NR_HILITE_PATTERNS, m_nrHilitePatterns);
         settings.addBoolean(KEY_SAVE_TARGET_DISTRIBUTION_IN_NODES, m_saveTargetDistributionInNodes);
         settings.addString(KEY_ROW_SAMPLING_MODE, m_rowSamplingMode.name());
+        settings.addInt(KEY_NR_HISTOGRAM_BINS, m_nrHistogramBins);
+        settings.addBoolean(KEY_USE_LEVEL_WISE_GROWTH, m_useLevelWiseGrowth);
+        settings.addBoolean(KEY_USE_PARALLEL_SPLIT_SEARCH, m_useParallelSplitSearch);
+        settings.addBoolean(KEY_AUTO_NR_MODELS, m_autoNrModels);
+        settings.addInt(KEY_OUT_OF_BAG_ERROR_INTERVAL, m_outOfBagErrorInterval);
+        settings.addDouble(KEY_AUTO_NR_MODELS_TOLERANCE, m_autoNrModelsTolerance);
     }
 
     /**
@@ -922,6 +1101,17 @@ public void loadInModel(final NodeSettingsRO settings) throws InvalidSettingsExc
 
         setRowSamplingMode(
             RowSamplingMode.valueOf(settings.getString(KEY_ROW_SAMPLING_MODE, DEF_ROW_SAMPLING_MODE.name())));
+        // added in 4.2, be backward compatible (exact split search as default)
+        setNrHistogramBins(settings.getInt(KEY_NR_HISTOGRAM_BINS, NR_HISTOGRAM_BINS_UNDEFINED));
+        // added in 4.2
+        setUseLevelWiseGrowth(settings.getBoolean(KEY_USE_LEVEL_WISE_GROWTH, DEF_USE_LEVEL_WISE_GROWTH));
+        // added in 4.2, be backward compatible (sequential split search, trees as in earlier versions)
+        setUseParallelSplitSearch(
+            settings.getBoolean(KEY_USE_PARALLEL_SPLIT_SEARCH, DEF_USE_PARALLEL_SPLIT_SEARCH));
+        // added in 4.2, be backward compatible (fixed number of models as default)
+        setAutoNrModels(settings.getBoolean(KEY_AUTO_NR_MODELS, DEF_AUTO_NR_MODELS));
+        setOutOfBagErrorInterval(settings.getInt(KEY_OUT_OF_BAG_ERROR_INTERVAL, DEF_OUT_OF_BAG_ERROR_INTERVAL));
+        setAutoNrModelsTolerance(settings.getDouble(KEY_AUTO_NR_MODELS_TOLERANCE, DEF_AUTO_NR_MODELS_TOLERANCE));
     }
 
     /**
@@ -1120,6 +1310,22 @@ public void loadInDialog(final NodeSettingsRO settings, final DataTableSpec inSp
 
         setRowSamplingMode(
             RowSamplingMode.valueOf(settings.getString(KEY_ROW_SAMPLING_MODE, DEF_ROW_SAMPLING_MODE.name())));
+        try {
+            setNrHistogramBins(settings.getInt(KEY_NR_HISTOGRAM_BINS, NR_HISTOGRAM_BINS_UNDEFINED));
+        } catch (InvalidSettingsException e) {
+            m_nrHistogramBins = NR_HISTOGRAM_BINS_UNDEFINED;
+        }
+        m_useLevelWiseGrowth = settings.getBoolean(KEY_USE_LEVEL_WISE_GROWTH, DEF_USE_LEVEL_WISE_GROWTH);
+        m_useParallelSplitSearch =
+            settings.getBoolean(KEY_USE_PARALLEL_SPLIT_SEARCH, DEF_USE_PARALLEL_SPLIT_SEARCH);
+        m_autoNrModels = settings.getBoolean(KEY_AUTO_NR_MODELS, DEF_AUTO_NR_MODELS);
+        try {
+            setOutOfBagErrorInterval(settings.getInt(KEY_OUT_OF_BAG_ERROR_INTERVAL, DEF_OUT_OF_BAG_ERROR_INTERVAL));
+            setAutoNrModelsTolerance(settings.getDouble(KEY_AUTO_NR_MODELS_TOLERANCE, DEF_AUTO_NR_MODELS_TOLERANCE));
+        } catch (InvalidSettingsException e) {
+            m_outOfBagErrorInterval = DEF_OUT_OF_BAG_ERROR_INTERVAL;
+            m_autoNrModelsTolerance = DEF_AUTO_NR_MODELS_TOLERANCE;
+        }
     }
 
     /**
@@ -0,0 +1,216 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.learner.classification;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeDataCreator;
+import org.knime.base.node.mine.treeensemble2.learner.AdaBoostLearner;
+import org.knime.base.node.mine.treeensemble2.model.AdaBoostModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.FilterLearnColumnRearranger;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.port.PortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
+
+/**
+ * Learns a tree ensemble with AdaBoost (SAMME). The data is read into memory once, each boosting iteration re-weights
+ * the rows instead of re-sampling them. The model is a regular tree ensemble model whose trees vote with their model
+ * weight in the tree ensemble predictor.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class AdaBoostClassificationLearnerNodeModel extends NodeModel {
+
+    private static final DataTableSpec MODEL_WEIGHT_SPEC = new DataTableSpec("Model Weights",
+        new DataColumnSpecCreator("Model", IntCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("Model error", DoubleCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("Model weight", DoubleCell.TYPE).createSpec());
+
+    private TreeEnsembleLearnerConfiguration m_configuration;
+
+    /** Creates the node model. */
+    public AdaBoostClassificationLearnerNodeModel() {
+        super(new PortType[]{BufferedDataTable.TYPE},
+            new PortType[]{TreeEnsembleModelPortObject.TYPE, BufferedDataTable.TYPE});
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+        DataTableSpec inSpec = (DataTableSpec)inSpecs[0];
+        if (m_configuration == null) {
+            throw new InvalidSettingsException("No configuration available");
+        }
+        final FilterLearnColumnRearranger learnRearranger = m_configuration.filterLearnColumns(inSpec);
+        final String warn = learnRearranger.getWarning();
+        if (warn != null) {
+            setWarningMessage(warn);
+        }
+        m_configuration.checkColumnSelection(inSpec);
+        DataTableSpec learnSpec = learnRearranger.createSpec();
+        TreeEnsembleModelPortObjectSpec ensembleSpec = m_configuration.createPortObjectSpec(learnSpec);
+        // checks for duplicates in the toString() representation of the possible values (if available)
+        ensembleSpec.getTargetColumnPossibleValueMap();
+        return new PortObjectSpec[]{ensembleSpec, MODEL_WEIGHT_SPEC};
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected PortObject[] execute(final PortObject[] inObjects, final ExecutionContext exec) throws Exception {
+        BufferedDataTable t = (BufferedDataTable)inObjects[0];
+        DataTableSpec spec = t.getDataTableSpec();
+        final FilterLearnColumnRearranger learnRearranger = m_configuration.filterLearnColumns(spec);
+        String warn = learnRearranger.getWarning();
+        BufferedDataTable learnTable = exec.createColumnRearrangeTable(t, learnRearranger, exec.createSubProgress(0.0));
+        DataTableSpec learnSpec = learnTable.getDataTableSpec();
+        TreeEnsembleModelPortObjectSpec ensembleSpec = m_configuration.createPortObjectSpec(learnSpec);
+        Map<String, DataCell> targetValueMap = ensembleSpec.getTargetColumnPossibleValueMap();
+        if (targetValueMap == null) {
+            throw new InvalidSettingsException(
+                "The target column does not " + "have possible values assigned. Most likely it "
+                    + "has too many different distinct values (learning an ID "
+                    + "column?) Fix it by preprocessing the table using " + "a \"Domain Calculator\".");
+        }
+        ExecutionMonitor readInExec = exec.createSubProgress(0.1);
+        ExecutionMonitor learnExec = exec.createSubProgress(0.9);
+        TreeDataCreator dataCreator = new TreeDataCreator(m_configuration, learnSpec, learnTable.getRowCount());
+        exec.setProgress("Reading data into memory");
+        TreeData data = dataCreator.readData(learnTable, m_configuration, readInExec);
+        String dataCreationWarning = dataCreator.getAndClearWarningMessage();
+        if (dataCreationWarning != null) {
+            warn = warn == null ? dataCreationWarning : warn + "\n" + dataCreationWarning;
+        }
+        readInExec.setProgress(1.0);
+        exec.setMessage("Learning trees");
+        AdaBoostLearner learner = new AdaBoostLearner(m_configuration, data);
+        AdaBoostModel model = learner.learnEnsemble(learnExec);
+        if (model.getNrModels() < m_configuration.getNrModels()) {
+            final String stopped = "Boosting stopped after " + model.getNrModels() + " of "
+                + m_configuration.getNrModels() + " models (no further improvement possible)";
+            warn = warn == null ? stopped : warn + "\n" + stopped;
+        }
+        exec.setMessage("Writing ensemble to disk");
+        TreeEnsembleModelPortObject modelPortObject = TreeEnsembleModelPortObject.createPortObject(ensembleSpec, model,
+            exec.createFileStore(UUID.randomUUID().toString() + ""));
+        BufferedDataContainer c = exec.createDataContainer(MODEL_WEIGHT_SPEC);
+        final double[] errors = learner.getModelErrors();
+        final double[] weights = learner.getModelWeights();
+        for (int i = 0; i < weights.length; i++) {
+            c.addRowToTable(new DefaultRow(RowKey.createRowKey((long)i), new IntCell(i),
+                new DoubleCell(errors[i]), new DoubleCell(weights[i])));
+        }
+        c.close();
+        if (warn != null) {
+            setWarningMessage(warn);
+        }
+        return new PortObject[]{modelPortObject, c.getTable()};
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void reset() {
+        // nothing to reset
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+        new TreeEnsembleLearnerConfiguration(false).loadInModel(settings);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+        TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(false);
+        config.loadInModel(settings);
+        m_configuration = config;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void saveSettingsTo(final NodeSettingsWO settings) {
+        if (m_configuration != null) {
+            m_configuration.save(settings);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void loadInternals(final File nodeInternDir, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        // no internals
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void saveInternals(final File nodeInternDir, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        // no internals
+    }
+
+}
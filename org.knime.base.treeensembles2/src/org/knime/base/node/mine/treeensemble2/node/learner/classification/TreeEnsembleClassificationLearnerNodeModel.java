@@ -62,6 +62,7 @@
 
 import org.knime.base.node.mine.treeensemble2.data.TreeData;
 import org.knime.base.node.mine.treeensemble2.data.TreeDataCreator;
+import org.knime.base.node.mine.treeensemble2.learner.OutOfBagAccumulatorClassification;
 import org.knime.base.node.mine.treeensemble2.learner.TreeEnsembleLearner;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
@@ -120,6 +121,8 @@ public final class TreeEnsembleClassificationLearnerNodeModel extends NodeModel
 
     private final boolean m_pre36;
 
+    private final boolean m_hasOutOfBagErrorPort;
+
     /**
      * This constructor ensures backwards compatibility with code that was written
      * prior to version 3.6.0.
@@ -132,9 +135,20 @@ public TreeEnsembleClassificationLearnerNodeModel() {
      * @param pre36 indicates whether node was created prior to version 3.6.0
      *  */
     public TreeEnsembleClassificationLearnerNodeModel(final boolean pre36) {
-        super(new PortType[]{BufferedDataTable.TYPE},
-            new PortType[]{BufferedDataTable.TYPE, BufferedDataTable.TYPE, TreeEnsembleModelPortObject.TYPE});
+        this(pre36, false);
+    }
+
+    /**
+     * @param pre36 indicates whether node was created prior to version 3.6.0
+     * @param hasOutOfBagErrorPort whether the node has the fourth output port with the out-of-bag error (added in 4.2)
+     */
+    public TreeEnsembleClassificationLearnerNodeModel(final boolean pre36, final boolean hasOutOfBagErrorPort) {
+        super(new PortType[]{BufferedDataTable.TYPE}, hasOutOfBagErrorPort
+            ? new PortType[]{BufferedDataTable.TYPE, BufferedDataTable.TYPE, TreeEnsembleModelPortObject.TYPE,
+                BufferedDataTable.TYPE}
+            : new PortType[]{BufferedDataTable.TYPE, BufferedDataTable.TYPE, TreeEnsembleModelPortObject.TYPE});
         m_pre36 = pre36;
+        m_hasOutOfBagErrorPort = hasOutOfBagErrorPort;
     }
 
     /** {@inheritDoc} */
@@ -164,6 +178,10 @@ protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws Inva
             inSpec, ensembleSpec, null, null, null, createOOBConfig(), m_pre36).createSpec();
         DataTableSpec colStatsSpec = TreeEnsembleLearner.getColumnStatisticTableSpec();
 
+        if (m_hasOutOfBagErrorPort) {
+            DataTableSpec outOfBagErrorSpec = TreeEnsembleLearner.getOutOfBagErrorTableSpec();
+            return new PortObjectSpec[]{outOfBagSpec.orElse(null), colStatsSpec, ensembleSpec, outOfBagErrorSpec};
+        }
         return new PortObjectSpec[]{outOfBagSpec.orElse(null), colStatsSpec, ensembleSpec};
     }
 
@@ -197,7 +215,7 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
         }
         ExecutionMonitor readInExec = exec.createSubProgress(0.1);
         ExecutionMonitor learnExec = exec.createSubProgress(0.8);
-        ExecutionMonitor outOfBagExec = exec.createSubProgress(0.1);
+        ExecutionContext outOfBagExec = exec.createSubExecutionContext(0.1);
         TreeDataCreator dataCreator = new TreeDataCreator(m_configuration, learnSpec, learnTable.getRowCount());
         exec.setProgress("Reading data into memory");
         TreeData data = dataCreator.readData(learnTable, m_configuration, readInExec);
@@ -229,15 +247,30 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
         TreeEnsembleModelPortObject modelPortObject =TreeEnsembleModelPortObject.createPortObject(ensembleSpec, model,
             exec.createFileStore(UUID.randomUUID().toString() + ""));
         exec.setMessage("Out of bag prediction");
-        ColumnRearranger outOfBagRearranger = TreeEnsemblePredictionUtil.createPRCForClassificationRF(
-            spec, ensembleSpec, model, learner.getRowSamples(), data.getTargetColumn(), createOOBConfig(), m_pre36)
-                .createExecutionRearranger();
-        BufferedDataTable outOfBagTable = exec.createColumnRearrangeTable(t, outOfBagRearranger, outOfBagExec);
+        BufferedDataTable outOfBagTable;
+        if (m_hasOutOfBagErrorPort) {
+            // the out of bag votes were already counted while the trees were learned (on the single precision
+            // training values), rows that were not learned on are predicted by all trees
+            outOfBagTable = TreeEnsemblePredictionUtil.createOutOfBagPRCForClassificationRF(spec, ensembleSpec, model,
+                (OutOfBagAccumulatorClassification)learner.getOutOfBagAccumulator(), data.getTargetColumn(),
+                createOOBConfig(), m_pre36).createPredictionTable(t, outOfBagExec);
+        } else {
+            // older node versions evaluate the trees on the input table so that their output doesn't change
+            ColumnRearranger outOfBagRearranger = TreeEnsemblePredictionUtil.createPRCForClassificationRF(
+                spec, ensembleSpec, model, learner.getRowSamples(), data.getTargetColumn(), createOOBConfig(), m_pre36)
+                    .createExecutionRearranger();
+            outOfBagTable = exec.createColumnRearrangeTable(t, outOfBagRearranger, outOfBagExec);
+        }
         BufferedDataTable colStatsTable = learner.createColumnStatisticTable(exec.createSubExecutionContext(0.0));
         m_ensembleModelPortObject = modelPortObject;
         if (warn != null) {
             setWarningMessage(warn);
         }
+        if (m_hasOutOfBagErrorPort) {
+            BufferedDataTable outOfBagErrorTable =
+                learner.createOutOfBagErrorTable(exec.createSubExecutionContext(0.0));
+            return new PortObject[]{outOfBagTable, colStatsTable, modelPortObject, outOfBagErrorTable};
+        }
         return new PortObject[]{outOfBagTable, colStatsTable, modelPortObject};
     }
 
@@ -112,6 +112,12 @@ public class EnsembleOptionsPanel extends JPanel {
 
     private final JSpinner m_nrModelsSpinner;
 
+    private final JSpinner m_outOfBagErrorIntervalSpinner;
+
+    private final JCheckBox m_autoNrModelsChecker;
+
+    private final JSpinner m_autoNrModelsToleranceSpinner;
+
     private final JButton m_newSeedButton;
 
     private final JTextField m_seedTextField;
@@ -194,6 +200,18 @@ public void itemStateChanged(final ItemEvent e) {
         m_columnUseSameSetOfAttributesForNodes.doClick();
 
         m_nrModelsSpinner = new JSpinner(new SpinnerNumberModel(20, 1, Integer.MAX_VALUE, 2));
+        m_outOfBagErrorIntervalSpinner = new JSpinner(new SpinnerNumberModel(
+            TreeEnsembleLearnerConfiguration.DEF_OUT_OF_BAG_ERROR_INTERVAL, 1, Integer.MAX_VALUE, 1));
+        m_autoNrModelsToleranceSpinner = new JSpinner(new SpinnerNumberModel(
+            TreeEnsembleLearnerConfiguration.DEF_AUTO_NR_MODELS_TOLERANCE, 0.0, Double.MAX_VALUE, 0.001));
+        m_autoNrModelsChecker = new JCheckBox("Stop early if out-of-bag error converges");
+        m_autoNrModelsChecker.addItemListener(new ItemListener() {
+            @Override
+            public void itemStateChanged(final ItemEvent e) {
+                m_autoNrModelsToleranceSpinner.setEnabled(m_autoNrModelsChecker.isSelected());
+            }
+        });
+        m_autoNrModelsToleranceSpinner.setEnabled(false);
 
         m_seedTextField = new JTextField(20);
         m_newSeedButton = new JButton("New");
@@ -237,6 +255,26 @@ private void initEnsembleConfigurationPanel() {
         gbc.weightx = 1.0;
         add(m_nrModelsSpinner, gbc);
 
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 1;
+        add(new JLabel("Out-of-bag error interval"), gbc);
+        gbc.gridwidth = 2;
+        gbc.gridx += 1;
+        gbc.weightx = 1.0;
+        add(m_outOfBagErrorIntervalSpinner, gbc);
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 1;
+        add(m_autoNrModelsChecker, gbc);
+        gbc.gridwidth = 2;
+        gbc.gridx += 1;
+        gbc.weightx = 1.0;
+        add(ViewUtils.getInFlowLayout(FlowLayout.LEFT, new JLabel("Tolerance"), m_autoNrModelsToleranceSpinner), gbc);
+
         gbc.gridy += 1;
         gbc.gridx = 0;
         gbc.weightx = 1.0;
@@ -343,6 +381,11 @@ private void initEnsembleConfigurationPanel() {
      */
     public void loadSettings(final TreeEnsembleLearnerConfiguration cfg) {
         m_nrModelsSpinner.setValue(cfg.getNrModels());
+        m_outOfBagErrorIntervalSpinner.setValue(cfg.getOutOfBagErrorInterval());
+        m_autoNrModelsToleranceSpinner.setValue(cfg.getAutoNrModelsTolerance());
+        if (m_autoNrModelsChecker.isSelected() != cfg.isAutoNrModels()) {
+            m_autoNrModelsChecker.doClick();
+        }
         double dataFrac = cfg.getDataFractionPerTree();
         boolean isDataWithReplacement = cfg.isDataSelectionWithReplacement();
         boolean isEqualSizeSampling = cfg.getRowSamplingMode() == RowSamplingMode.EqualSize;
@@ -404,6 +447,9 @@ public void loadSettings(final TreeEnsembleLearnerConfiguration cfg) {
      */
     public void saveSettings(final TreeEnsembleLearnerConfiguration cfg) throws InvalidSettingsException {
         cfg.setNrModels((Integer)m_nrModelsSpinner.getValue());
+        cfg.setOutOfBagErrorInterval((Integer)m_outOfBagErrorIntervalSpinner.getValue());
+        cfg.setAutoNrModels(m_autoNrModelsChecker.isSelected());
+        cfg.setAutoNrModelsTolerance((Double)m_autoNrModelsToleranceSpinner.getValue());
         double dataFrac;
         boolean isSamplingWithReplacement;
         if (m_dataFractionPerTreeChecker.isSelected()) {
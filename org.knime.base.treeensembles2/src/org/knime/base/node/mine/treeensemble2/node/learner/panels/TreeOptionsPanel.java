@@ -63,6 +63,7 @@
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnBinning;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.SplitCriterion;
 import org.knime.core.data.DataColumnSpec;
@@ -89,6 +90,14 @@ public final class TreeOptionsPanel extends JPanel {
 
     private final JCheckBox m_useBinaryNominalSplitsChecker;
 
+    private final JCheckBox m_histogramBinsChecker;
+
+    private final JSpinner m_histogramBinsSpinner;
+
+    private final JCheckBox m_levelWiseGrowthChecker;
+
+    private final JCheckBox m_parallelSplitSearchChecker;
+
     private final JCheckBox m_maxLevelChecker;
 
     private final JSpinner m_maxLevelSpinner;
@@ -123,6 +132,19 @@ public void stateChanged(final ChangeEvent e) {
         m_splitCriterionsBox = new JComboBox(SplitCriterion.values());
         m_useAverageSplitPointsChecker = new JCheckBox("Use mid point splits (only for numeric attributes)");
         m_useBinaryNominalSplitsChecker = new JCheckBox("Use binary splits for nominal columns.");
+        m_histogramBinsSpinner = new JSpinner(new SpinnerNumberModel(
+            TreeEnsembleLearnerConfiguration.DEF_NR_HISTOGRAM_BINS, TreeNumericColumnBinning.MIN_NR_BINS,
+            TreeNumericColumnBinning.MAX_NR_BINS, 1));
+        m_histogramBinsChecker = new JCheckBox("Use histogram splits (number of bins per numeric attribute)");
+        m_histogramBinsChecker.addItemListener(new ItemListener() {
+            @Override
+            public void itemStateChanged(final ItemEvent e) {
+                m_histogramBinsSpinner.setEnabled(m_histogramBinsChecker.isSelected());
+            }
+        });
+        m_histogramBinsSpinner.setEnabled(false);
+        m_levelWiseGrowthChecker = new JCheckBox("Grow trees level-wise");
+        m_parallelSplitSearchChecker = new JCheckBox("Evaluate attributes in parallel");
         m_maxLevelSpinner = new JSpinner(new SpinnerNumberModel(3, 1, Integer.MAX_VALUE, 1));
         m_maxLevelChecker = new JCheckBox("Limit number of levels (tree depth)");
         m_maxLevelChecker.addItemListener(new ItemListener() {
@@ -199,6 +221,28 @@ private void initPanel() {
         add(m_useBinaryNominalSplitsChecker, gbc);
         gbc.gridwidth = 1;
 
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        add(m_histogramBinsChecker, gbc);
+        gbc.gridx += 1;
+        gbc.weightx = 1.0;
+        add(m_histogramBinsSpinner, gbc);
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 2;
+        add(m_levelWiseGrowthChecker, gbc);
+        gbc.gridwidth = 1;
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 2;
+        add(m_parallelSplitSearchChecker, gbc);
+        gbc.gridwidth = 1;
+
         gbc.gridy += 1;
         gbc.gridx = 0;
         gbc.weightx = 0.0;
@@ -261,6 +305,13 @@ public void loadSettingsFrom(final DataTableSpec inSpec, final TreeEnsembleLearn
         m_splitCriterionsBox.setSelectedItem(cfg.getSplitCriterion());
         m_useAverageSplitPointsChecker.setSelected(cfg.isUseAverageSplitPoints());
         m_useBinaryNominalSplitsChecker.setSelected(cfg.isUseBinaryNominalSplits());
+        if (cfg.isUseHistogramSplits() != m_histogramBinsChecker.isSelected()) {
+            m_histogramBinsChecker.doClick();
+        }
+        m_histogramBinsSpinner.setValue(cfg.isUseHistogramSplits() ? cfg.getNrHistogramBins()
+            : TreeEnsembleLearnerConfiguration.DEF_NR_HISTOGRAM_BINS);
+        m_levelWiseGrowthChecker.setSelected(cfg.isUseLevelWiseGrowth());
+        m_parallelSplitSearchChecker.setSelected(cfg.isUseParallelSplitSearch());
         int maxLevel = cfg.getMaxLevels();
         if ((maxLevel != TreeEnsembleLearnerConfiguration.MAX_LEVEL_INFINITE) != m_maxLevelChecker.isSelected()) {
             m_maxLevelChecker.doClick();
@@ -336,6 +387,10 @@ public void saveSettings(final TreeEnsembleLearnerConfiguration cfg) throws Inva
         cfg.setSplitCriterion((SplitCriterion)m_splitCriterionsBox.getSelectedItem());
         cfg.setUseAverageSplitPoints(m_useAverageSplitPointsChecker.isSelected());
         cfg.setUseBinaryNominalSplits(m_useBinaryNominalSplitsChecker.isSelected());
+        cfg.setNrHistogramBins(m_histogramBinsChecker.isSelected() ? (Integer)m_histogramBinsSpinner.getValue()
+            : TreeEnsembleLearnerConfiguration.NR_HISTOGRAM_BINS_UNDEFINED);
+        cfg.setUseLevelWiseGrowth(m_levelWiseGrowthChecker.isSelected());
+        cfg.setUseParallelSplitSearch(m_parallelSplitSearchChecker.isSelected());
         int maxLevel =
             m_maxLevelChecker.isSelected() ? (Integer)m_maxLevelSpinner.getValue()
                 : TreeEnsembleLearnerConfiguration.MAX_LEVEL_INFINITE;
@@ -61,6 +61,7 @@
 
 import org.knime.base.node.mine.treeensemble2.data.TreeData;
 import org.knime.base.node.mine.treeensemble2.data.TreeDataCreator;
+import org.knime.base.node.mine.treeensemble2.learner.OutOfBagAccumulatorRegression;
 import org.knime.base.node.mine.treeensemble2.learner.TreeEnsembleLearner;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
@@ -114,11 +115,23 @@ public final class TreeEnsembleRegressionLearnerNodeModel extends NodeModel impl
 
     private TreeEnsembleLearnerConfiguration m_configuration;
 
+    private final boolean m_hasOutOfBagErrorPort;
+
     /**
      *  */
     public TreeEnsembleRegressionLearnerNodeModel() {
-        super(new PortType[]{BufferedDataTable.TYPE},
-            new PortType[]{BufferedDataTable.TYPE, BufferedDataTable.TYPE, TreeEnsembleModelPortObject.TYPE});
+        this(false);
+    }
+
+    /**
+     * @param hasOutOfBagErrorPort whether the node has the fourth output port with the out-of-bag error (added in 4.2)
+     */
+    public TreeEnsembleRegressionLearnerNodeModel(final boolean hasOutOfBagErrorPort) {
+        super(new PortType[]{BufferedDataTable.TYPE}, hasOutOfBagErrorPort
+            ? new PortType[]{BufferedDataTable.TYPE, BufferedDataTable.TYPE, TreeEnsembleModelPortObject.TYPE,
+                BufferedDataTable.TYPE}
+            : new PortType[]{BufferedDataTable.TYPE, BufferedDataTable.TYPE, TreeEnsembleModelPortObject.TYPE});
+        m_hasOutOfBagErrorPort = hasOutOfBagErrorPort;
     }
 
     /** {@inheritDoc} */
@@ -141,6 +154,10 @@ protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws Inva
             inSpec, ensembleSpec, null, null, null, createOOBConfig()).createSpec();
         DataTableSpec colStatsSpec = TreeEnsembleLearner.getColumnStatisticTableSpec();
 
+        if (m_hasOutOfBagErrorPort) {
+            DataTableSpec outOfBagErrorSpec = TreeEnsembleLearner.getOutOfBagErrorTableSpec();
+            return new PortObjectSpec[]{outOfBagSpec.orElse(null), colStatsSpec, ensembleSpec, outOfBagErrorSpec};
+        }
         return new PortObjectSpec[]{outOfBagSpec.orElse(null), colStatsSpec, ensembleSpec};
     }
 
@@ -168,7 +185,7 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
 
         ExecutionMonitor readInExec = exec.createSubProgress(0.1);
         ExecutionMonitor learnExec = exec.createSubProgress(0.8);
-        ExecutionMonitor outOfBagExec = exec.createSubProgress(0.1);
+        ExecutionContext outOfBagExec = exec.createSubExecutionContext(0.1);
         TreeDataCreator dataCreator = new TreeDataCreator(m_configuration, learnSpec, learnTable.getRowCount());
         exec.setProgress("Reading data into memory");
         TreeData data = dataCreator.readData(learnTable, m_configuration, readInExec);
@@ -200,15 +217,30 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
         TreeEnsembleModelPortObject modelPortObject = TreeEnsembleModelPortObject.createPortObject(ensembleSpec, model,
             exec.createFileStore(UUID.randomUUID().toString() + ""));
         exec.setMessage("Out of bag prediction");
-        ColumnRearranger outOfBagRearranger = TreeEnsemblePredictionUtil.createPRCForRegressionRF(
-            spec, ensembleSpec, model, learner.getRowSamples(), data.getTargetColumn(), createOOBConfig())
-                .createExecutionRearranger();
-        BufferedDataTable outOfBagTable = exec.createColumnRearrangeTable(t, outOfBagRearranger, outOfBagExec);
+        BufferedDataTable outOfBagTable;
+        if (m_hasOutOfBagErrorPort) {
+            // the out of bag predictions were already accumulated while the trees were learned (on the single
+            // precision training values), rows that were not learned on are predicted by all trees
+            outOfBagTable = TreeEnsemblePredictionUtil.createOutOfBagPRCForRegressionRF(spec, ensembleSpec, model,
+                (OutOfBagAccumulatorRegression)learner.getOutOfBagAccumulator(), data.getTargetColumn(),
+                createOOBConfig()).createPredictionTable(t, outOfBagExec);
+        } else {
+            // older node versions evaluate the trees on the input table so that their output doesn't change
+            ColumnRearranger outOfBagRearranger = TreeEnsemblePredictionUtil.createPRCForRegressionRF(
+                spec, ensembleSpec, model, learner.getRowSamples(), data.getTargetColumn(), createOOBConfig())
+                    .createExecutionRearranger();
+            outOfBagTable = exec.createColumnRearrangeTable(t, outOfBagRearranger, outOfBagExec);
+        }
         BufferedDataTable colStatsTable = learner.createColumnStatisticTable(exec.createSubExecutionContext(0.0));
         m_ensembleModelPortObject = modelPortObject;
         if (warn != null) {
             setWarningMessage(warn);
         }
+        if (m_hasOutOfBagErrorPort) {
+            BufferedDataTable outOfBagErrorTable =
+                learner.createOutOfBagErrorTable(exec.createSubExecutionContext(0.0));
+            return new PortObject[]{outOfBagTable, colStatsTable, modelPortObject, outOfBagErrorTable};
+        }
         return new PortObject[]{outOfBagTable, colStatsTable, modelPortObject};
     }
 
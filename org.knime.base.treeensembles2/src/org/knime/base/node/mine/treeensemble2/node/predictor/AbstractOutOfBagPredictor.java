@@ -0,0 +1,103 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.predictor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.learner.AbstractOutOfBagAccumulator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.RowKey;
+
+/**
+ * A {@link Predictor} that looks up the out-of-bag predictions an {@link AbstractOutOfBagAccumulator} collected while
+ * the ensemble was learned, no tree is evaluated. Rows that were not used for learning, e.g. because their target is
+ * missing, are out of bag for all trees and are predicted with the whole ensemble.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @param <P> the type of prediction
+ */
+public abstract class AbstractOutOfBagPredictor<P extends OutOfBagPrediction> implements Predictor<P> {
+
+    private final Map<RowKey, Integer> m_rowKeyToLearnIndex;
+
+    private final Predictor<P> m_ensemblePredictor;
+
+    /**
+     * @param targetColumnData the target column of the training data, used to map rows to their learn index
+     * @param ensemblePredictor predicts the rows that were not used for learning with all trees of the ensemble
+     */
+    protected AbstractOutOfBagPredictor(final TreeTargetColumnData targetColumnData,
+        final Predictor<P> ensemblePredictor) {
+        m_rowKeyToLearnIndex = createRowKeyToLearnIndexMap(targetColumnData);
+        m_ensemblePredictor = ensemblePredictor;
+    }
+
+    static Map<RowKey, Integer> createRowKeyToLearnIndexMap(final TreeTargetColumnData targetColumnData) {
+        final int nrRows = targetColumnData.getNrRows();
+        final Map<RowKey, Integer> learnItemMap = new HashMap<>((int)(nrRows / 0.75 + 1));
+        for (int i = 0; i < nrRows; i++) {
+            learnItemMap.put(targetColumnData.getRowKeyFor(i), i);
+        }
+        return learnItemMap;
+    }
+
+    @Override
+    public final P predict(final DataRow row) {
+        final Integer learnIndex = m_rowKeyToLearnIndex.get(row.getKey());
+        if (learnIndex == null) {
+            return m_ensemblePredictor.predict(row);
+        }
+        return predictOutOfBag(learnIndex.intValue());
+    }
+
+    /**
+     * @param learnIndex the index of the row in the training data
+     * @return the out-of-bag prediction for the row
+     */
+    protected abstract P predictOutOfBag(int learnIndex);
+
+}
@@ -75,7 +75,18 @@ public AbstractPredictor(final Function<DataRow, PredictorRecord> rowConverter)
 
     @Override
     public P predict(final DataRow row) {
-        return predictRecord(m_rowConverter.apply(row));
+        return predictRecord(convert(row));
+    }
+
+    /**
+     * Converts <b>row</b> into a record. The converter may reuse the returned record for the next row converted on
+     * the same thread, hence the record must be consumed before converting another row.
+     *
+     * @param row the row to convert
+     * @return the record for <b>row</b>
+     */
+    protected final PredictorRecord convert(final DataRow row) {
+        return m_rowConverter.apply(row);
     }
 
     /**
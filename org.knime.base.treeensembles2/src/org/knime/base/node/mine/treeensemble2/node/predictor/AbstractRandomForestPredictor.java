@@ -48,12 +48,14 @@
  */
 package org.knime.base.node.mine.treeensemble2.node.predictor;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.knime.base.data.filter.column.FilterColumnRow;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
@@ -71,7 +73,7 @@
  */
 public abstract class AbstractRandomForestPredictor<P extends OutOfBagPrediction> implements Predictor<P> {
 
-    private RowSample[] m_modelLearnRowSamples;
+    private InBagBitmap m_inBagBitmap;
 
     private Map<RowKey, Integer> m_rowKeyToLearnIndex;
 
@@ -84,6 +86,9 @@
 
     private final int[] m_filterIndices;
 
+    /** Predictions are computed eagerly, hence each thread can reuse its record for all rows. */
+    private final ThreadLocal<IndexedPredictorRecord> m_records;
+
     /**
      * @param model
      * @param modelSpec
@@ -95,6 +100,7 @@ public AbstractRandomForestPredictor(final TreeEnsembleModel model, final TreeEn
         m_model = model;
         m_filterIndices = modelSpec.calculateFilterIndices(predictSpec);
         m_learnSpec = modelSpec.getLearnTableSpec();
+        m_records = ThreadLocal.withInitial(() -> new IndexedPredictorRecord(m_model.getMetaData()));
     }
 
     /**
@@ -118,7 +124,24 @@ public AbstractRandomForestPredictor(final TreeEnsembleModel model, final TreeEn
     @Override
     public P predict(final DataRow row) {
         FilterColumnRow filterRow = new FilterColumnRow(row, m_filterIndices);
-        return predictRecord(m_model.createPredictorRecord(filterRow, m_learnSpec), row.getKey());
+        return predictRecord(m_model.createPredictorRecord(filterRow, m_learnSpec, m_records.get()), row.getKey());
+    }
+
+    /**
+     * Loads the learning columns of <b>rows</b> into a block of the {@link TreeEnsembleModel#getCompiledModel()
+     * compiled model}.
+     *
+     * @param rows the rows to load
+     * @return the block holding the values of <b>rows</b>
+     */
+    protected final CompiledTreeEnsemble.Block createBlock(final List<? extends DataRow> rows) {
+        final CompiledTreeEnsemble.Block block = m_model.getCompiledModel().createBlock(rows.size());
+        final IndexedPredictorRecord record = m_records.get();
+        for (final DataRow row : rows) {
+            final FilterColumnRow filterRow = new FilterColumnRow(row, m_filterIndices);
+            block.add(m_model.createPredictorRecord(filterRow, m_learnSpec, record));
+        }
+        return block;
     }
 
     /**
@@ -132,13 +155,8 @@ private void setOutofBagFilter(final RowSample[] modelRowSamples, final TreeTarg
         if (modelRowSamples == null || targetColumnData == null) {
             throw new NullPointerException("Argument must not be null.");
         }
-        final int nrRows = targetColumnData.getNrRows();
-        Map<RowKey, Integer> learnItemMap = new HashMap<>((int)(nrRows / 0.75 + 1));
-        for (int i = 0; i < nrRows; i++) {
-            RowKey key = targetColumnData.getRowKeyFor(i);
-            learnItemMap.put(key, i);
-        }
-        m_modelLearnRowSamples = modelRowSamples;
+        Map<RowKey, Integer> learnItemMap = AbstractOutOfBagPredictor.createRowKeyToLearnIndexMap(targetColumnData);
+        m_inBagBitmap = new InBagBitmap(modelRowSamples);
         m_rowKeyToLearnIndex = learnItemMap;
     }
 
@@ -146,7 +164,49 @@ private void setOutofBagFilter(final RowSample[] modelRowSamples, final TreeTarg
      * @return true if <b>this<b> has an out of bag filter
      */
     protected final boolean hasOutOfBagFilter() {
-        return m_modelLearnRowSamples != null;
+        return m_inBagBitmap != null;
+    }
+
+    /**
+     * Resolves the row key once per row, the result can then be used for all models with
+     * {@link #nextOutOfBagModel(int, int)}.
+     *
+     * @param key the key of a row
+     * @return the index of the row in the training data or -1 if the row was not used for training, e.g. because it
+     *         was rejected for missing values
+     */
+    protected final int getLearnIndex(final RowKey key) {
+        assert m_inBagBitmap != null : "no out of bag filter set";
+        Integer indexInteger = m_rowKeyToLearnIndex.get(key);
+        return indexInteger == null ? -1 : indexInteger.intValue();
+    }
+
+    /**
+     * @param learnIndex the index of the row in the training data as returned by {@link #getLearnIndex(RowKey)}
+     * @param modelIndex the index of the model
+     * @return true if the row is part of the training data of the model with index <b>modelIndex</b>
+     */
+    protected final boolean isRowPartOfTrainingData(final int learnIndex, final int modelIndex) {
+        return learnIndex >= 0 && m_inBagBitmap.isInBag(learnIndex, modelIndex);
+    }
+
+    /**
+     * Enumerates the models a row is out of bag for, all models if <b>this</b> has no out of bag filter:
+     *
+     * <pre>
+     * for (int i = nextOutOfBagModel(learnIndex, 0); i &gt;= 0; i = nextOutOfBagModel(learnIndex, i + 1))
+     * </pre>
+     *
+     * @param learnIndex the index of the row in the training data as returned by {@link #getLearnIndex(RowKey)}, -1
+     *            if the row was not used for training
+     * @param fromModel the first model to consider
+     * @return the smallest model index &gt;= <b>fromModel</b> that was not learned on the row or -1 if there is none
+     */
+    protected final int nextOutOfBagModel(final int learnIndex, final int fromModel) {
+        if (m_inBagBitmap == null) {
+            return fromModel < m_model.getNrModels() ? fromModel : -1;
+        }
+        return m_inBagBitmap.nextOutOfBagModel(learnIndex, fromModel);
     }
 
     /**
@@ -156,13 +216,7 @@ protected final boolean hasOutOfBagFilter() {
      *         for this model
      */
     protected final boolean isRowPartOfTrainingData(final RowKey key, final int modelIndex) {
-        assert m_modelLearnRowSamples != null : "no out of bag filter set";
-        Integer indexInteger = m_rowKeyToLearnIndex.get(key);
-        if (indexInteger == null) {
-            return false;
-        }
-        int index = indexInteger;
-        return m_modelLearnRowSamples[modelIndex].getCountFor(index) > 0;
+        return isRowPartOfTrainingData(getLearnIndex(key), modelIndex);
     }
 
 }
@@ -0,0 +1,122 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.predictor;
+
+import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
+import org.knime.base.node.mine.treeensemble2.sample.row.SeededRowSample;
+
+/**
+ * The row samples of an ensemble transposed into one bitmap per row with a bit for each model that the row was used to
+ * learn. The out-of-bag models of a row can then be enumerated without touching the row samples.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class InBagBitmap {
+
+    private final int m_nrModels;
+
+    private final int m_wordsPerRow;
+
+    /** The bits of row r in [r * m_wordsPerRow, (r + 1) * m_wordsPerRow), bit m set if model m was learned on r. */
+    private final long[] m_words;
+
+    /**
+     * @param rowSamples the row samples of the models, all drawn from the same rows
+     */
+    InBagBitmap(final RowSample[] rowSamples) {
+        m_nrModels = rowSamples.length;
+        m_wordsPerRow = Math.max(1, (m_nrModels + Long.SIZE - 1) / Long.SIZE);
+        final int nrRows = m_nrModels == 0 ? 0 : rowSamples[0].getNrRows();
+        m_words = new long[nrRows * m_wordsPerRow];
+        for (int m = 0; m < m_nrModels; m++) {
+            // hold on to the counts of a seeded sample for the whole pass over the rows
+            final RowSample sample = rowSamples[m] instanceof SeededRowSample
+                ? ((SeededRowSample)rowSamples[m]).materialize() : rowSamples[m];
+            final int word = m / Long.SIZE;
+            final long bit = 1L << m;
+            for (int r = 0; r < nrRows; r++) {
+                if (sample.getCountFor(r) > 0) {
+                    m_words[r * m_wordsPerRow + word] |= bit;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param learnIndex the index of a row in the training data
+     * @param modelIndex the index of a model
+     * @return true if the model was learned on the row
+     */
+    boolean isInBag(final int learnIndex, final int modelIndex) {
+        return (m_words[learnIndex * m_wordsPerRow + modelIndex / Long.SIZE] & (1L << modelIndex)) != 0;
+    }
+
+    /**
+     * @param learnIndex the index of a row in the training data or -1 if the row is not part of the training data, it
+     *            is then out of bag for all models
+     * @param fromModel the first model to consider
+     * @return the smallest model index &gt;= <b>fromModel</b> that was not learned on the row or -1 if there is none
+     */
+    int nextOutOfBagModel(final int learnIndex, final int fromModel) {
+        if (fromModel >= m_nrModels) {
+            return -1;
+        }
+        if (learnIndex < 0) {
+            return fromModel;
+        }
+        final int offset = learnIndex * m_wordsPerRow;
+        int w = fromModel / Long.SIZE;
+        long outOfBag = ~m_words[offset + w] & (-1L << fromModel);
+        while (outOfBag == 0) {
+            if (++w == m_wordsPerRow) {
+                return -1;
+            }
+            outOfBag = ~m_words[offset + w];
+        }
+        final int model = w * Long.SIZE + Long.numberOfTrailingZeros(outOfBag);
+        return model < m_nrModels ? model : -1;
+    }
+
+}
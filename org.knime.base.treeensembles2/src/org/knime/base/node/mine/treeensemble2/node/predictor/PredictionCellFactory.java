@@ -48,12 +48,28 @@
  */
 package org.knime.base.node.mine.treeensemble2.node.predictor;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Future;
+
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.node.ThreadPoolUtil;
 import org.knime.base.node.mine.treeensemble2.node.predictor.parser.PredictionParser;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.CellFactory;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
 
 /**
  * A {@link CellFactory} that appends predictions of a tree ensemble model.
@@ -63,6 +79,9 @@
  */
 public final class PredictionCellFactory<P extends Prediction> extends AbstractCellFactory {
 
+    /** Number of rows predicted together by {@link #createPredictionTable(BufferedDataTable, ExecutionContext)}. */
+    static final int BLOCK_SIZE = 1024;
+
     private final Predictor<P> m_predictor;
 
     private final PredictionParser<P> m_predictionParser;
@@ -86,4 +105,77 @@ public final DataCell[] getCells(final DataRow row) {
         return m_predictionParser.parse(prediction);
     }
 
+    /**
+     * Creates a table that only contains the prediction columns for the rows of <b>data</b>. Unlike
+     * {@link #getCells(DataRow)}, rows are predicted in blocks of {@value #BLOCK_SIZE} rows (see
+     * {@link Predictor#predictBlock(List)}) and the blocks are processed concurrently.
+     *
+     * @param data the table to predict
+     * @param exec the execution context to create the table and report progress
+     * @return the prediction columns, with the row keys of <b>data</b>
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws InterruptedException if the thread is interrupted while waiting for a block
+     */
+    public BufferedDataTable createPredictionTable(final BufferedDataTable data, final ExecutionContext exec)
+        throws CanceledExecutionException, InterruptedException {
+        final BufferedDataContainer container = exec.createDataContainer(new DataTableSpec(getColumnSpecs()));
+        final ThreadPool tp = KNIMEConstants.GLOBAL_THREAD_POOL;
+        final int maxPendingBlocks = 2 * Runtime.getRuntime().availableProcessors();
+        final Deque<Future<DataRow[]>> pendingBlocks = new ArrayDeque<>(maxPendingBlocks);
+        final double nrRows = data.getRowCount();
+        int nrDoneRows = 0;
+        try (CloseableRowIterator iterator = data.iterator()) {
+            while (iterator.hasNext()) {
+                final List<DataRow> block = new ArrayList<>(BLOCK_SIZE);
+                while (iterator.hasNext() && block.size() < BLOCK_SIZE) {
+                    block.add(iterator.next());
+                }
+                pendingBlocks.add(tp.enqueue(() -> predictBlock(block)));
+                if (pendingBlocks.size() == maxPendingBlocks) {
+                    nrDoneRows = addNextBlock(pendingBlocks, container, exec, nrDoneRows, nrRows);
+                }
+                exec.checkCanceled();
+            }
+            while (!pendingBlocks.isEmpty()) {
+                nrDoneRows = addNextBlock(pendingBlocks, container, exec, nrDoneRows, nrRows);
+            }
+        } finally {
+            for (final Future<DataRow[]> pendingBlock : pendingBlocks) {
+                pendingBlock.cancel(true);
+            }
+            container.close();
+        }
+        return container.getTable();
+    }
+
+    private DataRow[] predictBlock(final List<DataRow> block) {
+        final List<P> predictions = m_predictor.predictBlock(block);
+        final DataRow[] rows = new DataRow[block.size()];
+        for (int r = 0; r < rows.length; r++) {
+            rows[r] = new DefaultRow(block.get(r).getKey(), m_predictionParser.parse(predictions.get(r)));
+        }
+        return rows;
+    }
+
+    /**
+     * Waits for the oldest pending block, adds its rows to <b>container</b> and reports the progress. The pending
+     * blocks are computed by the global thread pool, the current thread (possibly one of its threads) waits invisibly
+     * so that it doesn't block a thread that could compute a block.
+     *
+     * @return the number of rows added so far
+     */
+    private static int addNextBlock(final Deque<Future<DataRow[]>> pendingBlocks,
+        final BufferedDataContainer container, final ExecutionContext exec, final int nrDoneRows, final double nrRows)
+        throws CanceledExecutionException, InterruptedException {
+        exec.checkCanceled();
+        final Future<DataRow[]> pendingBlock = pendingBlocks.poll();
+        final DataRow[] rows = ThreadPoolUtil.waitFor(pendingBlock);
+        for (final DataRow row : rows) {
+            container.addRowToTable(row);
+        }
+        final int nrAddedRows = nrDoneRows + rows.length;
+        exec.setProgress(nrAddedRows / nrRows, "Predicted " + nrAddedRows + " rows");
+        return nrAddedRows;
+    }
+
 }
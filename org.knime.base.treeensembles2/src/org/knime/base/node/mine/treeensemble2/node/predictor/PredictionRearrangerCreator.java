@@ -62,6 +62,9 @@
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataTableSpecCreator;
 import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
 
 /**
  * Creates the {@link ColumnRearranger} that creates the output table in a predictor node.
@@ -121,18 +124,45 @@ public ColumnRearranger createExecutionRearranger() {
         return createRearranger();
     }
 
+    /**
+     * Appends the prediction columns to <b>data</b>. Use this method for execution of non-streamed nodes, it predicts
+     * the rows in blocks (see {@link Predictor#predictBlock(java.util.List)}), which is faster than predicting them one
+     * by one like the {@link #createExecutionRearranger() rearranger} does.
+     *
+     * @param data the table to predict, must have the spec this creator was created for
+     * @param exec the execution context
+     * @return <b>data</b> with the appended prediction columns
+     * @throws IllegalStateException if the prediction columns can't be created
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public BufferedDataTable createPredictionTable(final BufferedDataTable data, final ExecutionContext exec)
+        throws CanceledExecutionException, InterruptedException {
+        if (hasErrors()) {
+            throw new IllegalStateException("Can't create prediction table: " + m_errorMsg);
+        }
+        final BufferedDataTable predictions =
+            createCellFactory().createPredictionTable(data, exec.createSubExecutionContext(0.95));
+        return exec.createJoinedTable(data, predictions, exec.createSubProgress(0.05));
+    }
+
     private boolean hasErrors() {
         return m_errorMsg != null;
     }
 
     private ColumnRearranger createRearranger() {
         ColumnRearranger cr = new ColumnRearranger(m_testSpec);
-        @SuppressWarnings({"rawtypes", "unchecked"})
+        cr.append(createCellFactory());
+        return cr;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private PredictionCellFactory createCellFactory() {
+        @SuppressWarnings("unchecked")
         PredictionParser parser = new DefaultPredictionParser(m_testSpec, m_itemParsers);
-        @SuppressWarnings({"rawtypes", "unchecked"})
+        @SuppressWarnings("unchecked")
         PredictionCellFactory pcf = new PredictionCellFactory<>(m_predictor, parser);
-        cr.append(pcf);
-        return cr;
+        return pcf;
     }
 
     /**
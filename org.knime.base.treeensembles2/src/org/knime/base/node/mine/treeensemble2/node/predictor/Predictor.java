@@ -48,6 +48,9 @@
  */
 package org.knime.base.node.mine.treeensemble2.node.predictor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.core.data.DataRow;
 
@@ -67,4 +70,19 @@
      * @return the prediction for <b>predictorRecord</b>
      */
     P predict(DataRow row);
+
+    /**
+     * Performs the predictions for a block of rows. The default implementation predicts the rows one by one,
+     * implementations may evaluate each model over the whole block instead.
+     *
+     * @param rows the rows to predict
+     * @return the predictions in the order of <b>rows</b>
+     */
+    default List<P> predictBlock(final List<? extends DataRow> rows) {
+        final List<P> predictions = new ArrayList<>(rows.size());
+        for (final DataRow row : rows) {
+            predictions.add(predict(row));
+        }
+        return predictions;
+    }
 }
@@ -54,16 +54,23 @@
 import java.util.function.Function;
 
 import org.knime.base.data.filter.column.FilterColumnRow;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.learner.OutOfBagAccumulatorClassification;
+import org.knime.base.node.mine.treeensemble2.learner.OutOfBagAccumulatorRegression;
 import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel;
+import org.knime.base.node.mine.treeensemble2.model.AdaBoostModel;
 import org.knime.base.node.mine.treeensemble2.model.MultiClassGradientBoostedTreesModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
 import org.knime.base.node.mine.treeensemble2.node.predictor.classification.HardVotingFactory;
+import org.knime.base.node.mine.treeensemble2.node.predictor.classification.OutOfBagClassificationPredictor;
 import org.knime.base.node.mine.treeensemble2.node.predictor.classification.RandomForestClassificationPredictor;
 import org.knime.base.node.mine.treeensemble2.node.predictor.classification.SoftVotingFactory;
 import org.knime.base.node.mine.treeensemble2.node.predictor.classification.VotingFactory;
+import org.knime.base.node.mine.treeensemble2.node.predictor.classification.WeightedHardVotingFactory;
+import org.knime.base.node.mine.treeensemble2.node.predictor.regression.OutOfBagRegressionPredictor;
 import org.knime.base.node.mine.treeensemble2.node.predictor.regression.RandomForestRegressionPredictor;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
 import org.knime.core.data.DataCell;
@@ -71,6 +78,7 @@
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.container.ColumnRearranger;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.util.CheckUtils;
 
 /**
  * Provides utility methods for predictions with tree ensemble based methods such as random forests and gradient boosted
@@ -92,14 +100,16 @@ private TreeEnsemblePredictionUtil() {
      * @param modelSpec the spec of the model
      * @param model the actual model (may be null)
      * @param tableSpec the table on which to predict
-     * @return a row converter
+     * @return a row converter, the record it returns is reused for the next row converted on the same thread
      * @throws InvalidSettingsException if columns required by <b>modelSpec</b> are not present in <b>tableSpec</b>
      */
     public static Function<DataRow, PredictorRecord> createRowConverter(final TreeEnsembleModelPortObjectSpec modelSpec,
         final AbstractTreeEnsembleModel model, final DataTableSpec tableSpec) throws InvalidSettingsException {
         int[] filterIndices = modelSpec.calculateFilterIndices(tableSpec);
         DataTableSpec learnSpec = modelSpec.getLearnTableSpec();
-        return r -> model.createPredictorRecord(new FilterColumnRow(r, filterIndices), learnSpec);
+        final ThreadLocal<IndexedPredictorRecord> records =
+            ThreadLocal.withInitial(() -> new IndexedPredictorRecord(model.getMetaData()));
+        return r -> model.createPredictorRecord(new FilterColumnRow(r, filterIndices), learnSpec, records.get());
     }
 
     /**
@@ -187,8 +197,14 @@ public static PredictionRearrangerCreator createPRCForClassificationRF(final Dat
         String[] classLabels = null;
         if (targetValueMap != null) {
             Map<String, Integer> targetVal2Idx = createTargetValueToIndexMap(targetValueMap);
-            VotingFactory votingFactory =
-                config.isUseSoftVoting() ? new SoftVotingFactory(targetVal2Idx) : new HardVotingFactory(targetVal2Idx);
+            VotingFactory votingFactory;
+            if (model instanceof AdaBoostModel) {
+                // boosted trees vote with their model weight, there are no soft votes
+                votingFactory = new WeightedHardVotingFactory(targetVal2Idx, (AdaBoostModel)model);
+            } else {
+                votingFactory = config.isUseSoftVoting() ? new SoftVotingFactory(targetVal2Idx)
+                    : new HardVotingFactory(targetVal2Idx);
+            }
             predictor = modelRowSamples == null
                 ? new RandomForestClassificationPredictor(model, modelSpec, dataSpec, votingFactory)
                 : new RandomForestClassificationPredictor(model, modelSpec, dataSpec, modelRowSamples, targetColumnData,
@@ -196,7 +212,46 @@ public static PredictionRearrangerCreator createPRCForClassificationRF(final Dat
             classLabels = targetValueMap.keySet().stream().map(o -> o).toArray(i -> new String[i]);
         }
         PredictionRearrangerCreator prc = new PredictionRearrangerCreator(dataSpec, predictor);
+        addClassificationRFColumns(prc, modelSpec, targetValueMap, classLabels, config, pre36);
+        return prc;
+    }
+
+    /**
+     * Creates a {@link PredictionRearrangerCreator} for the out-of-bag predictions of a classification random forest
+     * that were collected while it was learned. The out-of-bag predictions always use hard voting. Rows of the training
+     * table that were not used for learning are predicted with all trees of <b>model</b>.
+     *
+     * @param dataSpec the spec of the training table
+     * @param modelSpec the spec of the (classification) random forest
+     * @param model the (classification) random forest
+     * @param outOfBagAccumulator the out-of-bag votes collected by the learner
+     * @param targetColumnData the target column of the training data
+     * @param config for the prediction
+     * @param pre36 flag that indicates if the node was created prior to version 3.6.0
+     * @return a creator that allows to create a table with the out-of-bag predictions
+     * @throws InvalidSettingsException if the target column has no possible values or <b>dataSpec</b> is missing some
+     *             columns the model needs
+     */
+    public static PredictionRearrangerCreator createOutOfBagPRCForClassificationRF(final DataTableSpec dataSpec,
+        final TreeEnsembleModelPortObjectSpec modelSpec, final TreeEnsembleModel model,
+        final OutOfBagAccumulatorClassification outOfBagAccumulator, final TreeTargetColumnData targetColumnData,
+        final TreeEnsemblePredictorConfiguration config, final boolean pre36) throws InvalidSettingsException {
+        CheckUtils.checkArgument(!config.isUseSoftVoting(), "Out-of-bag predictions are based on hard voting.");
+        Map<String, DataCell> targetValueMap = modelSpec.getTargetColumnPossibleValueMap();
+        CheckUtils.checkSetting(targetValueMap != null, "The target column has no possible values assigned.");
+        Map<String, Integer> targetVal2Idx = createTargetValueToIndexMap(targetValueMap);
+        OutOfBagClassificationPredictor predictor = new OutOfBagClassificationPredictor(outOfBagAccumulator,
+            targetColumnData, targetVal2Idx, new RandomForestClassificationPredictor(model, modelSpec, dataSpec,
+                new HardVotingFactory(targetVal2Idx)));
+        String[] classLabels = targetValueMap.keySet().stream().map(o -> o).toArray(i -> new String[i]);
+        PredictionRearrangerCreator prc = new PredictionRearrangerCreator(dataSpec, predictor);
+        addClassificationRFColumns(prc, modelSpec, targetValueMap, classLabels, config, pre36);
+        return prc;
+    }
 
+    private static void addClassificationRFColumns(final PredictionRearrangerCreator prc,
+        final TreeEnsembleModelPortObjectSpec modelSpec, final Map<String, DataCell> targetValueMap,
+        final String[] classLabels, final TreeEnsemblePredictorConfiguration config, final boolean pre36) {
         if (pre36) {
             prc.addClassPrediction(config.getPredictionColumnName());
             if (config.isAppendPredictionConfidence()) {
@@ -219,8 +274,6 @@ public static PredictionRearrangerCreator createPRCForClassificationRF(final Dat
         if (config.isAppendModelCount()) {
             prc.addModelCount();
         }
-
-        return prc;
     }
 
     private static Map<String, Integer> createTargetValueToIndexMap(final Map<String, DataCell> targetValueMap) {
@@ -253,11 +306,41 @@ public static PredictionRearrangerCreator createPRCForRegressionRF(final DataTab
             modelRowSamples == null ? new RandomForestRegressionPredictor(model, modelSpec, dataSpec)
                 : new RandomForestRegressionPredictor(model, modelSpec, dataSpec, modelRowSamples, targetColumnData);
         PredictionRearrangerCreator prc = new PredictionRearrangerCreator(dataSpec, predictor);
+        addRegressionRFColumns(prc, config);
+        return prc;
+    }
+
+    /**
+     * Creates a {@link PredictionRearrangerCreator} for the out-of-bag predictions of a regression random forest that
+     * were collected while it was learned. Rows of the training table that were not used for learning are predicted
+     * with all trees of <b>model</b>.
+     *
+     * @param dataSpec the spec of the training table
+     * @param modelSpec the spec of the (regression) random forest
+     * @param model the (regression) random forest
+     * @param outOfBagAccumulator the out-of-bag predictions collected by the learner
+     * @param targetColumnData the target column of the training data
+     * @param config for the prediction
+     * @return a creator that allows to create a table with the out-of-bag predictions
+     * @throws InvalidSettingsException if <b>dataSpec</b> is missing some columns the model needs
+     */
+    public static PredictionRearrangerCreator createOutOfBagPRCForRegressionRF(final DataTableSpec dataSpec,
+        final TreeEnsembleModelPortObjectSpec modelSpec, final TreeEnsembleModel model,
+        final OutOfBagAccumulatorRegression outOfBagAccumulator, final TreeTargetColumnData targetColumnData,
+        final TreeEnsemblePredictorConfiguration config) throws InvalidSettingsException {
+        PredictionRearrangerCreator prc = new PredictionRearrangerCreator(dataSpec,
+            new OutOfBagRegressionPredictor(outOfBagAccumulator, targetColumnData,
+                new RandomForestRegressionPredictor(model, modelSpec, dataSpec)));
+        addRegressionRFColumns(prc, config);
+        return prc;
+    }
+
+    private static void addRegressionRFColumns(final PredictionRearrangerCreator prc,
+        final TreeEnsemblePredictorConfiguration config) {
         prc.addRegressionPrediction(config.getPredictionColumnName());
         prc.addPredictionVariance(config.getPredictionColumnName());
         if (config.isAppendModelCount()) {
             prc.addModelCount();
         }
-        return prc;
     }
 }
@@ -148,4 +148,13 @@ private void findMajorityClass() {
     public final int getNrVotes() {
         return m_nrVotes;
     }
+
+    /**
+     * Registers votes that were counted elsewhere, e.g. while the model was learned.
+     *
+     * @param nrVotes the number of votes to add
+     */
+    protected final void addNrVotes(final int nrVotes) {
+        m_nrVotes += nrVotes;
+    }
 }
@@ -95,6 +95,17 @@ protected void updateDistribution(final TreeNodeClassification leaf) {
         m_classCounts[classIdx]++;
     }
 
+    /**
+     * Adds several votes for the same class at once.
+     *
+     * @param classValue the class voted for
+     * @param nrVotes the number of votes
+     */
+    void addVotes(final String classValue, final int nrVotes) {
+        m_classCounts[getIndexForClass(classValue)] += nrVotes;
+        addNrVotes(nrVotes);
+    }
+
 
 
 
@@ -0,0 +1,140 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.predictor.classification;
+
+import java.util.Map;
+
+import org.knime.base.node.mine.treeensemble2.data.NominalValueRepresentation;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNominalColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.learner.OutOfBagAccumulatorClassification;
+import org.knime.base.node.mine.treeensemble2.node.predictor.AbstractOutOfBagPredictor;
+import org.knime.base.node.mine.treeensemble2.node.predictor.Predictor;
+import org.knime.base.node.mine.treeensemble2.node.predictor.RandomForestClassificationPrediction;
+
+/**
+ * Provides the out-of-bag predictions of a classification random forest from the votes counted while it was learned.
+ * The predictions are the same as the ones of a {@link RandomForestClassificationPredictor} with out-of-bag filter and
+ * {@link HardVotingFactory hard voting}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class OutOfBagClassificationPredictor
+    extends AbstractOutOfBagPredictor<RandomForestClassificationPrediction> {
+
+    private final OutOfBagAccumulatorClassification m_accumulator;
+
+    private final Map<String, Integer> m_targetValueToIndexMap;
+
+    private final String[] m_classValues;
+
+    /**
+     * @param accumulator the votes counted while learning
+     * @param targetColumnData the target column of the training data
+     * @param targetValueToIndexMap maps classes to their index in the output
+     * @param ensemblePredictor predicts the rows that were not used for learning with all trees
+     */
+    public OutOfBagClassificationPredictor(final OutOfBagAccumulatorClassification accumulator,
+        final TreeTargetColumnData targetColumnData, final Map<String, Integer> targetValueToIndexMap,
+        final Predictor<RandomForestClassificationPrediction> ensemblePredictor) {
+        super(targetColumnData, ensemblePredictor);
+        m_accumulator = accumulator;
+        m_targetValueToIndexMap = targetValueToIndexMap;
+        final NominalValueRepresentation[] values =
+            ((TreeTargetNominalColumnMetaData)targetColumnData.getMetaData()).getValues();
+        m_classValues = new String[values.length];
+        for (int c = 0; c < values.length; c++) {
+            m_classValues[c] = values[c].getNominalValue();
+        }
+    }
+
+    @Override
+    protected RandomForestClassificationPrediction predictOutOfBag(final int learnIndex) {
+        final HardVoting voting = new HardVoting(m_targetValueToIndexMap);
+        for (int c = 0; c < m_classValues.length; c++) {
+            final int nrVotes = m_accumulator.getNrVotes(learnIndex, c);
+            if (nrVotes > 0) {
+                voting.addVotes(m_classValues[c], nrVotes);
+            }
+        }
+        return new OutOfBagClassificationPrediction(voting);
+    }
+
+    private static final class OutOfBagClassificationPrediction implements RandomForestClassificationPrediction {
+
+        private final Voting m_voting;
+
+        OutOfBagClassificationPrediction(final Voting voting) {
+            m_voting = voting;
+        }
+
+        @Override
+        public String getClassPrediction() {
+            return m_voting.getMajorityClass();
+        }
+
+        @Override
+        public int getWinningClassIdx() {
+            return m_voting.getMajorityClassIdx();
+        }
+
+        @Override
+        public double getProbability(final int classIdx) {
+            return m_voting.getClassProbabilityForClass(classIdx);
+        }
+
+        @Override
+        public int getModelCount() {
+            return m_voting.getNrVotes();
+        }
+
+        @Override
+        public boolean hasPrediction() {
+            return m_voting.getNrVotes() > 0;
+        }
+
+    }
+
+}
@@ -48,15 +48,19 @@
  */
 package org.knime.base.node.mine.treeensemble2.node.predictor.classification;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
-import org.knime.base.node.mine.treeensemble2.model.TreeModelClassification;
 import org.knime.base.node.mine.treeensemble2.model.TreeNodeClassification;
 import org.knime.base.node.mine.treeensemble2.node.predictor.AbstractRandomForestPredictor;
 import org.knime.base.node.mine.treeensemble2.node.predictor.RandomForestClassificationPrediction;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.RowKey;
 import org.knime.core.node.InvalidSettingsException;
@@ -111,24 +115,54 @@ protected RandomForestClassificationPrediction predictRecord(final PredictorReco
         return new RFClassificationPrediction(record, key, hasOutOfBagFilter());
     }
 
+    @Override
+    public List<RandomForestClassificationPrediction> predictBlock(final List<? extends DataRow> rows) {
+        if (hasOutOfBagFilter()) {
+            // the out of bag filter is resolved row by row
+            return super.predictBlock(rows);
+        }
+        final CompiledTreeEnsemble.Block block = createBlock(rows);
+        final int size = block.getSize();
+        final Voting[] votings = new Voting[size];
+        for (int r = 0; r < size; r++) {
+            votings[r] = m_votingFactory.createVoting();
+        }
+        final CompiledTreeEnsemble compiledModel = m_model.getCompiledModel();
+        final TreeNodeClassification[] matches = new TreeNodeClassification[size];
+        final int nrModels = m_model.getNrModels();
+        for (int i = 0; i < nrModels; i++) {
+            compiledModel.findMatchingNodes(i, block, matches);
+            for (int r = 0; r < size; r++) {
+                votings[r].addVote(matches[r]);
+            }
+        }
+        final List<RandomForestClassificationPrediction> predictions = new ArrayList<>(size);
+        for (final Voting voting : votings) {
+            predictions.add(new RFClassificationPrediction(voting));
+        }
+        return predictions;
+    }
+
     private class RFClassificationPrediction implements RandomForestClassificationPrediction {
 
         private final Voting m_voting;
 
         RFClassificationPrediction(final PredictorRecord record, final RowKey key, final boolean hasOutOfBagFilter) {
             m_voting = m_votingFactory.createVoting();
-            final int nrModels = m_model.getNrModels();
-            for (int i = 0; i < nrModels; i++) {
-                if (hasOutOfBagFilter && isRowPartOfTrainingData(key, i)) {
-                    // ignore, row was used to train the model
-                } else {
-                    TreeModelClassification m = m_model.getTreeModelClassification(i);
-                    TreeNodeClassification match = m.findMatchingNode(record);
-                    m_voting.addVote(match);
-                }
+            final CompiledTreeEnsemble compiledModel = m_model.getCompiledModel();
+            final CompiledTreeEnsemble.Row row = compiledModel.createRow().load(record);
+            final int learnIndex = hasOutOfBagFilter ? getLearnIndex(key) : -1;
+            // only the models that were not trained on the row
+            for (int i = nextOutOfBagModel(learnIndex, 0); i >= 0; i = nextOutOfBagModel(learnIndex, i + 1)) {
+                TreeNodeClassification match = compiledModel.findMatchingNode(i, row);
+                m_voting.addVote(match);
             }
         }
 
+        RFClassificationPrediction(final Voting voting) {
+            m_voting = voting;
+        }
+
         @Override
         public String getClassPrediction() {
             return m_voting.getMajorityClass();
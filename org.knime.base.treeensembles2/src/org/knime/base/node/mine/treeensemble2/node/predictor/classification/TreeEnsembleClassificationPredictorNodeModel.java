@@ -126,10 +126,9 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
         BufferedDataTable data = (BufferedDataTable)inObjects[1];
         DataTableSpec dataSpec = data.getDataTableSpec();
         m_configuration.checkSoftVotingSettingForModel(model).ifPresent(this::setWarningMessage);
-        ColumnRearranger rearranger = TreeEnsemblePredictionUtil.createPRCForClassificationRF(
+        BufferedDataTable outTable = TreeEnsemblePredictionUtil.createPRCForClassificationRF(
             dataSpec, modelSpec, model.getEnsembleModel(), null, null, m_configuration, m_pre36)
-                .createExecutionRearranger();
-        BufferedDataTable outTable = exec.createColumnRearrangeTable(data, rearranger, exec);
+                .createPredictionTable(data, exec);
         return new BufferedDataTable[]{outTable};
     }
 
@@ -0,0 +1,84 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.predictor.classification;
+
+import java.util.Map;
+
+import org.knime.base.node.mine.treeensemble2.model.AdaBoostModel;
+
+/**
+ * Factory for hard votings in which the votes of the trees of an {@link AdaBoostModel} are weighted.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class WeightedHardVotingFactory implements VotingFactory {
+
+    private final Map<String, Integer> m_targetValueToIndexMap;
+
+    private final double[] m_modelWeights;
+
+    /**
+     * Constructs a new factory.
+     *
+     * @param targetValueToIndexMap maps classes to their index used by the model
+     * @param model the model providing the weight of each tree
+     */
+    public WeightedHardVotingFactory(final Map<String, Integer> targetValueToIndexMap, final AdaBoostModel model) {
+        m_targetValueToIndexMap = targetValueToIndexMap;
+        m_modelWeights = new double[model.getNrModels()];
+        for (int i = 0; i < m_modelWeights.length; i++) {
+            m_modelWeights[i] = model.getModelWeight(i);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Voting createVoting() {
+        return new WeightedHardVoting(m_targetValueToIndexMap, m_modelWeights);
+    }
+
+}
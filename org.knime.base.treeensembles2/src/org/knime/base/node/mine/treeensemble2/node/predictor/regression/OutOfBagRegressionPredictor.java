@@ -0,0 +1,118 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.predictor.regression;
+
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.learner.OutOfBagAccumulatorRegression;
+import org.knime.base.node.mine.treeensemble2.node.predictor.AbstractOutOfBagPredictor;
+import org.knime.base.node.mine.treeensemble2.node.predictor.Predictor;
+import org.knime.base.node.mine.treeensemble2.node.predictor.RandomForestRegressionPrediction;
+
+/**
+ * Provides the out-of-bag predictions of a regression random forest from the moments accumulated while it was
+ * learned. The predictions are the same as the ones of a {@link RandomForestRegressionPredictor} with out-of-bag
+ * filter.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class OutOfBagRegressionPredictor extends AbstractOutOfBagPredictor<RandomForestRegressionPrediction> {
+
+    private final OutOfBagAccumulatorRegression m_accumulator;
+
+    /**
+     * @param accumulator the moments accumulated while learning
+     * @param targetColumnData the target column of the training data
+     * @param ensemblePredictor predicts the rows that were not used for learning with all trees
+     */
+    public OutOfBagRegressionPredictor(final OutOfBagAccumulatorRegression accumulator,
+        final TreeTargetColumnData targetColumnData,
+        final Predictor<RandomForestRegressionPrediction> ensemblePredictor) {
+        super(targetColumnData, ensemblePredictor);
+        m_accumulator = accumulator;
+    }
+
+    @Override
+    protected RandomForestRegressionPrediction predictOutOfBag(final int learnIndex) {
+        return new OutOfBagRegressionPrediction(m_accumulator.getMean(learnIndex),
+            m_accumulator.getVariance(learnIndex), m_accumulator.getModelCount(learnIndex));
+    }
+
+    private static final class OutOfBagRegressionPrediction implements RandomForestRegressionPrediction {
+
+        private final double m_mean;
+
+        private final double m_variance;
+
+        private final int m_modelCount;
+
+        OutOfBagRegressionPrediction(final double mean, final double variance, final int modelCount) {
+            m_mean = mean;
+            m_variance = variance;
+            m_modelCount = modelCount;
+        }
+
+        @Override
+        public double getPrediction() {
+            return m_mean;
+        }
+
+        @Override
+        public double getVariance() {
+            return m_variance;
+        }
+
+        @Override
+        public int getModelCount() {
+            return m_modelCount;
+        }
+
+        @Override
+        public boolean hasPrediction() {
+            return m_modelCount != 0;
+        }
+
+    }
+
+}
@@ -3,17 +3,21 @@
  */
 package org.knime.base.node.mine.treeensemble2.node.predictor.regression;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.math.stat.descriptive.moment.Mean;
 import org.apache.commons.math.stat.descriptive.moment.Variance;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
-import org.knime.base.node.mine.treeensemble2.model.TreeModelRegression;
 import org.knime.base.node.mine.treeensemble2.model.TreeNodeRegression;
 import org.knime.base.node.mine.treeensemble2.node.predictor.AbstractRandomForestPredictor;
 import org.knime.base.node.mine.treeensemble2.node.predictor.RandomForestRegressionPrediction;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.RowKey;
 import org.knime.core.node.InvalidSettingsException;
@@ -58,6 +62,38 @@ protected RandomForestRegressionPrediction predictRecord(final PredictorRecord r
         return new RFRegressionPrediction(record, key, hasOutOfBagFilter());
     }
 
+    @Override
+    public List<RandomForestRegressionPrediction> predictBlock(final List<? extends DataRow> rows) {
+        if (hasOutOfBagFilter()) {
+            // the out of bag filter is resolved row by row
+            return super.predictBlock(rows);
+        }
+        final CompiledTreeEnsemble.Block block = createBlock(rows);
+        final int size = block.getSize();
+        final Mean[] means = new Mean[size];
+        final Variance[] variances = new Variance[size];
+        for (int r = 0; r < size; r++) {
+            means[r] = new Mean();
+            variances[r] = new Variance();
+        }
+        final CompiledTreeEnsemble compiledModel = m_model.getCompiledModel();
+        final TreeNodeRegression[] matches = new TreeNodeRegression[size];
+        final int nrModels = m_model.getNrModels();
+        for (int i = 0; i < nrModels; i++) {
+            compiledModel.findMatchingNodes(i, block, matches);
+            for (int r = 0; r < size; r++) {
+                double nodeMean = matches[r].getMean();
+                means[r].increment(nodeMean);
+                variances[r].increment(nodeMean);
+            }
+        }
+        final List<RandomForestRegressionPrediction> predictions = new ArrayList<>(size);
+        for (int r = 0; r < size; r++) {
+            predictions.add(new RFRegressionPrediction(means[r], variances[r]));
+        }
+        return predictions;
+    }
+
     private class RFRegressionPrediction implements RandomForestRegressionPrediction {
 
         private final double m_mean;
@@ -72,23 +108,27 @@ private class RFRegressionPrediction implements RandomForestRegressionPrediction
         RFRegressionPrediction(final PredictorRecord record, final RowKey key, final boolean hasOutOfBagFilter) {
             Mean mean = new Mean();
             Variance variance = new Variance();
-            final int nrModels = m_model.getNrModels();
-            for (int i = 0; i < nrModels; i++) {
-                if (hasOutOfBagFilter && isRowPartOfTrainingData(key, i)) {
-                    // ignore, row was used to train the model
-                } else {
-                    TreeModelRegression m = m_model.getTreeModelRegression(i);
-                    TreeNodeRegression match = m.findMatchingNode(record);
-                    double nodeMean = match.getMean();
-                    mean.increment(nodeMean);
-                    variance.increment(nodeMean);
-                }
+            final CompiledTreeEnsemble compiledModel = m_model.getCompiledModel();
+            final CompiledTreeEnsemble.Row row = compiledModel.createRow().load(record);
+            final int learnIndex = hasOutOfBagFilter ? getLearnIndex(key) : -1;
+            // only the models that were not trained on the row
+            for (int i = nextOutOfBagModel(learnIndex, 0); i >= 0; i = nextOutOfBagModel(learnIndex, i + 1)) {
+                TreeNodeRegression match = compiledModel.findMatchingNode(i, row);
+                double nodeMean = match.getMean();
+                mean.increment(nodeMean);
+                variance.increment(nodeMean);
             }
             m_modelCount = (int)mean.getN();
             m_variance = variance.getResult();
             m_mean = mean.getResult();
         }
 
+        RFRegressionPrediction(final Mean mean, final Variance variance) {
+            m_modelCount = (int)mean.getN();
+            m_variance = variance.getResult();
+            m_mean = mean.getResult();
+        }
+
         /* (non-Javadoc)
          * @see org.knime.base.node.mine.treeensemble2.node.predictor.RegressionPrediction#getPrediction()
          */
@@ -119,9 +119,9 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
         TreeEnsembleModelPortObjectSpec modelSpec = model.getSpec();
         BufferedDataTable data = (BufferedDataTable)inObjects[1];
         DataTableSpec dataSpec = data.getDataTableSpec();
-        ColumnRearranger rearranger = TreeEnsemblePredictionUtil.createPRCForRegressionRF(
-            dataSpec, modelSpec, model.getEnsembleModel(), null, null, m_configuration).createExecutionRearranger();
-        BufferedDataTable outTable = exec.createColumnRearrangeTable(data, rearranger, exec);
+        BufferedDataTable outTable = TreeEnsemblePredictionUtil.createPRCForRegressionRF(
+            dataSpec, modelSpec, model.getEnsembleModel(), null, null, m_configuration)
+                .createPredictionTable(data, exec);
         return new BufferedDataTable[]{outTable};
     }
 
@@ -0,0 +1,162 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+/**
+ * Inverted index from the leafs of one tree to the rows ending up in them. The rows of a leaf are consecutive in
+ * {@link #getRows()} and sorted ascending.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class LeafGroups {
+
+    private final int m_minLeaf;
+
+    /** The rows of leaf l are at [m_leafStart[l - m_minLeaf], m_leafStart[l - m_minLeaf + 1]) in m_rows. */
+    private final int[] m_leafStart;
+
+    private final int[] m_rows;
+
+    /** The position of row r in m_rows, null if not requested. */
+    private final int[] m_position;
+
+    /**
+     * @param leafs the leaf of each row in the tree, {@link LeafIndexMatrix#NO_LEAF} for rows that are left out
+     */
+    LeafGroups(final int[] leafs) {
+        this(leafs, false);
+    }
+
+    /**
+     * @param leafs the leaf of each row in the tree, {@link LeafIndexMatrix#NO_LEAF} for rows that are left out
+     * @param withPositions whether to remember the position of each row for {@link #getPosition(int)}
+     */
+    LeafGroups(final int[] leafs, final boolean withPositions) {
+        int minLeaf = Integer.MAX_VALUE;
+        int maxLeaf = Integer.MIN_VALUE;
+        int nrRowsWithLeaf = 0;
+        for (final int leaf : leafs) {
+            if (leaf != LeafIndexMatrix.NO_LEAF) {
+                minLeaf = Math.min(minLeaf, leaf);
+                maxLeaf = Math.max(maxLeaf, leaf);
+                nrRowsWithLeaf++;
+            }
+        }
+        if (nrRowsWithLeaf == 0) {
+            minLeaf = 0;
+            maxLeaf = -1;
+        }
+        m_minLeaf = minLeaf;
+        m_rows = new int[nrRowsWithLeaf];
+        // counting sort, the leafs of a tree are a contiguous range of node indices
+        m_leafStart = new int[maxLeaf - minLeaf + 2];
+        for (final int leaf : leafs) {
+            if (leaf != LeafIndexMatrix.NO_LEAF) {
+                m_leafStart[leaf - minLeaf + 1]++;
+            }
+        }
+        for (int l = 1; l < m_leafStart.length; l++) {
+            m_leafStart[l] += m_leafStart[l - 1];
+        }
+        m_position = withPositions ? new int[leafs.length] : null;
+        final int[] next = m_leafStart.clone();
+        for (int r = 0; r < leafs.length; r++) {
+            if (leafs[r] != LeafIndexMatrix.NO_LEAF) {
+                final int position = next[leafs[r] - minLeaf]++;
+                m_rows[position] = r;
+                if (m_position != null) {
+                    m_position[r] = position;
+                }
+            }
+        }
+    }
+
+    /** @return the smallest leaf a row ends up in */
+    int getFirstLeaf() {
+        return m_minLeaf;
+    }
+
+    /** @return the largest leaf a row ends up in, smaller than {@link #getFirstLeaf()} if no row has a leaf */
+    int getLastLeaf() {
+        return m_minLeaf + m_leafStart.length - 2;
+    }
+
+    /** @return the rows grouped by leaf, must not be modified */
+    int[] getRows() {
+        return m_rows;
+    }
+
+    /**
+     * @param leaf a leaf
+     * @return the position of the first row of <b>leaf</b> in {@link #getRows()}
+     */
+    int getStart(final int leaf) {
+        return contains(leaf) ? m_leafStart[leaf - m_minLeaf] : 0;
+    }
+
+    /**
+     * @param leaf a leaf
+     * @return the position after the last row of <b>leaf</b> in {@link #getRows()}, equal to the start if no row
+     *         ends up in <b>leaf</b>
+     */
+    int getEnd(final int leaf) {
+        return contains(leaf) ? m_leafStart[leaf - m_minLeaf + 1] : 0;
+    }
+
+    /**
+     * Only available if the groups were created with positions.
+     *
+     * @param row a row with a leaf
+     * @return the position of <b>row</b> in {@link #getRows()}
+     */
+    int getPosition(final int row) {
+        return m_position[row];
+    }
+
+    private boolean contains(final int leaf) {
+        return leaf != LeafIndexMatrix.NO_LEAF && leaf >= m_minLeaf && leaf - m_minLeaf + 1 < m_leafStart.length;
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.knime.base.data.filter.column.FilterColumnRow;
+import org.knime.base.node.mine.treeensemble2.data.IndexedPredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
+import org.knime.base.node.mine.treeensemble2.node.ThreadPoolUtil;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * The leaf each row of a table ends up in, for every tree of an ensemble. The table is read once and its rows are
+ * evaluated block-wise by the {@link TreeEnsembleModel#getCompiledModel() compiled model}, so proximity measures
+ * don't need to decode the table again for every tree. Leafs are identified by their node index in the compiled
+ * model, which is unique within the ensemble.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class LeafIndexMatrix {
+
+    /** The leaf of rows that can't be evaluated (missing vector cell), it matches no other row. */
+    public static final int NO_LEAF = -1;
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private final CompiledTreeEnsemble m_compiledModel;
+
+    /** The leaf of row r in tree t at m_leaves[t][r]. */
+    private final int[][] m_leaves;
+
+    private LeafIndexMatrix(final CompiledTreeEnsemble compiledModel, final int nrRows) {
+        m_compiledModel = compiledModel;
+        m_leaves = new int[compiledModel.getNrTrees()][nrRows];
+    }
+
+    /**
+     * Evaluates all trees of <b>modelPortObject</b> for each row of <b>table</b>.
+     *
+     * @param table the table to evaluate
+     * @param modelPortObject the tree ensemble
+     * @param exec to report progress and check for cancelation
+     * @return the leafs of the rows of <b>table</b>
+     * @throws InvalidSettingsException if <b>table</b> lacks learning columns of the model
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws InterruptedException if the thread is interrupted while waiting for a block
+     */
+    public static LeafIndexMatrix create(final BufferedDataTable table,
+        final TreeEnsembleModelPortObject modelPortObject, final ExecutionMonitor exec)
+        throws InvalidSettingsException, CanceledExecutionException, InterruptedException {
+        final long nrRowsLong = table.size();
+        if (nrRowsLong > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tables larger than Integer.MAX_VALUE can currently not be handled.");
+        }
+        final int nrRows = (int)nrRowsLong;
+        final int[] learnColIndices = modelPortObject.getSpec().calculateFilterIndices(table.getDataTableSpec());
+        final DataTableSpec learnSpec = modelPortObject.getSpec().getLearnTableSpec();
+        final TreeEnsembleModel model = modelPortObject.getEnsembleModel();
+        final LeafIndexMatrix matrix = new LeafIndexMatrix(model.getCompiledModel(), nrRows);
+        final ThreadPool tp = KNIMEConstants.GLOBAL_THREAD_POOL;
+        final int maxPendingBlocks = 2 * Runtime.getRuntime().availableProcessors();
+        final Deque<Future<?>> pendingBlocks = new ArrayDeque<>(maxPendingBlocks);
+        int offset = 0;
+        try (CloseableRowIterator iterator = table.iterator()) {
+            while (iterator.hasNext()) {
+                final List<DataRow> rows = new ArrayList<>(BLOCK_SIZE);
+                while (iterator.hasNext() && rows.size() < BLOCK_SIZE) {
+                    rows.add(iterator.next());
+                }
+                final int blockOffset = offset;
+                pendingBlocks.add(tp.enqueue(() -> matrix.fillBlock(model, learnColIndices, learnSpec, rows,
+                    blockOffset)));
+                offset += rows.size();
+                if (pendingBlocks.size() == maxPendingBlocks) {
+                    ThreadPoolUtil.waitFor(pendingBlocks.poll());
+                }
+                exec.setProgress(offset / (double)nrRows, "Evaluated trees for " + offset + " rows");
+                exec.checkCanceled();
+            }
+            while (!pendingBlocks.isEmpty()) {
+                ThreadPoolUtil.waitFor(pendingBlocks.poll());
+            }
+        } finally {
+            for (final Future<?> pendingBlock : pendingBlocks) {
+                pendingBlock.cancel(true);
+            }
+        }
+        return matrix;
+    }
+
+    private void fillBlock(final TreeEnsembleModel model, final int[] learnColIndices, final DataTableSpec learnSpec,
+        final List<DataRow> rows, final int offset) {
+        final CompiledTreeEnsemble.Block block = m_compiledModel.createBlock(rows.size());
+        final IndexedPredictorRecord record = new IndexedPredictorRecord(model.getMetaData());
+        // rows that can't be evaluated are left out of the block and get NO_LEAF
+        final int[] rowInBlock = new int[rows.size()];
+        for (int r = 0; r < rows.size(); r++) {
+            final IndexedPredictorRecord filled =
+                model.createPredictorRecord(new FilterColumnRow(rows.get(r), learnColIndices), learnSpec, record);
+            rowInBlock[r] = filled == null ? NO_LEAF : block.add(filled);
+        }
+        fillLeaves(block, rowInBlock, offset);
+    }
+
+    /**
+     * Evaluates all trees for records that were already created, which spares tests the table.
+     *
+     * @param compiledModel the compiled ensemble
+     * @param records the records of the rows, null for rows that can't be evaluated
+     * @return the leafs of the rows
+     */
+    static LeafIndexMatrix create(final CompiledTreeEnsemble compiledModel, final PredictorRecord[] records) {
+        final LeafIndexMatrix matrix = new LeafIndexMatrix(compiledModel, records.length);
+        final CompiledTreeEnsemble.Block block = compiledModel.createBlock(records.length);
+        final int[] rowInBlock = new int[records.length];
+        for (int r = 0; r < records.length; r++) {
+            rowInBlock[r] = records[r] == null ? NO_LEAF : block.add(records[r]);
+        }
+        matrix.fillLeaves(block, rowInBlock, 0);
+        return matrix;
+    }
+
+    /**
+     * @param block the evaluable rows
+     * @param rowInBlock the position of each row in <b>block</b>, {@link #NO_LEAF} if it isn't in the block
+     * @param offset the index of the first row
+     */
+    private void fillLeaves(final CompiledTreeEnsemble.Block block, final int[] rowInBlock, final int offset) {
+        final int[] blockLeaves = new int[block.getSize()];
+        for (int t = 0; t < m_leaves.length; t++) {
+            m_compiledModel.findMatchingNodeIndices(t, block, blockLeaves, 0);
+            final int[] treeLeaves = m_leaves[t];
+            for (int r = 0; r < rowInBlock.length; r++) {
+                treeLeaves[offset + r] = rowInBlock[r] == NO_LEAF ? NO_LEAF : blockLeaves[rowInBlock[r]];
+            }
+        }
+    }
+
+    /** @return the number of trees */
+    public int getNrTrees() {
+        return m_leaves.length;
+    }
+
+    /** @return the number of rows */
+    public int getNrRows() {
+        return m_leaves.length == 0 ? 0 : m_leaves[0].length;
+    }
+
+    /**
+     * @param treeIndex the index of the tree
+     * @return the leaf of each row in tree <b>treeIndex</b> ({@link #NO_LEAF} for rows that can't be evaluated), must
+     *         not be modified
+     */
+    public int[] getLeaves(final int treeIndex) {
+        return m_leaves[treeIndex];
+    }
+
+    /**
+     * @param leaf a leaf other than {@link #NO_LEAF}
+     * @return the path from the root of the tree to the leaf, see {@link CompiledTreeEnsemble#getPath(int)}
+     */
+    public TreePath getTreePath(final int leaf) {
+        return new IntArrayTreePath(getPath(leaf));
+    }
+
+    /**
+     * @param leaf a leaf other than {@link #NO_LEAF}
+     * @return the position of each node on the path from the root to the leaf among the children of its parent
+     */
+    int[] getPath(final int leaf) {
+        return m_compiledModel.getPath(leaf);
+    }
+
+}
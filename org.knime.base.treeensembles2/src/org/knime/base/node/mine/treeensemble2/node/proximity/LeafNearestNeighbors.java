@@ -0,0 +1,312 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
+import org.knime.base.node.mine.treeensemble2.node.ThreadPoolUtil;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Finds the k nearest neighbors with respect to the {@link Proximity proximity} without materializing the proximity
+ * matrix. For every tree the rows of the neighbor table are indexed by their leaf, the proximity counts of a query
+ * row are then only accumulated for the rows that share at least one leaf with it and only the k best ones are kept.
+ * Memory scales with the number of rows times the number of trees (leafs and index) instead of the product of the
+ * table sizes.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class LeafNearestNeighbors {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final LeafIndexMatrix m_queryLeafs;
+
+    /** The rows of the neighbor table grouped by leaf, per tree. */
+    private final LeafGroups[] m_leafIndex;
+
+    private final int m_nrNeighborRows;
+
+    private final int m_k;
+
+    /**
+     * @param queryLeafs the leafs of the rows whose neighbors are searched
+     * @param neighborLeafs the leafs of the candidate neighbors, may be <b>queryLeafs</b>
+     * @param k the number of neighbors, must be smaller than the number of rows of <b>neighborLeafs</b>
+     */
+    LeafNearestNeighbors(final LeafIndexMatrix queryLeafs, final LeafIndexMatrix neighborLeafs,
+        final int k) {
+        m_queryLeafs = queryLeafs;
+        m_leafIndex = SharedLeafCounter.createLeafIndex(neighborLeafs);
+        m_nrNeighborRows = neighborLeafs.getNrRows();
+        m_k = k;
+    }
+
+    /**
+     * Determines the <b>k</b> nearest neighbors in the last of <b>tables</b> for each row of the first one. The output
+     * is the same as {@link ProximityMatrix#getNearestNeighbors(ExecutionContext, int)} on the matrix
+     * {@link Proximity#calcProximities(BufferedDataTable[], TreeEnsembleModelPortObject, ExecutionContext)} returns:
+     * neighbors are sorted by descending proximity and neighbors with the same proximity by their position in the
+     * table.
+     *
+     * @param tables one table whose rows are compared with each other or the query and the neighbor table
+     * @param modelPortObject the tree ensemble
+     * @param k the number of neighbors, must be smaller than the number of rows of the neighbor table
+     * @param exec to create the tables and report progress
+     * @return the neighbors and their proximities, see {@link ProximityMatrix#createNearestNeighborOutSpecs(int)}
+     * @throws InvalidSettingsException if a table lacks learning columns of the model
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws InterruptedException if the thread is interrupted while waiting for a task
+     */
+    public static BufferedDataTable[] findNearestNeighbors(final BufferedDataTable[] tables,
+        final TreeEnsembleModelPortObject modelPortObject, final int k, final ExecutionContext exec)
+        throws InvalidSettingsException, CanceledExecutionException, InterruptedException {
+        if (tables.length < 1 || tables.length > 2) {
+            throw new IllegalArgumentException("Currently only up to two tables are supported.");
+        }
+        final BufferedDataTable queryTable = tables[0];
+        final BufferedDataTable neighborTable = tables[tables.length - 1];
+        if (k < 0 || k >= neighborTable.size()) {
+            throw new IllegalArgumentException("k must be within the range of the proximity matrix.");
+        }
+
+        exec.setMessage("Finding the leafs of the rows");
+        final LeafIndexMatrix queryLeafs = LeafIndexMatrix.create(queryTable, modelPortObject,
+            exec.createSubProgress(tables.length == 1 ? 0.4 : 0.2));
+        final LeafIndexMatrix neighborLeafs = tables.length == 1 ? queryLeafs
+            : LeafIndexMatrix.create(neighborTable, modelPortObject, exec.createSubProgress(0.2));
+        final RowKey[] neighborKeys = new RowKey[neighborLeafs.getNrRows()];
+        int index = 0;
+        for (DataRow row : neighborTable) {
+            neighborKeys[index++] = row.getKey();
+        }
+        final LeafNearestNeighbors nearestNeighbors = new LeafNearestNeighbors(queryLeafs, neighborLeafs, k);
+
+        exec.setMessage("Calculating nearest neighbors");
+        return nearestNeighbors.write(queryTable, neighborKeys, exec.createSubContext(0.6));
+    }
+
+    private BufferedDataTable[] write(final BufferedDataTable queryTable, final RowKey[] neighborKeys,
+        final ExecutionContext exec) throws CanceledExecutionException, InterruptedException {
+        final DataTableSpec[] tableSpecs = ProximityMatrix.createNearestNeighborOutSpecs(m_k);
+        final BufferedDataContainer containerNeighbors = exec.createDataContainer(tableSpecs[0]);
+        final BufferedDataContainer containerProximities = exec.createDataContainer(tableSpecs[1]);
+        final double nrQueryRows = m_queryLeafs.getNrRows();
+        final double normalizer = 1.0 / m_leafIndex.length;
+        final ThreadPool tp = KNIMEConstants.GLOBAL_THREAD_POOL;
+        final int maxPendingChunks = 2 * Runtime.getRuntime().availableProcessors();
+        final Deque<Future<Chunk>> pendingChunks = new ArrayDeque<>(maxPendingChunks);
+        final Deque<List<RowKey>> pendingKeys = new ArrayDeque<>(maxPendingChunks);
+        int nrWritten = 0;
+        try (CloseableRowIterator iterator = queryTable.iterator()) {
+            int offset = 0;
+            while (iterator.hasNext() || !pendingChunks.isEmpty()) {
+                if (iterator.hasNext() && pendingChunks.size() < maxPendingChunks) {
+                    final List<RowKey> keys = new ArrayList<>(CHUNK_SIZE);
+                    while (iterator.hasNext() && keys.size() < CHUNK_SIZE) {
+                        keys.add(iterator.next().getKey());
+                    }
+                    final int firstRow = offset;
+                    pendingChunks.add(tp.enqueue(() -> findNeighbors(firstRow, keys.size())));
+                    pendingKeys.add(keys);
+                    offset += keys.size();
+                    continue;
+                }
+                final Chunk chunk = ThreadPoolUtil.waitFor(pendingChunks.poll());
+                final List<RowKey> keys = pendingKeys.poll();
+                for (int r = 0; r < keys.size(); r++) {
+                    final DataCell[] neighborCells = new DataCell[m_k];
+                    final DataCell[] proximityCells = new DataCell[m_k];
+                    for (int j = 0; j < m_k; j++) {
+                        neighborCells[j] = new StringCell(neighborKeys[chunk.m_neighbors[r][j]].getString());
+                        proximityCells[j] = new DoubleCell(chunk.m_counts[r][j] * normalizer);
+                    }
+                    final RowKey key = keys.get(r);
+                    containerNeighbors.addRowToTable(new DefaultRow(key, neighborCells));
+                    containerProximities.addRowToTable(new DefaultRow(key, proximityCells));
+                }
+                nrWritten += keys.size();
+                exec.setProgress(nrWritten / nrQueryRows, "Row " + nrWritten + "/" + (int)nrQueryRows);
+                exec.checkCanceled();
+            }
+        } finally {
+            for (final Future<Chunk> pendingChunk : pendingChunks) {
+                pendingChunk.cancel(true);
+            }
+            containerNeighbors.close();
+            containerProximities.close();
+        }
+        return new BufferedDataTable[]{containerNeighbors.getTable(), containerProximities.getTable()};
+    }
+
+    /**
+     * @param firstRow the first query row
+     * @param nrRows the number of consecutive query rows
+     * @return the nearest neighbors of the query rows
+     */
+    Chunk findNeighbors(final int firstRow, final int nrRows) {
+        final Chunk chunk = new Chunk(nrRows, m_k);
+        final SharedLeafCounter counter = new SharedLeafCounter(m_queryLeafs, m_leafIndex, m_nrNeighborRows);
+        final int[] counts = counter.getCounts();
+        final int[] touched = counter.getTouched();
+        final int[] heap = new int[m_k];
+        for (int r = 0; r < nrRows; r++) {
+            final int nrTouched = counter.count(firstRow + r);
+            int heapSize = 0;
+            for (int i = 0; i < nrTouched; i++) {
+                heapSize = offer(heap, heapSize, touched[i], counts);
+            }
+            // rows without any shared leaf have proximity 0, the first ones fill up the k neighbors
+            for (int c = 0; heapSize < m_k; c++) {
+                if (counts[c] == 0) {
+                    heapSize = offer(heap, heapSize, c, counts);
+                }
+            }
+            final int[] neighbors = chunk.m_neighbors[r];
+            final int[] neighborCounts = chunk.m_counts[r];
+            for (int j = m_k - 1; j >= 0; j--) {
+                neighbors[j] = heap[0];
+                neighborCounts[j] = counts[heap[0]];
+                heap[0] = heap[j];
+                siftDown(heap, j, counts);
+            }
+        }
+        return chunk;
+    }
+
+    /** @return true if <b>row1</b> is a less near neighbor than <b>row2</b> */
+    private static boolean isWorse(final int row1, final int row2, final int[] counts) {
+        return counts[row1] < counts[row2] || (counts[row1] == counts[row2] && row1 > row2);
+    }
+
+    /**
+     * Adds <b>row</b> to the heap of the k nearest neighbors found so far, whose root is the least near one.
+     *
+     * @return the new size of the heap
+     */
+    private static int offer(final int[] heap, final int heapSize, final int row, final int[] counts) {
+        if (heapSize < heap.length) {
+            int i = heapSize;
+            while (i > 0 && isWorse(row, heap[(i - 1) / 2], counts)) {
+                heap[i] = heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = row;
+            return heapSize + 1;
+        }
+        if (heapSize > 0 && isWorse(heap[0], row, counts)) {
+            heap[0] = row;
+            siftDown(heap, heapSize, counts);
+        }
+        return heapSize;
+    }
+
+    private static void siftDown(final int[] heap, final int heapSize, final int[] counts) {
+        final int row = heap[0];
+        int i = 0;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && isWorse(heap[child + 1], heap[child], counts)) {
+                child++;
+            }
+            if (!isWorse(heap[child], row, counts)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = row;
+    }
+
+    /** The nearest neighbors of consecutive query rows. */
+    static final class Chunk {
+
+        private final int[][] m_neighbors;
+
+        private final int[][] m_counts;
+
+        private Chunk(final int nrRows, final int k) {
+            m_neighbors = new int[nrRows][k];
+            m_counts = new int[nrRows][k];
+        }
+
+        /**
+         * @param row a row of the chunk, counted from its first query row
+         * @return the nearest neighbors of <b>row</b>, the nearest first
+         */
+        int[] getNeighbors(final int row) {
+            return m_neighbors[row];
+        }
+
+        /**
+         * @param row a row of the chunk, counted from its first query row
+         * @return the number of trees in which each neighbor shares its leaf with <b>row</b>
+         */
+        int[] getCounts(final int row) {
+            return m_counts[row];
+        }
+    }
+
+}
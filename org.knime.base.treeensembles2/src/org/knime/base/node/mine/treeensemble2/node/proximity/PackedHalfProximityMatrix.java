@@ -0,0 +1,308 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.knime.base.node.mine.treeensemble2.node.ThreadPoolUtil;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.RowKey;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Symmetric proximity matrix of a single table that stores the upper half including the diagonal row by row in one
+ * packed int array, i.e. half the memory of {@link SingleTableProximityMatrix}. It keeps the number of trees in which
+ * two rows share a leaf and only applies the normalizer in double precision when an entry is read. The counts
+ * are accumulated by {@link #addSharedLeafs(LeafIndexMatrix, ExecutionMonitor)} without any lock: the rows are split
+ * into stripes and each stripe is updated by a single task, which only writes the packed rows it owns.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class PackedHalfProximityMatrix extends ProximityMatrix {
+
+    /** The maximal number of rows, the packed half of 65500 rows just fits into an array. */
+    public static final int MAX_ROWS = 65500;
+
+    /** The number of trees whose leaf groups are held in memory at the same time. */
+    private static final int TREE_BATCH_SIZE = 32;
+
+    private final RowKey[] m_index2RowKey;
+
+    /** The count of entry (r, c) with r <= c is at {@link #index(int, int)}. */
+    private final int[] m_counts;
+
+    /** The factor of the counts, see {@link #normalize(double)}. */
+    private double m_normalizer = 1.0;
+
+    /**
+     * @param table the table whose rows are compared with each other
+     */
+    public PackedHalfProximityMatrix(final BufferedDataTable table) {
+        this(createIndexMap(table));
+    }
+
+    /**
+     * @param index2RowKey the keys of the rows
+     */
+    PackedHalfProximityMatrix(final RowKey[] index2RowKey) {
+        final int length = index2RowKey.length;
+        m_index2RowKey = index2RowKey;
+        m_counts = new int[(int)offset(length, length)];
+    }
+
+    private static RowKey[] createIndexMap(final BufferedDataTable table) {
+        long lengthLong = table.size();
+        if (lengthLong > MAX_ROWS) {
+            throw new IllegalArgumentException(
+                "This proximity matrix supports a maximal column/row count of " + MAX_ROWS + ".");
+        }
+        final RowKey[] index2RowKey = new RowKey[(int)lengthLong];
+        int index = 0;
+        for (DataRow row : table) {
+            index2RowKey[index++] = row.getKey();
+        }
+        return index2RowKey;
+    }
+
+    /** @return the position of the first entry of row <b>row</b> in a packed half matrix with <b>length</b> rows */
+    private static long offset(final int row, final int length) {
+        return (long)row * length - (long)row * (row - 1) / 2;
+    }
+
+    private int index(final int row, final int col) {
+        if (row <= col) {
+            return (int)(offset(row, m_index2RowKey.length) + col - row);
+        }
+        return (int)(offset(col, m_index2RowKey.length) + row - col);
+    }
+
+    /**
+     * Increments the entries of all pairs of rows that end up in the same leaf of a tree by one. Must not run
+     * concurrently with other modifications of the matrix.
+     *
+     * @param leafs the leafs of the rows of the table of this matrix
+     * @param exec to report progress and check for cancelation
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws InterruptedException if the thread is interrupted while waiting for a task
+     */
+    public void addSharedLeafs(final LeafIndexMatrix leafs, final ExecutionMonitor exec)
+        throws CanceledExecutionException, InterruptedException {
+        final int[][] treeLeafs = new int[leafs.getNrTrees()][];
+        for (int t = 0; t < treeLeafs.length; t++) {
+            treeLeafs[t] = leafs.getLeaves(t);
+        }
+        addSharedLeafs(treeLeafs, exec);
+    }
+
+    /**
+     * @param treeLeafs the leaf of row r in tree t at treeLeafs[t][r]
+     * @param exec to report progress and check for cancelation
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws InterruptedException if the thread is interrupted while waiting for a task
+     * @see #addSharedLeafs(LeafIndexMatrix, ExecutionMonitor)
+     */
+    void addSharedLeafs(final int[][] treeLeafs, final ExecutionMonitor exec)
+        throws CanceledExecutionException, InterruptedException {
+        final ThreadPool tp = KNIMEConstants.GLOBAL_THREAD_POOL;
+        final int[] stripes = createStripes(4 * Runtime.getRuntime().availableProcessors());
+        for (int batchStart = 0; batchStart < treeLeafs.length; batchStart += TREE_BATCH_SIZE) {
+            exec.checkCanceled();
+            final int from = batchStart;
+            final LeafGroups[] groups = new LeafGroups[Math.min(TREE_BATCH_SIZE, treeLeafs.length - from)];
+            final List<Future<?>> tasks = new ArrayList<Future<?>>();
+            for (int t = 0; t < groups.length; t++) {
+                final int group = t;
+                final int[] leafs = treeLeafs[from + t];
+                tasks.add(tp.enqueue(() -> {
+                    groups[group] = new LeafGroups(leafs, true);
+                }));
+            }
+            waitForAll(tasks);
+            for (int s = 0; s + 1 < stripes.length; s++) {
+                final int firstRow = stripes[s];
+                final int lastRow = stripes[s + 1];
+                tasks.add(tp.enqueue(() -> addSharedLeafsToStripe(treeLeafs, from, groups, firstRow, lastRow)));
+            }
+            waitForAll(tasks);
+            final int nrDone = from + groups.length;
+            exec.setProgress(nrDone / (double)treeLeafs.length, "Tree " + nrDone + "/" + treeLeafs.length);
+        }
+    }
+
+    /**
+     * Only writes the packed rows [firstRow, lastRow), which no other task touches.
+     *
+     * @param groups the leaf groups of the trees starting at <b>firstTree</b>
+     */
+    private void addSharedLeafsToStripe(final int[][] treeLeafs, final int firstTree, final LeafGroups[] groups,
+        final int firstRow, final int lastRow) {
+        final int length = m_index2RowKey.length;
+        for (int t = 0; t < groups.length; t++) {
+            final int[] leafs = treeLeafs[firstTree + t];
+            final LeafGroups group = groups[t];
+            final int[] rows = group.getRows();
+            for (int r = firstRow; r < lastRow; r++) {
+                final int leaf = leafs[r];
+                if (leaf == LeafIndexMatrix.NO_LEAF) {
+                    continue;
+                }
+                // the rows of a leaf are sorted, the row itself is followed by the rows of its half row
+                final int end = group.getEnd(leaf);
+                final int rowOffset = (int)offset(r, length) - r;
+                for (int p = group.getPosition(r); p < end; p++) {
+                    m_counts[rowOffset + rows[p]]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param nrStripes the desired number of stripes
+     * @return the first row of each stripe followed by the number of rows, such that each stripe covers about the
+     *         same number of entries of the half matrix
+     */
+    private int[] createStripes(final int nrStripes) {
+        final int length = m_index2RowKey.length;
+        final int actualNrStripes = Math.max(1, Math.min(nrStripes, length));
+        final int[] stripes = new int[actualNrStripes + 1];
+        final double entriesPerStripe = offset(length, length) / (double)actualNrStripes;
+        int row = 0;
+        for (int s = 1; s < actualNrStripes; s++) {
+            while (row < length && offset(row, length) < s * entriesPerStripe) {
+                row++;
+            }
+            stripes[s] = row;
+        }
+        stripes[actualNrStripes] = length;
+        return stripes;
+    }
+
+    private static void waitForAll(final List<Future<?>> tasks) throws InterruptedException {
+        try {
+            for (final Future<?> task : tasks) {
+                ThreadPoolUtil.waitFor(task);
+            }
+        } finally {
+            for (final Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            tasks.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double getEntryAt(final int row, final int col) {
+        return m_counts[index(row, col)] * m_normalizer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double[] getRowAt(final int row) {
+        final double[] result = new double[m_index2RowKey.length];
+        for (int c = 0; c < result.length; c++) {
+            result[c] = m_counts[index(row, c)] * m_normalizer;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected RowKey getRowKeyForTable(final int tableIndex, final int row) {
+        if (tableIndex < 0 || tableIndex > 1) {
+            throw new IndexOutOfBoundsException();
+        }
+        return m_index2RowKey[row];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getNumRows() {
+        return m_index2RowKey.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getNumCols() {
+        return m_index2RowKey.length;
+    }
+
+    /**
+     * Increments the counts of the given pairs of rows, (r, c) and (c, r) are the same entry.
+     *
+     * @param indices (a int[][2]) the indices that should be incremented by 1
+     */
+    public synchronized void incrementSync(final int[][] indices) {
+        for (int[] indexPair : indices) {
+            m_counts[index(indexPair[0], indexPair[1])]++;
+        }
+    }
+
+    /**
+     * Sets the factor that is applied to the counts when the entries are read, the counts themselves don't change.
+     *
+     * @param normalizer the factor of the counts, typically one over the number of trees
+     */
+    public void normalize(final double normalizer) {
+        m_normalizer *= normalizer;
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+/**
+ * The paths from the root of one tree to the leafs of the rows of two tables, encoded as prefix codes: the child
+ * positions along a path are packed with a fixed number of bits per level into longs, starting at the most significant
+ * bit. The length of the common prefix of two paths then follows from the leading zeros of the xor of their codes.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class PathPrefixCodes {
+
+    private final int m_minLeaf;
+
+    private final int m_bitsPerLevel;
+
+    private final int m_levelsPerWord;
+
+    private final int m_nrWords;
+
+    /** The code of leaf l at [(l - m_minLeaf) * m_nrWords, (l - m_minLeaf + 1) * m_nrWords). */
+    private final long[] m_codes;
+
+    /** The length of the path of leaf l at l - m_minLeaf. */
+    private final int[] m_depths;
+
+    /**
+     * @param leafs1 the leafs of the rows of the first table
+     * @param leafs2 the leafs of the rows of the second table
+     * @param treeIndex the index of the tree
+     */
+    PathPrefixCodes(final LeafIndexMatrix leafs1, final LeafIndexMatrix leafs2, final int treeIndex) {
+        int minLeaf = Integer.MAX_VALUE;
+        int maxLeaf = Integer.MIN_VALUE;
+        for (final int[] leafs : new int[][]{leafs1.getLeaves(treeIndex), leafs2.getLeaves(treeIndex)}) {
+            for (final int leaf : leafs) {
+                if (leaf != LeafIndexMatrix.NO_LEAF) {
+                    minLeaf = Math.min(minLeaf, leaf);
+                    maxLeaf = Math.max(maxLeaf, leaf);
+                }
+            }
+        }
+        if (minLeaf > maxLeaf) {
+            minLeaf = 0;
+            maxLeaf = -1;
+        }
+        m_minLeaf = minLeaf;
+        // the path of each leaf that occurs, computed once per leaf instead of once per row
+        final int[][] paths = new int[maxLeaf - minLeaf + 1][];
+        int maxChild = 0;
+        int maxDepth = 0;
+        for (final int[] leafs : new int[][]{leafs1.getLeaves(treeIndex), leafs2.getLeaves(treeIndex)}) {
+            for (final int leaf : leafs) {
+                if (leaf != LeafIndexMatrix.NO_LEAF && paths[leaf - minLeaf] == null) {
+                    final int[] path = leafs1.getPath(leaf);
+                    paths[leaf - minLeaf] = path;
+                    maxDepth = Math.max(maxDepth, path.length);
+                    for (final int child : path) {
+                        maxChild = Math.max(maxChild, child);
+                    }
+                }
+            }
+        }
+        m_bitsPerLevel = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(maxChild));
+        m_levelsPerWord = Long.SIZE / m_bitsPerLevel;
+        m_nrWords = Math.max(1, (maxDepth + m_levelsPerWord - 1) / m_levelsPerWord);
+        m_codes = new long[paths.length * m_nrWords];
+        m_depths = new int[paths.length];
+        for (int l = 0; l < paths.length; l++) {
+            if (paths[l] == null) {
+                continue;
+            }
+            m_depths[l] = paths[l].length;
+            for (int level = 0; level < paths[l].length; level++) {
+                final int shift = Long.SIZE - (level % m_levelsPerWord + 1) * m_bitsPerLevel;
+                m_codes[l * m_nrWords + level / m_levelsPerWord] |= ((long)paths[l][level]) << shift;
+            }
+        }
+    }
+
+    /**
+     * @param leaf a leaf of a row of one of the tables
+     * @return the length of the path from the root to <b>leaf</b>
+     */
+    int getDepth(final int leaf) {
+        return m_depths[leaf - m_minLeaf];
+    }
+
+    /**
+     * @param leaf1 a leaf of a row of one of the tables
+     * @param leaf2 a leaf of a row of one of the tables
+     * @return the number of levels the paths to the two leafs have in common
+     */
+    int getCommonPrefixLength(final int leaf1, final int leaf2) {
+        final int l1 = leaf1 - m_minLeaf;
+        final int l2 = leaf2 - m_minLeaf;
+        final int minDepth = Math.min(m_depths[l1], m_depths[l2]);
+        if (l1 == l2) {
+            return minDepth;
+        }
+        for (int w = 0; w < m_nrWords; w++) {
+            final long diff = m_codes[l1 * m_nrWords + w] ^ m_codes[l2 * m_nrWords + w];
+            if (diff != 0) {
+                final int prefix = w * m_levelsPerWord + Long.numberOfLeadingZeros(diff) / m_bitsPerLevel;
+                return Math.min(prefix, minDepth);
+            }
+        }
+        // one path is a prefix of the other, the unused levels are zero
+        return minDepth;
+    }
+
+}
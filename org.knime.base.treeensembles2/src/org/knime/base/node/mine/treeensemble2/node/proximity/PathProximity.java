@@ -48,18 +48,14 @@
  */
 package org.knime.base.node.mine.treeensemble2.node.proximity;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.concurrent.Future;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.atomic.AtomicReference;
 
-import org.knime.base.data.filter.column.FilterColumnRow;
-import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
-import org.knime.base.node.mine.treeensemble2.model.AbstractTreeModel;
-import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
-import org.knime.core.data.DataRow;
-import org.knime.core.data.DataTableSpec;
+import org.knime.base.node.mine.treeensemble2.node.ThreadPoolUtil;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
@@ -69,143 +65,173 @@
 import org.knime.core.util.ThreadPool;
 
 /**
+ * The path proximity of a row to another row is the average over the trees of the fraction of its path from the root
+ * to its leaf that the other row shares. It is not symmetric, hence a single table is treated like two tables.
  *
  * @author Adrian Nembach, KNIME GmbH, Konstanz, Germany
  */
 public class PathProximity extends AbstractProximity {
 
-    private BufferedDataTable[] m_tables;
+    /** The number of rows of the first table a task calculates. */
+    private static final int STRIPE_SIZE = 64;
 
-    private int[][] m_learnIndicesInTables;
+    private BufferedDataTable[] m_tables;
 
     private TreeEnsembleModelPortObject m_modelPO;
 
-    private DataTableSpec m_learnSpec;
-
     public PathProximity(final BufferedDataTable[] tables, final TreeEnsembleModelPortObject modelPO)
         throws InvalidSettingsException {
         int tableCount = tables.length;
         TreeEnsembleModelPortObjectSpec modelSpec = modelPO.getSpec();
-        m_learnIndicesInTables = new int[2][];
-        m_learnIndicesInTables[0] = modelSpec.calculateFilterIndices(tables[0].getDataTableSpec());
+        modelSpec.calculateFilterIndices(tables[0].getDataTableSpec());
         if (tableCount == 1) {
             m_tables = new BufferedDataTable[]{tables[0], tables[0]};
-            m_learnIndicesInTables[1] = m_learnIndicesInTables[0];
         } else if (tableCount == 2) {
             m_tables = tables;
-            m_learnIndicesInTables[1] = modelSpec.calculateFilterIndices(m_tables[1].getDataTableSpec());
+            modelSpec.calculateFilterIndices(m_tables[1].getDataTableSpec());
         } else {
             throw new IllegalArgumentException("More than two tables are currently not supported.");
         }
         m_modelPO = modelPO;
-        m_learnSpec = modelSpec.getLearnTableSpec();
-        if (tableCount == 2) {
-        }
     }
 
+    /**
+     * @param exec to report progress
+     * @return the dense matrix of all path proximities
+     * @throws InterruptedException if the thread is interrupted while waiting for a task
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws InvalidSettingsException if a table lacks learning columns of the model
+     */
     public ProximityMatrix calculatePathProximities(final ExecutionContext exec)
-        throws InterruptedException, CanceledExecutionException {
-        final ThreadPool tp = KNIMEConstants.GLOBAL_THREAD_POOL;
-        final int procCount = 3 * Runtime.getRuntime().availableProcessors() / 2;
-        final Semaphore semaphore = new Semaphore(procCount);
-        final AtomicReference<Throwable> proxThrowableRef = new AtomicReference<Throwable>();
+        throws InterruptedException, CanceledExecutionException, InvalidSettingsException {
+        final TwoTablesProximityMatrix proximityMatrix = new TwoTablesProximityMatrix(m_tables[0], m_tables[1]);
+        calculatePathProximities(exec, proximityMatrix::setRow);
+        return proximityMatrix;
+    }
 
-        // The path proximity matrix is not symmetric if applied for a single table
-        // therefore we have to use the two table approach even it is only a single table
-        ProximityMatrix proximityMatrix = new TwoTablesProximityMatrix(m_tables[0], m_tables[1]);
+    /**
+     * @param exec to report progress
+     * @param minProximity the minimal path proximity of the stored entries, zero proximities are never stored
+     * @return the matrix of the path proximities that are at least <b>minProximity</b>
+     * @throws InterruptedException if the thread is interrupted while waiting for a task
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws InvalidSettingsException if a table lacks learning columns of the model
+     */
+    public SparseProximityMatrix calculateSparsePathProximities(final ExecutionContext exec,
+        final double minProximity) throws InterruptedException, CanceledExecutionException, InvalidSettingsException {
+        final SparseProximityMatrix proximityMatrix = new SparseProximityMatrix(m_tables[0], m_tables[1]);
+        calculatePathProximities(exec, (row, values) -> proximityMatrix.setRow(row, values, minProximity));
+        return proximityMatrix;
+    }
 
-        final int nrTrees = m_modelPO.getEnsembleModel().getNrModels();
-        final Future<?>[] calcFutures = new Future<?>[nrTrees];
-        exec.setProgress(0, "Starting proximity calculation per tree.");
-        for (int i = 0; i < nrTrees; i++) {
-            semaphore.acquire();
-            finishedTree(i, exec, nrTrees);
-            checkThrowable(proxThrowableRef);
-            ExecutionMonitor subExec = exec.createSubProgress(0.0);
-            calcFutures[i] =
-                tp.enqueue(new PathProximityCalcRunnable(i, proximityMatrix, semaphore, proxThrowableRef, subExec));
-        }
+    private void calculatePathProximities(final ExecutionContext exec, final RowConsumer rowConsumer)
+        throws InterruptedException, CanceledExecutionException, InvalidSettingsException {
+        // the tables are decoded once, the trees then only work on the leafs of the rows
+        exec.setMessage("Finding the leafs of the rows");
+        final boolean singleTable = m_tables[0] == m_tables[1];
+        final LeafIndexMatrix leaves1 =
+            LeafIndexMatrix.create(m_tables[0], m_modelPO, exec.createSubProgress(singleTable ? 0.3 : 0.15));
+        final LeafIndexMatrix leaves2 =
+            singleTable ? leaves1 : LeafIndexMatrix.create(m_tables[1], m_modelPO, exec.createSubProgress(0.15));
+        exec.setMessage("Calculating path proximities");
+        calculatePathProximities(leaves1, leaves2, exec.createSubProgress(0.7), rowConsumer);
+    }
 
-        for (int i = 0; i < procCount; i++) {
-            semaphore.acquire();
-            finishedTree(nrTrees - procCount + i, exec, nrTrees);
+    /**
+     * Calculates the path proximities of each row of the first table to all rows of the second table. Rows without a
+     * leaf in a tree have proximity zero to all rows in that tree.
+     *
+     * @param leaves1 the leafs of the rows of the first table
+     * @param leaves2 the leafs of the rows of the second table, the same object for a single table
+     * @param rowExec to report progress and check for cancelation
+     * @param rowConsumer receives the proximities of each row of the first table, possibly concurrently
+     * @throws InterruptedException if the thread is interrupted while waiting for a task
+     * @throws CanceledExecutionException if the execution is canceled
+     */
+    static void calculatePathProximities(final LeafIndexMatrix leaves1, final LeafIndexMatrix leaves2,
+        final ExecutionMonitor rowExec, final RowConsumer rowConsumer)
+        throws InterruptedException, CanceledExecutionException {
+        // each path is encoded once per leaf, the rows of the second table are grouped by leaf
+        final int nrTrees = leaves1.getNrTrees();
+        final PathPrefixCodes[] codes = new PathPrefixCodes[nrTrees];
+        final LeafGroups[] leafIndex = SharedLeafCounter.createLeafIndex(leaves2);
+        for (int t = 0; t < nrTrees; t++) {
+            rowExec.checkCanceled();
+            codes[t] = new PathPrefixCodes(leaves1, leaves2, t);
         }
 
-        for (Future<?> future : calcFutures) {
-            try {
-                future.get();
-            } catch (Exception e) {
-                proxThrowableRef.compareAndSet(null, e);
+        final int nrRows = leaves1.getNrRows();
+        final ThreadPool tp = KNIMEConstants.GLOBAL_THREAD_POOL;
+        final int maxPendingStripes = 2 * Runtime.getRuntime().availableProcessors();
+        final Deque<Future<?>> pendingStripes = new ArrayDeque<>(maxPendingStripes);
+        try {
+            for (int from = 0; from < nrRows; from += STRIPE_SIZE) {
+                final int firstRow = from;
+                final int lastRow = Math.min(from + STRIPE_SIZE, nrRows);
+                // each stripe only sets its own rows
+                pendingStripes.add(tp.enqueue(() -> calculateStripe(leaves1, leaves2.getNrRows(), codes, leafIndex,
+                    firstRow, lastRow, rowConsumer)));
+                if (pendingStripes.size() == maxPendingStripes) {
+                    ThreadPoolUtil.waitFor(pendingStripes.poll());
+                }
+                rowExec.setProgress(lastRow / (double)nrRows, "Row " + lastRow + "/" + nrRows);
+                rowExec.checkCanceled();
+            }
+            while (!pendingStripes.isEmpty()) {
+                ThreadPoolUtil.waitFor(pendingStripes.poll());
+            }
+        } finally {
+            for (final Future<?> pendingStripe : pendingStripes) {
+                pendingStripe.cancel(true);
             }
         }
-
-        checkThrowable(proxThrowableRef);
-
-        proximityMatrix.normalize(1.0 / nrTrees);
-
-        return proximityMatrix;
     }
 
-    private class PathProximityCalcRunnable implements Runnable {
-
-        private int m_treeIdx;
-
-        private ProximityMatrix m_proximityMatrix;
-
-        private Semaphore m_semaphore;
-
-        private AtomicReference<Throwable> m_proxThrowableRef;
-
-        private ExecutionMonitor m_subExec;
-
-        public PathProximityCalcRunnable(final int treeIdx, final ProximityMatrix proximityMatrix,
-            final Semaphore semaphore, final AtomicReference<Throwable> proxThrowableRef,
-            final ExecutionMonitor subExec) {
-            m_proximityMatrix = proximityMatrix;
-            m_treeIdx = treeIdx;
-            m_semaphore = semaphore;
-            m_proxThrowableRef = proxThrowableRef;
-            m_subExec = subExec;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void run() {
-            try {
-                TreeEnsembleModel ensemble = m_modelPO.getEnsembleModel();
-                AbstractTreeModel tree = ensemble.getTreeModel(m_treeIdx);
-                int table2Length = (int)m_tables[1].size();
-                IndexTree dataTree = new IndexTree(table2Length);
-                // fill dataTree with second table
-                int indexSecondTable = 0;
-                for (DataRow row : m_tables[1]) {
-                    DataRow filterRow = new FilterColumnRow(row, m_learnIndicesInTables[1]);
-                    PredictorRecord pred = ensemble.createPredictorRecord(filterRow, m_learnSpec);
-                    dataTree.addIndex(indexSecondTable, tree.getTreePath(pred));
-                    indexSecondTable++;
+    private static void calculateStripe(final LeafIndexMatrix leaves1, final int nrRows2,
+        final PathPrefixCodes[] codes, final LeafGroups[] leafIndex, final int firstRow, final int lastRow,
+        final RowConsumer rowConsumer) {
+        final double normalizer = 1.0 / codes.length;
+        final double[] proximities = new double[nrRows2];
+        for (int r = firstRow; r < lastRow; r++) {
+            Arrays.fill(proximities, 0.0);
+            for (int t = 0; t < codes.length; t++) {
+                final int leaf1 = leaves1.getLeaves(t)[r];
+                if (leaf1 == LeafIndexMatrix.NO_LEAF) {
+                    continue;
                 }
-
-                int table1Length = (int)m_tables[0].size();
-
-                //                double[][] incrementMatrix = new double[table1Length][table2Length];
-
-                int indexFirstTable = 0;
-                for (DataRow row : m_tables[0]) {
-                    DataRow filterRow = new FilterColumnRow(row, m_learnIndicesInTables[0]);
-                    PredictorRecord pred = ensemble.createPredictorRecord(filterRow, m_learnSpec);
-                    double[] incrementRow = dataTree.getAllPathProximities(tree.getTreePath(pred));
-                    m_proximityMatrix.incrementSync(indexFirstTable, incrementRow);
-                    indexFirstTable++;
+                final PathPrefixCodes treeCodes = codes[t];
+                final int depth1 = treeCodes.getDepth(leaf1);
+                final LeafGroups group = leafIndex[t];
+                final int[] rows2 = group.getRows();
+                // the proximity only depends on the leafs, hence it is computed once per leaf of the second table
+                for (int leaf2 = group.getFirstLeaf(); leaf2 <= group.getLastLeaf(); leaf2++) {
+                    final int start = group.getStart(leaf2);
+                    final int end = group.getEnd(leaf2);
+                    if (start == end) {
+                        continue;
+                    }
+                    // all rows share the root if it is the only node
+                    final double proximity =
+                        depth1 == 0 ? 1.0 : treeCodes.getCommonPrefixLength(leaf1, leaf2) / (double)depth1;
+                    if (proximity == 0.0) {
+                        continue;
+                    }
+                    for (int p = start; p < end; p++) {
+                        proximities[rows2[p]] += proximity;
+                    }
                 }
-                //                m_proximityMatrix.incrementSync(incrementMatrix);
-            } catch (Throwable t) {
-                m_proxThrowableRef.compareAndSet(null, t);
-            } finally {
-                m_semaphore.release();
             }
+            for (int c = 0; c < proximities.length; c++) {
+                proximities[c] *= normalizer;
+            }
+            rowConsumer.setRow(r, proximities);
         }
+    }
+
+    /** Receives the path proximities of a row of the first table, the values are only valid during the call. */
+    @FunctionalInterface
+    interface RowConsumer {
 
+        void setRow(int row, double[] values);
     }
 }
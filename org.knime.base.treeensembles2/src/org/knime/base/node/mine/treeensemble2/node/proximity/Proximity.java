@@ -49,23 +49,14 @@
 package org.knime.base.node.mine.treeensemble2.node.proximity;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicReference;
 
-import org.knime.base.data.filter.column.FilterColumnRow;
-import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
-import org.knime.base.node.mine.treeensemble2.model.AbstractTreeModel;
-import org.knime.base.node.mine.treeensemble2.model.AbstractTreeNode;
-import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
-import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
-import org.knime.base.node.mine.treeensemble2.model.TreeNodeSignature;
-import org.knime.core.data.DataRow;
-import org.knime.core.data.DataTableSpec;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
@@ -74,8 +65,6 @@
 import org.knime.core.node.KNIMEConstants;
 import org.knime.core.util.ThreadPool;
 
-import com.google.common.collect.ArrayListMultimap;
-
 /**
  *
  * @author Adrian Nembach, KNIME GmbH, Konstanz, Germany
@@ -86,12 +75,13 @@ public static ProximityMatrix calcProximities(final BufferedDataTable[] tables,
         final TreeEnsembleModelPortObject modelPortObject, final ExecutionContext exec)
             throws InvalidSettingsException, InterruptedException, ExecutionException, CanceledExecutionException {
 
-        ProximityMatrix proximityMatrix = null;
+        PackedHalfProximityMatrix packedMatrix = null;
+        IncrementalProximityMatrix proximityMatrix = null;
         boolean optionalTable = false;
         switch (tables.length) {
             case 1:
-                if (tables[0].size() <= 65500) {
-                    proximityMatrix = new SingleTableProximityMatrix(tables[0]);
+                if (tables[0].size() <= PackedHalfProximityMatrix.MAX_ROWS) {
+                    packedMatrix = new PackedHalfProximityMatrix(tables[0]);
                 } else {
                     // this is unfortunate and we should maybe think of a different solution
                     proximityMatrix = new TwoTablesProximityMatrix(tables[0], tables[0]);
@@ -105,42 +95,72 @@ public static ProximityMatrix calcProximities(final BufferedDataTable[] tables,
                 throw new IllegalArgumentException("Currently only up to two tables are supported.");
         }
 
-        final TreeEnsembleModelPortObjectSpec modelSpec = modelPortObject.getSpec();
-        final TreeEnsembleModel ensembleModel = modelPortObject.getEnsembleModel();
-        int[][] learnColIndicesInTables = null;
-        if (optionalTable) {
-            learnColIndicesInTables = new int[][]{modelSpec.calculateFilterIndices(tables[0].getDataTableSpec()),
-                modelSpec.calculateFilterIndices(tables[1].getDataTableSpec())};
-        } else {
-            learnColIndicesInTables = new int[][]{modelSpec.calculateFilterIndices(tables[0].getDataTableSpec())};
+        // the tables are decoded once, the trees then only work on the leafs of the rows
+        exec.setMessage("Finding the leafs of the rows");
+        final LeafIndexMatrix leaves1 = LeafIndexMatrix.create(tables[0], modelPortObject,
+            exec.createSubProgress(optionalTable ? 0.25 : 0.5));
+        if (packedMatrix != null) {
+            calcProximities(packedMatrix, leaves1, exec.createSubProgress(0.5));
+            return packedMatrix;
         }
+        final LeafIndexMatrix leaves2 = optionalTable
+            ? LeafIndexMatrix.create(tables[1], modelPortObject, exec.createSubProgress(0.25)) : leaves1;
+        calcProximities(proximityMatrix, leaves1, leaves2, exec.createSubProgress(0.5));
+        return proximityMatrix;
+    }
 
+    /**
+     * Counts for each pair of rows of a single table the trees in which they share a leaf and normalizes by the
+     * number of trees. The rows are striped over the workers, no locking necessary.
+     *
+     * @param proximityMatrix the empty matrix
+     * @param leaves the leafs of the rows of the table
+     * @param treeExec to report progress and check for cancelation
+     * @throws InterruptedException if the thread is interrupted while waiting for a task
+     * @throws CanceledExecutionException if the execution is canceled
+     */
+    static void calcProximities(final PackedHalfProximityMatrix proximityMatrix, final LeafIndexMatrix leaves,
+        final ExecutionMonitor treeExec) throws InterruptedException, CanceledExecutionException {
+        proximityMatrix.addSharedLeafs(leaves, treeExec);
+        proximityMatrix.normalize(1.0 / leaves.getNrTrees());
+    }
+
+    /**
+     * Counts for each pair of rows the trees in which they share a leaf and normalizes by the number of trees. Rows
+     * without a leaf in a tree share it with no other row.
+     *
+     * @param proximityMatrix the empty matrix
+     * @param leaves1 the leafs of the rows of the first table
+     * @param leaves2 the leafs of the rows of the second table, the same object for a single table
+     * @param treeExec to report progress and check for cancelation
+     * @throws InterruptedException if the thread is interrupted while waiting for a tree
+     * @throws CanceledExecutionException if the execution is canceled
+     */
+    static void calcProximities(final IncrementalProximityMatrix proximityMatrix, final LeafIndexMatrix leaves1,
+        final LeafIndexMatrix leaves2, final ExecutionMonitor treeExec)
+        throws InterruptedException, CanceledExecutionException {
         final ThreadPool tp = KNIMEConstants.GLOBAL_THREAD_POOL;
         final int procCount = 3 * Runtime.getRuntime().availableProcessors() / 2;
         final Semaphore semaphore = new Semaphore(procCount);
         final AtomicReference<Throwable> proxThrowableRef = new AtomicReference<Throwable>();
 
-        final int nrTrees = ensembleModel.getNrModels();
+        final int nrTrees = leaves1.getNrTrees();
         final Future<?>[] calcFutures = new Future<?>[nrTrees];
-        exec.setProgress(0, "Starting proximity calculation per tree.");
+        treeExec.setProgress(0, "Starting proximity calculation per tree.");
         for (int i = 0; i < nrTrees; i++) {
             semaphore.acquire();
-            finishedTree(i, exec, nrTrees);
+            finishedTree(i, treeExec, nrTrees);
             checkThrowable(proxThrowableRef);
-            AbstractTreeModel treeModel = ensembleModel.getTreeModel(i);
-            ExecutionMonitor subExec = exec.createSubProgress(0.0);
-            if (optionalTable) {
-                calcFutures[i] = tp.enqueue(new TwoTablesProximityCalcRunnable(proximityMatrix, tables,
-                    learnColIndicesInTables, treeModel, modelPortObject, semaphore, proxThrowableRef, subExec));
-            } else {
-                calcFutures[i] = tp.enqueue(new SingleTableProximityCalcRunnable(proximityMatrix, tables,
-                    learnColIndicesInTables, treeModel, modelPortObject, semaphore, proxThrowableRef, subExec));
-            }
+            treeExec.checkCanceled();
+            final int[] treeLeaves1 = leaves1.getLeaves(i);
+            final int[] treeLeaves2 = leaves2.getLeaves(i);
+            calcFutures[i] = tp.enqueue(
+                new ProximityCalcRunnable(proximityMatrix, treeLeaves1, treeLeaves2, semaphore, proxThrowableRef));
         }
 
         for (int i = 0; i < procCount; i++) {
             semaphore.acquire();
-            finishedTree(nrTrees - procCount + i, exec, nrTrees);
+            finishedTree(nrTrees - procCount + i, treeExec, nrTrees);
         }
 
         for (Future<?> future : calcFutures) {
@@ -154,99 +174,57 @@ public static ProximityMatrix calcProximities(final BufferedDataTable[] tables,
         checkThrowable(proxThrowableRef);
 
         proximityMatrix.normalize(1.0 / nrTrees);
-
-        return proximityMatrix;
     }
 
-
-
-    private static class SingleTableProximityCalcRunnable extends ProximityCalcRunnable {
-
-        /**
-         * @param proximityMatrix
-         * @param tables
-         * @param learnColIndicesInTables
-         * @param treeModel
-         * @param ensembleModel
-         * @param semaphore
-         * @param proxThrowableRef
-         * @param subExec
-         */
-        public SingleTableProximityCalcRunnable(final ProximityMatrix proximityMatrix, final BufferedDataTable[] tables,
-            final int[][] learnColIndicesInTables, final AbstractTreeModel treeModel,
-            final TreeEnsembleModelPortObject ensembleModel, final Semaphore semaphore,
-            final AtomicReference<Throwable> proxThrowableRef, final ExecutionMonitor subExec) {
-            super(proximityMatrix, tables, learnColIndicesInTables, treeModel, ensembleModel, semaphore,
-                proxThrowableRef, subExec);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        protected int[][] getUpdateIndexPairs(final ArrayListMultimap<TreeNodeSignature, Integer> leafMap) {
-            Collection<Collection<Integer>> leafs = leafMap.asMap().values();
-            ArrayList<int[]> indexPairs = new ArrayList<int[]>();
-            for (Collection<Integer> leaf : leafs) {
-                Integer[] leafArray = leaf.toArray(new Integer[leaf.size()]);
-                for (int i = 0; i < leafArray.length; i++) {
-                    for (int j = i; j < leafArray.length; j++) {
-                        indexPairs.add(new int[]{leafArray[i], leafArray[j]});
-                    }
-                }
+    /**
+     * Sorts the rows by their leaf, rows that can't be evaluated are dropped.
+     *
+     * @param leaves the leaf of each row
+     * @return (leaf << 32 | row) for each row, sorted
+     */
+    private static long[] sortByLeaf(final int[] leaves) {
+        final long[] leafRows = new long[leaves.length];
+        int size = 0;
+        for (int r = 0; r < leaves.length; r++) {
+            if (leaves[r] != LeafIndexMatrix.NO_LEAF) {
+                leafRows[size++] = ((long)leaves[r] << 32) | r;
             }
-
-            return indexPairs.toArray(new int[indexPairs.size()][]);
         }
-
+        final long[] sorted = Arrays.copyOf(leafRows, size);
+        Arrays.sort(sorted);
+        return sorted;
     }
 
-    private abstract static class ProximityCalcRunnable implements Runnable {
+    private static int leafOf(final long leafRow) {
+        return (int)(leafRow >>> 32);
+    }
 
-        private final ProximityMatrix m_matrix;
+    private static int rowOf(final long leafRow) {
+        return (int)leafRow;
+    }
 
-        private final BufferedDataTable[] m_tables;
+    /**
+     * Increments the proximity of all pairs of rows that share a leaf in one tree.
+     */
+    private static class ProximityCalcRunnable implements Runnable {
 
-        private final int[][] m_learnColIndicesInTables;
+        private final IncrementalProximityMatrix m_matrix;
 
-        private final AbstractTreeModel m_treeModel;
+        private final int[] m_leaves1;
 
-        private final TreeEnsembleModelPortObject m_ensembleModel;
+        private final int[] m_leaves2;
 
         private final Semaphore m_semaphore;
 
         private final AtomicReference<Throwable> m_proxThrowableRef;
 
-        private final ExecutionMonitor m_exec;
-
-        public BufferedDataTable[] getTables() {
-            return m_tables;
-        }
-
-        public int[][] getLearnColIndices() {
-            return m_learnColIndicesInTables;
-        }
-
-        public AbstractTreeModel getTreeModel() {
-            return m_treeModel;
-        }
-
-        public TreeEnsembleModelPortObject getEnsemblePortObject() {
-            return m_ensembleModel;
-        }
-
-        public ProximityCalcRunnable(final ProximityMatrix proximityMatrix, final BufferedDataTable[] tables,
-            final int[][] learnColIndicesInTables, final AbstractTreeModel treeModel,
-            final TreeEnsembleModelPortObject ensembleModel, final Semaphore semaphore,
-            final AtomicReference<Throwable> proxThrowableRef, final ExecutionMonitor subExec) {
+        ProximityCalcRunnable(final IncrementalProximityMatrix proximityMatrix, final int[] leaves1, final int[] leaves2,
+            final Semaphore semaphore, final AtomicReference<Throwable> proxThrowableRef) {
             m_matrix = proximityMatrix;
-            m_tables = tables;
-            m_learnColIndicesInTables = learnColIndicesInTables;
-            m_treeModel = treeModel;
-            m_ensembleModel = ensembleModel;
+            m_leaves1 = leaves1;
+            m_leaves2 = leaves2;
             m_semaphore = semaphore;
             m_proxThrowableRef = proxThrowableRef;
-            m_exec = subExec;
         }
 
         /**
@@ -255,11 +233,7 @@ public ProximityCalcRunnable(final ProximityMatrix proximityMatrix, final Buffer
         @Override
         public void run() {
             try {
-                m_exec.checkCanceled();
-                final ArrayListMultimap<TreeNodeSignature, Integer> leaf2InstancesMap =
-                    computeLeafMap(m_ensembleModel, m_tables[0], m_learnColIndicesInTables[0], m_treeModel);
-                m_exec.checkCanceled();
-                m_matrix.incrementSync(getUpdateIndexPairs(leaf2InstancesMap));
+                m_matrix.incrementSync(getIndexPairs());
             } catch (Throwable t) {
                 m_proxThrowableRef.compareAndSet(null, t);
             } finally {
@@ -267,73 +241,39 @@ public void run() {
             }
         }
 
-        protected abstract int[][] getUpdateIndexPairs(ArrayListMultimap<TreeNodeSignature, Integer> leafMap);
-
-        protected static ArrayListMultimap<TreeNodeSignature, Integer> computeLeafMap(
-            final TreeEnsembleModelPortObject ensembleModel, final BufferedDataTable table,
-            final int[] learnColIndicesInTable, final AbstractTreeModel treeModel) {
-            final ArrayListMultimap<TreeNodeSignature, Integer> leaf2InstancesMap = ArrayListMultimap.create();
-            DataTableSpec learnSpec = ensembleModel.getSpec().getLearnTableSpec();
-            TreeEnsembleModel ensemble = ensembleModel.getEnsembleModel();
-            // fill map with table1
-            int indexTable1 = 0;
-            for (DataRow row : table) {
-                DataRow filterRow = new FilterColumnRow(row, learnColIndicesInTable);
-                PredictorRecord record = ensemble.createPredictorRecord(filterRow, learnSpec);
-                AbstractTreeNode treeNode = treeModel.findMatchingNode(record);
-                TreeNodeSignature nodeSignature = treeNode.getSignature();
-                leaf2InstancesMap.put(nodeSignature, indexTable1++);
-            }
-            return leaf2InstancesMap;
-        }
-
-    }
-
-    private static class TwoTablesProximityCalcRunnable extends ProximityCalcRunnable {
-
-        /**
-         * @param proximityMatrix
-         * @param tables
-         * @param learnColIndicesInTables
-         * @param treeModel
-         * @param ensembleModel
-         * @param semaphore
-         * @param proxThrowableRef
-         * @param subExec
-         */
-        public TwoTablesProximityCalcRunnable(final ProximityMatrix proximityMatrix, final BufferedDataTable[] tables,
-            final int[][] learnColIndicesInTables, final AbstractTreeModel treeModel,
-            final TreeEnsembleModelPortObject ensembleModel, final Semaphore semaphore,
-            final AtomicReference<Throwable> proxThrowableRef, final ExecutionMonitor subExec) {
-            super(proximityMatrix, tables, learnColIndicesInTables, treeModel, ensembleModel, semaphore,
-                proxThrowableRef, subExec);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        protected int[][] getUpdateIndexPairs(final ArrayListMultimap<TreeNodeSignature, Integer> leafMap) {
-            ArrayList<int[]> incrementIndicesList = new ArrayList<int[]>();
-            // go through table2
-            int indexTable2 = 0;
-            TreeEnsembleModel ensemble = getEnsemblePortObject().getEnsembleModel();
-            DataTableSpec learnSpec = getEnsemblePortObject().getSpec().getLearnTableSpec();
-            BufferedDataTable table2 = getTables()[1];
-            AbstractTreeModel treeModel = getTreeModel();
-            int[] learnColIndicesInTable2 = getLearnColIndices()[1];
-            for (DataRow row : table2) {
-                DataRow filterRow = new FilterColumnRow(row, learnColIndicesInTable2);
-                PredictorRecord record = ensemble.createPredictorRecord(filterRow, learnSpec);
-                AbstractTreeNode treeNode = treeModel.findMatchingNode(record);
-                TreeNodeSignature nodeSignature = treeNode.getSignature();
-                List<Integer> instanceList = leafMap.get(nodeSignature);
-                for (Integer table1Index : instanceList) {
-                    incrementIndicesList.add(new int[]{table1Index, indexTable2});
+        private int[][] getIndexPairs() {
+            final long[] sorted1 = sortByLeaf(m_leaves1);
+            final long[] sorted2 = sortByLeaf(m_leaves2);
+            final List<int[]> indexPairs = new ArrayList<int[]>();
+            int start1 = 0;
+            int start2 = 0;
+            // merge the runs of equal leafs of both tables
+            while (start1 < sorted1.length && start2 < sorted2.length) {
+                final int leaf1 = leafOf(sorted1[start1]);
+                final int leaf2 = leafOf(sorted2[start2]);
+                if (leaf1 < leaf2) {
+                    start1++;
+                } else if (leaf2 < leaf1) {
+                    start2++;
+                } else {
+                    int end1 = start1 + 1;
+                    while (end1 < sorted1.length && leafOf(sorted1[end1]) == leaf1) {
+                        end1++;
+                    }
+                    int end2 = start2 + 1;
+                    while (end2 < sorted2.length && leafOf(sorted2[end2]) == leaf2) {
+                        end2++;
+                    }
+                    for (int i = start1; i < end1; i++) {
+                        for (int j = start2; j < end2; j++) {
+                            indexPairs.add(new int[]{rowOf(sorted1[i]), rowOf(sorted2[j])});
+                        }
+                    }
+                    start1 = end1;
+                    start2 = end2;
                 }
-                indexTable2++;
             }
-            return incrementIndicesList.toArray(new int[incrementIndicesList.size()][]);
+            return indexPairs.toArray(new int[indexPairs.size()][]);
         }
 
     }
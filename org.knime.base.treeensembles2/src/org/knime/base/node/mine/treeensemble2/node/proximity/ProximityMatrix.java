@@ -66,6 +66,8 @@
 import org.knime.core.node.ExecutionContext;
 
 /**
+ * Read-only access to proximities and the tables created from them. Matrices that are filled by incrementing their
+ * entries are {@link IncrementalProximityMatrix incremental}.
  *
  * @author Adrian Nembach, KNIME GmbH, Konstanz, Germany
  */
@@ -103,6 +105,61 @@ public BufferedDataTable createTable(final ExecutionContext exec) throws Cancele
         return container.getTable();
     }
 
+    /**
+     * Creates a table with one row per pair of rows with a proximity of at least <b>minProximity</b>, pairs with
+     * proximity zero are left out.
+     *
+     * @param exec to create the table and report progress
+     * @param minProximity the minimal proximity of the pairs in the table
+     * @return the table with the pairs and their proximity, see {@link #createLongTableSpec()}
+     * @throws CanceledExecutionException if the execution is canceled
+     */
+    public BufferedDataTable createLongTable(final ExecutionContext exec, final double minProximity)
+        throws CanceledExecutionException {
+        int numRows = getNumRows();
+        BufferedDataContainer container = exec.createDataContainer(createLongTableSpec());
+        long rowIndex = 0;
+        for (int i = 0; i < numRows; i++) {
+            exec.checkCanceled();
+            exec.setProgress(((double)i) / numRows, "Row " + i + "/" + numRows);
+            StringCell firstKey = new StringCell(getRowKeyForTable(0, i).getString());
+            for (int j : getLongTableColumns(i, minProximity)) {
+                DataCell[] cells = new DataCell[]{firstKey, new StringCell(getRowKeyForTable(1, j).getString()),
+                    new DoubleCell(getEntryAt(i, j))};
+                container.addRowToTable(new DefaultRow(RowKey.createRowKey(rowIndex++), cells));
+            }
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * @param row the index of a row
+     * @param minProximity the minimal proximity
+     * @return the columns of the entries of <b>row</b> in {@link #createLongTable(ExecutionContext, double)},
+     *         ascending: those that are at least <b>minProximity</b> and not zero
+     */
+    int[] getLongTableColumns(final int row, final double minProximity) {
+        final double[] matRow = getRowAt(row);
+        int nrColumns = 0;
+        final int[] columns = new int[matRow.length];
+        for (int j = 0; j < matRow.length; j++) {
+            if (matRow[j] > 0 && matRow[j] >= minProximity) {
+                columns[nrColumns++] = j;
+            }
+        }
+        return Arrays.copyOf(columns, nrColumns);
+    }
+
+    /**
+     * @return the spec of the table created by {@link #createLongTable(ExecutionContext, double)}
+     */
+    public static DataTableSpec createLongTableSpec() {
+        return new DataTableSpec(new DataColumnSpecCreator("First row ID", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Second row ID", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Proximity", DoubleCell.TYPE).createSpec());
+    }
+
     public BufferedDataTable[] getNearestNeighbors(final ExecutionContext exec, final int k)
         throws CanceledExecutionException {
 
@@ -115,23 +172,15 @@ public BufferedDataTable[] getNearestNeighbors(final ExecutionContext exec, fina
         BufferedDataContainer containerNeighbors = exec.createDataContainer(tableSpecs[0]);
         BufferedDataContainer containerProximities = exec.createDataContainer(tableSpecs[1]);
         Integer[] idx = new Integer[numCols];
-        for (int i = 0; i < numCols; i++) {
-            idx[i] = i;
-        }
         for (int i = 0; i < numRows; i++) {
             exec.checkCanceled();
             exec.setProgress(((double)i + 1) / numRows, "Row " + (i + 1) + "/" + numRows);
             final double[] matRow = getRowAt(i);
-            Arrays.sort(idx, new Comparator<Integer>() {
-                @Override
-                public int compare(final Integer arg0, final Integer arg1) {
-                    return Double.compare(matRow[arg1], matRow[arg0]);
-                }
-            });
+            final int[] neighbors = getNearestNeighbors(matRow, idx, k);
             DataCell[][] cells = new DataCell[2][k];
             for (int j = 0; j < k; j++) {
-                cells[0][j] = new StringCell(getRowKeyForTable(1, idx[j]).getString());
-                cells[1][j] = new DoubleCell(getEntryAt(i, j));
+                cells[0][j] = new StringCell(getRowKeyForTable(1, neighbors[j]).getString());
+                cells[1][j] = new DoubleCell(matRow[neighbors[j]]);
             }
             RowKey key = getRowKeyForTable(0, i);
             containerNeighbors.addRowToTable(new DefaultRow(key, cells[0]));
@@ -142,6 +191,33 @@ public int compare(final Integer arg0, final Integer arg1) {
         return new BufferedDataTable[]{containerNeighbors.getTable(), containerProximities.getTable()};
     }
 
+    /**
+     * @param row the index of a row
+     * @param k the number of neighbors
+     * @return the columns of the k largest entries of <b>row</b>, the largest first and equal entries in column order
+     */
+    int[] getNearestNeighbors(final int row, final int k) {
+        return getNearestNeighbors(getRowAt(row), new Integer[getNumCols()], k);
+    }
+
+    private static int[] getNearestNeighbors(final double[] matRow, final Integer[] idx, final int k) {
+        // the sort is stable, hence idx must start in column order for every row
+        for (int c = 0; c < idx.length; c++) {
+            idx[c] = c;
+        }
+        Arrays.sort(idx, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer arg0, final Integer arg1) {
+                return Double.compare(matRow[arg1], matRow[arg0]);
+            }
+        });
+        final int[] neighbors = new int[k];
+        for (int j = 0; j < k; j++) {
+            neighbors[j] = idx[j];
+        }
+        return neighbors;
+    }
+
     public static DataTableSpec[] createNearestNeighborOutSpecs(final int k) {
         DataColumnSpec[][] colSpecs = new DataColumnSpec[2][k];
         for (int i = 0; i < k; i++) {
@@ -159,30 +235,4 @@ protected void fillIndexMap(final RowKey[] indexMap, final BufferedDataTable tab
         }
     }
 
-    /**
-     * This method MUST be declared synchronized in a subclass.
-     *
-     * @param indices (a int[][2]) the indices that should be incremented by 1
-     */
-    public abstract void incrementSync(final int[][] indices);
-
-    /**
-     * This method MUST be declared synchronized in a subclass.
-     *
-     * @param incrementMatrix a matrix with increments for each entry of the proximity matrix (must have the same
-     *            dimensions as the proximity matrix) such that proximityMatrix = proximityMatrix + incrementMatrix
-     */
-    public abstract void incrementSync(final double[][] incrementMatrix);
-
-    public abstract void incrementSync(final int[] indexPair, final double value);
-
-    public abstract void incrementSync(final int rowIdx, final double[] rowValue);
-
-    /**
-     * Normalize the matrix by multiplying each entry with <b>normalizer</b>
-     *
-     * @param normalizer
-     */
-    public abstract void normalize(final double normalizer);
-
 }
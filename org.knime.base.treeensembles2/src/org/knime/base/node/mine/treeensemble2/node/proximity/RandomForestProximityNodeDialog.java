@@ -50,7 +50,11 @@
 
 import org.knime.base.node.mine.treeensemble2.node.proximity.RandomForestProximityNodeModel.ProximityMeasure;
 import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
 import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 
 /**
@@ -71,5 +75,12 @@ public RandomForestProximityNodeDialog() {
             options[i] = proximityMeasures[i].toString();
         }
         addDialogComponent(new DialogComponentStringSelection(proximityMeasure, "Proximity measure", options));
+
+        final SettingsModelBoolean longFormat = RandomForestProximityNodeModel.createLongFormatModel();
+        addDialogComponent(new DialogComponentBoolean(longFormat, "Output pairs of rows (long format)"));
+        final SettingsModelDoubleBounded minProximity = RandomForestProximityNodeModel.createMinProximityModel();
+        addDialogComponent(new DialogComponentNumber(minProximity, "Minimal proximity of output pairs", 0.01));
+        longFormat.addChangeListener(e -> minProximity.setEnabled(longFormat.getBooleanValue()));
+        minProximity.setEnabled(longFormat.getBooleanValue());
     }
 }
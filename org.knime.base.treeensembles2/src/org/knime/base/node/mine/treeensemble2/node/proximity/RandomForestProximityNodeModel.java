@@ -62,6 +62,8 @@
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
@@ -75,6 +77,10 @@ public class RandomForestProximityNodeModel extends NodeModel {
 
     private static final String CFG_PROXIMITYMEASURE = "proximityMeasure";
 
+    private static final String CFG_LONGFORMAT = "longFormatOutput";
+
+    private static final String CFG_MINPROXIMITY = "minProximity";
+
     public enum ProximityMeasure {
 
         Proximity("Proximity"),
@@ -95,8 +101,20 @@ static SettingsModelString createProximityMeasureModel() {
         return new SettingsModelString(CFG_PROXIMITYMEASURE, ProximityMeasure.Proximity.toString());
     }
 
+    static SettingsModelBoolean createLongFormatModel() {
+        return new SettingsModelBoolean(CFG_LONGFORMAT, false);
+    }
+
+    static SettingsModelDoubleBounded createMinProximityModel() {
+        return new SettingsModelDoubleBounded(CFG_MINPROXIMITY, 0.0, 0.0, 1.0);
+    }
+
     private SettingsModelString m_proximityMeasure = createProximityMeasureModel();
 
+    private SettingsModelBoolean m_longFormat = createLongFormatModel();
+
+    private SettingsModelDoubleBounded m_minProximity = createMinProximityModel();
+
 
     /**
      * @param inPortTypes
@@ -118,6 +136,9 @@ protected DataTableSpec[] configure(final PortObjectSpec[] inSpecs) throws Inval
             modelSpec.calculateFilterIndices(table2Spec);
         }
 
+        if (m_longFormat.getBooleanValue()) {
+            return new DataTableSpec[]{ProximityMatrix.createLongTableSpec()};
+        }
         // the output table depends on the rows of the input tables
         return null;
 
@@ -139,9 +160,19 @@ protected BufferedDataTable[] execute(final PortObject[] inObjects, final Execut
         exec.setMessage("Calculating Proximity");
         ProximityMatrix pm = null;
         ProximityMeasure proximityMeasure = ProximityMeasure.valueOf(m_proximityMeasure.getStringValue());
+        final boolean longFormat = m_longFormat.getBooleanValue();
+        final double minProximity = m_minProximity.getDoubleValue();
+        if (longFormat && proximityMeasure == ProximityMeasure.Proximity) {
+            // most proximities are zero, only the others are stored
+            pm = SparseProximityMatrix.calcProximities(tables, model, minProximity, calcExec);
+            exec.setMessage("Writing");
+            return new BufferedDataTable[]{pm.createLongTable(writeExec, minProximity)};
+        }
         switch (proximityMeasure) {
             case PathProximity:
-                pm = new PathProximity(tables, model).calculatePathProximities(calcExec);
+                final PathProximity pathProximity = new PathProximity(tables, model);
+                pm = longFormat ? pathProximity.calculateSparsePathProximities(calcExec, minProximity)
+                    : pathProximity.calculatePathProximities(calcExec);
                 break;
             case Proximity:
                 pm = Proximity.calcProximities(tables, model, calcExec);
@@ -150,6 +181,9 @@ protected BufferedDataTable[] execute(final PortObject[] inObjects, final Execut
                 throw new IllegalStateException("Illegal proximity measure encountered.");
         }
         exec.setMessage("Writing");
+        if (longFormat) {
+            return new BufferedDataTable[]{pm.createLongTable(writeExec, minProximity)};
+        }
         return new BufferedDataTable[]{pm.createTable(writeExec)};
     }
 
@@ -179,6 +213,8 @@ protected void saveInternals(final File nodeInternDir, final ExecutionMonitor ex
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_proximityMeasure.saveSettingsTo(settings);
+        m_longFormat.saveSettingsTo(settings);
+        m_minProximity.saveSettingsTo(settings);
     }
 
     /**
@@ -187,6 +223,11 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
     @Override
     protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
         m_proximityMeasure.validateSettings(settings);
+        // added later, missing in old workflows
+        if (settings.containsKey(CFG_LONGFORMAT)) {
+            m_longFormat.validateSettings(settings);
+            m_minProximity.validateSettings(settings);
+        }
     }
 
     /**
@@ -195,6 +236,13 @@ protected void validateSettings(final NodeSettingsRO settings) throws InvalidSet
     @Override
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
         m_proximityMeasure.loadSettingsFrom(settings);
+        if (settings.containsKey(CFG_LONGFORMAT)) {
+            m_longFormat.loadSettingsFrom(settings);
+            m_minProximity.loadSettingsFrom(settings);
+        } else {
+            m_longFormat.setBooleanValue(false);
+            m_minProximity.setDoubleValue(0.0);
+        }
     }
 
     /**
@@ -0,0 +1,132 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+/**
+ * Counts for a query row the number of trees in which it shares a leaf with each row of another table, touching only
+ * the rows that share at least one leaf. Not thread-safe, each worker needs its own counter.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class SharedLeafCounter {
+
+    private final LeafIndexMatrix m_queryLeafs;
+
+    private final LeafGroups[] m_leafIndex;
+
+    private final int[] m_counts;
+
+    private final int[] m_touched;
+
+    private int m_nrTouched;
+
+    /**
+     * @param queryLeafs the leafs of the query rows
+     * @param leafIndex the rows of the other table grouped by leaf, per tree, see {@link #createLeafIndex}
+     * @param nrRows the number of rows of the other table
+     */
+    SharedLeafCounter(final LeafIndexMatrix queryLeafs, final LeafGroups[] leafIndex, final int nrRows) {
+        m_queryLeafs = queryLeafs;
+        m_leafIndex = leafIndex;
+        m_counts = new int[nrRows];
+        m_touched = new int[nrRows];
+    }
+
+    /**
+     * @param leafs the leafs of the rows of a table
+     * @return the rows grouped by leaf, per tree
+     */
+    static LeafGroups[] createLeafIndex(final LeafIndexMatrix leafs) {
+        final LeafGroups[] leafIndex = new LeafGroups[leafs.getNrTrees()];
+        for (int t = 0; t < leafIndex.length; t++) {
+            leafIndex[t] = new LeafGroups(leafs.getLeaves(t));
+        }
+        return leafIndex;
+    }
+
+    /**
+     * Counts the shared leafs of <b>queryRow</b>, the counts of the previous query row are reset.
+     *
+     * @param queryRow the index of the query row
+     * @return the number of rows sharing at least one leaf, they are the first entries of {@link #getTouched()}
+     */
+    int count(final int queryRow) {
+        for (int i = 0; i < m_nrTouched; i++) {
+            m_counts[m_touched[i]] = 0;
+        }
+        int nrTouched = 0;
+        for (int t = 0; t < m_leafIndex.length; t++) {
+            final int leaf = m_queryLeafs.getLeaves(t)[queryRow];
+            if (leaf == LeafIndexMatrix.NO_LEAF) {
+                continue;
+            }
+            final LeafGroups group = m_leafIndex[t];
+            final int[] rows = group.getRows();
+            for (int p = group.getStart(leaf), end = group.getEnd(leaf); p < end; p++) {
+                if (m_counts[rows[p]]++ == 0) {
+                    m_touched[nrTouched++] = rows[p];
+                }
+            }
+        }
+        m_nrTouched = nrTouched;
+        return nrTouched;
+    }
+
+    /** @return the rows touched by the last {@link #count(int)} in the order they were met, must not be modified */
+    int[] getTouched() {
+        return m_touched;
+    }
+
+    /** @return the number of shared leafs for each row, must not be modified */
+    int[] getCounts() {
+        return m_counts;
+    }
+
+    /** @return the number of trees */
+    int getNrTrees() {
+        return m_leafIndex.length;
+    }
+
+}
@@ -55,8 +55,10 @@
 /**
  *
  * @author Adrian Nembach, KNIME GmbH, Konstanz, Germany
+ * @deprecated the proximities of a table with itself are calculated in a {@link PackedHalfProximityMatrix}
  */
-public class SingleTableProximityMatrix extends ProximityMatrix {
+@Deprecated
+public class SingleTableProximityMatrix extends IncrementalProximityMatrix {
 
     private final HalfDoubleMatrix m_data;
 
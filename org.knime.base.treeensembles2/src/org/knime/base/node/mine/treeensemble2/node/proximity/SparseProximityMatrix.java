@@ -0,0 +1,317 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Future;
+
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
+import org.knime.base.node.mine.treeensemble2.node.ThreadPoolUtil;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.RowKey;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * {@link Proximity} matrix that only stores the entries of each row that are not smaller than a minimal proximity
+ * (and not zero), sorted by column. Since the proximities of a row sum up to the average number of rows per leaf,
+ * a row has at most that number divided by the minimal proximity entries, independent of the table size.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class SparseProximityMatrix extends ProximityMatrix {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final RowKey[] m_index2RowKeyTable1;
+
+    private final RowKey[] m_index2RowKeyTable2;
+
+    /** The columns of the stored entries of row r, ascending. */
+    private final int[][] m_columns;
+
+    /** The values of the stored entries of row r, kept in double so that thresholds agree with the dense matrices. */
+    private final double[][] m_values;
+
+    /**
+     * Creates an empty matrix whose rows are set by {@link #setRow(int, double[], double)}.
+     *
+     * @param table1 the table of the rows
+     * @param table2 the table of the columns, may be <b>table1</b>
+     */
+    SparseProximityMatrix(final BufferedDataTable table1, final BufferedDataTable table2) {
+        this(createIndexMap(table1), table1 == table2 ? null : createIndexMap(table2));
+    }
+
+    /**
+     * @param keys1 the keys of the rows
+     * @param keys2 the keys of the columns, null if they are the rows
+     */
+    SparseProximityMatrix(final RowKey[] keys1, final RowKey[] keys2) {
+        m_index2RowKeyTable1 = keys1;
+        m_index2RowKeyTable2 = keys2 == null ? keys1 : keys2;
+        m_columns = new int[keys1.length][];
+        m_values = new double[keys1.length][];
+    }
+
+    private static RowKey[] createIndexMap(final BufferedDataTable table) {
+        final long longLength = table.size();
+        if (longLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tables larger than Integer.MAX_VALUE can currently not be handled.");
+        }
+        final RowKey[] index2RowKey = new RowKey[(int)longLength];
+        int index = 0;
+        for (DataRow row : table) {
+            index2RowKey[index++] = row.getKey();
+        }
+        return index2RowKey;
+    }
+
+    /**
+     * Calculates the proximities of the rows of the first of <b>tables</b> to the rows of the last one, but keeps only
+     * those that are at least <b>minProximity</b>.
+     *
+     * @param tables one table whose rows are compared with each other or the two tables to compare
+     * @param modelPortObject the tree ensemble
+     * @param minProximity the minimal proximity of the stored entries, zero proximities are never stored
+     * @param exec to report progress
+     * @return the sparse proximity matrix
+     * @throws InvalidSettingsException if a table lacks learning columns of the model
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws InterruptedException if the thread is interrupted while waiting for a task
+     */
+    public static SparseProximityMatrix calcProximities(final BufferedDataTable[] tables,
+        final TreeEnsembleModelPortObject modelPortObject, final double minProximity, final ExecutionContext exec)
+        throws InvalidSettingsException, CanceledExecutionException, InterruptedException {
+        if (tables.length < 1 || tables.length > 2) {
+            throw new IllegalArgumentException("Currently only up to two tables are supported.");
+        }
+        final SparseProximityMatrix matrix = new SparseProximityMatrix(tables[0], tables[tables.length - 1]);
+        exec.setMessage("Finding the leafs of the rows");
+        final LeafIndexMatrix leafs1 = LeafIndexMatrix.create(tables[0], modelPortObject,
+            exec.createSubProgress(tables.length == 1 ? 0.5 : 0.25));
+        final LeafIndexMatrix leafs2 = tables.length == 1 ? leafs1
+            : LeafIndexMatrix.create(tables[1], modelPortObject, exec.createSubProgress(0.25));
+        exec.setMessage("Calculating proximities");
+        calcProximities(matrix, leafs1, leafs2, minProximity, exec.createSubProgress(0.5));
+        return matrix;
+    }
+
+    /**
+     * @param matrix the empty matrix
+     * @param leafs1 the leafs of the rows of the first table
+     * @param leafs2 the leafs of the rows of the second table, the same object for a single table
+     * @param minProximity the minimal proximity of the stored entries, zero proximities are never stored
+     * @param rowExec to report progress and check for cancelation
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws InterruptedException if the thread is interrupted while waiting for a task
+     */
+    static void calcProximities(final SparseProximityMatrix matrix, final LeafIndexMatrix leafs1,
+        final LeafIndexMatrix leafs2, final double minProximity, final ExecutionMonitor rowExec)
+        throws CanceledExecutionException, InterruptedException {
+        final LeafGroups[] leafIndex = SharedLeafCounter.createLeafIndex(leafs2);
+        final int nrRows = leafs1.getNrRows();
+        final ThreadPool tp = KNIMEConstants.GLOBAL_THREAD_POOL;
+        final int maxPendingChunks = 2 * Runtime.getRuntime().availableProcessors();
+        final Deque<Future<?>> pendingChunks = new ArrayDeque<>(maxPendingChunks);
+        try {
+            for (int from = 0; from < nrRows; from += CHUNK_SIZE) {
+                final int firstRow = from;
+                final int lastRow = Math.min(from + CHUNK_SIZE, nrRows);
+                // each chunk only sets its own rows
+                pendingChunks.add(tp.enqueue(() -> matrix.fillRows(
+                    new SharedLeafCounter(leafs1, leafIndex, leafs2.getNrRows()), minProximity, firstRow, lastRow)));
+                if (pendingChunks.size() == maxPendingChunks) {
+                    ThreadPoolUtil.waitFor(pendingChunks.poll());
+                }
+                rowExec.setProgress(lastRow / (double)nrRows, "Row " + lastRow + "/" + nrRows);
+                rowExec.checkCanceled();
+            }
+            while (!pendingChunks.isEmpty()) {
+                ThreadPoolUtil.waitFor(pendingChunks.poll());
+            }
+        } finally {
+            for (final Future<?> pendingChunk : pendingChunks) {
+                pendingChunk.cancel(true);
+            }
+        }
+    }
+
+    private void fillRows(final SharedLeafCounter counter, final double minProximity, final int firstRow,
+        final int lastRow) {
+        final int[] counts = counter.getCounts();
+        final int[] touched = counter.getTouched();
+        final double normalizer = 1.0 / counter.getNrTrees();
+        final int[] columns = new int[touched.length];
+        for (int r = firstRow; r < lastRow; r++) {
+            final int nrTouched = counter.count(r);
+            int nrColumns = 0;
+            for (int i = 0; i < nrTouched; i++) {
+                if (counts[touched[i]] * normalizer >= minProximity) {
+                    columns[nrColumns++] = touched[i];
+                }
+            }
+            final int[] rowColumns = Arrays.copyOf(columns, nrColumns);
+            Arrays.sort(rowColumns);
+            final double[] rowValues = new double[nrColumns];
+            for (int i = 0; i < nrColumns; i++) {
+                rowValues[i] = counts[rowColumns[i]] * normalizer;
+            }
+            m_columns[r] = rowColumns;
+            m_values[r] = rowValues;
+        }
+    }
+
+    /**
+     * Sets the entries of row <b>row</b>, different rows may be set concurrently.
+     *
+     * @param row the index of the row
+     * @param values the dense entries of the row
+     * @param minProximity the minimal proximity of the stored entries, zero proximities are never stored
+     */
+    void setRow(final int row, final double[] values, final double minProximity) {
+        int nrColumns = 0;
+        for (int c = 0; c < values.length; c++) {
+            if (values[c] > 0 && values[c] >= minProximity) {
+                nrColumns++;
+            }
+        }
+        final int[] rowColumns = new int[nrColumns];
+        final double[] rowValues = new double[nrColumns];
+        for (int c = 0, e = 0; e < nrColumns; c++) {
+            if (values[c] > 0 && values[c] >= minProximity) {
+                rowColumns[e] = c;
+                rowValues[e++] = values[c];
+            }
+        }
+        m_columns[row] = rowColumns;
+        m_values[row] = rowValues;
+    }
+
+    /** @return the number of stored entries */
+    public long getNrEntries() {
+        long nrEntries = 0;
+        for (final int[] columns : m_columns) {
+            nrEntries += columns.length;
+        }
+        return nrEntries;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int[] getLongTableColumns(final int row, final double minProximity) {
+        final int[] columns = m_columns[row];
+        final double[] values = m_values[row];
+        int nrColumns = 0;
+        final int[] result = new int[columns.length];
+        for (int e = 0; e < columns.length; e++) {
+            if (values[e] >= minProximity) {
+                result[nrColumns++] = columns[e];
+            }
+        }
+        return Arrays.copyOf(result, nrColumns);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double getEntryAt(final int row, final int col) {
+        final int e = Arrays.binarySearch(m_columns[row], col);
+        return e < 0 ? 0 : m_values[row][e];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double[] getRowAt(final int row) {
+        final double[] result = new double[m_index2RowKeyTable2.length];
+        for (int e = 0; e < m_columns[row].length; e++) {
+            result[m_columns[row][e]] = m_values[row][e];
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected RowKey getRowKeyForTable(final int tableIndex, final int row) {
+        switch (tableIndex) {
+            case 0:
+                return m_index2RowKeyTable1[row];
+            case 1:
+                return m_index2RowKeyTable2[row];
+        }
+        throw new IndexOutOfBoundsException("The index " + tableIndex + " is not allowed.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getNumRows() {
+        return m_index2RowKeyTable1.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getNumCols() {
+        return m_index2RowKeyTable2.length;
+    }
+
+}
@@ -55,7 +55,7 @@
  *
  * @author Adrian Nembach, KNIME GmbH, Konstanz, Germany
  */
-public class TwoTablesProximityMatrix extends ProximityMatrix {
+public class TwoTablesProximityMatrix extends IncrementalProximityMatrix {
 
     private final double[][] m_data;
 
@@ -85,6 +85,26 @@ public TwoTablesProximityMatrix(final BufferedDataTable table1, final BufferedDa
         fillIndexMap(m_index2RowKeyTable2, table2);
     }
 
+    /**
+     * @param index2RowKeyTable1 the keys of the rows of the first table
+     * @param index2RowKeyTable2 the keys of the rows of the second table
+     */
+    TwoTablesProximityMatrix(final RowKey[] index2RowKeyTable1, final RowKey[] index2RowKeyTable2) {
+        m_data = new double[index2RowKeyTable1.length][index2RowKeyTable2.length];
+        m_index2RowKeyTable1 = index2RowKeyTable1;
+        m_index2RowKeyTable2 = index2RowKeyTable2;
+    }
+
+    /**
+     * Sets the entries of row <b>row</b> without a lock, different rows may be set concurrently.
+     *
+     * @param row the index of the row
+     * @param values the new entries of the row
+     */
+    void setRow(final int row, final double[] values) {
+        System.arraycopy(values, 0, m_data[row], 0, m_data[row].length);
+    }
+
     /**
      * {@inheritDoc}
      */
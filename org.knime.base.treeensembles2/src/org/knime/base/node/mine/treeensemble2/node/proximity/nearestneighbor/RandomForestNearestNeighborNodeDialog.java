@@ -51,8 +51,10 @@
 import org.knime.base.node.mine.treeensemble2.node.proximity.RandomForestProximityNodeModel;
 import org.knime.base.node.mine.treeensemble2.node.proximity.RandomForestProximityNodeModel.ProximityMeasure;
 import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
 import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 
@@ -78,5 +80,13 @@ public RandomForestNearestNeighborNodeDialog() {
         final SettingsModelIntegerBounded numNearestNeighbors =
             RandomForestNearestNeighborNodeModel.createNumNearestNeighborsSettingsModel();
         addDialogComponent(new DialogComponentNumber(numNearestNeighbors, "Number of nearest neighbors", 1));
+
+        final SettingsModelBoolean withoutProximityMatrix =
+            RandomForestNearestNeighborNodeModel.createWithoutProximityMatrixModel();
+        addDialogComponent(
+            new DialogComponentBoolean(withoutProximityMatrix, "Find neighbors without the full proximity matrix"));
+        // only the proximity can be accumulated sparsely
+        proximityMeasure.addChangeListener(e -> withoutProximityMatrix
+            .setEnabled(ProximityMeasure.Proximity.toString().equals(proximityMeasure.getStringValue())));
     }
 }
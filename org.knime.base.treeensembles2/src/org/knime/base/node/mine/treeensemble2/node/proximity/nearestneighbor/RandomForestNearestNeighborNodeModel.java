@@ -53,6 +53,7 @@
 
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
+import org.knime.base.node.mine.treeensemble2.node.proximity.LeafNearestNeighbors;
 import org.knime.base.node.mine.treeensemble2.node.proximity.PathProximity;
 import org.knime.base.node.mine.treeensemble2.node.proximity.Proximity;
 import org.knime.base.node.mine.treeensemble2.node.proximity.ProximityMatrix;
@@ -67,6 +68,7 @@
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.node.port.PortObject;
@@ -83,9 +85,11 @@ public class RandomForestNearestNeighborNodeModel extends NodeModel {
 
     private static final String CFG_NUMNEARESTNEIGHBORS = "numNearestNeighbors";
     private static final String CFG_PROXIMTYMEASURE = "proximityMeasure";
+    private static final String CFG_WITHOUTPROXIMITYMATRIX = "withoutProximityMatrix";
 
     private SettingsModelIntegerBounded m_numNearestNeighbors = createNumNearestNeighborsSettingsModel();
     private SettingsModelString m_proximityMeasure = createProximityMeasureModel();
+    private SettingsModelBoolean m_withoutProximityMatrix = createWithoutProximityMatrixModel();
 
     static SettingsModelIntegerBounded createNumNearestNeighborsSettingsModel() {
         return new SettingsModelIntegerBounded(CFG_NUMNEARESTNEIGHBORS, DEFAULT_NUMNEARESTNEIGHBORS, 0,
@@ -96,6 +100,13 @@ static SettingsModelString createProximityMeasureModel() {
         return new SettingsModelString(CFG_PROXIMTYMEASURE, RandomForestProximityNodeModel.ProximityMeasure.Proximity.toString());
     }
 
+    /**
+     * @return model for the option to find the neighbors without the full proximity matrix (Proximity measure only)
+     */
+    static SettingsModelBoolean createWithoutProximityMatrixModel() {
+        return new SettingsModelBoolean(CFG_WITHOUTPROXIMITYMATRIX, false);
+    }
+
     /**
      *
      */
@@ -141,8 +152,16 @@ protected BufferedDataTable[] execute(final PortObject[] inObjects, final Execut
         ExecutionContext nnExec = exec.createSubExecutionContext(0.4);
         exec.setMessage("Calculating");
 
-        ProximityMatrix proximityMatrix = Proximity.calcProximities(tables, ensembleModel, proxExec);
+        int k = m_numNearestNeighbors.getIntValue();
+        ProximityMatrix proximityMatrix;
         ProximityMeasure proximityMeasure = ProximityMeasure.valueOf(m_proximityMeasure.getStringValue());
+        if (m_withoutProximityMatrix.getBooleanValue()) {
+            if (proximityMeasure == ProximityMeasure.Proximity) {
+                return LeafNearestNeighbors.findNearestNeighbors(tables, ensembleModel, k, exec);
+            }
+            setWarningMessage("Only the " + ProximityMeasure.Proximity
+                + " measure supports finding the neighbors without the full proximity matrix.");
+        }
         switch (proximityMeasure) {
             case Proximity :
                 proximityMatrix = Proximity.calcProximities(tables, ensembleModel, proxExec);
@@ -156,7 +175,6 @@ protected BufferedDataTable[] execute(final PortObject[] inObjects, final Execut
 
         exec.setMessage("Calculating nearest neighbors");
 
-        int k = m_numNearestNeighbors.getIntValue();
         return proximityMatrix.getNearestNeighbors(nnExec, k);
     }
 
@@ -187,6 +205,7 @@ protected void saveInternals(final File nodeInternDir, final ExecutionMonitor ex
     protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_numNearestNeighbors.saveSettingsTo(settings);
         m_proximityMeasure.saveSettingsTo(settings);
+        m_withoutProximityMatrix.saveSettingsTo(settings);
     }
 
     /**
@@ -196,6 +215,10 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
     protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
         m_numNearestNeighbors.validateSettings(settings);
         m_proximityMeasure.validateSettings(settings);
+        // added later, missing in old workflows
+        if (settings.containsKey(CFG_WITHOUTPROXIMITYMATRIX)) {
+            m_withoutProximityMatrix.validateSettings(settings);
+        }
     }
 
     /**
@@ -205,6 +228,11 @@ protected void validateSettings(final NodeSettingsRO settings) throws InvalidSet
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
         m_numNearestNeighbors.loadSettingsFrom(settings);
         m_proximityMeasure.loadSettingsFrom(settings);
+        if (settings.containsKey(CFG_WITHOUTPROXIMITYMATRIX)) {
+            m_withoutProximityMatrix.loadSettingsFrom(settings);
+        } else {
+            m_withoutProximityMatrix.setBooleanValue(false);
+        }
     }
 
     /**
@@ -137,6 +137,12 @@ public final class OptionsPanel extends JPanel {
 
     private final JSpinner m_nrModelsSpinner;
 
+    private final JSpinner m_outOfBagErrorIntervalSpinner;
+
+    private final JCheckBox m_autoNrModelsChecker;
+
+    private final JSpinner m_autoNrModelsToleranceSpinner;
+
     private final JButton m_newSeedButton;
 
     private final JTextField m_seedTextField;
@@ -202,6 +208,14 @@ public OptionsPanel(final boolean isRegression) {
         // Forest Options
 
         m_nrModelsSpinner = new JSpinner(new SpinnerNumberModel(20, 1, Integer.MAX_VALUE, 2));
+        m_outOfBagErrorIntervalSpinner = new JSpinner(new SpinnerNumberModel(
+            TreeEnsembleLearnerConfiguration.DEF_OUT_OF_BAG_ERROR_INTERVAL, 1, Integer.MAX_VALUE, 1));
+        m_autoNrModelsToleranceSpinner = new JSpinner(new SpinnerNumberModel(
+            TreeEnsembleLearnerConfiguration.DEF_AUTO_NR_MODELS_TOLERANCE, 0.0, Double.MAX_VALUE, 0.001));
+        m_autoNrModelsChecker = new JCheckBox("Stop early if out-of-bag error converges");
+        m_autoNrModelsChecker.addItemListener(
+            e -> m_autoNrModelsToleranceSpinner.setEnabled(m_autoNrModelsChecker.isSelected()));
+        m_autoNrModelsToleranceSpinner.setEnabled(false);
 
         m_seedTextField = new JTextField(20);
         m_newSeedButton = new JButton("New");
@@ -355,6 +369,26 @@ private void initPanel() {
         gbc.weightx = 1.0;
         add(m_nrModelsSpinner, gbc);
 
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 1;
+        add(new JLabel("Out-of-bag error interval"), gbc);
+        gbc.gridwidth = 2;
+        gbc.gridx += 1;
+        gbc.weightx = 1.0;
+        add(m_outOfBagErrorIntervalSpinner, gbc);
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 1;
+        add(m_autoNrModelsChecker, gbc);
+        gbc.gridwidth = 2;
+        gbc.gridx += 1;
+        gbc.weightx = 1.0;
+        add(ViewUtils.getInFlowLayout(FlowLayout.LEFT, new JLabel("Tolerance"), m_autoNrModelsToleranceSpinner), gbc);
+
         gbc.gridy += 1;
         gbc.gridx = 0;
         gbc.weightx = 0.0;
@@ -479,6 +513,11 @@ private void loadTreeSettings(final TreeEnsembleLearnerConfiguration cfg) {
 
     private void loadForestSettings(final TreeEnsembleLearnerConfiguration cfg) {
         m_nrModelsSpinner.setValue(cfg.getNrModels());
+        m_outOfBagErrorIntervalSpinner.setValue(cfg.getOutOfBagErrorInterval());
+        m_autoNrModelsToleranceSpinner.setValue(cfg.getAutoNrModelsTolerance());
+        if (m_autoNrModelsChecker.isSelected() != cfg.isAutoNrModels()) {
+            m_autoNrModelsChecker.doClick();
+        }
 
         Long seed = cfg.getSeed();
         if (m_seedChecker.isSelected() != (seed != null)) {
@@ -530,6 +569,9 @@ public void saveSettings(final TreeEnsembleLearnerConfiguration cfg) throws Inva
         // Forest Options
 
         cfg.setNrModels((Integer)m_nrModelsSpinner.getValue());
+        cfg.setOutOfBagErrorInterval((Integer)m_outOfBagErrorIntervalSpinner.getValue());
+        cfg.setAutoNrModels(m_autoNrModelsChecker.isSelected());
+        cfg.setAutoNrModelsTolerance((Double)m_autoNrModelsToleranceSpinner.getValue());
         cfg.setDataFractionPerTree(1);
         cfg.setDataSelectionWithReplacement(true);
 
@@ -65,6 +65,7 @@
 import javax.swing.SpinnerNumberModel;
 import javax.swing.border.Border;
 
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnBinning;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.ColumnSamplingMode;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.MissingValueHandling;
@@ -127,6 +128,14 @@ public final class OptionsPanel extends JPanel {
 
     private final JComboBox<MissingValueHandling> m_missingValueHandlingComboBox;
 
+    private final JCheckBox m_histogramBinsChecker;
+
+    private final JSpinner m_histogramBinsSpinner;
+
+    private final JCheckBox m_levelWiseGrowthChecker;
+
+    private final JCheckBox m_parallelSplitSearchChecker;
+
     private final JCheckBox m_minNodeSizeChecker;
 
     private final JSpinner m_minNodeSizeSpinner;
@@ -182,6 +191,16 @@ public OptionsPanel() {
 
         m_missingValueHandlingComboBox = new JComboBox<>(MissingValueHandling.values());
 
+        m_histogramBinsSpinner = new JSpinner(new SpinnerNumberModel(
+            TreeEnsembleLearnerConfiguration.DEF_NR_HISTOGRAM_BINS, TreeNumericColumnBinning.MIN_NR_BINS,
+            TreeNumericColumnBinning.MAX_NR_BINS, 1));
+        m_histogramBinsChecker = new JCheckBox("Use histogram splits (number of bins per numeric attribute)");
+        m_histogramBinsChecker
+            .addItemListener(e -> m_histogramBinsSpinner.setEnabled(m_histogramBinsChecker.isSelected()));
+        m_histogramBinsSpinner.setEnabled(false);
+        m_levelWiseGrowthChecker = new JCheckBox("Grow trees level-wise");
+        m_parallelSplitSearchChecker = new JCheckBox("Evaluate attributes in parallel");
+
         m_minNodeSizeSpinner = new JSpinner(new SpinnerNumberModel(10, 1, Integer.MAX_VALUE, 1));
         m_minNodeSizeChecker = new JCheckBox("Minimum split node size");
         m_minNodeSizeChecker.addItemListener(e -> m_minNodeSizeSpinner.setEnabled(m_minNodeSizeChecker.isSelected()));
@@ -298,6 +317,28 @@ private void initPanel() {
         add(m_missingValueHandlingComboBox, gbc);
 
         gbc.gridwidth = 1;
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        add(m_histogramBinsChecker, gbc);
+        gbc.gridx += 1;
+        gbc.weightx = 1.0;
+        add(m_histogramBinsSpinner, gbc);
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 2;
+        add(m_levelWiseGrowthChecker, gbc);
+        gbc.gridwidth = 1;
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 2;
+        add(m_parallelSplitSearchChecker, gbc);
+        gbc.gridwidth = 1;
+
         gbc.gridy += 1;
         gbc.gridx = 0;
         gbc.weightx = 0.0;
@@ -346,6 +387,14 @@ private void loadTreeSettings(final TreeEnsembleLearnerConfiguration cfg) {
 
         m_missingValueHandlingComboBox.setSelectedItem(cfg.getMissingValueHandling());
 
+        if (cfg.isUseHistogramSplits() != m_histogramBinsChecker.isSelected()) {
+            m_histogramBinsChecker.doClick();
+        }
+        m_histogramBinsSpinner.setValue(cfg.isUseHistogramSplits() ? cfg.getNrHistogramBins()
+            : TreeEnsembleLearnerConfiguration.DEF_NR_HISTOGRAM_BINS);
+        m_levelWiseGrowthChecker.setSelected(cfg.isUseLevelWiseGrowth());
+        m_parallelSplitSearchChecker.setSelected(cfg.isUseParallelSplitSearch());
+
         int maxLevel = cfg.getMaxLevels();
         if ((maxLevel != TreeEnsembleLearnerConfiguration.MAX_LEVEL_INFINITE) != m_maxLevelChecker.isSelected()) {
             m_maxLevelChecker.doClick();
@@ -485,6 +534,12 @@ public void saveSettings(final TreeEnsembleLearnerConfiguration cfg) throws Inva
         }
         cfg.setMissingValueHandling(missValHandling);
 
+        cfg.setNrHistogramBins(m_histogramBinsChecker.isSelected() ? (Integer)m_histogramBinsSpinner.getValue()
+            : TreeEnsembleLearnerConfiguration.NR_HISTOGRAM_BINS_UNDEFINED);
+
+        cfg.setUseLevelWiseGrowth(m_levelWiseGrowthChecker.isSelected());
+        cfg.setUseParallelSplitSearch(m_parallelSplitSearchChecker.isSelected());
+
         cfg.setUseAverageSplitPoints(true);
 
         int maxLevel = m_maxLevelChecker.isSelected() ? (Integer)m_maxLevelSpinner.getValue()
@@ -58,6 +58,7 @@
 import org.knime.base.node.mine.treeensemble2.data.memberships.BitVectorDataIndexManager;
 import org.knime.base.node.mine.treeensemble2.data.memberships.DefaultDataIndexManager;
 import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.learner.ParallelSplitSearch;
 import org.knime.base.node.mine.treeensemble2.learner.TreeLearnerRegression;
 import org.knime.base.node.mine.treeensemble2.learner.TreeNodeSignatureFactory;
 import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
@@ -179,6 +180,8 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
         }
         final RowSample rowSample = m_configuration.createRowSampler(data).createRowSample(rd);
         TreeLearnerRegression treeLearner = new TreeLearnerRegression(m_configuration, data, indexManager, signatureFactory, rd, rowSample);
+        // a single tree, all cores are used for the split search
+        treeLearner.setParallelSplitSearch(new ParallelSplitSearch(ParallelSplitSearch.getIntraTreeParallelism(1)));
         TreeModelRegression regTree = treeLearner.learnSingleTree(learnExec, rd);
 
         RegressionTreeModel model = new RegressionTreeModel(m_configuration, data.getMetaData(), regTree, data.getTreeType());
@@ -0,0 +1,132 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.sample.row;
+
+/**
+ * A {@link RowSample} that packs the per-row counts into as few bits as the largest count requires (1, 2, 4, 8 or 16
+ * bits per row). Bootstrap samples rarely contain a row more than 15 times, so the counts usually take 4 bits per
+ * row instead of the 32 bits of a {@link SubsetWithReplacementRowSample}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class CompactRowSample implements RowSample {
+
+    private static final int MAX_BITS_PER_ROW = 16;
+
+    private final long[] m_words;
+
+    private final int m_nrRows;
+
+    private final int m_bitsPerRow;
+
+    /** log2 of the number of rows per long. */
+    private final int m_rowsPerWordShift;
+
+    private final long m_mask;
+
+    private CompactRowSample(final RowSample sample, final int bitsPerRow) {
+        m_nrRows = sample.getNrRows();
+        m_bitsPerRow = bitsPerRow;
+        m_rowsPerWordShift = Integer.numberOfTrailingZeros(Long.SIZE / bitsPerRow);
+        m_mask = (1L << bitsPerRow) - 1;
+        final int rowsPerWord = 1 << m_rowsPerWordShift;
+        m_words = new long[(m_nrRows + rowsPerWord - 1) >>> m_rowsPerWordShift];
+        for (int i = 0; i < m_nrRows; i++) {
+            final long count = sample.getCountFor(i);
+            m_words[i >>> m_rowsPerWordShift] |= count << ((i & (rowsPerWord - 1)) * bitsPerRow);
+        }
+    }
+
+    /**
+     * Creates a compact copy of <b>sample</b>. Samples that are already compact ({@link DefaultRowSample},
+     * {@link SubsetNoReplacementRowSample}) and samples with counts that need more than 16 bits are returned as is.
+     *
+     * @param sample the sample to compact
+     * @return a sample with the same counts as <b>sample</b>
+     */
+    public static RowSample compact(final RowSample sample) {
+        if (sample instanceof DefaultRowSample || sample instanceof SubsetNoReplacementRowSample
+            || sample instanceof CompactRowSample) {
+            return sample;
+        }
+        int maxCount = 0;
+        for (int i = 0; i < sample.getNrRows(); i++) {
+            maxCount = Math.max(maxCount, sample.getCountFor(i));
+        }
+        final int bitsNeeded = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(maxCount));
+        if (bitsNeeded > MAX_BITS_PER_ROW) {
+            return sample;
+        }
+        // the next power of two, so that no row spans two longs
+        final int bitsPerRow = Integer.highestOneBit(bitsNeeded) == bitsNeeded ? bitsNeeded
+            : Integer.highestOneBit(bitsNeeded) << 1;
+        return new CompactRowSample(sample, bitsPerRow);
+    }
+
+    /** @return the number of bits used to store the count of a single row */
+    public int getNrBitsPerRow() {
+        return m_bitsPerRow;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getNrRows() {
+        return m_nrRows;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getCountFor(final int rowIndex) {
+        final int offset = (rowIndex & ((1 << m_rowsPerWordShift) - 1)) * m_bitsPerRow;
+        return (int)((m_words[rowIndex >>> m_rowsPerWordShift] >>> offset) & m_mask);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "Compact sample; nrRows: " + m_nrRows + ", bits per row: " + m_bitsPerRow;
+    }
+
+}
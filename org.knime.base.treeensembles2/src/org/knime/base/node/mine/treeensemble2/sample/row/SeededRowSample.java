@@ -0,0 +1,138 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.sample.row;
+
+import java.lang.ref.SoftReference;
+
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+
+/**
+ * A "virtual" {@link RowSample} that only needs to keep the seed it was drawn with. The counts are held in a
+ * {@link CompactRowSample} that the garbage collector may reclaim when memory gets short; they are then drawn again
+ * from the {@link RowSampler} with a {@link TreeEnsembleLearnerConfiguration#createRandomData(long) RandomData}
+ * created from the seed. This requires that the sample is the first thing drawn from that RandomData, as is the case
+ * for the trees of a tree ensemble.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class SeededRowSample implements RowSample {
+
+    private final RowSampler m_sampler;
+
+    private final long m_seed;
+
+    private final int m_nrRows;
+
+    private volatile SoftReference<RowSample> m_sampleReference;
+
+    /**
+     * Creates a sample that is drawn once it is first accessed.
+     *
+     * @param sampler the sampler to draw the sample with
+     * @param seed the seed of the RandomData to draw the sample with
+     * @param nrRows the number of rows in the full set of rows
+     */
+    public SeededRowSample(final RowSampler sampler, final long seed, final int nrRows) {
+        m_sampler = sampler;
+        m_seed = seed;
+        m_nrRows = nrRows;
+        m_sampleReference = new SoftReference<>(null);
+    }
+
+    /**
+     * Creates a sample that wraps an already drawn sample.
+     *
+     * @param sampler the sampler the sample was drawn with
+     * @param seed the seed of the RandomData the sample was drawn with
+     * @param sample the sample drawn first from the RandomData created from <b>seed</b>
+     */
+    public SeededRowSample(final RowSampler sampler, final long seed, final RowSample sample) {
+        m_sampler = sampler;
+        m_seed = seed;
+        m_nrRows = sample.getNrRows();
+        m_sampleReference = new SoftReference<>(CompactRowSample.compact(sample));
+    }
+
+    private RowSample getSample() {
+        RowSample sample = m_sampleReference.get();
+        if (sample == null) {
+            // concurrent callers may both draw the sample, they get identical counts
+            sample = CompactRowSample.compact(
+                m_sampler.createRowSample(TreeEnsembleLearnerConfiguration.createRandomData(m_seed)));
+            m_sampleReference = new SoftReference<>(sample);
+        }
+        return sample;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getNrRows() {
+        return m_nrRows;
+    }
+
+    /**
+     * Returns the counts of this sample in a sample the caller holds on to. Callers that pass over many rows must use
+     * it instead of {@link #getCountFor(int)}, which looks the counts up anew for each row and may hence draw the
+     * sample again for each row if memory is short.
+     *
+     * @return a sample with the same counts that can't be reclaimed while it is referenced
+     */
+    public RowSample materialize() {
+        return getSample();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getCountFor(final int rowIndex) {
+        return getSample().getCountFor(rowIndex);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "Seeded sample; seed: " + m_seed + ", nrRows: " + m_nrRows;
+    }
+
+}
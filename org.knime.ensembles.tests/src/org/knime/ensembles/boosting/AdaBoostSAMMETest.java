@@ -0,0 +1,182 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.ensembles.boosting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.filestore.internal.NotInWorkflowDataRepository;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests the sampling of {@link AdaBoostSAMME}: the alias table must follow the sample weights and the binary search
+ * must draw the same samples as in earlier versions.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class AdaBoostSAMMETest {
+
+    private static final DataTableSpec SPEC = new DataTableSpec(
+        new DataColumnSpecCreator("Class", StringCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("Prediction", StringCell.TYPE).createSpec());
+
+    private static final int NR_ROWS = 23;
+
+    private ExecutionContext m_exec;
+
+    /**
+     * Creates an execution context that is not part of a workflow.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Before
+    public void setUp() {
+        final NodeFactory<NodeModel> factory = (NodeFactory)new BoostingLearnerLoopEndNodeFactory();
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(factory),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, NotInWorkflowDataRepository.newInstance());
+    }
+
+    /**
+     * Creates predictions in which the rows with an index divisible by <b>wrongEvery</b> are predicted wrong.
+     */
+    private BufferedDataTable createPredictions(final int wrongEvery) {
+        final BufferedDataContainer container = m_exec.createDataContainer(SPEC);
+        for (int r = 0; r < NR_ROWS; r++) {
+            final String realClass = r % 2 == 0 ? "a" : "b";
+            final String prediction = r % wrongEvery == 0 ? (r % 2 == 0 ? "b" : "a") : realClass;
+            container.addRowToTable(
+                new DefaultRow(RowKey.createRowKey((long)r), new StringCell(realClass), new StringCell(prediction)));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * Creates a strategy whose sample weights are no longer uniform.
+     */
+    private AdaBoostSAMME createWeightedStrategy(final Random random, final boolean aliasSampling)
+        throws Exception {
+        final AdaBoostSAMME strategy = new AdaBoostSAMME(NR_ROWS, 2, random, aliasSampling);
+        strategy.score(createPredictions(4), 1, 0, new ExecutionMonitor());
+        strategy.score(createPredictions(3), 1, 0, new ExecutionMonitor());
+        return strategy;
+    }
+
+    private static void assertFollowsWeights(final AdaBoostSAMME strategy) {
+        final int nrDraws = 1000000;
+        final int[] counts = new int[NR_ROWS];
+        for (int i = 0; i < nrDraws; i++) {
+            counts[strategy.nextSample()]++;
+        }
+        for (int r = 0; r < NR_ROWS; r++) {
+            final double p = strategy.sampleWeight(r);
+            // five standard deviations of the relative frequency
+            final double tolerance = 5 * Math.sqrt(p * (1 - p) / nrDraws);
+            assertEquals("Relative frequency of row " + r, p, counts[r] / (double)nrDraws, tolerance);
+        }
+    }
+
+    /**
+     * The rows drawn from the alias table must follow the uniform initial weights and the weights after some
+     * iterations.
+     *
+     * @throws Exception if the predictions can't be created
+     */
+    @Test
+    public void testAliasDrawFollowsWeights() throws Exception {
+        assertFollowsWeights(new AdaBoostSAMME(NR_ROWS, 2, new Random(11), true));
+        final AdaBoostSAMME strategy = createWeightedStrategy(new Random(12), true);
+        double minWeight = 1;
+        double maxWeight = 0;
+        for (int r = 0; r < NR_ROWS; r++) {
+            minWeight = Math.min(minWeight, strategy.sampleWeight(r));
+            maxWeight = Math.max(maxWeight, strategy.sampleWeight(r));
+        }
+        assertTrue("The weights should differ", maxWeight > 2 * minWeight);
+        assertFollowsWeights(strategy);
+    }
+
+    /**
+     * Without the alias table, the rows are drawn by a binary search over the cumulative sample weights, which
+     * gives the samples of earlier versions for the same seed.
+     *
+     * @throws Exception if the predictions can't be created
+     */
+    @Test
+    public void testBinarySearchDrawUnchanged() throws Exception {
+        final AdaBoostSAMME strategy = createWeightedStrategy(new Random(13), false);
+        final double[] distribution = new double[NR_ROWS];
+        for (int r = 1; r < NR_ROWS; r++) {
+            distribution[r] = distribution[r - 1] + strategy.sampleWeight(r - 1);
+        }
+        final Random random = new Random(13);
+        for (int i = 0; i < 10000; i++) {
+            int expected = Arrays.binarySearch(distribution, random.nextDouble());
+            if (expected < 0) {
+                expected = -(expected + 1) - 1;
+            }
+            assertEquals(expected, strategy.nextSample());
+        }
+        assertFollowsWeights(strategy);
+    }
+
+}
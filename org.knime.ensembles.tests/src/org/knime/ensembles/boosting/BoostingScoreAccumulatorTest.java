@@ -0,0 +1,200 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.ensembles.boosting;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.filestore.internal.NotInWorkflowDataRepository;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests that the {@link BoostingScoreAccumulator} predicts like the former boosting predictor loop end, which summed
+ * the model weights in a hash map of classes per row key.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class BoostingScoreAccumulatorTest {
+
+    private static final DataTableSpec SPEC =
+        new DataTableSpec(new DataColumnSpecCreator("Prediction", StringCell.TYPE).createSpec());
+
+    private static final int NR_ROWS = 80;
+
+    private ExecutionContext m_exec;
+
+    /**
+     * Creates an execution context that is not part of a workflow.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Before
+    public void setUp() {
+        final NodeFactory<NodeModel> factory = (NodeFactory)new BoostingPredictorLoopEndNodeFactory();
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(factory),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, NotInWorkflowDataRepository.newInstance());
+    }
+
+    private BufferedDataTable createTable(final DataCell[] predictions, final boolean reversed) {
+        final BufferedDataContainer container = m_exec.createDataContainer(SPEC);
+        for (int i = 0; i < predictions.length; i++) {
+            final int r = reversed ? predictions.length - 1 - i : i;
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)r), predictions[r]));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * The predictions of the former implementation, the class with the largest summed model weight, and its share
+     * of the total weight.
+     */
+    private static void assertPrediction(final Map<DataCell, Double> weights, final DataCell[] prediction) {
+        DataCell expected = DataType.getMissingCell();
+        double maxWeight = 0.0;
+        double sum = 0;
+        for (final Map.Entry<DataCell, Double> e : weights.entrySet()) {
+            if (e.getValue() > maxWeight) {
+                maxWeight = e.getValue();
+                expected = e.getKey();
+            }
+            sum += e.getValue();
+        }
+        assertEquals(expected, prediction[0]);
+        assertEquals(maxWeight / sum, ((DoubleValue)prediction[1]).getDoubleValue(), 1e-12);
+    }
+
+    /**
+     * The predictions and probabilities must match the hash map of the former implementation, including missing
+     * predictions and predictions outside of the domain.
+     *
+     * @throws Exception if the tables can't be created
+     */
+    @Test
+    public void testMatchesHashMapScores() throws Exception {
+        final Random random = new Random(7);
+        final String[] classes = {"a", "b", "c", "d", "e"};
+        final Set<DataCell> domain = new LinkedHashSet<>();
+        domain.add(new StringCell("a"));
+        domain.add(new StringCell("b"));
+        domain.add(new StringCell("c"));
+        final BoostingScoreAccumulator accumulator = new BoostingScoreAccumulator(NR_ROWS, domain);
+        final Map<RowKey, Map<DataCell, Double>> expected = new HashMap<>();
+        for (int m = 0; m < 9; m++) {
+            // random weights, such that there are no ties that the hash map resolved in its own order
+            final double modelWeight = 0.1 + random.nextDouble();
+            final DataCell[] predictions = new DataCell[NR_ROWS];
+            for (int r = 0; r < NR_ROWS; r++) {
+                predictions[r] = random.nextDouble() < 0.05 ? DataType.getMissingCell()
+                    : new StringCell(classes[random.nextInt(r % 2 == 0 ? 3 : classes.length)]);
+                expected.computeIfAbsent(RowKey.createRowKey((long)r), k -> new HashMap<>())
+                    .merge(predictions[r], modelWeight, Double::sum);
+            }
+            accumulator.addPredictions(createTable(predictions, false), 0, modelWeight, new ExecutionMonitor());
+        }
+        for (int r = 0; r < NR_ROWS; r++) {
+            assertPrediction(expected.get(RowKey.createRowKey((long)r)), accumulator.predict(r));
+        }
+    }
+
+    /**
+     * A single model predicts its own classes with probability one, also without a domain.
+     *
+     * @throws Exception if the tables can't be created
+     */
+    @Test
+    public void testSingleModel() throws Exception {
+        final DataCell[] predictions = new DataCell[NR_ROWS];
+        for (int r = 0; r < NR_ROWS; r++) {
+            predictions[r] = new StringCell("c" + (r % 4));
+        }
+        final BoostingScoreAccumulator accumulator = new BoostingScoreAccumulator(NR_ROWS, null);
+        accumulator.addPredictions(createTable(predictions, false), 0, 0.5, new ExecutionMonitor());
+        for (int r = 0; r < NR_ROWS; r++) {
+            final DataCell[] prediction = accumulator.predict(r);
+            assertEquals(predictions[r], prediction[0]);
+            assertEquals(1.0, ((DoubleValue)prediction[1]).getDoubleValue(), 0.0);
+        }
+    }
+
+    /**
+     * The rows are identified by their position, hence a different row order is rejected.
+     *
+     * @throws Exception if the tables can't be created
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testRowsInDifferentOrder() throws Exception {
+        final DataCell[] predictions = new DataCell[NR_ROWS];
+        for (int r = 0; r < NR_ROWS; r++) {
+            predictions[r] = new StringCell("a");
+        }
+        final BoostingScoreAccumulator accumulator = new BoostingScoreAccumulator(NR_ROWS, null);
+        accumulator.addPredictions(createTable(predictions, false), 0, 1.0, new ExecutionMonitor());
+        accumulator.addPredictions(createTable(predictions, true), 0, 1.0, new ExecutionMonitor());
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.ensembles.pmml.predictor3;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dmg.pmml.MININGFUNCTION;
+import org.dmg.pmml.MULTIPLEMODELMETHOD;
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTable;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.filestore.internal.NotInWorkflowDataRepository;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.ensembles.pmml.predictor3.EnsembleChunkPredictor.SegmentPredictor;
+
+/**
+ * Tests that the {@link EnsembleChunkPredictor} predicts like the former ensemble predictor, which predicted the whole
+ * table with each segment and combined the predictions afterwards.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class EnsembleChunkPredictorTest {
+
+    private static final DataTableSpec SPEC =
+        new DataTableSpec(new DataColumnSpecCreator("x", DoubleCell.TYPE).createSpec());
+
+    private static final int NR_ROWS = 50;
+
+    private static final int NR_SEGMENTS = 5;
+
+    private ExecutionContext m_exec;
+
+    private BufferedDataTable m_table;
+
+    /**
+     * Creates an execution context that is not part of a workflow and the table to predict.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Before
+    public void setUp() {
+        final NodeFactory<NodeModel> factory = (NodeFactory)new PMMLEnsemblePredictorNodeFactory3();
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(factory),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, NotInWorkflowDataRepository.newInstance());
+        final BufferedDataContainer container = m_exec.createDataContainer(SPEC);
+        for (int r = 0; r < NR_ROWS; r++) {
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)r), new DoubleCell(r * 0.37)));
+        }
+        container.close();
+        m_table = container.getTable();
+    }
+
+    /**
+     * A segment that appends a prediction calculated from the value of the row, like the predictor nodes do.
+     */
+    private static SegmentPredictor createSegment(final int segment, final boolean classification) {
+        return new SegmentPredictor() {
+            @Override
+            public DataTable predict(final BufferedDataTable table, final ExecutionContext exec) throws Exception {
+                final ColumnRearranger cr = new ColumnRearranger(table.getDataTableSpec());
+                cr.append(new SingleCellFactory(new DataColumnSpecCreator("Prediction " + segment,
+                    classification ? StringCell.TYPE : DoubleCell.TYPE).createSpec()) {
+                    @Override
+                    public DataCell getCell(final DataRow row) {
+                        final double x = ((DoubleValue)row.getCell(0)).getDoubleValue();
+                        if (classification) {
+                            return new StringCell("c" + ((int)(x * (segment + 1)) % 3));
+                        }
+                        return new DoubleCell(x * segment - segment);
+                    }
+                });
+                return exec.createColumnRearrangeTable(table, cr, exec);
+            }
+        };
+    }
+
+    private static List<SegmentPredictor> createSegments(final boolean classification) {
+        final List<SegmentPredictor> segments = new ArrayList<>();
+        for (int i = 0; i < NR_SEGMENTS; i++) {
+            segments.add(createSegment(i, classification));
+        }
+        return segments;
+    }
+
+    private static PredictionCombiner createCombiner(final MULTIPLEMODELMETHOD.Enum method,
+        final MININGFUNCTION.Enum funcName) throws Exception {
+        final double[] weights = new double[NR_SEGMENTS];
+        for (int i = 0; i < NR_SEGMENTS; i++) {
+            weights[i] = i + 1;
+        }
+        return new PredictionCombiner(method, funcName, weights, "missing", true, false);
+    }
+
+    /**
+     * The output of the former implementation: the whole table is predicted by each segment, the predictions are
+     * collected per row key and combined afterwards.
+     */
+    private List<DataRow> predictBaseline(final List<SegmentPredictor> segments, final PredictionCombiner combiner)
+        throws Exception {
+        final Map<RowKey, List<DataCell>> predictions = new HashMap<>();
+        for (final SegmentPredictor segment : segments) {
+            for (final DataRow row : segment.predict(m_table, m_exec)) {
+                predictions.computeIfAbsent(row.getKey(), k -> new ArrayList<>())
+                    .add(row.getCell(row.getNumCells() - 1));
+            }
+        }
+        final List<DataRow> rows = new ArrayList<>();
+        for (final DataRow row : m_table) {
+            rows.add(new DefaultRow(row.getKey(), combiner.combine(row, predictions.get(row.getKey()))));
+        }
+        return rows;
+    }
+
+    private void assertMatchesBaseline(final boolean classification, final MULTIPLEMODELMETHOD.Enum method,
+        final MININGFUNCTION.Enum funcName, final boolean parallel, final int chunkSize) throws Exception {
+        final List<SegmentPredictor> segments = createSegments(classification);
+        final PredictionCombiner combiner = createCombiner(method, funcName);
+        final List<DataRow> expected = predictBaseline(segments, combiner);
+        final BufferedDataTable output =
+            new EnsembleChunkPredictor(segments, combiner, parallel, chunkSize).predict(m_table, m_exec);
+
+        assertEquals(SPEC.getNumColumns() + NR_SEGMENTS + 1, output.getDataTableSpec().getNumColumns());
+        assertEquals(NR_ROWS, output.size());
+        try (CloseableRowIterator it = output.iterator()) {
+            for (final DataRow expectedRow : expected) {
+                final DataRow row = it.next();
+                assertEquals(expectedRow.getKey(), row.getKey());
+                assertEquals(expectedRow.getNumCells(), row.getNumCells());
+                for (int i = 0; i < row.getNumCells(); i++) {
+                    assertEquals(expectedRow.getCell(i), row.getCell(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Chunks that don't divide the table must give the averages of the whole table.
+     *
+     * @throws Exception if the prediction fails
+     */
+    @Test
+    public void testAverageInChunks() throws Exception {
+        assertMatchesBaseline(false, MULTIPLEMODELMETHOD.AVERAGE, MININGFUNCTION.REGRESSION, false, 7);
+        assertMatchesBaseline(false, MULTIPLEMODELMETHOD.WEIGHTED_AVERAGE, MININGFUNCTION.REGRESSION, false, 7);
+    }
+
+    /**
+     * Segments that predict a chunk concurrently must give the votes of the whole table.
+     *
+     * @throws Exception if the prediction fails
+     */
+    @Test
+    public void testMajorityVoteInParallelChunks() throws Exception {
+        assertMatchesBaseline(true, MULTIPLEMODELMETHOD.MAJORITY_VOTE, MININGFUNCTION.CLASSIFICATION, true, 7);
+        assertMatchesBaseline(true, MULTIPLEMODELMETHOD.WEIGHTED_MAJORITY_VOTE, MININGFUNCTION.CLASSIFICATION,
+            true, 10);
+    }
+
+    /**
+     * A table that fits into a single chunk is predicted without copying it.
+     *
+     * @throws Exception if the prediction fails
+     */
+    @Test
+    public void testSingleChunk() throws Exception {
+        assertMatchesBaseline(false, MULTIPLEMODELMETHOD.MEDIAN, MININGFUNCTION.REGRESSION, false, NR_ROWS);
+        assertMatchesBaseline(true, MULTIPLEMODELMETHOD.SELECT_ALL, MININGFUNCTION.CLASSIFICATION, true,
+            EnsembleChunkPredictor.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * The failure of a segment in a later chunk is reported, not swallowed.
+     *
+     * @throws Exception if the prediction fails
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testFailingSegment() throws Exception {
+        final List<SegmentPredictor> segments = createSegments(false);
+        segments.add(new SegmentPredictor() {
+            private int m_calls;
+
+            @Override
+            public DataTable predict(final BufferedDataTable table, final ExecutionContext exec) throws Exception {
+                if (++m_calls > 2) {
+                    throw new IllegalStateException("Segment failed");
+                }
+                return createSegment(0, false).predict(table, exec);
+            }
+        });
+        final PredictionCombiner combiner =
+            new PredictionCombiner(MULTIPLEMODELMETHOD.SUM, MININGFUNCTION.REGRESSION, new double[0], "missing",
+                false, false);
+        new EnsembleChunkPredictor(segments, combiner, true, 7).predict(m_table, m_exec);
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.ensembles.voting;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.filestore.internal.NotInWorkflowDataRepository;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests that the {@link VoteAccumulator} creates the votes and winners of the former voting loop end, which joined
+ * the predictions of each iteration on the row ID and counted the cells of each joined row.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class VoteAccumulatorTest {
+
+    private static final DataColumnSpec PREDICTION_SPEC =
+        new DataColumnSpecCreator("Prediction", StringCell.TYPE).createSpec();
+
+    private static final DataTableSpec SPEC = new DataTableSpec(
+        new DataColumnSpecCreator("Other", StringCell.TYPE).createSpec(), PREDICTION_SPEC);
+
+    private static final String[] CLASSES = {"a", "b", "c", "d"};
+
+    private ExecutionContext m_exec;
+
+    /**
+     * Creates an execution context that is not part of a workflow.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Before
+    public void setUp() {
+        final NodeFactory<NodeModel> factory = (NodeFactory)new VotingLoopEndNodeFactory();
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(factory),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, NotInWorkflowDataRepository.newInstance());
+    }
+
+    /**
+     * Draws the predictions of an iteration, a random subset of the rows in random order with some missing values.
+     */
+    private static Map<RowKey, DataCell> drawIteration(final Random random, final int nrRows) {
+        final List<Integer> rows = new ArrayList<>();
+        for (int r = 0; r < nrRows; r++) {
+            if (random.nextDouble() < 0.8) {
+                rows.add(r);
+            }
+        }
+        Collections.shuffle(rows, random);
+        final Map<RowKey, DataCell> predictions = new LinkedHashMap<>();
+        for (final int r : rows) {
+            // the rows prefer a class, such that the winners aren't all ties
+            final String prediction = random.nextDouble() < 0.5 ? CLASSES[r % CLASSES.length]
+                : CLASSES[random.nextInt(CLASSES.length)];
+            predictions.put(RowKey.createRowKey((long)r),
+                random.nextDouble() < 0.05 ? DataType.getMissingCell() : new StringCell(prediction));
+        }
+        return predictions;
+    }
+
+    private BufferedDataTable createTable(final Map<RowKey, DataCell> predictions) {
+        final BufferedDataContainer container = m_exec.createDataContainer(SPEC);
+        for (final Map.Entry<RowKey, DataCell> prediction : predictions.entrySet()) {
+            container.addRowToTable(new DefaultRow(prediction.getKey(), new StringCell("x"), prediction.getValue()));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * The joined votes of the former implementation: a full outer join on the row ID in each iteration, i.e. a row
+     * gets a missing vote for each iteration in which it is absent.
+     */
+    private static Map<RowKey, List<DataCell>> joinVotes(final List<Map<RowKey, DataCell>> iterations) {
+        final Map<RowKey, List<DataCell>> joined = new LinkedHashMap<>();
+        for (int i = 0; i < iterations.size(); i++) {
+            final Map<RowKey, DataCell> iteration = iterations.get(i);
+            for (final List<DataCell> votes : joined.values()) {
+                votes.add(DataType.getMissingCell());
+            }
+            for (final Map.Entry<RowKey, DataCell> prediction : iteration.entrySet()) {
+                List<DataCell> votes = joined.get(prediction.getKey());
+                if (votes == null) {
+                    votes = new ArrayList<>(Collections.nCopies(i + 1, DataType.getMissingCell()));
+                    joined.put(prediction.getKey(), votes);
+                }
+                votes.set(i, prediction.getValue());
+            }
+        }
+        return joined;
+    }
+
+    /**
+     * The winner of the former implementation, the most frequent cell of the joined row, the first one on ties.
+     */
+    private static DataCell getWinner(final List<DataCell> votes) {
+        final Map<DataCell, Integer> counts = new LinkedHashMap<>();
+        for (final DataCell vote : votes) {
+            counts.merge(vote, 1, Integer::sum);
+        }
+        DataCell winner = null;
+        int maxCount = 0;
+        for (final Map.Entry<DataCell, Integer> count : counts.entrySet()) {
+            if (count.getValue() > maxCount) {
+                maxCount = count.getValue();
+                winner = count.getKey();
+            }
+        }
+        return winner;
+    }
+
+    private void assertMatchesJoin(final int nrIterations, final boolean withVotes, final long seed)
+        throws Exception {
+        final Random random = new Random(seed);
+        final List<Map<RowKey, DataCell>> iterations = new ArrayList<>();
+        final VoteAccumulator accumulator = new VoteAccumulator();
+        for (int i = 0; i < nrIterations; i++) {
+            final Map<RowKey, DataCell> iteration = drawIteration(random, 60);
+            iterations.add(iteration);
+            accumulator.addVotes(createTable(iteration), 1, new ExecutionMonitor());
+        }
+        final Map<RowKey, List<DataCell>> expected = joinVotes(iterations);
+        final BufferedDataTable table = accumulator.createTable(PREDICTION_SPEC, withVotes, m_exec);
+
+        assertEquals(withVotes ? nrIterations + 1 : 1, table.getDataTableSpec().getNumColumns());
+        assertEquals(expected.size(), table.size());
+        try (CloseableRowIterator rows = table.iterator()) {
+            // the rows are in the order in which they are first seen
+            for (final Map.Entry<RowKey, List<DataCell>> expectedRow : expected.entrySet()) {
+                final DataRow row = rows.next();
+                assertEquals(expectedRow.getKey(), row.getKey());
+                final List<DataCell> votes = expectedRow.getValue();
+                if (withVotes) {
+                    for (int i = 0; i < nrIterations; i++) {
+                        assertEquals("Vote of iteration " + i + " in row " + row.getKey(), votes.get(i),
+                            row.getCell(i));
+                    }
+                }
+                assertEquals("Winner of row " + row.getKey(), getWinner(votes),
+                    row.getCell(row.getNumCells() - 1));
+            }
+        }
+    }
+
+    /**
+     * The votes and winners must match the joined table of the former implementation, including rows that are
+     * absent in some iterations and missing predictions.
+     *
+     * @throws Exception if the tables can't be created
+     */
+    @Test
+    public void testMatchesJoinedVotes() throws Exception {
+        for (int seed = 0; seed < 5; seed++) {
+            assertMatchesJoin(7, true, seed);
+        }
+    }
+
+    /**
+     * Without the votes, only the winner column is created.
+     *
+     * @throws Exception if the tables can't be created
+     */
+    @Test
+    public void testWinnersOnly() throws Exception {
+        assertMatchesJoin(4, false, 42);
+    }
+
+    /**
+     * Ties go to the prediction of the earlier iteration.
+     *
+     * @throws Exception if the tables can't be created
+     */
+    @Test
+    public void testTies() throws Exception {
+        final RowKey key = RowKey.createRowKey(0L);
+        final VoteAccumulator accumulator = new VoteAccumulator();
+        accumulator.addVotes(createTable(Collections.singletonMap(key, new StringCell("b"))), 1,
+            new ExecutionMonitor());
+        accumulator.addVotes(createTable(Collections.singletonMap(key, new StringCell("a"))), 1,
+            new ExecutionMonitor());
+        try (CloseableRowIterator rows = accumulator.createTable(PREDICTION_SPEC, false, m_exec).iterator()) {
+            assertEquals(new StringCell("b"), rows.next().getCell(0));
+        }
+    }
+
+}
@@ -65,8 +65,18 @@
 public class AdaBoostSAMME implements BoostingStrategy {
     private final double[] m_sampleWeights;
 
+    /** The cumulative sample weights, <code>null</code> for alias sampling. */
     private final double[] m_sampleDistribution;
 
+    /**
+     * Probability of keeping the drawn index in the alias table,
+     * <code>null</code> without alias sampling.
+     */
+    private final double[] m_aliasProbabilities;
+
+    /** Index returned if the drawn index is not kept. */
+    private final int[] m_aliases;
+
     private final Random m_rand;
 
     private final double m_classCorrection;
@@ -79,12 +89,40 @@ public class AdaBoostSAMME implements BoostingStrategy {
      * @param random a random number generator
      */
     public AdaBoostSAMME(final int numberOfRows, final int classCount, final Random random) {
-        m_sampleWeights = new double[numberOfRows];
-        m_sampleDistribution = new double[numberOfRows];
+        this(numberOfRows, classCount, random, false);
+    }
 
+    /**
+     * Creates a new boosting strategy.
+     *
+     * @param numberOfRows the total number or rows or patterns
+     * @param classCount the number of possible classes for all patterns
+     * @param random a random number generator
+     * @param aliasSampling <code>true</code> if the samples are drawn from an
+     *            alias table in constant time, <code>false</code> if they are
+     *            drawn by a binary search over the cumulative sample weights;
+     *            both follow the sample weights, but give different samples
+     *            for the same seed
+     * @since 4.2
+     */
+    public AdaBoostSAMME(final int numberOfRows, final int classCount, final Random random,
+        final boolean aliasSampling) {
+        m_sampleWeights = new double[numberOfRows];
         for (int i = 0; i < numberOfRows; i++) {
             m_sampleWeights[i] = 1.0 / numberOfRows;
-            m_sampleDistribution[i] = i / (double)numberOfRows;
+        }
+        if (aliasSampling) {
+            m_sampleDistribution = null;
+            m_aliasProbabilities = new double[numberOfRows];
+            m_aliases = new int[numberOfRows];
+            buildAliasTable();
+        } else {
+            m_sampleDistribution = new double[numberOfRows];
+            m_aliasProbabilities = null;
+            m_aliases = null;
+            for (int i = 0; i < numberOfRows; i++) {
+                m_sampleDistribution[i] = i / (double)numberOfRows;
+            }
         }
 
         m_classCorrection = Math.log(classCount - 1);
@@ -104,6 +142,10 @@ public double sampleWeight(final int rowIndex) {
      */
     @Override
     public int nextSample() {
+        if (m_aliases != null) {
+            final int index = m_rand.nextInt(m_aliases.length);
+            return m_rand.nextDouble() < m_aliasProbabilities[index] ? index : m_aliases[index];
+        }
         int index = Arrays.binarySearch(m_sampleDistribution, m_rand.nextDouble());
         if (index < 0) {
             index = -(index + 1) - 1;
@@ -112,6 +154,45 @@ public int nextSample() {
         return index;
     }
 
+    /**
+     * Builds the alias table for the current sample weights (Vose's alias
+     * method), so that {@link #nextSample()} needs constant time.
+     */
+    private void buildAliasTable() {
+        final int n = m_sampleWeights.length;
+        // indices with a scaled weight below and above 1
+        final int[] small = new int[n];
+        final int[] large = new int[n];
+        int nrSmall = 0, nrLarge = 0;
+        for (int i = 0; i < n; i++) {
+            m_aliasProbabilities[i] = m_sampleWeights[i] * n;
+            m_aliases[i] = i;
+            if (m_aliasProbabilities[i] < 1) {
+                small[nrSmall++] = i;
+            } else {
+                large[nrLarge++] = i;
+            }
+        }
+        while ((nrSmall > 0) && (nrLarge > 0)) {
+            final int s = small[--nrSmall];
+            final int l = large[--nrLarge];
+            m_aliases[s] = l;
+            m_aliasProbabilities[l] -= 1 - m_aliasProbabilities[s];
+            if (m_aliasProbabilities[l] < 1) {
+                small[nrSmall++] = l;
+            } else {
+                large[nrLarge++] = l;
+            }
+        }
+        // the remaining entries are 1 up to rounding errors
+        while (nrSmall > 0) {
+            m_aliasProbabilities[small[--nrSmall]] = 1;
+        }
+        while (nrLarge > 0) {
+            m_aliasProbabilities[large[--nrLarge]] = 1;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -169,7 +250,12 @@ public double[] score(final BufferedDataTable table,
                 subexec.setProgress(i / max);
             }
             m_sampleWeights[i] /= sampleWeightSum;
-            m_sampleDistribution[i] = m_sampleDistribution[i - 1] + m_sampleWeights[i - 1];
+            if (m_sampleDistribution != null) {
+                m_sampleDistribution[i] = m_sampleDistribution[i - 1] + m_sampleWeights[i - 1];
+            }
+        }
+        if (m_aliases != null) {
+            buildAliasTable();
         }
 
         exec.setProgress(1);
@@ -234,7 +234,8 @@ protected PortObject[] execute(final PortObject[] inData,
                 exec.setMessage("");
             }
             long seed = m_settings.useSeed() ? m_settings.randomSeed() : System.currentTimeMillis();
-            m_weightModel = new AdaBoostSAMME(data.getRowCount(), domain.size(), new Random(seed));
+            m_weightModel = new AdaBoostSAMME(data.getRowCount(), domain.size(), new Random(seed),
+                m_settings.aliasSampling());
             m_container = exec.createDataContainer(OUT_SPEC);
         }
 
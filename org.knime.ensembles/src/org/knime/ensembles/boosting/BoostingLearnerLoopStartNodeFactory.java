@@ -90,7 +90,7 @@ public NodeView<BoostingLearnerLoopStartNodeModel> createNodeView(
      */
     @Override
     protected boolean hasDialog() {
-        return false;
+        return true;
     }
 
     /**
@@ -98,6 +98,6 @@ protected boolean hasDialog() {
      */
     @Override
     protected NodeDialogPane createNodeDialogPane() {
-        return null;
+        return new BoostingLearnerStartNodeDialog();
     }
 }
@@ -51,10 +51,14 @@
 import java.io.IOException;
 import java.util.Arrays;
 
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
@@ -77,6 +81,9 @@ public class BoostingLearnerLoopStartNodeModel extends NodeModel implements
         LoopStartNode {
     private static final int OVERSAMPLE_RATE = 3;
 
+    private final BoostingLearnerStartSettings m_settings =
+            new BoostingLearnerStartSettings();
+
     /**
      * Creates a new node model.
      */
@@ -90,7 +97,23 @@ public BoostingLearnerLoopStartNodeModel() {
     @Override
     protected DataTableSpec[] configure(final DataTableSpec[] inSpecs)
             throws InvalidSettingsException {
-        return new DataTableSpec[]{inSpecs[0], inSpecs[0]};
+        return new DataTableSpec[]{createTrainingSpec(inSpecs[0]), inSpecs[0]};
+    }
+
+    private DataTableSpec createTrainingSpec(final DataTableSpec inSpec)
+            throws InvalidSettingsException {
+        if (!m_settings.appendSampleCount()) {
+            return inSpec;
+        }
+        if (inSpec.containsName(m_settings.sampleCountColumn())) {
+            throw new InvalidSettingsException("Sample count column '"
+                    + m_settings.sampleCountColumn()
+                    + "' already exists in input table");
+        }
+        DataColumnSpec countSpec =
+                new DataColumnSpecCreator(m_settings.sampleCountColumn(),
+                        IntCell.TYPE).createSpec();
+        return new DataTableSpec(inSpec, new DataTableSpec(countSpec));
     }
 
     /**
@@ -99,9 +122,16 @@ protected DataTableSpec[] configure(final DataTableSpec[] inSpecs)
     @Override
     protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
             final ExecutionContext exec) throws Exception {
+        final int rowCount = inData[0].getRowCount();
         if (getLoopEndNode() == null) {
             // first iteration
-            return new BufferedDataTable[]{inData[0], inData[0]};
+            if (!m_settings.appendSampleCount()) {
+                return new BufferedDataTable[]{inData[0], inData[0]};
+            }
+            final int[] counts = new int[rowCount];
+            Arrays.fill(counts, 1);
+            return new BufferedDataTable[]{
+                    appendSampleCounts(inData[0], counts, exec), inData[0]};
         }
         if (!(getLoopEndNode() instanceof BoostingLearnerLoopEndNodeModel)) {
             throw new InvalidSettingsException(
@@ -112,12 +142,15 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
                 ((BoostingLearnerLoopEndNodeModel)getLoopEndNode())
                         .getBoostingStrategy();
 
-        final int rowCount = inData[0].getRowCount();
-        final int[] distribution = new int[OVERSAMPLE_RATE * rowCount];
-        for (int i = 0; i < distribution.length; i++) {
-            distribution[i] = strategy.nextSample();
+        // counting the draws per row replaces sorting them
+        final int[] counts = new int[rowCount];
+        for (int i = OVERSAMPLE_RATE * rowCount; i > 0; i--) {
+            counts[strategy.nextSample()]++;
+        }
+        if (m_settings.appendSampleCount()) {
+            return new BufferedDataTable[]{
+                    appendSampleCounts(inData[0], counts, exec), inData[0]};
         }
-        Arrays.sort(distribution);
 
         final BufferedDataContainer train =
                 exec.createDataContainer(inData[0].getDataTableSpec());
@@ -125,8 +158,9 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
         final double max = rowCount;
         int rowNo = 0, i = 0;
         for (DataRow row : inData[0]) {
-            while ((i < distribution.length) && (distribution[i] == rowNo)) {
-                RowKey newKey = new RowKey(row.getKey().toString() + "#" + i);
+            final String key = row.getKey().toString() + "#";
+            for (int c = counts[rowNo]; c > 0; c--) {
+                RowKey newKey = new RowKey(key + i);
                 DefaultRow newRow = new DefaultRow(newKey, row);
                 train.addRowToTable(newRow);
                 i++;
@@ -143,6 +177,40 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
         return new BufferedDataTable[]{train.getTable(), inData[0]};
     }
 
+    /**
+     * Writes each row that has been drawn at least once together with the
+     * number of times it has been drawn.
+     */
+    private BufferedDataTable appendSampleCounts(final BufferedDataTable data,
+            final int[] counts, final ExecutionContext exec)
+            throws InvalidSettingsException, CanceledExecutionException {
+        final BufferedDataContainer train =
+                exec.createDataContainer(createTrainingSpec(data
+                        .getDataTableSpec()));
+        final int nrCells = data.getDataTableSpec().getNumColumns();
+
+        final double max = counts.length;
+        int rowNo = 0;
+        for (DataRow row : data) {
+            if (counts[rowNo] > 0) {
+                DataCell[] cells = new DataCell[nrCells + 1];
+                for (int c = 0; c < nrCells; c++) {
+                    cells[c] = row.getCell(c);
+                }
+                cells[nrCells] = new IntCell(counts[rowNo]);
+                train.addRowToTable(new DefaultRow(row.getKey(), cells));
+            }
+
+            exec.setProgress(rowNo / max);
+            if (rowNo % 100 == 0) {
+                exec.checkCanceled();
+            }
+            rowNo++;
+        }
+        train.close();
+        return train.getTable();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -166,6 +234,7 @@ protected void saveInternals(final File nodeInternDir,
      */
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_settings.saveSettings(settings);
     }
 
     /**
@@ -174,6 +243,8 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
     @Override
     protected void validateSettings(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        BoostingLearnerStartSettings s = new BoostingLearnerStartSettings();
+        s.loadSettings(settings);
     }
 
     /**
@@ -182,6 +253,7 @@ protected void validateSettings(final NodeSettingsRO settings)
     @Override
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_settings.loadSettings(settings);
     }
 
     /**
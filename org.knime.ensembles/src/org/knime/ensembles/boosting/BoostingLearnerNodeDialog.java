@@ -97,6 +97,8 @@ public class BoostingLearnerNodeDialog extends NodeDialogPane {
 
     private final JLabel m_seedLabel = new JLabel("Seed");
 
+    private final JCheckBox m_aliasSampling = new JCheckBox();
+
     /**
      * Creates a new dialog.
      */
@@ -141,6 +143,14 @@ public BoostingLearnerNodeDialog() {
         c.fill = GridBagConstraints.HORIZONTAL;
         p.add(m_randomSeed, c);
 
+        c.gridx = 0;
+        c.gridy++;
+        c.weightx = 0;
+        c.fill = GridBagConstraints.NONE;
+        p.add(new JLabel("Draw samples from alias table   "), c);
+        c.gridx = 1;
+        c.insets = new Insets(2, 0, 2, 2);
+        p.add(m_aliasSampling, c);
 
         m_useSeed.addActionListener(new ActionListener() {
             @Override
@@ -167,6 +177,7 @@ protected void loadSettingsFrom(final NodeSettingsRO settings,
         m_iterations.setValue(m_settings.maxIterations());
         m_useSeed.setSelected(m_settings.useSeed());
         m_randomSeed.setText(Long.toString(m_settings.randomSeed()));
+        m_aliasSampling.setSelected(m_settings.aliasSampling());
 
         m_seedLabel.setEnabled(m_useSeed.isSelected());
         m_randomSeed.setEnabled(m_useSeed.isSelected());
@@ -183,6 +194,7 @@ protected void saveSettingsTo(final NodeSettingsWO settings)
         m_settings.predictionColumn(m_predictionColumn.getSelectedColumn());
         m_settings.useSeed(m_useSeed.isSelected());
         m_settings.randomSeed(Long.parseLong(m_randomSeed.getText()));
+        m_settings.aliasSampling(m_aliasSampling.isSelected());
         m_settings.saveSettings(settings);
     }
 }
@@ -67,6 +67,9 @@ public class BoostingLearnerSettings {
 
     private long m_randomSeed;
 
+    /** New nodes draw from an alias table, older settings binary search. */
+    private boolean m_aliasSampling = true;
+
     /**
      * Returns the name of the column containing the predicted classes.
      *
@@ -157,6 +160,28 @@ public void randomSeed(final long seed) {
         m_randomSeed = seed;
     }
 
+    /**
+     * Returns whether the samples are drawn from an alias table, which is
+     * faster but gives different samples for the same seed than the binary
+     * search of earlier versions.
+     *
+     * @return <code>true</code> if an alias table is used, <code>false</code>
+     *         otherwise
+     */
+    public boolean aliasSampling() {
+        return m_aliasSampling;
+    }
+
+    /**
+     * Sets whether the samples are drawn from an alias table.
+     *
+     * @param b <code>true</code> if an alias table should be used,
+     *            <code>false</code> otherwise
+     */
+    public void aliasSampling(final boolean b) {
+        m_aliasSampling = b;
+    }
+
     /**
      * Loads the settings from the given settings object.
      *
@@ -171,6 +196,8 @@ public void loadSettings(final NodeSettingsRO settings)
         // since 2.11
         m_useSeed = settings.getBoolean("useSeed", false);
         m_randomSeed = settings.getLong("randomSeed", System.currentTimeMillis());
+        // since 4.2, existing workflows keep their samples
+        m_aliasSampling = settings.getBoolean("aliasSampling", false);
     }
 
     /**
@@ -185,6 +212,7 @@ public void loadSettingsForDialog(final NodeSettingsRO settings) {
         m_predictionColumn = settings.getString("predictionColumn", null);
         m_useSeed = settings.getBoolean("useSeed", false);
         m_randomSeed = settings.getLong("randomSeed", System.currentTimeMillis());
+        m_aliasSampling = settings.getBoolean("aliasSampling", false);
     }
 
     /**
@@ -198,5 +226,6 @@ public void saveSettings(final NodeSettingsWO settings) {
         settings.addString("predictionColumn", m_predictionColumn);
         settings.addBoolean("useSeed", m_useSeed);
         settings.addLong("randomSeed", m_randomSeed);
+        settings.addBoolean("aliasSampling", m_aliasSampling);
     }
 }
@@ -0,0 +1,148 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.ensembles.boosting;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+
+/**
+ * This class holds the settings for the start node of a boosting learner
+ * loop.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class BoostingLearnerStartSettings {
+    /** The default name of the sample count column. */
+    static final String DEF_SAMPLE_COUNT_COLUMN = "Sample count";
+
+    private boolean m_appendSampleCount;
+
+    private String m_sampleCountColumn = DEF_SAMPLE_COUNT_COLUMN;
+
+    /**
+     * Returns whether each sampled row is output once together with the
+     * number of times it has been drawn instead of being duplicated.
+     *
+     * @return <code>true</code> if a sample count column is appended,
+     *         <code>false</code> if rows are duplicated
+     */
+    public boolean appendSampleCount() {
+        return m_appendSampleCount;
+    }
+
+    /**
+     * Sets whether each sampled row is output once together with the
+     * number of times it has been drawn instead of being duplicated.
+     *
+     * @param b <code>true</code> if a sample count column should be
+     *            appended, <code>false</code> if rows should be duplicated
+     */
+    public void appendSampleCount(final boolean b) {
+        m_appendSampleCount = b;
+    }
+
+    /**
+     * Returns the name of the sample count column.
+     *
+     * @return a column name
+     */
+    public String sampleCountColumn() {
+        return m_sampleCountColumn;
+    }
+
+    /**
+     * Sets the name of the sample count column.
+     *
+     * @param colName a column name
+     */
+    public void sampleCountColumn(final String colName) {
+        m_sampleCountColumn = colName;
+    }
+
+    /**
+     * Loads the settings from the given settings object. The settings are new
+     * in this version, so missing settings are replaced by the defaults.
+     *
+     * @param settings a settings object
+     * @throws InvalidSettingsException if the sample count column is empty
+     */
+    public void loadSettings(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        m_appendSampleCount = settings.getBoolean("appendSampleCount", false);
+        m_sampleCountColumn =
+                settings.getString("sampleCountColumn",
+                        DEF_SAMPLE_COUNT_COLUMN);
+        if (m_appendSampleCount
+                && ((m_sampleCountColumn == null) || m_sampleCountColumn
+                        .trim().isEmpty())) {
+            throw new InvalidSettingsException(
+                    "No name for the sample count column given");
+        }
+    }
+
+    /**
+     * Loads the settings from the given settings object using default values
+     * for missing settings.
+     *
+     * @param settings a settings object
+     */
+    public void loadSettingsForDialog(final NodeSettingsRO settings) {
+        m_appendSampleCount = settings.getBoolean("appendSampleCount", false);
+        m_sampleCountColumn =
+                settings.getString("sampleCountColumn",
+                        DEF_SAMPLE_COUNT_COLUMN);
+    }
+
+    /**
+     * Saves the settings into the given settings object.
+     *
+     * @param settings a settings object
+     */
+    public void saveSettings(final NodeSettingsWO settings) {
+        settings.addBoolean("appendSampleCount", m_appendSampleCount);
+        settings.addString("sampleCountColumn", m_sampleCountColumn);
+    }
+}
@@ -49,19 +49,15 @@
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
-import org.knime.core.data.DataType;
 import org.knime.core.data.NominalValue;
-import org.knime.core.data.RowKey;
+import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.ColumnRearranger;
-import org.knime.core.data.container.SingleCellFactory;
 import org.knime.core.data.def.DoubleCell;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
@@ -86,8 +82,8 @@ public class BoostingPredictorLoopEndNodeModel extends NodeModel implements
     private final BoostingPredictorEndSettings m_settings =
             new BoostingPredictorEndSettings();
 
-    private Map<RowKey, Map<DataCell, Double>> m_predictions =
-            new HashMap<RowKey, Map<DataCell, Double>>();
+    /** The scores of the rows, created in the first iteration. */
+    private BoostingScoreAccumulator m_scores;
 
     /**
      * Creates a new node model.
@@ -136,76 +132,35 @@ protected DataTableSpec[] configure(final DataTableSpec[] inSpecs)
         return new DataTableSpec[]{crea.createSpec()};
     }
 
-
     private ColumnRearranger createRearranger(final DataTableSpec inSpec) {
-        ColumnRearranger crea = new ColumnRearranger(inSpec);
-
-        SingleCellFactory predictionFactory =
-                new SingleCellFactory(inSpec.getColumnSpec(m_settings
-                        .predictionColumn())) {
-                    @Override
-                    public DataCell getCell(final DataRow row) {
-                        return predict(row);
-                    }
-                };
-
-        crea.replace(predictionFactory, m_settings.predictionColumn());
+        final ColumnRearranger crea = new ColumnRearranger(inSpec);
+        final String predictionColumn = m_settings.predictionColumn();
+        final int predictionIndex = inSpec.findColumnIndex(predictionColumn);
 
         String name =
                 DataTableSpec.getUniqueColumnName(inSpec,
                         "Prediction probability");
         DataColumnSpec cs =
                 new DataColumnSpecCreator(name, DoubleCell.TYPE).createSpec();
-        SingleCellFactory probabilityFactory = new SingleCellFactory(cs) {
-            @Override
-            public DataCell getCell(final DataRow row) {
-                return new DoubleCell(probability(row));
-            }
-        };
+        // the cells are computed from the row index, hence the rows must be
+        // processed sequentially in the order of the input table
+        AbstractCellFactory factory =
+                new AbstractCellFactory(inSpec.getColumnSpec(predictionIndex),
+                        cs) {
+                    private int m_rowIndex;
 
-        crea.append(probabilityFactory);
+                    @Override
+                    public DataCell[] getCells(final DataRow row) {
+                        return m_scores.predict(m_rowIndex++);
+                    }
+                };
 
+        crea.remove(predictionIndex);
+        crea.append(factory);
+        crea.move(predictionColumn, predictionIndex);
         return crea;
     }
 
-    /* Return the probability for the selected class for this row. */
-    private double probability(final DataRow row) {
-        Map<DataCell, Double> map = m_predictions.get(row.getKey());
-        if (map == null) {
-            return Double.NaN;
-        }
-
-        Double maxProb = 0.0;
-        double sum = 0;
-        for (Map.Entry<DataCell, Double> e : map.entrySet()) {
-            if (e.getValue() > maxProb) {
-                maxProb = e.getValue();
-            }
-            sum += e.getValue();
-        }
-
-        return maxProb / sum;
-    }
-
-    /* Return the predicted i.e. most likely class for this row. */
-    private DataCell predict(final DataRow row) {
-        Map<DataCell, Double> map = m_predictions.get(row.getKey());
-        if (map == null) {
-            return DataType.getMissingCell();
-        }
-
-        Double maxProb = 0.0;
-        DataCell maxValue = DataType.getMissingCell();
-        for (Map.Entry<DataCell, Double> e : map.entrySet()) {
-            if (e.getValue() > maxProb) {
-                maxProb = e.getValue();
-                maxValue = e.getKey();
-            }
-        }
-
-        return maxValue;
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -232,24 +187,14 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
             subExec = exec;
         }
 
-        final double max = inData[0].getRowCount();
-        int i = 0;
-        for (DataRow row : inData[0]) {
-            subExec.checkCanceled();
-            subExec.setProgress(i++ / max);
-            DataCell c = row.getCell(predictionIndex);
-            Map<DataCell, Double> map = m_predictions.get(row.getKey());
-            if (map == null) {
-                map = new HashMap<DataCell, Double>();
-                m_predictions.put(row.getKey(), map);
-            }
-            Double weight = map.get(c);
-            if (weight == null) {
-                map.put(c, modelWeight);
-            } else {
-                map.put(c, weight + modelWeight);
-            }
+        if (m_scores == null) {
+            // the classes of the domain come first
+            m_scores = new BoostingScoreAccumulator(inData[0].getRowCount(),
+                    inData[0].getDataTableSpec().getColumnSpec(predictionIndex)
+                            .getDomain().getValues());
         }
+        m_scores.addPredictions(inData[0], predictionIndex, modelWeight,
+                subExec);
 
         if (((LoopStartNodeTerminator)loopStart).terminateLoop()) {
             ColumnRearranger crea =
@@ -257,6 +202,7 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
             BufferedDataTable table =
                     exec.createColumnRearrangeTable(inData[0], crea,
                             exec.createSubExecutionContext(0.5));
+            reset();
             return new BufferedDataTable[]{table};
         } else {
             continueLoop();
@@ -314,6 +260,6 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
      */
     @Override
     protected void reset() {
-        m_predictions = new HashMap<RowKey, Map<DataCell, Double>>();
+        m_scores = null;
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.ensembles.boosting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataType;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Sums the model weights of the predictions of a boosting predictor loop.
+ * The scores are stored in one double array per class, indexed by the
+ * position of the row, hence every iteration must predict the same rows in
+ * the same order.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class BoostingScoreAccumulator {
+
+    /** The index of each predicted class. */
+    private final Map<DataCell, Integer> m_classIndices =
+            new HashMap<DataCell, Integer>();
+
+    private final List<DataCell> m_classes = new ArrayList<DataCell>();
+
+    /** The summed model weights of row r for class c at m_scores.get(c)[r]. */
+    private final List<double[]> m_scores = new ArrayList<double[]>();
+
+    /** The hash codes of the row keys to check that the rows don't change. */
+    private final int[] m_rowKeyHashes;
+
+    private int m_nrIterations;
+
+    /**
+     * @param nrRows the number of rows that are predicted in each iteration
+     * @param domain the possible values of the prediction column, which come
+     *            first in the class order, or <code>null</code>
+     */
+    BoostingScoreAccumulator(final int nrRows, final Set<DataCell> domain) {
+        m_rowKeyHashes = new int[nrRows];
+        if (domain != null) {
+            for (DataCell c : domain) {
+                getClassIndex(c);
+            }
+        }
+    }
+
+    private int getClassIndex(final DataCell cell) {
+        Integer index = m_classIndices.get(cell);
+        if (index == null) {
+            index = m_classes.size();
+            m_classIndices.put(cell, index);
+            m_classes.add(cell);
+            m_scores.add(new double[m_rowKeyHashes.length]);
+        }
+        return index;
+    }
+
+    /**
+     * Adds the predictions of the next model.
+     *
+     * @param table the predictions of the model
+     * @param predictionIndex the index of the prediction column
+     * @param modelWeight the weight of the model
+     * @param exec to report progress and check for cancelation
+     * @throws CanceledExecutionException if the execution is canceled
+     * @throws IllegalStateException if the table doesn't contain the rows of
+     *             the first iteration in the same order
+     */
+    void addPredictions(final BufferedDataTable table,
+            final int predictionIndex, final double modelWeight,
+            final ExecutionMonitor exec) throws CanceledExecutionException {
+        final int nrRows = m_rowKeyHashes.length;
+        if (table.size() != nrRows) {
+            throw new IllegalStateException("The number of rows changed from "
+                    + nrRows + " to " + table.size()
+                    + ", all iterations must predict the same rows");
+        }
+        final boolean firstIteration = m_nrIterations == 0;
+        final double max = nrRows;
+        int i = 0;
+        for (DataRow row : table) {
+            exec.checkCanceled();
+            exec.setProgress(i / max);
+            final int keyHash = row.getKey().hashCode();
+            if (firstIteration) {
+                m_rowKeyHashes[i] = keyHash;
+            } else if (m_rowKeyHashes[i] != keyHash) {
+                throw new IllegalStateException("Row '" + row.getKey()
+                        + "' is not at the same position as in the first "
+                        + "iteration, all iterations must predict the same "
+                        + "rows in the same order");
+            }
+            DataCell c = row.getCell(predictionIndex);
+            m_scores.get(getClassIndex(c))[i] += modelWeight;
+            i++;
+        }
+        m_nrIterations++;
+    }
+
+    /**
+     * Returns the predicted i.e. most likely class and its probability for
+     * the row at the given index. Ties are resolved in class order.
+     *
+     * @param rowIndex the position of the row
+     * @return the prediction and a double cell with its probability
+     */
+    DataCell[] predict(final int rowIndex) {
+        int maxClass = -1;
+        double maxScore = 0;
+        double sum = 0;
+        for (int c = 0; c < m_scores.size(); c++) {
+            final double score = m_scores.get(c)[rowIndex];
+            if (score > maxScore) {
+                maxScore = score;
+                maxClass = c;
+            }
+            sum += score;
+        }
+        DataCell prediction = maxClass < 0 ? DataType.getMissingCell()
+                : m_classes.get(maxClass);
+        return new DataCell[]{prediction, new DoubleCell(maxScore / sum)};
+    }
+
+}
@@ -0,0 +1,322 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.ensembles.pmml.predictor3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTable;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowIterator;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Predicts a table with all segments of a mining model in a single pass over the table. The rows are read in chunks,
+ * each chunk is predicted by all segments (either one after another or concurrently) and the predictions of the chunk
+ * are combined and written to the output right away. Hence only the predictions of one chunk exist at a time.
+ *
+ * @author Mark Ortmann, KNIME GmbH, Berlin, Germany
+ */
+final class EnsembleChunkPredictor {
+
+    /** The default number of rows that are predicted by all segments at once. */
+    static final int DEFAULT_CHUNK_SIZE = 100000;
+
+    /**
+     * Predicts a table with a single segment of the mining model.
+     */
+    interface SegmentPredictor {
+        /**
+         * @param table the rows to predict
+         * @param exec to create the result and report progress
+         * @return a table with the rows of <b>table</b> in the same order and the prediction in its last column
+         * @throws Exception if the prediction fails
+         */
+        DataTable predict(BufferedDataTable table, ExecutionContext exec) throws Exception;
+    }
+
+    private final List<SegmentPredictor> m_segments;
+
+    private final PredictionCombiner m_combiner;
+
+    private final boolean m_parallel;
+
+    private final int m_chunkSize;
+
+    /**
+     * @param segments the predictors of the segments, all models are prepared once
+     * @param combiner to combine the predictions of a row
+     * @param parallel whether the segments predict a chunk concurrently
+     * @param chunkSize the number of rows that are predicted by all segments at once
+     */
+    EnsembleChunkPredictor(final List<SegmentPredictor> segments, final PredictionCombiner combiner,
+        final boolean parallel, final int chunkSize) {
+        m_segments = segments;
+        m_combiner = combiner;
+        m_parallel = parallel;
+        m_chunkSize = chunkSize;
+    }
+
+    /**
+     * @param inTable the table to predict
+     * @param exec to create the output and report progress
+     * @return the input table with the individual predictions (if enabled) and the combined prediction appended
+     * @throws Exception if a segment fails to predict or the execution is canceled
+     */
+    BufferedDataTable predict(final BufferedDataTable inTable, final ExecutionContext exec) throws Exception {
+        if (inTable.size() <= m_chunkSize) {
+            // a single chunk, which doesn't need to be copied
+            final DataTable[] results = predictSegments(inTable, exec.createSubExecutionContext(0.9));
+            final BufferedDataContainer out =
+                exec.createDataContainer(m_combiner.createSpec(inTable.getDataTableSpec(), getSpecs(results)));
+            try {
+                combine(inTable, results, out, exec.createSubProgress(0.1));
+            } finally {
+                out.close();
+            }
+            return out.getTable();
+        }
+
+        final double nrRows = inTable.size();
+        BufferedDataContainer out = null;
+        try (CloseableRowIterator rows = inTable.iterator()) {
+            while (rows.hasNext()) {
+                exec.checkCanceled();
+                // the chunk keeps the domains of the input table, the models may depend on them
+                final BufferedDataContainer chunkContainer = exec.createDataContainer(inTable.getDataTableSpec(), true);
+                int chunkRows = 0;
+                while (rows.hasNext() && chunkRows < m_chunkSize) {
+                    chunkContainer.addRowToTable(rows.next());
+                    chunkRows++;
+                }
+                chunkContainer.close();
+                final BufferedDataTable chunk = chunkContainer.getTable();
+
+                final ExecutionContext chunkExec = exec.createSubExecutionContext(chunkRows / nrRows);
+                final DataTable[] results = predictSegments(chunk, chunkExec.createSubExecutionContext(0.9));
+                if (out == null) {
+                    out = exec.createDataContainer(
+                        m_combiner.createSpec(inTable.getDataTableSpec(), getSpecs(results)));
+                }
+                combine(chunk, results, out, chunkExec.createSubProgress(0.1));
+
+                // the predictions of the chunk are written, only the output is kept
+                for (DataTable result : results) {
+                    if (result instanceof BufferedDataTable && result != chunk) {
+                        exec.clearTable((BufferedDataTable)result);
+                    }
+                }
+                exec.clearTable(chunk);
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+        return out.getTable();
+    }
+
+    private static DataTableSpec[] getSpecs(final DataTable[] results) {
+        final DataTableSpec[] specs = new DataTableSpec[results.length];
+        for (int i = 0; i < results.length; i++) {
+            specs[i] = results[i].getDataTableSpec();
+        }
+        return specs;
+    }
+
+    /**
+     * Predicts the chunk with each segment. The segments are either predicted one after another or, if enabled,
+     * concurrently.
+     */
+    private DataTable[] predictSegments(final BufferedDataTable chunk, final ExecutionContext exec)
+        throws Exception {
+        final int nrModels = m_segments.size();
+        final DataTable[] results = new DataTable[nrModels];
+
+        if (!m_parallel) {
+            for (int i = 0; i < nrModels; i++) {
+                exec.checkCanceled();
+                exec.setProgress(i / (double)nrModels);
+                results[i] = m_segments.get(i).predict(chunk, exec.createSubExecutionContext(1.0 / nrModels));
+            }
+            return results;
+        }
+
+        final ThreadPool tp = KNIMEConstants.GLOBAL_THREAD_POOL;
+        final int procCount = Runtime.getRuntime().availableProcessors();
+        final Semaphore semaphore = new Semaphore(procCount);
+        final AtomicReference<Throwable> throwableRef = new AtomicReference<Throwable>();
+        final List<Future<DataTable>> futures = new ArrayList<Future<DataTable>>(nrModels);
+        // segments (e.g. gradient boosted trees) enqueue tasks on the same pool and wait for them, hence the waiting
+        // thread must not count as one of the pool's workers
+        final Callable<DataTable[]> predictCallable = new Callable<DataTable[]>() {
+            @Override
+            public DataTable[] call() throws Exception {
+                try {
+                    for (final SegmentPredictor segment : m_segments) {
+                        semaphore.acquire();
+                        checkThrowable(throwableRef);
+                        exec.checkCanceled();
+                        final ExecutionContext subexec = exec.createSubExecutionContext(1.0 / nrModels);
+                        futures.add(tp.enqueue(new Callable<DataTable>() {
+                            @Override
+                            public DataTable call() throws Exception {
+                                try {
+                                    return segment.predict(chunk, subexec);
+                                } catch (Throwable t) {
+                                    throwableRef.compareAndSet(null, t);
+                                    throw t;
+                                } finally {
+                                    semaphore.release();
+                                }
+                            }
+                        }));
+                    }
+                    for (int i = 0; i < nrModels; i++) {
+                        exec.checkCanceled();
+                        try {
+                            results[i] = futures.get(i).get();
+                        } catch (ExecutionException e) {
+                            throwableRef.compareAndSet(null, e.getCause());
+                            break;
+                        }
+                    }
+                    checkThrowable(throwableRef);
+                    return results;
+                } finally {
+                    // no-op if all segments are done, otherwise the result is discarded anyway
+                    cancelAll(futures);
+                }
+            }
+        };
+        try {
+            return tp.runInvisible(predictCallable);
+        } catch (ExecutionException e) {
+            throwableRef.compareAndSet(null, e.getCause());
+            checkThrowable(throwableRef);
+            throw e;
+        }
+    }
+
+    private static void cancelAll(final List<Future<DataTable>> futures) {
+        for (Future<DataTable> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static void checkThrowable(final AtomicReference<Throwable> throwableRef) throws Exception {
+        Throwable t = throwableRef.get();
+        if (t instanceof Exception) {
+            throw (Exception)t;
+        } else if (t instanceof Error) {
+            throw (Error)t;
+        } else if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Combines the predictions of all segments for the rows of a chunk. The result tables are iterated in lockstep
+     * with the chunk, hence no predictions need to be buffered.
+     */
+    private void combine(final BufferedDataTable chunk, final DataTable[] results, final BufferedDataContainer out,
+        final ExecutionMonitor exec) throws Exception {
+        final RowIterator[] iterators = new RowIterator[results.length];
+        try (CloseableRowIterator rows = chunk.iterator()) {
+            for (int i = 0; i < results.length; i++) {
+                iterators[i] = results[i].iterator();
+            }
+            final double max = chunk.size();
+            long rowIndex = 0;
+            while (rows.hasNext()) {
+                final DataRow row = rows.next();
+                exec.checkCanceled();
+                exec.setProgress(rowIndex++ / max);
+                final RowKey key = row.getKey();
+                final List<DataCell> predictions = new ArrayList<DataCell>(iterators.length);
+                for (int i = 0; i < iterators.length; i++) {
+                    final RowIterator it = iterators[i];
+                    if (!it.hasNext()) {
+                        throw new IllegalStateException(
+                            "The prediction of segment " + i + " has no row for input row '" + key + "'");
+                    }
+                    DataRow resultRow = it.next();
+                    if (!key.equals(resultRow.getKey())) {
+                        throw new IllegalStateException("Prediction for row '" + resultRow.getKey()
+                            + "' does not match input row '" + key + "'");
+                    }
+                    /*
+                     * We have to assume that the last column contains the prediction.
+                     */
+                    predictions.add(resultRow.getCell(resultRow.getNumCells() - 1));
+                }
+                out.addRowToTable(new DefaultRow(key, m_combiner.combine(row, predictions)));
+            }
+        } finally {
+            for (RowIterator it : iterators) {
+                if (it instanceof CloseableRowIterator) {
+                    ((CloseableRowIterator)it).close();
+                }
+            }
+        }
+    }
+
+}
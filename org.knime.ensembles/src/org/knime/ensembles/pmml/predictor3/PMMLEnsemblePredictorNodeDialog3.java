@@ -76,6 +76,9 @@ protected PMMLEnsemblePredictorNodeDialog3() {
         addDialogComponent(new DialogComponentStringSelection(
                 PMMLEnsemblePredictor2NodeModel.createTieBreakSettingsModel(),
                 "Tie break", new String[]{"missing", "any"}));
+        addDialogComponent(new DialogComponentBoolean(
+                PMMLEnsemblePredictorNodeModel3.createParallelPredictionSettingsModel(),
+                "Predict segments in parallel"));
     }
 
 }
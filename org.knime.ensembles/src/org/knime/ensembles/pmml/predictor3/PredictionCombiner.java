@@ -0,0 +1,378 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.ensembles.pmml.predictor3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import org.dmg.pmml.MININGFUNCTION;
+import org.dmg.pmml.MULTIPLEMODELMETHOD;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.ensembles.pmml.ModelNotSupportedException;
+
+/**
+ * Combines the predictions of the segments of a mining model for a single row according to the multiple model method
+ * of the mining model.
+ *
+ * @author Mark Ortmann, KNIME GmbH, Berlin, Germany
+ */
+final class PredictionCombiner {
+
+    // See http://www.dmg.org/v4-0-1/MultipleModels.html
+    private static final org.dmg.pmml.MULTIPLEMODELMETHOD.Enum[] CLUSTERINGMETHODS =
+        new org.dmg.pmml.MULTIPLEMODELMETHOD.Enum[]{org.dmg.pmml.MULTIPLEMODELMETHOD.MAJORITY_VOTE,
+            org.dmg.pmml.MULTIPLEMODELMETHOD.WEIGHTED_MAJORITY_VOTE, org.dmg.pmml.MULTIPLEMODELMETHOD.SELECT_FIRST,
+            org.dmg.pmml.MULTIPLEMODELMETHOD.SELECT_ALL};
+
+    private static final org.dmg.pmml.MULTIPLEMODELMETHOD.Enum[] CLASSIFICATIONMETHODS =
+        new org.dmg.pmml.MULTIPLEMODELMETHOD.Enum[]{org.dmg.pmml.MULTIPLEMODELMETHOD.MAJORITY_VOTE,
+            org.dmg.pmml.MULTIPLEMODELMETHOD.WEIGHTED_MAJORITY_VOTE, org.dmg.pmml.MULTIPLEMODELMETHOD.SELECT_FIRST,
+            org.dmg.pmml.MULTIPLEMODELMETHOD.SELECT_ALL,};
+
+    private static final org.dmg.pmml.MULTIPLEMODELMETHOD.Enum[] REGRESSIONMETHODS =
+        new org.dmg.pmml.MULTIPLEMODELMETHOD.Enum[]{org.dmg.pmml.MULTIPLEMODELMETHOD.AVERAGE,
+            org.dmg.pmml.MULTIPLEMODELMETHOD.MAX, org.dmg.pmml.MULTIPLEMODELMETHOD.WEIGHTED_AVERAGE,
+            org.dmg.pmml.MULTIPLEMODELMETHOD.MEDIAN, org.dmg.pmml.MULTIPLEMODELMETHOD.SUM,
+            org.dmg.pmml.MULTIPLEMODELMETHOD.SELECT_FIRST, org.dmg.pmml.MULTIPLEMODELMETHOD.SELECT_ALL};
+
+    private final MULTIPLEMODELMETHOD.Enum m_method;
+
+    private final double[] m_weights;
+
+    private final String m_tieBreak;
+
+    private final boolean m_returnIndividualPredictions;
+
+    private final String m_resultName;
+
+    private final DataType m_resultType;
+
+    /**
+     * @param method the multiple model method of the mining model
+     * @param funcName the mining function of the mining model
+     * @param weights the weights of the segments
+     * @param tieBreak how ties in (weighted) majority votes are treated, "missing" or "any"
+     * @param returnIndividualPredictions whether the predictions of the segments are output
+     * @param useMethodAsColumnName whether the column of the combined prediction is named after the method
+     * @throws ModelNotSupportedException if the method is not supported for the mining function
+     */
+    PredictionCombiner(final MULTIPLEMODELMETHOD.Enum method, final MININGFUNCTION.Enum funcName,
+        final double[] weights, final String tieBreak, final boolean returnIndividualPredictions,
+        final boolean useMethodAsColumnName) throws ModelNotSupportedException {
+        m_method = method;
+        m_weights = weights;
+        m_tieBreak = tieBreak;
+        m_returnIndividualPredictions = returnIndividualPredictions;
+        // Set the header of the result column
+        m_resultName = useMethodAsColumnName ? method.toString() : "Prediction";
+
+        // Set the DataType of the result column and check if the MultipleModelMethod is valid
+        // SelectAll and SelectFirst are ok for all model types
+        DataType resultType = null;
+        if (method == org.dmg.pmml.MULTIPLEMODELMETHOD.MODEL_CHAIN) {
+            throw new ModelNotSupportedException("Model chains are currently not supported");
+        } else if (method != org.dmg.pmml.MULTIPLEMODELMETHOD.SELECT_ALL
+            && method != org.dmg.pmml.MULTIPLEMODELMETHOD.SELECT_FIRST) {
+
+            if (funcName == org.dmg.pmml.MININGFUNCTION.CLASSIFICATION) {
+                if (!methodValidFor(method, CLASSIFICATIONMETHODS)) {
+                    throw new ModelNotSupportedException(
+                        "The multiple model method '" + method.toString() + "' is not suitable for classification");
+                }
+                resultType = StringCell.TYPE;
+            } else if (funcName == org.dmg.pmml.MININGFUNCTION.REGRESSION) {
+                if (!methodValidFor(method, REGRESSIONMETHODS)) {
+                    throw new ModelNotSupportedException(
+                        "The multiple model method '" + method.toString() + "' is not suitable for regression");
+                }
+                resultType = DoubleCell.TYPE;
+            } else if (funcName == org.dmg.pmml.MININGFUNCTION.CLUSTERING) {
+                if (!methodValidFor(method, CLUSTERINGMETHODS)) {
+                    throw new ModelNotSupportedException(
+                        "The multiple model method '" + method.toString() + "' is not suitable for clustering");
+                }
+                resultType = StringCell.TYPE;
+            }
+        } else {
+            resultType = StringCell.TYPE;
+        }
+        m_resultType = resultType;
+    }
+
+    //Check if the multiplemodelmethod is in the array for a mining function
+    private static boolean methodValidFor(final org.dmg.pmml.MULTIPLEMODELMETHOD.Enum method,
+        final org.dmg.pmml.MULTIPLEMODELMETHOD.Enum[] allowed) {
+        for (org.dmg.pmml.MULTIPLEMODELMETHOD.Enum m : allowed) {
+            if (m == method) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param inSpec the spec of the input table
+     * @param resultSpecs the specs of the predictions of the segments, which have the prediction in their last
+     *            column
+     * @return the spec of the output table
+     */
+    DataTableSpec createSpec(final DataTableSpec inSpec, final DataTableSpec[] resultSpecs) {
+        // Collect specs for the columns in the result table
+        String[] names;
+        DataType[] types;
+        int counter = 0;
+
+        if (m_returnIndividualPredictions) {
+            names = new String[resultSpecs.length + 1];
+            types = new DataType[resultSpecs.length + 1];
+            for (DataTableSpec resultSpec : resultSpecs) {
+                names[counter] = "result" + counter;
+                types[counter] = resultSpec.getColumnSpec(resultSpec.getNumColumns() - 1).getType();
+                counter++;
+            }
+        } else {
+            names = new String[1];
+            types = new DataType[1];
+        }
+        names[counter] = m_resultName;
+        types[counter] = m_resultType;
+        return new DataTableSpec(inSpec, new DataTableSpec(names, types));
+    }
+
+    /**
+     * Combines the predictions of the segments for a row.
+     *
+     * @param row the input row
+     * @param predictions the predictions of the segments for the row, in the order of the segments
+     * @return the cells of the output row, i.e. the cells of the input row followed by the individual predictions
+     *         (if enabled) and the combined prediction
+     * @throws ModelNotSupportedException if the multiple model method is not supported
+     */
+    DataCell[] combine(final DataRow row, final List<DataCell> predictions) throws ModelNotSupportedException {
+        final int numModels = predictions.size();
+        ArrayList<DataCell> list = new ArrayList<DataCell>(numModels + 1);
+        list.addAll(predictions);
+        if (m_method == org.dmg.pmml.MULTIPLEMODELMETHOD.AVERAGE) {
+            list.add(average(list));
+        } else if (m_method == org.dmg.pmml.MULTIPLEMODELMETHOD.WEIGHTED_AVERAGE) {
+            list.add(weightedAverage(list, m_weights));
+        } else if (m_method == org.dmg.pmml.MULTIPLEMODELMETHOD.MAJORITY_VOTE) {
+            list.add(majorityVote(list));
+        } else if (m_method == org.dmg.pmml.MULTIPLEMODELMETHOD.WEIGHTED_MAJORITY_VOTE) {
+            list.add(weightedMajorityVote(list, m_weights));
+        } else if (m_method == org.dmg.pmml.MULTIPLEMODELMETHOD.MAX) {
+            list.add(max(list));
+        } else if (m_method == org.dmg.pmml.MULTIPLEMODELMETHOD.MEDIAN) {
+            list.add(median(list));
+        } else if (m_method == org.dmg.pmml.MULTIPLEMODELMETHOD.SUM) {
+            list.add(sum(list));
+        } else if (m_method == org.dmg.pmml.MULTIPLEMODELMETHOD.SELECT_FIRST) {
+            list.add(list.get(0));
+        } else if (m_method == org.dmg.pmml.MULTIPLEMODELMETHOD.SELECT_ALL) {
+            list.add(selectAll(list));
+        } else {
+            throw new ModelNotSupportedException("Multiple model method " + m_method.toString() + " is not supported");
+        }
+        int numCols = row.getNumCells();
+        DataCell[] cells = new DataCell[m_returnIndividualPredictions ? numCols + numModels + 1 : numCols + 1];
+
+        int counter = 0;
+        for (DataCell c : row) {
+            cells[counter++] = c;
+        }
+        if (m_returnIndividualPredictions) {
+            for (DataCell c : list) {
+                cells[counter++] = c;
+            }
+        } else {
+            cells[counter++] = list.get(list.size() - 1);
+        }
+        return cells;
+    }
+
+    private static StringCell selectAll(final List<DataCell> cells) {
+        StringBuffer buffer = new StringBuffer();
+        for (int i = 0; i < cells.size(); i++) {
+            buffer.append('\"');
+            buffer.append(cells.get(i).toString());
+            buffer.append('\"');
+            if (i != cells.size() - 1) {
+                buffer.append(';');
+            }
+        }
+        return new StringCell(buffer.toString());
+    }
+
+    private static DataCell median(final List<DataCell> cells) {
+        if (cells.size() == 1) {
+            return cells.get(0);
+        }
+        List<DataCell> sortedCells = new ArrayList<DataCell>(cells);
+        Collections.sort(sortedCells, new Comparator<DataCell>() {
+            @Override
+            public int compare(final DataCell arg0, final DataCell arg1) {
+                //We only need it to compare double cells
+                if (arg0 instanceof DoubleCell && arg1 instanceof DoubleCell) {
+                    DoubleCell c1 = (DoubleCell)arg0;
+                    DoubleCell c2 = (DoubleCell)arg1;
+                    if (c1.getDoubleValue() > c2.getDoubleValue()) {
+                        return 1;
+                    } else if (c2.getDoubleValue() > c1.getDoubleValue()) {
+                        return -1;
+                    }
+                    return 0;
+                }
+                return 0;
+            }
+        });
+        if (sortedCells.size() % 2 != 0) {
+            // Odd number of samples -> Take the one in the middle
+            return new DoubleCell(((DoubleCell)sortedCells.get(sortedCells.size() / 2 + 1)).getDoubleValue());
+        } else {
+            // Even number of samples -> take the average of the two in the middle
+            int idx = sortedCells.size() / 2;
+            double val1 = ((DoubleCell)sortedCells.get(idx)).getDoubleValue();
+            double val2 = ((DoubleCell)sortedCells.get(idx - 1)).getDoubleValue();
+            return new DoubleCell((val1 + val2) / 2);
+        }
+    }
+
+    private static DoubleCell sum(final List<DataCell> cells) {
+        double sum = 0.0;
+        for (DataCell c : cells) {
+            if (c instanceof DoubleCell) {
+                sum += ((DoubleCell)c).getDoubleValue();
+            }
+        }
+        return new DoubleCell(sum);
+    }
+
+    private static DoubleCell max(final List<DataCell> cells) {
+        Double max = Double.NaN;
+        for (DataCell c : cells) {
+            if (c instanceof DoubleCell) {
+                double v = ((DoubleCell)c).getDoubleValue();
+                if (Double.isNaN(max) || v > max) {
+                    max = v;
+                }
+            }
+        }
+        return new DoubleCell(max);
+    }
+
+    private DataCell majorityVote(final List<DataCell> cells) {
+        return vote(cells, new double[0], false);
+    }
+
+    private DataCell weightedMajorityVote(final List<DataCell> cells, final double[] weights) {
+        return vote(cells, weights, true);
+    }
+
+    private DataCell vote(final List<DataCell> cells, final double[] weights, final boolean useWeights) {
+        HashMap<String, Double> catCount = new HashMap<String, Double>();
+        int index = 0;
+        ArrayList<String> mostFreq = new ArrayList<String>();
+
+        for (DataCell c : cells) {
+            Double val = catCount.get(c.toString());
+            Double newVal = (useWeights) ? weights[index] : 1.0;
+
+            if (val != null) {
+                newVal += val;
+            }
+            if (mostFreq.size() > 0) {
+                double w = catCount.get(mostFreq.get(0));
+                if (w == newVal) {
+                    mostFreq.add(c.toString());
+                } else if (w < newVal) {
+                    mostFreq.clear();
+                    mostFreq.add(c.toString());
+                }
+            } else {
+                mostFreq.add(c.toString());
+            }
+            catCount.put(c.toString(), newVal);
+            index++;
+        }
+
+        String winner = mostFreq.get(0);
+        if (mostFreq.size() > 1) {
+            if (m_tieBreak.equals("missing")) {
+                return new MissingCell("2 classes with same vote");
+            } else if (m_tieBreak.equals("any")) {
+                return new StringCell(winner);
+            }
+        }
+        return new StringCell(winner);
+    }
+
+    private static DoubleCell average(final List<DataCell> cells) {
+        double sum = 0;
+        for (DataCell c : cells) {
+            sum += ((DoubleCell)c).getDoubleValue();
+        }
+        return new DoubleCell(sum / cells.size());
+    }
+
+    private static DoubleCell weightedAverage(final List<DataCell> cells, final double[] weights) {
+        double sum = 0;
+        int counter = 0;
+        for (DataCell c : cells) {
+            sum += ((DoubleCell)c).getDoubleValue() * weights[counter++];
+        }
+        return new DoubleCell(sum / cells.size());
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.ensembles.voting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Collects the predictions of the iterations of a voting loop. Each row key
+ * is mapped to a dense row index when it is first seen and each distinct
+ * prediction to a class index, the votes of an iteration are then stored
+ * as one int per row. The output table is only created at the end.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class VoteAccumulator {
+
+    /** The class of missing predictions and of rows absent in an iteration. */
+    private static final int MISSING = 0;
+
+    private final Map<RowKey, Integer> m_rowIndices =
+        new HashMap<RowKey, Integer>();
+
+    private final List<RowKey> m_rowKeys = new ArrayList<RowKey>();
+
+    private final Map<DataCell, Integer> m_classIndices =
+        new HashMap<DataCell, Integer>();
+
+    private final List<DataCell> m_classes = new ArrayList<DataCell>();
+
+    /** The class of row r in iteration i at m_votes.get(i)[r]. */
+    private final List<int[]> m_votes = new ArrayList<int[]>();
+
+    private final List<DataColumnSpec> m_voteSpecs =
+        new ArrayList<DataColumnSpec>();
+
+    VoteAccumulator() {
+        m_classes.add(DataType.getMissingCell());
+    }
+
+    /**
+     * Adds the votes of the next iteration.
+     *
+     * @param table the predictions of the iteration
+     * @param columnIndex the index of the prediction column
+     * @param exec to report progress and check for cancelation
+     * @throws CanceledExecutionException if the execution is canceled
+     */
+    void addVotes(final BufferedDataTable table, final int columnIndex,
+            final ExecutionMonitor exec) throws CanceledExecutionException {
+        final DataColumnSpec spec =
+            table.getDataTableSpec().getColumnSpec(columnIndex);
+        final DataColumnSpecCreator creator = new DataColumnSpecCreator(spec);
+        creator.setName(spec.getName() + "#" + m_votes.size());
+        final long rowCount = table.size();
+        // rows that are new in this iteration are appended
+        int[] votes = new int[m_rowKeys.size() + (int)rowCount];
+        long i = 0;
+        for (DataRow row : table) {
+            votes[getRowIndex(row.getKey())] =
+                getClassIndex(row.getCell(columnIndex));
+            exec.setProgress((++i) / (double)rowCount, "Process row " + i
+                    + "/" + rowCount + " (\"" + row.getKey() + "\")");
+            exec.checkCanceled();
+        }
+        if (votes.length > m_rowKeys.size()) {
+            votes = Arrays.copyOf(votes, m_rowKeys.size());
+        }
+        m_votes.add(votes);
+        m_voteSpecs.add(creator.createSpec());
+    }
+
+    private int getRowIndex(final RowKey key) {
+        Integer index = m_rowIndices.get(key);
+        if (index == null) {
+            index = m_rowKeys.size();
+            m_rowIndices.put(key, index);
+            m_rowKeys.add(key);
+        }
+        return index;
+    }
+
+    private int getClassIndex(final DataCell cell) {
+        if (cell.isMissing()) {
+            return MISSING;
+        }
+        Integer index = m_classIndices.get(cell);
+        if (index == null) {
+            index = m_classes.size();
+            m_classIndices.put(cell, index);
+            m_classes.add(cell);
+        }
+        return index;
+    }
+
+    /**
+     * Creates the table with the most frequent prediction of each row. If
+     * several predictions are equally frequent, the one that occurs first
+     * wins. Missing predictions count as votes for a missing value.
+     *
+     * @param winnerSpec the spec of the column with the most frequent
+     *            prediction
+     * @param withVotes whether to include a column with the predictions of
+     *            each iteration before the winner column
+     * @param exec to create the table and report progress
+     * @return the table with a row for each row seen in any iteration
+     * @throws CanceledExecutionException if the execution is canceled
+     */
+    BufferedDataTable createTable(final DataColumnSpec winnerSpec,
+            final boolean withVotes, final ExecutionContext exec)
+            throws CanceledExecutionException {
+        final int nrIterations = m_votes.size();
+        final List<DataColumnSpec> specs = new ArrayList<DataColumnSpec>();
+        if (withVotes) {
+            specs.addAll(m_voteSpecs);
+        }
+        specs.add(winnerSpec);
+        final BufferedDataContainer container = exec.createDataContainer(
+                new DataTableSpec(specs.toArray(new DataColumnSpec[0])));
+        // class -> count, only the touched classes are reset after a row
+        final int[] counts = new int[m_classes.size()];
+        final int[] touched = new int[Math.min(m_classes.size(),
+                nrIterations)];
+        final int nrRows = m_rowKeys.size();
+        for (int r = 0; r < nrRows; r++) {
+            final DataCell[] cells = new DataCell[specs.size()];
+            int nrTouched = 0;
+            for (int i = 0; i < nrIterations; i++) {
+                final int[] votes = m_votes.get(i);
+                final int vote = r < votes.length ? votes[r] : MISSING;
+                if (counts[vote]++ == 0) {
+                    touched[nrTouched++] = vote;
+                }
+                if (withVotes) {
+                    cells[i] = m_classes.get(vote);
+                }
+            }
+            // the first of the most frequent classes in order of occurrence
+            int winner = touched[0];
+            for (int t = 1; t < nrTouched; t++) {
+                if (counts[touched[t]] > counts[winner]) {
+                    winner = touched[t];
+                }
+            }
+            for (int t = 0; t < nrTouched; t++) {
+                counts[touched[t]] = 0;
+            }
+            cells[cells.length - 1] = m_classes.get(winner);
+            container.addRowToTable(new DefaultRow(m_rowKeys.get(r), cells));
+            exec.setProgress((r + 1) / (double)nrRows, "Row " + (r + 1)
+                    + "/" + nrRows);
+            exec.checkCanceled();
+        }
+        container.close();
+        return container.getTable();
+    }
+
+}